@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.controller;
+
+import java.io.IOException;
+import java.util.Optional;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import lombok.val;
+import org.icgc.argo.program_service.model.exceptions.TooManyRequestsException;
+import org.icgc.argo.program_service.model.exceptions.UnauthorizedException;
+import org.icgc.argo.program_service.security.EgoRestSecurity;
+import org.icgc.argo.program_service.services.admission.AdmissionPolicy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Admits REST calls through the {@link AdmissionPolicy}, refusing the others with 429 and a
+ * Retry-After header. The operation is the controller method name, capitalized to match the gRPC
+ * method of the same name, e.g. listUsers is ListUsers. Requests not handled by a controller, e.g.
+ * actuator and swagger, are not limited.
+ */
+@Component
+public class AdmissionFilter extends OncePerRequestFilter {
+
+  private static final String TOKEN_PREFIX = "Bearer";
+
+  /** Dependencies */
+  private final AdmissionPolicy admissionPolicy;
+
+  private final HandlerMapping handlerMapping;
+
+  /** Only present with the auth profile, anonymous callers are limited by address */
+  private final ObjectProvider<EgoRestSecurity> egoRestSecurity;
+
+  @Autowired
+  public AdmissionFilter(
+      @NonNull AdmissionPolicy admissionPolicy,
+      @NonNull @Qualifier("requestMappingHandlerMapping") HandlerMapping handlerMapping,
+      @NonNull ObjectProvider<EgoRestSecurity> egoRestSecurity) {
+    this.admissionPolicy = admissionPolicy;
+    this.handlerMapping = handlerMapping;
+    this.egoRestSecurity = egoRestSecurity;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    val operation = admissionPolicy.isEnabled() ? operation(request) : Optional.<String>empty();
+    if (operation.isEmpty()) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    AdmissionPolicy.Permit permit;
+    try {
+      permit = admissionPolicy.admit(caller(request), operation.get());
+    } catch (TooManyRequestsException e) {
+      val retryAfterSeconds = (e.getRetryAfterMs() + 999) / 1000;
+      response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+      response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage());
+      return;
+    }
+    try (permit) {
+      filterChain.doFilter(request, response);
+    }
+  }
+
+  private Optional<String> operation(HttpServletRequest request) {
+    try {
+      val handler = handlerMapping.getHandler(request);
+      if (handler != null && handler.getHandler() instanceof HandlerMethod) {
+        val method = ((HandlerMethod) handler.getHandler()).getMethod();
+        return Optional.of(StringUtils.capitalize(method.getName()));
+      }
+    } catch (Exception e) {
+      // Left to the dispatcher, which fails the request the same way
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * The authenticated Ego user, or the client address for anonymous or invalid tokens. The token
+   * verified here is reused by the authorization checks of the same request. Behind a proxy the
+   * address is the one the proxy forwarded, see server.forward-headers-strategy.
+   */
+  private String caller(HttpServletRequest request) {
+    val authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+    val security = egoRestSecurity.getIfAvailable();
+    if (authorization != null && security != null) {
+      try {
+        val token = security.verifyRestTokenHeader(authorization.replace(TOKEN_PREFIX, "").trim());
+        if (token.isPresent() && token.get().getEmail() != null) {
+          return "user:" + token.get().getEmail();
+        }
+      } catch (UnauthorizedException e) {
+        // Refused later by the authorization checks, limited like any anonymous caller until then
+      }
+    }
+    return "ip:" + request.getRemoteAddr();
+  }
+}
@@ -0,0 +1,55 @@
+package org.icgc.argo.program_service.controller;
+
+import static java.util.stream.Collectors.toList;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import java.util.List;
+import lombok.val;
+import org.icgc.argo.program_service.model.dto.ChangeEventDTO;
+import org.icgc.argo.program_service.services.ProgramServiceFacade;
+import org.icgc.argo.program_service.services.auth.RestAuthorizationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Incremental reads of the change log, the REST counterpart of WatchChanges. Consumers pass the
+ * {@link #LAST_CHANGE_ID_HEADER} of the previous response as {@code since}; an empty page means
+ * they are caught up.
+ */
+@RestController
+@RequestMapping("/changes")
+public class ChangeController {
+  /**
+   * Last entry read, also when it was filtered out. An unchanged {@code since} is returned when
+   * there was nothing new.
+   */
+  static final String LAST_CHANGE_ID_HEADER = "X-Last-Change-Id";
+
+  @Autowired private ProgramServiceFacade serviceFacade;
+  @Autowired private RestAuthorizationService authorizationService;
+
+  @GetMapping
+  public ResponseEntity<List<ChangeEventDTO>> listChanges(
+      @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = true)
+          final String authorization,
+      @RequestParam(value = "since", required = false, defaultValue = "0") long since,
+      @RequestParam(value = "limit", required = false, defaultValue = "0") int limit) {
+    val changes = serviceFacade.listChanges(since, limit);
+    val lastId = changes.isEmpty() ? since : changes.get(changes.size() - 1).getId();
+
+    // Program scoped entries are only returned to callers who can read the program
+    val readable =
+        changes.stream()
+            .filter(
+                c ->
+                    c.getProgramShortName() == null
+                        || authorizationService.canRead(c.getProgramShortName(), authorization))
+            .collect(toList());
+    val headers = new HttpHeaders();
+    headers.set(LAST_CHANGE_ID_HEADER, String.valueOf(lastId));
+    return new ResponseEntity<>(readable, headers, HttpStatus.OK);
+  }
+}
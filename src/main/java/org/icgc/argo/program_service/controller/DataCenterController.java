@@ -9,6 +9,7 @@ import org.icgc.argo.program_service.model.dto.DataCenterDTO;
 import org.icgc.argo.program_service.model.dto.DataCenterRequestDTO;
 import org.icgc.argo.program_service.model.dto.ProgramsResponseDTO;
 import org.icgc.argo.program_service.model.dto.UpdateDataCenterRequestDTO;
+import org.icgc.argo.program_service.repositories.query.KeysetPageRequest;
 import org.icgc.argo.program_service.services.ProgramServiceFacade;
 import org.icgc.argo.program_service.services.auth.RestAuthorizationService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,10 +37,17 @@ public class DataCenterController {
   public ResponseEntity<ProgramsResponseDTO> listDataCenterPrograms(
       @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = true)
           final String authorization,
-      @PathVariable(value = "datacenter_short_name", required = true) String dataCenterShortName) {
+      @PathVariable(value = "datacenter_short_name", required = true) String dataCenterShortName,
+      @RequestParam(value = "pageSize", required = false, defaultValue = "0") int pageSize,
+      @RequestParam(value = "pageToken", required = false) String pageToken) {
     authorizationService.requireDCCAdmin(authorization);
-    return new ResponseEntity(
-        serviceFacade.listProgramsByDataCenter(dataCenterShortName), HttpStatus.OK);
+    val page =
+        serviceFacade.listProgramsByDataCenter(
+            dataCenterShortName, KeysetPageRequest.of(pageSize, pageToken));
+    return new ResponseEntity<>(
+        new ProgramsResponseDTO(page.getItems()),
+        ProgramController.nextPageHeaders(page),
+        HttpStatus.OK);
   }
 
   @PostMapping
@@ -1,5 +1,6 @@
 package org.icgc.argo.program_service.controller;
 
+import com.google.protobuf.Int32Value;
 import com.google.protobuf.StringValue;
 import io.grpc.StatusRuntimeException;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,27 +11,42 @@ import org.icgc.argo.program_service.converter.Grpc2JsonConverter;
 import org.icgc.argo.program_service.model.dto.*;
 import org.icgc.argo.program_service.model.exceptions.NotFoundException;
 import org.icgc.argo.program_service.proto.*;
+import org.icgc.argo.program_service.repositories.query.KeysetPage;
+import org.icgc.argo.program_service.repositories.query.KeysetPageRequest;
+import org.icgc.argo.program_service.repositories.query.ProgramFilter;
+import org.icgc.argo.program_service.services.CatalogVersionService;
 import org.icgc.argo.program_service.services.ProgramServiceFacade;
+import org.icgc.argo.program_service.services.ProgramSnapshotCache;
 import org.icgc.argo.program_service.services.auth.RestAuthorizationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.io.IOException;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
 @RestController
 @RequestMapping("/programs")
 public class ProgramController {
+  /** Paged listings keep their response body and return the cursor for the next page here */
+  static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
   @Autowired private ProgramServiceFacade serviceFacade;
   @Autowired private Grpc2JsonConverter grpc2JsonConverter;
   @Autowired private RestAuthorizationService authorizationService;
+  @Autowired private ProgramSnapshotCache programSnapshotCache;
+  @Autowired private CatalogVersionService catalogVersionService;
 
   @PostMapping
   public ResponseEntity<CreateProgramResponseDTO> createProgram(
@@ -86,20 +102,39 @@ public class ProgramController {
   public ResponseEntity<ProgramDetailsDTO> getProgram(
       @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = true)
           final String authorization,
-      @PathVariable(value = "shortName", required = true) String shortName)
+      @PathVariable(value = "shortName", required = true) String shortName,
+      WebRequest webRequest)
       throws IOException {
-    ProgramDetailsDTO programDetailsDTO = null;
+    // Responses depend on the caller, so only the browser may keep them, and must revalidate
+    val cacheControl = CacheControl.noCache().cachePrivate();
     try {
       authorizationService.requireProgramUser(shortName, authorization);
+      val validators = catalogVersionService.getProgramValidators(shortName, false);
+      if (webRequest.checkNotModified(validators.getETag(), validators.getLastModified())) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+      }
       GetProgramRequest request =
           GetProgramRequest.newBuilder().setShortName(StringValue.of(shortName)).build();
-      programDetailsDTO = serviceFacade.getProgramWithDataCenterDetails(request);
+      if (!programSnapshotCache.isEnabled()) {
+        return ResponseEntity.ok()
+            .cacheControl(cacheControl)
+            .body(serviceFacade.getProgramWithDataCenterDetails(request));
+      }
+      val programDetailsJson =
+          programSnapshotCache.getProgramJson(
+              shortName,
+              validators.getETag(),
+              () -> serviceFacade.getProgramWithDataCenterDetails(request));
+      // Already serialized by the snapshot cache, so skip the JSON message converter
+      val headers = new HttpHeaders();
+      headers.setContentType(MediaType.APPLICATION_JSON);
+      headers.setCacheControl(cacheControl);
+      return new ResponseEntity(programDetailsJson, headers, HttpStatus.OK);
     } catch (StatusRuntimeException exception) {
       if (exception.getStatus().getCode().name().equalsIgnoreCase(HttpStatus.NOT_FOUND.name()))
         log.error("Exception thrown in getProgram: {}", exception.getMessage());
       return new ResponseEntity(exception.getMessage(), HttpStatus.BAD_REQUEST);
     }
-    return new ResponseEntity(programDetailsDTO, HttpStatus.OK);
   }
 
   @PostMapping(value = "/activate")
@@ -127,11 +162,51 @@ public class ProgramController {
   @GetMapping
   public ResponseEntity<List<ProgramDetailsDTO>> listPrograms(
       @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = true)
-          final String authorization) {
-    return new ResponseEntity(
+          final String authorization,
+      @RequestParam(value = "pageSize", required = false, defaultValue = "0") int pageSize,
+      @RequestParam(value = "pageToken", required = false) String pageToken,
+      @RequestParam(value = "country", required = false) Set<String> countries,
+      @RequestParam(value = "cancerType", required = false) Set<String> cancerTypes,
+      @RequestParam(value = "primarySite", required = false) Set<String> primarySites,
+      @RequestParam(value = "membershipType", required = false) MembershipType membershipType,
+      @RequestParam(value = "dataCenter", required = false) String dataCenterShortName) {
+    val filter =
+        ProgramFilter.builder()
+            .countries(countries == null ? Set.of() : countries)
+            .cancerTypes(cancerTypes == null ? Set.of() : cancerTypes)
+            .primarySites(primarySites == null ? Set.of() : primarySites)
+            .membershipType(membershipType)
+            .dataCenterShortName(dataCenterShortName)
+            .build();
+    val page =
         serviceFacade.listProgramsWithDataCenterDetails(
-            p -> authorizationService.canRead(p.getShortName(), authorization)),
-        HttpStatus.OK);
+            p -> authorizationService.canRead(p.getShortName(), authorization),
+            filter,
+            KeysetPageRequest.of(pageSize, pageToken));
+    return new ResponseEntity<>(page.getItems(), nextPageHeaders(page), HttpStatus.OK);
+  }
+
+  @GetMapping(value = "/search")
+  public ResponseEntity<List<ProgramSummaryDTO>> searchPrograms(
+      @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = true)
+          final String authorization,
+      @RequestParam(value = "q") String query,
+      @RequestParam(value = "limit", required = false, defaultValue = "0") int limit) {
+    val response =
+        serviceFacade.searchPrograms(
+            SearchRequest.newBuilder()
+                .setQuery(StringValue.of(query))
+                .setLimit(Int32Value.of(limit))
+                .build(),
+            p -> authorizationService.canRead(p.getShortName(), authorization));
+    return new ResponseEntity<>(
+        grpc2JsonConverter.prepareSearchProgramsResponse(response).getPrograms(), HttpStatus.OK);
+  }
+
+  static HttpHeaders nextPageHeaders(KeysetPage<?> page) {
+    val headers = new HttpHeaders();
+    page.getNextPageToken().ifPresent(token -> headers.set(NEXT_PAGE_TOKEN_HEADER, token));
+    return headers;
   }
 
   @PostMapping(value = "/users")
@@ -151,6 +226,23 @@ public class ProgramController {
         HttpStatus.OK);
   }
 
+  @PostMapping(value = "/users/batch")
+  public ResponseEntity<InviteUsersResponseDTO> inviteUsers(
+      @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = true)
+          final String authorization,
+      @RequestBody InviteUsersRequestDTO inviteUsersRequestDTO)
+      throws IOException {
+
+    authorizationService.requireProgramAdmin(
+        inviteUsersRequestDTO.getProgramShortName(), authorization);
+    InviteUsersRequest request =
+        grpc2JsonConverter.fromJson(
+            grpc2JsonConverter.getJsonFromObject(inviteUsersRequestDTO), InviteUsersRequest.class);
+    return new ResponseEntity<>(
+        grpc2JsonConverter.prepareInviteUsersResponse(serviceFacade.inviteUsers(request)),
+        HttpStatus.OK);
+  }
+
   @PostMapping(value = "/join")
   public ResponseEntity<JoinProgramResponseDTO> joinProgram(
       @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = true)
@@ -178,12 +270,21 @@ public class ProgramController {
   public ResponseEntity<List<UserDetailsDTO>> listUsers(
       @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = true)
           final String authorization,
-      @PathVariable(value = "shortName", required = true) String shortName) {
+      @PathVariable(value = "shortName", required = true) String shortName,
+      @RequestParam(value = "pageSize", required = false, defaultValue = "0") int pageSize,
+      @RequestParam(value = "pageToken", required = false) String pageToken,
+      @RequestParam(value = "live", required = false, defaultValue = "false") boolean live) {
     authorizationService.requireProgramAdmin(shortName, authorization);
-    val users = serviceFacade.listUsers(shortName);
+    val users = serviceFacade.listUsers(shortName, KeysetPageRequest.of(pageSize, pageToken), live);
     if (users != null && !users.getUserDetailsList().isEmpty()) {
+      val headers = new HttpHeaders();
+      if (users.hasNextPageToken()) {
+        headers.set(NEXT_PAGE_TOKEN_HEADER, users.getNextPageToken().getValue());
+      }
       return new ResponseEntity<>(
-          grpc2JsonConverter.prepareListUsersResponse(users).getUserDetails(), HttpStatus.OK);
+          grpc2JsonConverter.prepareListUsersResponse(users).getUserDetails(),
+          headers,
+          HttpStatus.OK);
     } else {
       return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
     }
@@ -295,6 +396,23 @@ public class ProgramController {
         HttpStatus.OK);
   }
 
+  @GetMapping(value = "/institutions/search")
+  public ResponseEntity<List<InstitutionDTO>> searchInstitutions(
+      @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = true)
+          final String authorization,
+      @RequestParam(value = "q") String query,
+      @RequestParam(value = "limit", required = false, defaultValue = "0") int limit) {
+    val response =
+        serviceFacade.searchInstitutions(
+            SearchRequest.newBuilder()
+                .setQuery(StringValue.of(query))
+                .setLimit(Int32Value.of(limit))
+                .build());
+    return new ResponseEntity(
+        grpc2JsonConverter.prepareListInstitutionsResponse(response).getInstitutions(),
+        HttpStatus.OK);
+  }
+
   @PostMapping(value = "/institutions")
   public ResponseEntity<AddInstitutionsResponseDTO> addInstitutions(
       @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = true)
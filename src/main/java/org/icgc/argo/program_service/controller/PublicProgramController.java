@@ -1,32 +1,71 @@
 package org.icgc.argo.program_service.controller;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.NonNull;
+import lombok.val;
 import org.icgc.argo.program_service.model.dto.ProgramDTO;
 import org.icgc.argo.program_service.model.dto.builder.ProgramDTOBuilder;
-import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.services.CatalogVersionService;
 import org.icgc.argo.program_service.services.ProgramService;
+import org.icgc.argo.program_service.utils.SingleFlight;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/public")
 public class PublicProgramController {
 
-  @Autowired ProgramService programService;
+  /** Dependencies */
+  private final ProgramService programService;
 
-  @Autowired ProgramDTOBuilder programDTOBuilder;
+  private final ProgramDTOBuilder programDTOBuilder;
+  private final CatalogVersionService catalogVersionService;
+  private final AppProperties appProperties;
+
+  /** Keyed by the response ETag, so callers never share a response older than they validated */
+  private final SingleFlight<List<String>> programLoads;
+
+  private final SingleFlight<String> programNameLoads;
+
+  @Autowired
+  public PublicProgramController(
+      @NonNull ProgramService programService,
+      @NonNull ProgramDTOBuilder programDTOBuilder,
+      @NonNull CatalogVersionService catalogVersionService,
+      @NonNull AppProperties appProperties,
+      @NonNull MeterRegistry meterRegistry) {
+    this.programService = programService;
+    this.programDTOBuilder = programDTOBuilder;
+    this.catalogVersionService = catalogVersionService;
+    this.appProperties = appProperties;
+    this.programLoads = new SingleFlight<>("public_program", meterRegistry);
+    this.programNameLoads = new SingleFlight<>("public_program_names", meterRegistry);
+  }
 
   @GetMapping(value = "/program")
-  public ResponseEntity<Object> getPublicProgramData(@RequestParam(required = true) String name) {
+  public ResponseEntity<Object> getPublicProgramData(
+      @RequestParam(required = true) String name, WebRequest request) {
     try {
-      ProgramEntity programEntity = programService.getProgram(name, true);
-      ProgramDTO programDTO = programDTOBuilder.convertEntityToDTO(programEntity);
-      return new ResponseEntity(programDTO, HttpStatus.OK);
+      // Validators are read before the program, so they never claim a newer state than the body
+      val validators = catalogVersionService.getProgramValidators(name, true);
+      if (request.checkNotModified(validators.getETag(), validators.getLastModified())) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl()).build();
+      }
+      ProgramDTO programDTO =
+          programLoads.execute(
+              List.of(name, validators.getETag()),
+              () -> programDTOBuilder.convertEntityToDTO(programService.getProgram(name, true)));
+      return ResponseEntity.ok().cacheControl(cacheControl()).body(programDTO);
     } catch (Exception e) {
       if (e.getMessage().contains("NOT_FOUND")) {
         return new ResponseEntity(
@@ -40,8 +79,22 @@ public class PublicProgramController {
   }
 
   @GetMapping(value = "/programs")
-  public ResponseEntity<Object> getRegisteredProgramData() {
-    List<String> programNames = programService.getAllProgramNames();
-    return ResponseEntity.ok(programNames);
+  public ResponseEntity<Object> getRegisteredProgramData(WebRequest request) {
+    val validators = catalogVersionService.getCatalogValidators();
+    if (request.checkNotModified(validators.getETag(), validators.getLastModified())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl()).build();
+    }
+    List<String> programNames =
+        programNameLoads.execute(
+            validators.getETag(), () -> List.copyOf(programService.getAllProgramNames()));
+    return ResponseEntity.ok().cacheControl(cacheControl()).body(programNames);
+  }
+
+  /** Public data, so shared caches and CDNs may serve it until max-age, then revalidate */
+  private CacheControl cacheControl() {
+    return CacheControl.maxAge(
+            appProperties.getHttpCache().getPublicMaxAgeSeconds(), TimeUnit.SECONDS)
+        .cachePublic()
+        .mustRevalidate();
   }
 }
@@ -138,6 +138,8 @@ public class Grpc2JsonConverter {
         String.valueOf(programDetails.getMetadata().getCreatedAt().getSeconds()));
     metadataDTO.setUpdatedAt(
         String.valueOf(programDetails.getMetadata().getUpdatedAt().getSeconds()));
+    metadataDTO.setProvisioningStatus(
+        programDetails.getMetadata().getProvisioningStatus().getValue().name());
     programDetailsDTO.setMetadata(metadataDTO);
     return programDetailsDTO;
   }
@@ -184,6 +186,27 @@ public class Grpc2JsonConverter {
     return inviteUserResponseDTO;
   }
 
+  public InviteUsersResponseDTO prepareInviteUsersResponse(InviteUsersResponse response) {
+
+    InviteUsersResponseDTO inviteUsersResponseDTO = new InviteUsersResponseDTO();
+    try {
+      String responseJson = JsonFormat.printer().print(response);
+      objectMapper =
+          JsonMapper.builder()
+              .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+              .enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS)
+              .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+              .build();
+
+      inviteUsersResponseDTO = objectMapper.readValue(responseJson, InviteUsersResponseDTO.class);
+
+    } catch (JsonProcessingException | InvalidProtocolBufferException e) {
+      log.error(ExceptionUtils.getStackTrace(e));
+      throw new ProgramRuntimeException(e.getMessage());
+    }
+    return inviteUsersResponseDTO;
+  }
+
   public JoinProgramResponseDTO prepareJoinProgramResponse(JoinProgramResponse response) {
 
     JoinProgramResponseDTO joinProgramResponseDTO = new JoinProgramResponseDTO();
@@ -378,6 +401,27 @@ public class Grpc2JsonConverter {
     return listInstitutionsResponseDTO;
   }
 
+  public SearchProgramsResponseDTO prepareSearchProgramsResponse(SearchProgramsResponse response) {
+
+    SearchProgramsResponseDTO searchProgramsResponseDTO = new SearchProgramsResponseDTO();
+    try {
+      String responseJson = JsonFormat.printer().print(response);
+      objectMapper =
+          JsonMapper.builder()
+              .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+              .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+              .build();
+
+      searchProgramsResponseDTO =
+          objectMapper.readValue(responseJson, SearchProgramsResponseDTO.class);
+
+    } catch (JsonProcessingException | InvalidProtocolBufferException e) {
+      log.error(ExceptionUtils.getStackTrace(e));
+      throw new ProgramRuntimeException(e.getMessage());
+    }
+    return searchProgramsResponseDTO;
+  }
+
   public AddInstitutionsResponseDTO prepareAddInstitutionsResponse(
       AddInstitutionsResponse response) {
 
@@ -23,15 +23,19 @@ package org.icgc.argo.program_service.converter;
 import static java.util.stream.Collectors.toList;
 
 import com.google.protobuf.BoolValue;
+import com.google.protobuf.Int64Value;
 import com.google.protobuf.StringValue;
+import java.time.ZoneOffset;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.UUID;
 import lombok.NonNull;
 import lombok.val;
+import org.icgc.argo.program_service.model.dto.ChangeEventDTO;
 import org.icgc.argo.program_service.model.dto.ProgramsDTO;
 import org.icgc.argo.program_service.model.entity.*;
 import org.icgc.argo.program_service.proto.*;
+import org.icgc.argo.program_service.services.InvitationService.InvitationResult;
 import org.icgc.argo.program_service.services.ego.model.entity.EgoUser;
 import org.mapstruct.AfterMapping;
 import org.mapstruct.Mapper;
@@ -54,6 +58,7 @@ public interface ProgramConverter {
   @Mapping(target = "active", constant = "true")
   @Mapping(target = "legacyShortName", ignore = true)
   @Mapping(target = "dataCenterId", expression = "java(mapStringToUUID(p.getDataCenter().getId()))", ignore = false)
+  @Mapping(target = "provisioningStatus", ignore = true)
   ProgramEntity programsDTOToProgramEntity(ProgramsDTO p);
 
   default UUID mapStringToUUID (String id){
@@ -70,6 +75,7 @@ public interface ProgramConverter {
   @Mapping(target = "active", constant = "true")
   @Mapping(target = "legacyShortName", ignore = true)
   @Mapping(target = "dataCenterId", ignore = true)
+  @Mapping(target = "provisioningStatus", ignore = true)
   ProgramEntity programToProgramEntity(Program p);
 
   @Mapping(target = "id", ignore = true)
@@ -81,6 +87,7 @@ public interface ProgramConverter {
   @Mapping(target = "programInstitutions", ignore = true)
   @Mapping(target = "programCountries", ignore = true)
   @Mapping(target = "dataCenterId", ignore = true)
+  @Mapping(target = "provisioningStatus", ignore = true)
   void updateProgram(ProgramEntity updatingProgram, @MappingTarget ProgramEntity programToUpdate);
 
   @Mapping(target = "clearField", ignore = true)
@@ -202,6 +209,8 @@ public interface ProgramConverter {
   @Mapping(target = "allFields", ignore = true)
   @Mapping(target = "programsOrBuilderList", ignore = true)
   @Mapping(target = "programsBuilderList", ignore = true)
+  @Mapping(target = "nextPageToken", ignore = true)
+  @Mapping(target = "mergeNextPageToken", ignore = true)
   // TODO: [rtisma] this is a hack for a bug in mapstruct when mapping an iterable to a wrapper
   // (non-iterable)
   //  https://github.com/mapstruct/mapstruct/issues/607#issuecomment-309547739
@@ -226,6 +235,7 @@ public interface ProgramConverter {
   @Mapping(target = "allFields", ignore = true)
   @Mapping(target = "unknownFields", ignore = true)
   @Mapping(target = "mergeUnknownFields", ignore = true)
+  @Mapping(target = "mergeProvisioningStatus", ignore = true)
   Metadata programEntityToMetadata(ProgramEntity programEntity);
 
   @Mapping(target = "mergeFrom", ignore = true)
@@ -249,6 +259,16 @@ public interface ProgramConverter {
   @Mapping(target = "mergeRole", ignore = true)
   User egoUserToUser(EgoUser egoUser);
 
+  default User programMembershipToUser(@NonNull ProgramMembershipEntity member) {
+    return egoUserToUser(
+        new EgoUser()
+            .setId(member.getId().getUserId())
+            .setEmail(member.getEmail())
+            .setFirstName(member.getFirstName())
+            .setLastName(member.getLastName())
+            .setRole(member.getRole()));
+  }
+
   @Mapping(target = "mergeFrom", ignore = true)
   @Mapping(target = "clearField", ignore = true)
   @Mapping(target = "clearOneof", ignore = true)
@@ -334,6 +354,60 @@ public interface ProgramConverter {
     return InviteUserResponse.newBuilder().setInviteId(StringValue.of(inviteId.toString())).build();
   }
 
+  default InviteUserResult invitationResultToInviteUserResult(@NonNull InvitationResult result) {
+    val builder = InviteUserResult.newBuilder().setEmail(StringValue.of(result.getEmail()));
+    if (result.isInvited()) {
+      builder.setInviteId(StringValue.of(result.getInviteId().toString()));
+    } else {
+      builder.setError(StringValue.of(result.getError()));
+    }
+    return builder.build();
+  }
+
+  default SearchProgramsResponse programEntitiesToSearchProgramsResponse(
+      @NonNull Collection<ProgramEntity> programs) {
+    return SearchProgramsResponse.newBuilder()
+        .addAllPrograms(
+            programs.stream()
+                .map(
+                    p ->
+                        ProgramSummary.newBuilder()
+                            .setShortName(StringValue.of(p.getShortName()))
+                            .setName(StringValue.of(p.getName()))
+                            .build())
+                .collect(toList()))
+        .build();
+  }
+
+  default ChangeEvent changeEventEntityToChangeEvent(@NonNull ChangeEventEntity entity) {
+    val builder =
+        ChangeEvent.newBuilder()
+            .setId(Int64Value.of(entity.getId()))
+            .setType(entity.getType())
+            .setCreatedAt(CommonConverter.INSTANCE.localDateTimeToTimestamp(entity.getCreatedAt()));
+    Optional.ofNullable(entity.getProgramShortName())
+        .map(StringValue::of)
+        .ifPresent(builder::setProgramShortName);
+    Optional.ofNullable(entity.getPreviousProgramShortName())
+        .map(StringValue::of)
+        .ifPresent(builder::setPreviousProgramShortName);
+    Optional.ofNullable(entity.getDataCenterShortName())
+        .map(StringValue::of)
+        .ifPresent(builder::setDataCenterShortName);
+    return builder.build();
+  }
+
+  default ChangeEventDTO changeEventEntityToChangeEventDTO(@NonNull ChangeEventEntity entity) {
+    return ChangeEventDTO.builder()
+        .id(entity.getId())
+        .type(entity.getType().name())
+        .programShortName(entity.getProgramShortName())
+        .previousProgramShortName(entity.getPreviousProgramShortName())
+        .dataCenterShortName(entity.getDataCenterShortName())
+        .createdAt(entity.getCreatedAt().toInstant(ZoneOffset.UTC).toString())
+        .build();
+  }
+
   /** Enum Boxing Converters */
   default MembershipTypeValue boxMembershipType(MembershipType m) {
     return MembershipTypeValue.newBuilder().setValue(m).build();
@@ -343,6 +417,10 @@ public interface ProgramConverter {
     return v.getValue();
   }
 
+  default ProvisioningStatusValue boxProvisioningStatus(ProvisioningStatus s) {
+    return ProvisioningStatusValue.newBuilder().setValue(s).build();
+  }
+
   default InviteStatusValue JoinProgramInviteStatusToInviteStatus(
       JoinProgramInviteEntity.Status status) {
     switch (status) {
@@ -437,6 +515,8 @@ public interface ProgramConverter {
   @Mapping(target = "allFields", ignore = true)
   @Mapping(target = "userDetailsOrBuilderList", ignore = true)
   @Mapping(target = "userDetailsBuilderList", ignore = true)
+  @Mapping(target = "nextPageToken", ignore = true)
+  @Mapping(target = "mergeNextPageToken", ignore = true)
   @Mapping(target = "userDetailsList", source = "invitations")
   ListUsersResponse invitationsToListUsersResponse(
       Integer dummy, Collection<JoinProgramInviteEntity> invitations);
@@ -30,7 +30,10 @@ import java.io.IOException;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
+import org.icgc.argo.program_service.grpc.interceptor.AdmissionInterceptor;
+import org.icgc.argo.program_service.grpc.interceptor.AsyncCallInterceptor;
 import org.icgc.argo.program_service.grpc.interceptor.AuthInterceptor;
+import org.icgc.argo.program_service.grpc.interceptor.EgoRequestScopeInterceptor;
 import org.icgc.argo.program_service.grpc.interceptor.ExceptionInterceptor;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,6 +51,9 @@ public class GRpcServerRunner implements CommandLineRunner, DisposableBean {
 
   private final AuthInterceptor authInterceptor;
   private final ExceptionInterceptor exceptionInterceptor;
+  private final EgoRequestScopeInterceptor egoRequestScopeInterceptor;
+  private final AdmissionInterceptor admissionInterceptor;
+  private final AsyncCallInterceptor asyncCallInterceptor;
   private final ProgramServiceImpl programServiceImpl;
   private final HealthStatusManager healthStatusManager;
 
@@ -58,18 +64,33 @@ public class GRpcServerRunner implements CommandLineRunner, DisposableBean {
   public GRpcServerRunner(
       ProgramServiceImpl programServiceImpl,
       AuthInterceptor authInterceptor,
-      ExceptionInterceptor exceptionInterceptor) {
+      ExceptionInterceptor exceptionInterceptor,
+      EgoRequestScopeInterceptor egoRequestScopeInterceptor,
+      AdmissionInterceptor admissionInterceptor,
+      AsyncCallInterceptor asyncCallInterceptor) {
     this.programServiceImpl = programServiceImpl;
     this.authInterceptor = authInterceptor;
     this.exceptionInterceptor = exceptionInterceptor;
+    this.egoRequestScopeInterceptor = egoRequestScopeInterceptor;
+    this.admissionInterceptor = admissionInterceptor;
+    this.asyncCallInterceptor = asyncCallInterceptor;
     this.healthStatusManager = new HealthStatusManager();
   }
 
   @Override
   public void run(String... args) {
-    // Interceptor bean depends on run profile.
+    // Interceptor bean depends on run profile. The last interceptor runs first, so the Ego request
+    // scope is already open while the caller is authorized, and admission knows the caller.
+    // Handlers are handed to business threads outside the exception interceptor, which still
+    // maps their exceptions there.
     val programService =
-        ServerInterceptors.intercept(programServiceImpl, authInterceptor, exceptionInterceptor);
+        ServerInterceptors.intercept(
+            programServiceImpl,
+            admissionInterceptor,
+            authInterceptor,
+            exceptionInterceptor,
+            asyncCallInterceptor,
+            egoRequestScopeInterceptor);
     healthStatusManager.setStatus("program_service.ProgramService", ServingStatus.SERVING);
 
     try {
@@ -27,6 +27,7 @@ import static io.grpc.Status.UNKNOWN;
 import com.google.protobuf.Empty;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import java.util.NoSuchElementException;
 import java.util.UUID;
@@ -36,7 +37,10 @@ import lombok.val;
 import org.icgc.argo.program_service.converter.CommonConverter;
 import org.icgc.argo.program_service.model.exceptions.NotFoundException;
 import org.icgc.argo.program_service.proto.*;
+import org.icgc.argo.program_service.repositories.query.KeysetPageRequest;
+import org.icgc.argo.program_service.services.ChangeWatcher;
 import org.icgc.argo.program_service.services.ProgramServiceFacade;
+import org.icgc.argo.program_service.services.ProgramSnapshotCache;
 import org.icgc.argo.program_service.services.auth.AuthorizationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.NestedRuntimeException;
@@ -54,15 +58,21 @@ public class ProgramServiceImpl extends ProgramServiceGrpc.ProgramServiceImplBas
 
   private final AuthorizationService authorizationService;
   private final ProgramServiceFacade serviceFacade;
+  private final ProgramSnapshotCache programSnapshotCache;
+  private final ChangeWatcher changeWatcher;
 
   @Autowired
   public ProgramServiceImpl(
       @NonNull CommonConverter commonConverter,
       AuthorizationService authorizationService,
-      ProgramServiceFacade serviceFacade) {
+      ProgramServiceFacade serviceFacade,
+      @NonNull ProgramSnapshotCache programSnapshotCache,
+      @NonNull ChangeWatcher changeWatcher) {
     this.commonConverter = commonConverter;
     this.authorizationService = authorizationService;
     this.serviceFacade = serviceFacade;
+    this.programSnapshotCache = programSnapshotCache;
+    this.changeWatcher = changeWatcher;
   }
 
   @Override
@@ -77,8 +87,10 @@ public class ProgramServiceImpl extends ProgramServiceGrpc.ProgramServiceImplBas
   @Override
   public void getProgram(
       GetProgramRequest request, StreamObserver<GetProgramResponse> responseObserver) {
-    authorizationService.requireProgramUser(request.getShortName().getValue());
-    val response = serviceFacade.getProgram(request);
+    val shortName = request.getShortName().getValue();
+    authorizationService.requireProgramUser(shortName);
+    val response =
+        programSnapshotCache.getProgram(shortName, () -> serviceFacade.getProgram(request));
     responseObserver.onNext(response);
     responseObserver.onCompleted();
   }
@@ -125,6 +137,20 @@ public class ProgramServiceImpl extends ProgramServiceGrpc.ProgramServiceImplBas
     }
   }
 
+  @Override
+  public void inviteUsers(
+      InviteUsersRequest request, StreamObserver<InviteUsersResponse> responseObserver) {
+    authorizationService.requireProgramAdmin(request.getProgramShortName().getValue());
+
+    try {
+      val inviteUsersResponse = serviceFacade.inviteUsers(request);
+      responseObserver.onNext(inviteUsersResponse);
+      responseObserver.onCompleted();
+    } catch (Throwable throwable) {
+      responseObserver.onError(status(throwable));
+    }
+  }
+
   @Override
   public void joinProgram(
       JoinProgramRequest request, StreamObserver<JoinProgramResponse> responseObserver) {
@@ -141,9 +167,17 @@ public class ProgramServiceImpl extends ProgramServiceGrpc.ProgramServiceImplBas
   }
 
   @Override
-  public void listPrograms(Empty request, StreamObserver<ListProgramsResponse> responseObserver) {
-    val listProgramsResponse =
-        serviceFacade.listPrograms(p -> authorizationService.canRead(p.getShortName()));
+  public void listPrograms(
+      ListProgramsRequest request, StreamObserver<ListProgramsResponse> responseObserver) {
+    // Concurrent identical listings share one load, so each caller filters it by what they can read
+    val listing =
+        programSnapshotCache.listPrograms(
+            request, () -> serviceFacade.listPrograms(request, p -> true));
+    val readable =
+        listing.getProgramsList().stream()
+            .filter(p -> authorizationService.canRead(p.getProgram().getShortName().getValue()))
+            .collect(toImmutableList());
+    val listProgramsResponse = listing.toBuilder().clearPrograms().addAllPrograms(readable).build();
     responseObserver.onNext(listProgramsResponse);
     responseObserver.onCompleted();
   }
@@ -154,7 +188,9 @@ public class ProgramServiceImpl extends ProgramServiceGrpc.ProgramServiceImplBas
     val programShortName = request.getProgramShortName().getValue();
     authorizationService.requireProgramAdmin(programShortName);
 
-    val response = serviceFacade.listUsers(programShortName);
+    val page =
+        KeysetPageRequest.of(request.getPageSize().getValue(), request.getPageToken().getValue());
+    val response = serviceFacade.listUsers(programShortName, page, request.getLive().getValue());
     responseObserver.onNext(response);
     responseObserver.onCompleted();
   }
@@ -235,6 +271,23 @@ public class ProgramServiceImpl extends ProgramServiceGrpc.ProgramServiceImplBas
     responseObserver.onCompleted();
   }
 
+  @Override
+  public void searchInstitutions(
+      SearchRequest request, StreamObserver<ListInstitutionsResponse> responseObserver) {
+    val response = serviceFacade.searchInstitutions(request);
+    responseObserver.onNext(response);
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public void searchPrograms(
+      SearchRequest request, StreamObserver<SearchProgramsResponse> responseObserver) {
+    val response =
+        serviceFacade.searchPrograms(request, p -> authorizationService.canRead(p.getShortName()));
+    responseObserver.onNext(response);
+    responseObserver.onCompleted();
+  }
+
   @Override
   public void addInstitutions(
       AddInstitutionsRequest request, StreamObserver<AddInstitutionsResponse> responseObserver) {
@@ -263,6 +316,27 @@ public class ProgramServiceImpl extends ProgramServiceGrpc.ProgramServiceImplBas
     responseObserver.onCompleted();
   }
 
+  @Override
+  public void watchChanges(
+      WatchChangesRequest request, StreamObserver<ChangeEvent> responseObserver) {
+    // Program scoped events are only sent to callers who can read the program
+    changeWatcher.watch(
+        request.getSince().getValue(),
+        e ->
+            !e.hasProgramShortName()
+                || authorizationService.canRead(e.getProgramShortName().getValue()),
+        (ServerCallStreamObserver<ChangeEvent>) responseObserver);
+  }
+
+  @Override
+  public void listProgramsChangedSince(
+      ListProgramsChangedSinceRequest request,
+      StreamObserver<ListProgramsChangedSinceResponse> responseObserver) {
+    val response = serviceFacade.listProgramsChangedSince(request, authorizationService::canRead);
+    responseObserver.onNext(response);
+    responseObserver.onCompleted();
+  }
+
   private StatusRuntimeException status(Status code, String message) {
     return code.augmentDescription(message).asRuntimeException();
   }
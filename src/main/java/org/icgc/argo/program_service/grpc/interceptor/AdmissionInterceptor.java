@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.grpc.interceptor;
+
+import static io.grpc.Metadata.ASCII_STRING_MARSHALLER;
+
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import java.net.InetSocketAddress;
+import lombok.NonNull;
+import lombok.val;
+import org.icgc.argo.program_service.model.exceptions.TooManyRequestsException;
+import org.icgc.argo.program_service.services.admission.AdmissionPolicy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Admits gRPC calls through the {@link AdmissionPolicy}, refusing the others with
+ * RESOURCE_EXHAUSTED and a retry-after-ms trailer. Must run after the {@link AuthInterceptor},
+ * which sets the caller's token. Unary calls hold their permit until closed, streaming calls only
+ * while they start, so long-lived watches do not take up the concurrency limit.
+ */
+@Service
+public class AdmissionInterceptor implements ServerInterceptor {
+
+  public static final Metadata.Key<String> RETRY_AFTER_MS =
+      Metadata.Key.of("retry-after-ms", ASCII_STRING_MARSHALLER);
+
+  private final AdmissionPolicy admissionPolicy;
+
+  @Autowired
+  public AdmissionInterceptor(@NonNull AdmissionPolicy admissionPolicy) {
+    this.admissionPolicy = admissionPolicy;
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    if (!admissionPolicy.isEnabled()) {
+      return next.startCall(call, headers);
+    }
+
+    AdmissionPolicy.Permit permit;
+    try {
+      permit = admissionPolicy.admit(caller(call), operation(call));
+    } catch (TooManyRequestsException e) {
+      val trailers = new Metadata();
+      trailers.put(RETRY_AFTER_MS, Long.toString(e.getRetryAfterMs()));
+      call.close(Status.RESOURCE_EXHAUSTED.withDescription(e.getMessage()), trailers);
+      return new ServerCall.Listener<>() {};
+    }
+
+    if (call.getMethodDescriptor().getType() != MethodType.UNARY) {
+      try (permit) {
+        return next.startCall(call, headers);
+      }
+    }
+
+    ServerCall.Listener<ReqT> listener;
+    try {
+      listener =
+          next.startCall(
+              new SimpleForwardingServerCall<>(call) {
+                @Override
+                public void close(Status status, Metadata trailers) {
+                  permit.close();
+                  super.close(status, trailers);
+                }
+              },
+              headers);
+    } catch (RuntimeException e) {
+      permit.close();
+      throw e;
+    }
+    return new SimpleForwardingServerCallListener<>(listener) {
+      @Override
+      public void onCancel() {
+        permit.close();
+        super.onCancel();
+      }
+    };
+  }
+
+  /** The authenticated Ego user, or the client address for anonymous calls */
+  private static String caller(ServerCall<?, ?> call) {
+    val token = EgoAuthInterceptor.EGO_TOKEN.get();
+    if (token != null && token.getEmail() != null) {
+      return "user:" + token.getEmail();
+    }
+    val address = call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
+    if (address instanceof InetSocketAddress) {
+      return "ip:" + ((InetSocketAddress) address).getHostString();
+    }
+    return "ip:" + address;
+  }
+
+  /** The method name without the service, e.g. ListUsers */
+  private static String operation(ServerCall<?, ?> call) {
+    val fullName = call.getMethodDescriptor().getFullMethodName();
+    return fullName.substring(fullName.lastIndexOf('/') + 1);
+  }
+}
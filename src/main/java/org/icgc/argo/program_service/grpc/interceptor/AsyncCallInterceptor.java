@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.grpc.interceptor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.Context;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.val;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.services.admission.AdmissionPolicy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs the handlers of unary gRPC calls on a bounded pool of business threads, so slow facade and
+ * Ego work neither holds on to gRPC's own executor nor grows it without bound. The handler runs in
+ * the {@link Context} of the call, with its token, Ego request scope and deadline.
+ *
+ * <p>A call cancelled or past its deadline while queued is not started. A call finding the pool and
+ * its queue full is refused with RESOURCE_EXHAUSTED and a retry-after-ms trailer, like the {@link
+ * AdmissionInterceptor}. Streaming calls are left on gRPC's executor, their handlers return right
+ * away.
+ *
+ * <p>Must run before the {@link ExceptionInterceptor}, so it still turns the handler's exceptions
+ * into a status on the business thread.
+ */
+@Service
+public class AsyncCallInterceptor implements ServerInterceptor {
+
+  private final AppProperties.GrpcExecutorProperties properties;
+  private final ThreadPoolExecutor executor;
+
+  private final Counter rejected;
+  private final Counter cancelled;
+
+  @Autowired
+  public AsyncCallInterceptor(
+      @NonNull AppProperties appProperties, @NonNull MeterRegistry meterRegistry) {
+    this.properties = appProperties.getGrpcExecutor();
+    this.executor =
+        new ThreadPoolExecutor(
+            properties.getThreads(),
+            properties.getThreads(),
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+            new ThreadFactoryBuilder().setNameFormat("grpc-call-%d").setDaemon(true).build());
+    executor.allowCoreThreadTimeOut(true);
+
+    Gauge.builder(
+            "program_service.grpc.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+        .description("gRPC handlers running on business threads")
+        .register(meterRegistry);
+    Gauge.builder("program_service.grpc.executor.queued", executor, e -> e.getQueue().size())
+        .description("gRPC handlers waiting for a business thread")
+        .register(meterRegistry);
+    this.rejected =
+        Counter.builder("program_service.grpc.executor.dropped")
+            .description("gRPC calls whose handler was not run")
+            .tag("reason", "rejected")
+            .register(meterRegistry);
+    this.cancelled =
+        Counter.builder("program_service.grpc.executor.dropped")
+            .description("gRPC calls whose handler was not run")
+            .tag("reason", "cancelled")
+            .register(meterRegistry);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    ServerCall.Listener<ReqT> listener = next.startCall(call, headers);
+    if (!properties.getEnabled() || call.getMethodDescriptor().getType() != MethodType.UNARY) {
+      return listener;
+    }
+
+    // Unary handlers are invoked once the request is complete, i.e. on half close
+    return new SimpleForwardingServerCallListener<>(listener) {
+      @Override
+      public void onHalfClose() {
+        dispatch(call, listener::onHalfClose);
+      }
+    };
+  }
+
+  private void dispatch(ServerCall<?, ?> call, Runnable handler) {
+    val context = Context.current();
+    try {
+      executor.execute(
+          context.wrap(
+              () -> {
+                if (context.isCancelled()) {
+                  cancelled.increment();
+                  return;
+                }
+                handler.run();
+              }));
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      val trailers = new Metadata();
+      trailers.put(
+          AdmissionInterceptor.RETRY_AFTER_MS,
+          Long.toString(AdmissionPolicy.OVERLOADED_RETRY_AFTER_MS));
+      call.close(
+          Status.RESOURCE_EXHAUSTED.withDescription("Server is busy, please retry later"),
+          trailers);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.grpc.interceptor;
+
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import org.icgc.argo.program_service.services.ego.EgoRequestScope;
+import org.springframework.stereotype.Service;
+
+/** Gives each gRPC call its own {@link EgoRequestScope}, forgotten once the call is over. */
+@Service
+public class EgoRequestScopeInterceptor implements ServerInterceptor {
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+
+    return Contexts.interceptCall(
+        EgoRequestScope.open(),
+        call,
+        headers,
+        (scopedCall, scopedHeaders) -> {
+          ServerCall.Listener<ReqT> listener = next.startCall(scopedCall, scopedHeaders);
+          return new SimpleForwardingServerCallListener<ReqT>(listener) {
+            @Override
+            public void onComplete() {
+              try {
+                super.onComplete();
+              } finally {
+                EgoRequestScope.current().ifPresent(EgoRequestScope::clear);
+              }
+            }
+
+            @Override
+            public void onCancel() {
+              try {
+                super.onCancel();
+              } finally {
+                EgoRequestScope.current().ifPresent(EgoRequestScope::clear);
+              }
+            }
+          };
+        });
+  }
+}
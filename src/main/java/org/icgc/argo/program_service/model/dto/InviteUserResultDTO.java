@@ -0,0 +1,17 @@
+package org.icgc.argo.program_service.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InviteUserResultDTO {
+
+  private String email;
+  private String inviteId;
+  private String error;
+}
@@ -0,0 +1,16 @@
+package org.icgc.argo.program_service.model.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InviteUsersResponseDTO {
+
+  private List<InviteUserResultDTO> results;
+}
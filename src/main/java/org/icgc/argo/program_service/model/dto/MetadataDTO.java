@@ -13,4 +13,5 @@ public class MetadataDTO {
 
   private String createdAt;
   private String updatedAt;
+  private String provisioningStatus;
 }
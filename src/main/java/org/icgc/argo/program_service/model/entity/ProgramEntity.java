@@ -36,15 +36,20 @@ import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import lombok.experimental.Accessors;
 import lombok.experimental.FieldNameConstants;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.validator.constraints.URL;
+import org.icgc.argo.program_service.model.enums.CacheRegions;
 import org.icgc.argo.program_service.model.enums.SqlFields;
 import org.icgc.argo.program_service.model.enums.Tables;
 import org.icgc.argo.program_service.model.join.*;
 import org.icgc.argo.program_service.proto.MembershipType;
+import org.icgc.argo.program_service.proto.ProvisioningStatus;
 import org.icgc.argo.program_service.validation.ProgramShortName;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PROGRAM)
 @Table(name = Tables.PROGRAM)
 @Data
 @Accessors(chain = true)
@@ -117,9 +122,16 @@ public class ProgramEntity implements NameableEntity<UUID> {
   @Column(name = SqlFields.LEGACY_SHORTNAME)
   private String legacyShortName;
 
+  @NotNull
+  @EqualsAndHashCode.Exclude
+  @Enumerated(EnumType.STRING)
+  @Column(name = SqlFields.PROVISIONING_STATUS)
+  private ProvisioningStatus provisioningStatus = ProvisioningStatus.PROVISIONED;
+
   @NotNull
   @ToString.Exclude
   @EqualsAndHashCode.Exclude
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PROGRAM_ASSOCIATIONS)
   @OneToMany(
       mappedBy = ProgramInstitution.Fields.program,
       cascade = CascadeType.ALL,
@@ -130,6 +142,7 @@ public class ProgramEntity implements NameableEntity<UUID> {
   @NotNull
   @ToString.Exclude
   @EqualsAndHashCode.Exclude
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PROGRAM_ASSOCIATIONS)
   @OneToMany(
       mappedBy = ProgramCountry.Fields.program,
       cascade = CascadeType.ALL,
@@ -139,6 +152,7 @@ public class ProgramEntity implements NameableEntity<UUID> {
 
   @ToString.Exclude
   @EqualsAndHashCode.Exclude
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PROGRAM_ASSOCIATIONS)
   @OneToMany(
       mappedBy = ProgramCancer.Fields.program,
       cascade = CascadeType.ALL,
@@ -148,6 +162,7 @@ public class ProgramEntity implements NameableEntity<UUID> {
 
   @ToString.Exclude
   @EqualsAndHashCode.Exclude
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PROGRAM_ASSOCIATIONS)
   @OneToMany(
       mappedBy = ProgramPrimarySite.Fields.program,
       cascade = CascadeType.ALL,
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.model.entity;
+
+import java.time.LocalDateTime;
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.icgc.argo.program_service.model.enums.SqlFields;
+import org.icgc.argo.program_service.model.enums.Tables;
+import org.icgc.argo.program_service.model.join.ProgramMembershipId;
+import org.icgc.argo.program_service.proto.UserRole;
+
+/** A member of a program as last seen in Ego, see ProgramMembershipMirror. */
+@Entity
+@Table(name = Tables.PROGRAM_MEMBERSHIP)
+@Data
+@Accessors(chain = true)
+public class ProgramMembershipEntity {
+
+  @EmbeddedId private ProgramMembershipId id;
+
+  @NotNull
+  @Column(name = SqlFields.EMAIL)
+  private String email;
+
+  @Column(name = SqlFields.FIRST_NAME)
+  private String firstName;
+
+  @Column(name = SqlFields.LAST_NAME)
+  private String lastName;
+
+  @NotNull
+  @Enumerated(EnumType.STRING)
+  @Column(name = SqlFields.ROLE)
+  private UserRole role;
+
+  /** Null until looked up after the member joined */
+  @Column(name = SqlFields.DACO_APPROVED)
+  private Boolean dacoApproved;
+
+  /** DACO approval is looked up less often than membership, it takes two Ego requests per user */
+  @Column(name = SqlFields.DACO_CHECKED_AT)
+  private LocalDateTime dacoCheckedAt;
+
+  /** When the row was last written from what Ego returned */
+  @NotNull
+  @Column(name = SqlFields.SYNCED_AT)
+  private LocalDateTime syncedAt;
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.model.entity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.icgc.argo.program_service.model.enums.SqlFields;
+import org.icgc.argo.program_service.model.enums.Tables;
+
+/**
+ * Progress of setting up a program in Ego. Steps run in order and each one is recorded once it
+ * succeeded, so a retry resumes where the last attempt stopped.
+ */
+@Entity
+@Table(name = Tables.PROGRAM_PROVISIONING)
+@Data
+@Accessors(chain = true)
+public class ProgramProvisioningEntity {
+
+  public enum Step {
+    /** Group, data and membership permissions, in one Ego transaction */
+    SET_UP_PERMISSIONS,
+    INVITE_ADMINS,
+    /** Removing whatever was set up, after the steps above failed too often */
+    COMPENSATE,
+    COMPENSATED
+  }
+
+  @Id
+  @Column(name = SqlFields.PROGRAMID_JOIN)
+  private UUID programId;
+
+  @NotNull
+  @Enumerated(EnumType.STRING)
+  @Column(name = SqlFields.STEP)
+  private Step step;
+
+  /** JSON list of the admins to invite */
+  @NotNull
+  @Column(name = SqlFields.ADMINS)
+  private String admins;
+
+  @NotNull
+  @Column(name = SqlFields.ADMINS_INVITED)
+  private Integer adminsInvited = 0;
+
+  /** Failed attempts of the current step */
+  @NotNull
+  @Column(name = SqlFields.ATTEMPTS)
+  private Integer attempts = 0;
+
+  /** Null once there is nothing left to do */
+  @Column(name = SqlFields.NEXT_ATTEMPT_AT)
+  private LocalDateTime nextAttemptAt;
+
+  @Column(name = SqlFields.LAST_ERROR)
+  private String lastError;
+
+  @NotNull
+  @Column(name = SqlFields.CREATEDAT)
+  private LocalDateTime createdAt;
+
+  @NotNull
+  @Column(name = SqlFields.UPDATEDAT)
+  private LocalDateTime updatedAt;
+}
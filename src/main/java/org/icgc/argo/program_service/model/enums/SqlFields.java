@@ -56,4 +56,23 @@ public class SqlFields {
   public static final String SUBMISSION_SONG_URL = "submission_song_url";
   public static final String SUBMISSION_SCORE_URL = "submission_score_url";
   public static final String DATA_CENTER_ID = "data_center_id";
+  public static final String TYPE = "type";
+  public static final String PROGRAM_SHORT_NAME = "program_short_name";
+  public static final String PREVIOUS_PROGRAM_SHORT_NAME = "previous_program_short_name";
+  public static final String DATA_CENTER_SHORT_NAME = "data_center_short_name";
+  public static final String PROVISIONING_STATUS = "provisioning_status";
+  public static final String STEP = "step";
+  public static final String ADMINS = "admins";
+  public static final String ADMINS_INVITED = "admins_invited";
+  public static final String ATTEMPTS = "attempts";
+  public static final String NEXT_ATTEMPT_AT = "next_attempt_at";
+  public static final String LAST_ERROR = "last_error";
+  public static final String USERID_JOIN = "user_id";
+  public static final String FIRST_NAME = "first_name";
+  public static final String LAST_NAME = "last_name";
+  public static final String ROLE = "role";
+  public static final String DACO_APPROVED = "daco_approved";
+  public static final String DACO_CHECKED_AT = "daco_checked_at";
+  public static final String SYNCED_AT = "synced_at";
+  public static final String NEXT_SYNC_AT = "next_sync_at";
 }
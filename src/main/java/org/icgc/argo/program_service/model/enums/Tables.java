@@ -41,4 +41,8 @@ public class Tables {
   public static final String PROGRAM_INSTITUTION = "program_institution";
   public static final String PROGRAM_REGION = "program_region";
   public static final String DATA_CENTER = "data_center";
+  public static final String CHANGE_LOG = "change_log";
+  public static final String PROGRAM_PROVISIONING = "program_provisioning";
+  public static final String PROGRAM_MEMBERSHIP = "program_membership";
+  public static final String PROGRAM_MEMBERSHIP_SYNC = "program_membership_sync";
 }
@@ -26,24 +26,27 @@ import java.util.Optional;
 import javax.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldNameConstants;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.icgc.argo.program_service.model.entity.CancerEntity;
-import org.icgc.argo.program_service.model.entity.IdentifiableEntity;
 import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.model.enums.CacheRegions;
 import org.icgc.argo.program_service.model.enums.SqlFields;
 import org.icgc.argo.program_service.model.enums.Tables;
 import org.jetbrains.annotations.NotNull;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PROGRAM_ASSOCIATIONS)
 @Data
 @Table(name = Tables.PROGRAM_CANCER)
 @Builder
-@EqualsAndHashCode
+@EqualsAndHashCode(callSuper = false)
 @ToString
 @FieldNameConstants
 @NoArgsConstructor
 @AllArgsConstructor
-public class ProgramCancer
-    implements IdentifiableEntity<ProgramCancerId>, Comparable<ProgramCancer> {
+public class ProgramCancer extends ProgramAssociation<ProgramCancerId>
+    implements Comparable<ProgramCancer> {
 
   @EmbeddedId private ProgramCancerId id;
 
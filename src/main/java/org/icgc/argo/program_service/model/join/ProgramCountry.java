@@ -26,24 +26,27 @@ import java.util.Optional;
 import javax.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldNameConstants;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.icgc.argo.program_service.model.entity.CountryEntity;
-import org.icgc.argo.program_service.model.entity.IdentifiableEntity;
 import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.model.enums.CacheRegions;
 import org.icgc.argo.program_service.model.enums.SqlFields;
 import org.icgc.argo.program_service.model.enums.Tables;
 import org.jetbrains.annotations.NotNull;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PROGRAM_ASSOCIATIONS)
 @Data
 @Table(name = Tables.PROGRAM_COUNTRY)
 @Builder
-@EqualsAndHashCode
+@EqualsAndHashCode(callSuper = false)
 @ToString
 @FieldNameConstants
 @NoArgsConstructor
 @AllArgsConstructor
-public class ProgramCountry
-    implements IdentifiableEntity<ProgramCountryId>, Comparable<ProgramCountry> {
+public class ProgramCountry extends ProgramAssociation<ProgramCountryId>
+    implements Comparable<ProgramCountry> {
 
   @EmbeddedId private ProgramCountryId id;
 
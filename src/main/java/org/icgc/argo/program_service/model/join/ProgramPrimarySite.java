@@ -26,24 +26,27 @@ import java.util.Optional;
 import javax.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldNameConstants;
-import org.icgc.argo.program_service.model.entity.IdentifiableEntity;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.icgc.argo.program_service.model.entity.PrimarySiteEntity;
 import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.model.enums.CacheRegions;
 import org.icgc.argo.program_service.model.enums.SqlFields;
 import org.icgc.argo.program_service.model.enums.Tables;
 import org.jetbrains.annotations.NotNull;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PROGRAM_ASSOCIATIONS)
 @Data
 @Table(name = Tables.PROGRAM_PRIMARY_SITE)
 @Builder
-@EqualsAndHashCode
+@EqualsAndHashCode(callSuper = false)
 @FieldNameConstants
 @ToString
 @NoArgsConstructor
 @AllArgsConstructor
-public class ProgramPrimarySite
-    implements IdentifiableEntity<ProgramPrimarySiteId>, Comparable<ProgramPrimarySite> {
+public class ProgramPrimarySite extends ProgramAssociation<ProgramPrimarySiteId>
+    implements Comparable<ProgramPrimarySite> {
 
   @EmbeddedId private ProgramPrimarySiteId id;
 
@@ -25,9 +25,14 @@ import static java.lang.String.format;
 
 import java.security.interfaces.RSAPublicKey;
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -78,6 +83,38 @@ public class AppProperties {
 
   @NotNull private DacoPermissionProperties dacoApprovedPermission = new DacoPermissionProperties();
 
+  @NotNull private InvitationExpiryProperties invitationExpiry = new InvitationExpiryProperties();
+
+  @NotNull private InvitationMailProperties invitationMail = new InvitationMailProperties();
+
+  @NotNull private SearchProperties search = new SearchProperties();
+
+  @NotNull private ProgramSnapshotProperties programSnapshot = new ProgramSnapshotProperties();
+
+  @NotNull private HttpCacheProperties httpCache = new HttpCacheProperties();
+
+  @NotNull
+  private ReferenceDataCacheProperties referenceDataCache = new ReferenceDataCacheProperties();
+
+  @NotNull private InvalidationBusProperties invalidationBus = new InvalidationBusProperties();
+
+  @NotNull private ChangeLogProperties changeLog = new ChangeLogProperties();
+
+  @NotNull private ProvisioningProperties provisioning = new ProvisioningProperties();
+
+  @NotNull
+  private EgoMembershipCacheProperties egoMembershipCache = new EgoMembershipCacheProperties();
+
+  @NotNull private MembershipMirrorProperties membershipMirror = new MembershipMirrorProperties();
+
+  @NotNull private EgoPagingProperties egoPaging = new EgoPagingProperties();
+
+  @NotNull private AdmissionProperties admission = new AdmissionProperties();
+
+  @NotNull private EgoConcurrencyProperties egoConcurrency = new EgoConcurrencyProperties();
+
+  @NotNull private GrpcExecutorProperties grpcExecutor = new GrpcExecutorProperties();
+
   /* can be null except for when auth is enabled */
   private String dccAdminPermission;
 
@@ -156,4 +193,254 @@ public class AppProperties {
     @NotNull private String policyName;
     @NotNull private List<String> accessLevels;
   }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class InvitationExpiryProperties {
+    /** Run the scheduled sweep that marks stale PENDING invitations as EXPIRED */
+    @NotNull private Boolean enabled = true;
+
+    /** Delay between the end of one sweep and the start of the next, in milliseconds */
+    @NotNull private Long fixedDelayMs = 300000L;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class InvitationMailProperties {
+    /** Send the queued invite emails, see InvitationMailSender */
+    @NotNull private Boolean enabled = true;
+
+    /** How often emails that could not be sent are retried */
+    @NotNull @Positive private Long pollIntervalMs = 60000L;
+
+    /** Most emails sent by one run */
+    @NotNull @Positive private Integer batchSize = 100;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class SearchProperties {
+    /** Answer institution searches from an in-memory prefix index instead of the database */
+    @NotNull private Boolean inMemoryIndex = false;
+
+    /** Results returned when the request does not give a limit */
+    @NotNull private Integer defaultLimit = 20;
+
+    /** Upper bound for the limit a request may ask for */
+    @NotNull private Integer maxLimit = 100;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class ProgramSnapshotProperties {
+    /** Keep built getProgram responses in memory, see ProgramSnapshotCache */
+    @NotNull private Boolean enabled = false;
+
+    /** How long a snapshot is served, bounding staleness after writes on other instances */
+    @NotNull private Long ttlMs = 300000L;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class HttpCacheProperties {
+    /** Cache-Control max-age of the unauthenticated /public endpoints */
+    @NotNull @PositiveOrZero private Long publicMaxAgeSeconds = 60L;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class ReferenceDataCacheProperties {
+    /** Keep the reference data listings in memory, see ReferenceDataCache */
+    @NotNull private Boolean enabled = false;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class InvalidationBusProperties {
+    /** Relay cache evictions between instances over Postgres LISTEN/NOTIFY */
+    @NotNull private Boolean enabled = false;
+
+    /** Notification channel, shared by all instances using the same database */
+    @NotNull
+    @Pattern(regexp = "[a-z_]+")
+    private String channel = "program_service_invalidation";
+
+    /** How long the listener waits for notifications before checking for shutdown */
+    @NotNull @Positive private Integer pollIntervalMs = 500;
+
+    /** Delay before reconnecting after the listening connection failed */
+    @NotNull @PositiveOrZero private Long reconnectDelayMs = 5000L;
+
+    /** Delay between catalog version checks, which catch anything the notifications missed */
+    @NotNull @Positive private Long fullCheckIntervalMs = 60000L;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class ChangeLogProperties {
+    /** Most entries returned by one read of the change log */
+    @NotNull @Positive private Integer maxPageSize = 500;
+
+    /** How often WatchChanges streams look for new entries */
+    @NotNull @Positive private Integer pollIntervalMs = 1000;
+
+    /** Threads shared by all WatchChanges streams, each poll is a single indexed query */
+    @NotNull @Positive private Integer watchThreads = 2;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class ProvisioningProperties {
+    /**
+     * Run the Ego steps of program provisioning after the creating transaction commits. When off
+     * they run inside it, as before.
+     */
+    @NotNull private Boolean async = true;
+
+    /** Failed attempts before the program is compensated and marked failed */
+    @NotNull @Positive private Integer maxAttempts = 5;
+
+    /** Delay before the first retry, doubled after every further failure */
+    @NotNull @Positive private Long initialBackoffMs = 1000L;
+
+    @NotNull @Positive private Long maxBackoffMs = 60000L;
+
+    /** How often pending workflows are picked up, e.g. after a restart */
+    @NotNull @Positive private Long pollIntervalMs = 5000L;
+
+    /** How long a claimed workflow is hidden from other instances */
+    @NotNull @Positive private Long leaseMs = 60000L;
+
+    @NotNull @Positive private Integer threads = 2;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class EgoMembershipCacheProperties {
+    /** Remember Ego group membership checks, see EgoMembershipCache */
+    @NotNull private Boolean enabled = true;
+
+    /** How long a user found in a group is taken to still be in it */
+    @NotNull @PositiveOrZero private Long positiveTtlMs = 60000L;
+
+    /** How long a user not found in a group is taken to still be outside of it */
+    @NotNull @PositiveOrZero private Long negativeTtlMs = 5000L;
+
+    /** Entries kept before all of them are dropped */
+    @NotNull @Positive private Integer maxEntries = 10000;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class MembershipMirrorProperties {
+    /** Serve ListUsers from a local copy of the program members, see ProgramMembershipMirror */
+    @NotNull private Boolean enabled = true;
+
+    /** How often each program's members are reconciled against Ego */
+    @NotNull @Positive private Long syncIntervalMs = 300000L;
+
+    /** A mirror not reconciled for this long is not read, ListUsers goes to Ego instead */
+    @NotNull @Positive private Long maxStalenessMs = 1800000L;
+
+    /** How long a member's DACO approval is reused before it is looked up again */
+    @NotNull @PositiveOrZero private Long dacoMaxAgeMs = 3600000L;
+
+    /** Threads looking up the DACO approval of members who just joined */
+    @NotNull @Positive private Integer dacoRefreshThreads = 2;
+
+    /** How often programs due for reconciliation are picked up */
+    @NotNull @Positive private Long pollIntervalMs = 30000L;
+
+    /** Most programs reconciled by one poll */
+    @NotNull @Positive private Integer batchSize = 10;
+
+    /** How long a program being reconciled is hidden from other instances */
+    @NotNull @Positive private Long leaseMs = 600000L;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class EgoPagingProperties {
+    /** Items requested per page when listing Ego collections, e.g. the users of a group */
+    @NotNull @Positive private Integer pageSize = 100;
+
+    /** Fetch the next page while the current one is consumed */
+    @NotNull private Boolean prefetch = true;
+
+    /** Threads fetching pages ahead, shared by all listings */
+    @NotNull @Positive private Integer prefetchThreads = 4;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class AdmissionProperties {
+    /** Rate limit and shed calls before they start, see AdmissionPolicy */
+    @NotNull private Boolean enabled = false;
+
+    /** Tokens added to each caller's bucket per second */
+    @NotNull @Positive private Double ratePerSecond = 20.0;
+
+    /** Tokens a caller's bucket holds at most, i.e. how much a caller may spend at once */
+    @NotNull @Positive private Integer burst = 100;
+
+    /** Tokens an operation takes, by gRPC method name, e.g. ListUsers. Others take 1 */
+    @NotNull private Map<String, Integer> costs = new HashMap<>();
+
+    /** Calls running at once on this instance, further calls are refused */
+    @NotNull @Positive private Integer maxConcurrentCalls = 64;
+
+    /** Calls one caller may have running at once */
+    @NotNull @Positive private Integer maxConcurrentCallsPerCaller = 8;
+
+    /** How often callers with a full bucket and no running calls are forgotten */
+    @NotNull @Positive private Long idleCheckIntervalMs = 60000L;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class EgoConcurrencyProperties {
+    @NotNull private Boolean enabled = true;
+
+    @NotNull @Positive private Integer initialLimit = 10;
+
+    @NotNull @Positive private Integer minLimit = 2;
+
+    @NotNull @Positive private Integer maxLimit = 50;
+
+    /** Requests slower than this shrink the limit */
+    @NotNull @Positive private Long latencyThresholdMs = 1000L;
+
+    /** Factor the limit is multiplied by when it shrinks */
+    @NotNull @Positive private Double backoffRatio = 0.9;
+
+    /** How long a request waits for a slot before failing */
+    @NotNull @PositiveOrZero private Long maxQueueWaitMs = 5000L;
+  }
+
+  @Validated
+  @Setter
+  @Getter
+  public static class GrpcExecutorProperties {
+    /** Run unary gRPC handlers on a bounded pool, see AsyncCallInterceptor */
+    @NotNull private Boolean enabled = true;
+
+    @NotNull @Positive private Integer threads = 32;
+
+    /** Handlers waiting for a thread, further calls are refused */
+    @NotNull @Positive private Integer queueCapacity = 64;
+  }
 }
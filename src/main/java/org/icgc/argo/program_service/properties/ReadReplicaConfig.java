@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.properties;
+
+import static org.hibernate.cfg.AvailableSettings.CONNECTION_HANDLING;
+import static org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION;
+
+import com.zaxxer.hikari.HikariDataSource;
+import javax.sql.DataSource;
+import lombok.val;
+import org.icgc.argo.program_service.repositories.ReadReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Data sources routing read-only transactions to the replica configured by {@link
+ * ReadReplicaProperties}.
+ *
+ * <p>With open-in-view, the entity manager of a REST request outlives its transactions. Were it to
+ * hold on to the connection its first transaction got, a write after a read-only transaction would
+ * go to the replica. Releasing the connection after every transaction, so that each one is routed
+ * on its own, is Hibernate's default for resource-local transactions; it is pinned here since
+ * routing depends on it.
+ */
+@Configuration
+@ConditionalOnProperty(
+    prefix = ReadReplicaProperties.PREFIX,
+    name = "enabled",
+    havingValue = "true")
+public class ReadReplicaConfig {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+    return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean
+  public HikariDataSource replicaDataSource(
+      DataSourceProperties dataSourceProperties, ReadReplicaProperties properties) {
+    val replica = new HikariDataSource();
+    replica.setPoolName("replica");
+    replica.setJdbcUrl(properties.getUrl());
+    replica.setUsername(
+        properties.getUsername() == null
+            ? dataSourceProperties.determineUsername()
+            : properties.getUsername());
+    replica.setPassword(
+        properties.getPassword() == null
+            ? dataSourceProperties.determinePassword()
+            : properties.getPassword());
+    replica.setReadOnly(true);
+    return replica;
+  }
+
+  @Bean
+  public ReadReplicaRoutingDataSource readReplicaRoutingDataSource(
+      @Qualifier("primaryDataSource") DataSource primary,
+      @Qualifier("replicaDataSource") DataSource replica,
+      ReadReplicaProperties properties) {
+    return new ReadReplicaRoutingDataSource(primary, replica, properties.getMaxStalenessMs());
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(ReadReplicaRoutingDataSource readReplicaRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(readReplicaRoutingDataSource);
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+    return hibernateProperties ->
+        hibernateProperties.put(
+            CONNECTION_HANDLING, DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+  }
+}
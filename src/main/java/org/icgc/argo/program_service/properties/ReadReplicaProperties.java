@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.properties;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.PositiveOrZero;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Optional read replica. When enabled, read-only transactions are routed to the replica and the
+ * rest to the primary configured by spring.datasource, see ReadReplicaConfig.
+ */
+@Getter
+@Setter
+@Validated
+@Component
+@ConditionalOnProperty(
+    prefix = ReadReplicaProperties.PREFIX,
+    name = "enabled",
+    havingValue = "true")
+@ConfigurationProperties(ReadReplicaProperties.PREFIX)
+public class ReadReplicaProperties {
+  public static final String PREFIX = "app.read-replica";
+
+  /** JDBC url of the replica */
+  @NotNull private String url;
+
+  /** Defaults to spring.datasource.username */
+  private String username;
+
+  /** Defaults to spring.datasource.password */
+  private String password;
+
+  /** Reads go to the primary while the replica is further behind than this, in milliseconds */
+  @NotNull @PositiveOrZero private Long maxStalenessMs = 5000L;
+
+  /** Delay between replication lag checks, in milliseconds */
+  @NotNull @PositiveOrZero private Long lagCheckIntervalMs = 5000L;
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.properties;
+
+import static org.hibernate.cfg.AvailableSettings.AUTO_EVICT_COLLECTION_CACHE;
+import static org.hibernate.cfg.AvailableSettings.CACHE_REGION_FACTORY;
+import static org.hibernate.cfg.AvailableSettings.GENERATE_STATISTICS;
+import static org.hibernate.cfg.AvailableSettings.USE_SECOND_LEVEL_CACHE;
+
+import java.io.FileNotFoundException;
+import java.net.URISyntaxException;
+import java.util.Map;
+import javax.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ResourceUtils;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Opt-in Hibernate second-level cache backed by an in-process JCache (Ehcache) provider. The cached
+ * entities and collections are annotated with a region from CacheRegions, and each region is sized
+ * in the ehcache config. Enabling the cache also enables Hibernate statistics, which Spring Boot
+ * publishes as hibernate.second.level.cache.* metrics tagged by region.
+ */
+@Getter
+@Setter
+@Validated
+@Component
+@ConfigurationProperties("app.second-level-cache")
+public class SecondLevelCacheProperties implements HibernatePropertiesCustomizer {
+
+  private boolean enabled = false;
+
+  /** Ehcache xml configuration declaring the regions */
+  @NotNull private String config = "classpath:ehcache.xml";
+
+  @Override
+  public void customize(Map<String, Object> hibernateProperties) {
+    // hibernate-jcache is on the classpath, so Hibernate would pick it up on its own unless told
+    // otherwise
+    hibernateProperties.put(USE_SECOND_LEVEL_CACHE, enabled);
+    if (!enabled) {
+      return;
+    }
+    hibernateProperties.put(CACHE_REGION_FACTORY, "jcache");
+    hibernateProperties.put(ConfigSettings.PROVIDER, "org.ehcache.jsr107.EhcacheCachingProvider");
+    hibernateProperties.put(ConfigSettings.CONFIG_URI, resolveConfig());
+    hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+    // The join entities are written from their own side, so evict the cached program collections
+    // they belong to as well
+    hibernateProperties.put(AUTO_EVICT_COLLECTION_CACHE, true);
+    hibernateProperties.put(GENERATE_STATISTICS, true);
+  }
+
+  /** Hibernate does not understand Spring's classpath: prefix, so hand it a plain URI */
+  private String resolveConfig() {
+    try {
+      return ResourceUtils.getURL(config).toURI().toString();
+    } catch (FileNotFoundException | URISyntaxException e) {
+      throw new IllegalStateException("Cannot load second-level cache config " + config, e);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import lombok.NonNull;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class InstitutionInsertRepositoryImpl implements InstitutionInsertRepository {
+
+  // Rows are inserted in name order so that overlapping concurrent batches take their row locks
+  // in the same order and cannot deadlock each other.
+  private static final String INSERT_MISSING =
+      "INSERT INTO institution (id, name) "
+          + "SELECT uuid_generate_v4(), n FROM unnest(?::varchar[]) AS n ORDER BY n "
+          + "ON CONFLICT (name) DO NOTHING RETURNING name";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  InstitutionInsertRepositoryImpl(@NonNull JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public List<String> insertMissing(@NonNull Collection<String> names) {
+    if (names.isEmpty()) {
+      return List.of();
+    }
+    return jdbcTemplate.query(
+        connection -> {
+          val statement = connection.prepareStatement(INSERT_MISSING);
+          statement.setArray(1, connection.createArrayOf("varchar", names.toArray()));
+          return statement;
+        },
+        (rs, rowNum) -> rs.getString(1));
+  }
+}
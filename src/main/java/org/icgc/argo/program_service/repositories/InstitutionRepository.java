@@ -20,11 +20,32 @@
 
 package org.icgc.argo.program_service.repositories;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.icgc.argo.program_service.model.entity.InstitutionEntity;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface InstitutionRepository extends BaseRepository<InstitutionEntity, UUID> {
+public interface InstitutionRepository
+    extends BaseRepository<InstitutionEntity, UUID>, InstitutionInsertRepository {
 
   Optional<InstitutionEntity> getInstitutionByName(String name);
+
+  /**
+   * Case-insensitive substring search, served by the trigram index on lower(name). Prefix matches
+   * rank first, then earlier and shorter matches.
+   *
+   * @param pattern the lower-cased term with LIKE wildcards escaped
+   * @param term the lower-cased term
+   */
+  @Query(
+      value =
+          "SELECT * FROM institution WHERE lower(name) LIKE '%' || :pattern || '%' "
+              + "ORDER BY lower(name) LIKE :pattern || '%' DESC, "
+              + "strpos(lower(name), :term), length(name), name "
+              + "LIMIT :limit",
+      nativeQuery = true)
+  List<InstitutionEntity> searchByName(
+      @Param("pattern") String pattern, @Param("term") String term, @Param("limit") int limit);
 }
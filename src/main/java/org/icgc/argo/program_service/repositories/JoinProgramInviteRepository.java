@@ -20,20 +20,49 @@
 
 package org.icgc.argo.program_service.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface JoinProgramInviteRepository extends JpaRepository<JoinProgramInviteEntity, UUID> {
   List<JoinProgramInviteEntity> findAllByProgramShortNameAndStatus(
       String programShortName, JoinProgramInviteEntity.Status status);
 
+  List<JoinProgramInviteEntity> findAllByProgramShortNameAndStatusAndExpiresAtAfter(
+      String programShortName, JoinProgramInviteEntity.Status status, LocalDateTime now);
+
   List<JoinProgramInviteEntity> findAllByProgramShortNameAndUserEmail(
       String programShortName, String userEmail);
 
+  List<JoinProgramInviteEntity> findAllByProgramShortNameAndUserEmailIn(
+      String programShortName, Collection<String> userEmails);
+
   List<JoinProgramInviteEntity> findAllByProgramShortNameAndUserEmailOrderByCreatedAtDesc(
       String programShortName, String userEmail);
 
   void deleteAllByProgramShortName(String programShortName);
+
+  /**
+   * Set-based expiry of stale invitations, backed by the (status, expires_at) index. Bypasses the
+   * persistence context, so callers must not rely on already loaded invitation entities.
+   */
+  @Modifying
+  @Query(
+      "UPDATE JoinProgramInviteEntity i SET i.status = :expired "
+          + "WHERE i.status = :pending AND i.expiresAt < :now")
+  int expirePendingInvitations(
+      @Param("pending") JoinProgramInviteEntity.Status pending,
+      @Param("expired") JoinProgramInviteEntity.Status expired,
+      @Param("now") LocalDateTime now);
+
+  /** The queue of invite emails still to send, oldest first, see InvitationMailSender */
+  List<JoinProgramInviteEntity> findAllByStatusAndEmailSentFalseAndExpiresAtAfterOrderByCreatedAt(
+      JoinProgramInviteEntity.Status status, LocalDateTime now, Pageable pageable);
 }
@@ -20,11 +20,43 @@
 
 package org.icgc.argo.program_service.repositories;
 
+import static org.icgc.argo.program_service.model.enums.CacheRegions.NATIVE_QUERY_SPACES;
+
+import java.util.Collection;
+import javax.persistence.QueryHint;
+import org.icgc.argo.program_service.model.enums.Tables;
 import org.icgc.argo.program_service.model.join.ProgramCancer;
 import org.icgc.argo.program_service.model.join.ProgramCancerId;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 public interface ProgramCancerRepository
-    extends JpaRepository<ProgramCancer, ProgramCancerId>,
-        JpaSpecificationExecutor<ProgramCancer> {}
+    extends JpaRepository<ProgramCancer, ProgramCancerId>, JpaSpecificationExecutor<ProgramCancer> {
+
+  /** Unlinks the program from the cancers whose names are not in {@code names} */
+  @Modifying(flushAutomatically = true)
+  @QueryHints(@QueryHint(name = NATIVE_QUERY_SPACES, value = Tables.PROGRAM_CANCER))
+  @Query(
+      value =
+          "DELETE FROM program_cancer pc USING cancer c "
+              + "WHERE pc.cancer_id = c.id AND pc.program_id = CAST(:programId AS uuid) "
+              + "AND c.name NOT IN (:names)",
+      nativeQuery = true)
+  int removeAllExcept(
+      @Param("programId") String programId, @Param("names") Collection<String> names);
+
+  /** Links the program to the named cancers it is not linked to yet */
+  @Modifying(flushAutomatically = true)
+  @QueryHints(@QueryHint(name = NATIVE_QUERY_SPACES, value = Tables.PROGRAM_CANCER))
+  @Query(
+      value =
+          "INSERT INTO program_cancer (program_id, cancer_id) "
+              + "SELECT CAST(:programId AS uuid), c.id FROM cancer c WHERE c.name IN (:names) "
+              + "ON CONFLICT DO NOTHING",
+      nativeQuery = true)
+  int addAllMissing(@Param("programId") String programId, @Param("names") Collection<String> names);
+}
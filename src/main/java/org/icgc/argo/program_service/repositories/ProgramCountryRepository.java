@@ -20,11 +20,44 @@
 
 package org.icgc.argo.program_service.repositories;
 
+import static org.icgc.argo.program_service.model.enums.CacheRegions.NATIVE_QUERY_SPACES;
+
+import java.util.Collection;
+import javax.persistence.QueryHint;
+import org.icgc.argo.program_service.model.enums.Tables;
 import org.icgc.argo.program_service.model.join.ProgramCountry;
 import org.icgc.argo.program_service.model.join.ProgramCountryId;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 public interface ProgramCountryRepository
     extends JpaRepository<ProgramCountry, ProgramCountryId>,
-        JpaSpecificationExecutor<ProgramCountry> {}
+        JpaSpecificationExecutor<ProgramCountry> {
+
+  /** Unlinks the program from the countries whose names are not in {@code names} */
+  @Modifying(flushAutomatically = true)
+  @QueryHints(@QueryHint(name = NATIVE_QUERY_SPACES, value = Tables.PROGRAM_COUNTRY))
+  @Query(
+      value =
+          "DELETE FROM program_country pc USING country c "
+              + "WHERE pc.country_id = c.id AND pc.program_id = CAST(:programId AS uuid) "
+              + "AND c.name NOT IN (:names)",
+      nativeQuery = true)
+  int removeAllExcept(
+      @Param("programId") String programId, @Param("names") Collection<String> names);
+
+  /** Links the program to the named countries it is not linked to yet */
+  @Modifying(flushAutomatically = true)
+  @QueryHints(@QueryHint(name = NATIVE_QUERY_SPACES, value = Tables.PROGRAM_COUNTRY))
+  @Query(
+      value =
+          "INSERT INTO program_country (program_id, country_id) "
+              + "SELECT CAST(:programId AS uuid), c.id FROM country c WHERE c.name IN (:names) "
+              + "ON CONFLICT DO NOTHING",
+      nativeQuery = true)
+  int addAllMissing(@Param("programId") String programId, @Param("names") Collection<String> names);
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.repositories;
+
+import java.util.List;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.springframework.data.jpa.domain.Specification;
+
+class ProgramIdRepositoryImpl implements ProgramIdRepository {
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Override
+  public List<UUID> findIds(Specification<ProgramEntity> spec, int limit) {
+    val builder = entityManager.getCriteriaBuilder();
+    val query = builder.createQuery(UUID.class);
+    val root = query.from(ProgramEntity.class);
+    query.select(root.<UUID>get(ProgramEntity.Fields.id));
+    val predicate = spec.toPredicate(root, query, builder);
+    if (predicate != null) {
+      query.where(predicate);
+    }
+    query.orderBy(builder.asc(root.get(ProgramEntity.Fields.shortName)));
+
+    val typedQuery = entityManager.createQuery(query);
+    if (limit > 0) {
+      typedQuery.setMaxResults(limit);
+    }
+    return typedQuery.getResultList();
+  }
+}
@@ -20,11 +20,44 @@
 
 package org.icgc.argo.program_service.repositories;
 
+import static org.icgc.argo.program_service.model.enums.CacheRegions.NATIVE_QUERY_SPACES;
+
+import java.util.Collection;
+import javax.persistence.QueryHint;
+import org.icgc.argo.program_service.model.enums.Tables;
 import org.icgc.argo.program_service.model.join.ProgramInstitution;
 import org.icgc.argo.program_service.model.join.ProgramInstitutionId;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 public interface ProgramInstitutionRepository
     extends JpaRepository<ProgramInstitution, ProgramInstitutionId>,
-        JpaSpecificationExecutor<ProgramInstitution> {}
+        JpaSpecificationExecutor<ProgramInstitution> {
+
+  /** Unlinks the program from the institutions whose names are not in {@code names} */
+  @Modifying(flushAutomatically = true)
+  @QueryHints(@QueryHint(name = NATIVE_QUERY_SPACES, value = Tables.PROGRAM_INSTITUTION))
+  @Query(
+      value =
+          "DELETE FROM program_institution pi USING institution i "
+              + "WHERE pi.institution_id = i.id AND pi.program_id = CAST(:programId AS uuid) "
+              + "AND i.name NOT IN (:names)",
+      nativeQuery = true)
+  int removeAllExcept(
+      @Param("programId") String programId, @Param("names") Collection<String> names);
+
+  /** Links the program to the named institutions it is not linked to yet */
+  @Modifying(flushAutomatically = true)
+  @QueryHints(@QueryHint(name = NATIVE_QUERY_SPACES, value = Tables.PROGRAM_INSTITUTION))
+  @Query(
+      value =
+          "INSERT INTO program_institution (program_id, institution_id) "
+              + "SELECT CAST(:programId AS uuid), i.id FROM institution i WHERE i.name IN (:names) "
+              + "ON CONFLICT DO NOTHING",
+      nativeQuery = true)
+  int addAllMissing(@Param("programId") String programId, @Param("names") Collection<String> names);
+}
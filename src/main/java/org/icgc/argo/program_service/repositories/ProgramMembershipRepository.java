@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.icgc.argo.program_service.model.entity.ProgramMembershipEntity;
+import org.icgc.argo.program_service.model.join.ProgramMembershipId;
+import org.icgc.argo.program_service.proto.UserRole;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ProgramMembershipRepository
+    extends JpaRepository<ProgramMembershipEntity, ProgramMembershipId> {
+
+  /** Members after the given email, in byte order like the Java strings they are merged with */
+  @Query(
+      value =
+          "SELECT * FROM program_membership WHERE program_id = :programId "
+              + "AND email COLLATE \"C\" > :after ORDER BY email COLLATE \"C\"",
+      nativeQuery = true)
+  List<ProgramMembershipEntity> findPage(
+      @Param("programId") UUID programId, @Param("after") String after, Pageable pageable);
+
+  List<ProgramMembershipEntity> findAllByIdProgramId(UUID programId);
+
+  @Modifying
+  @Query(
+      "DELETE FROM ProgramMembershipEntity m WHERE lower(m.email) = lower(:email) "
+          + "AND m.id.programId IN "
+          + "(SELECT p.id FROM ProgramEntity p WHERE p.shortName = :shortName)")
+  int deleteByProgramShortNameAndEmail(
+      @Param("shortName") String shortName, @Param("email") String email);
+
+  @Modifying
+  @Query(
+      "UPDATE ProgramMembershipEntity m SET m.role = :role, m.syncedAt = :syncedAt "
+          + "WHERE lower(m.email) = lower(:email) AND m.id.programId IN "
+          + "(SELECT p.id FROM ProgramEntity p WHERE p.shortName = :shortName)")
+  int updateRole(
+      @Param("shortName") String shortName,
+      @Param("email") String email,
+      @Param("role") UserRole role,
+      @Param("syncedAt") LocalDateTime syncedAt);
+
+  /** Unless a reconciliation looked it up first */
+  @Modifying
+  @Query(
+      "UPDATE ProgramMembershipEntity m SET m.dacoApproved = :dacoApproved, "
+          + "m.dacoCheckedAt = :checkedAt WHERE m.id = :id AND m.dacoCheckedAt IS NULL")
+  int updateUnknownDaco(
+      @Param("id") ProgramMembershipId id,
+      @Param("dacoApproved") boolean dacoApproved,
+      @Param("checkedAt") LocalDateTime checkedAt);
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.icgc.argo.program_service.model.entity.ProgramMembershipSyncEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ProgramMembershipSyncRepository
+    extends JpaRepository<ProgramMembershipSyncEntity, UUID> {
+
+  /** Schedules the first reconciliation of active, provisioned programs not seen before */
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO program_membership_sync (program_id, next_sync_at) "
+              + "SELECT id, :now FROM program "
+              + "WHERE active AND provisioning_status = 'PROVISIONED' "
+              + "ON CONFLICT (program_id) DO NOTHING",
+      nativeQuery = true)
+  int addMissing(@Param("now") LocalDateTime now);
+
+  @Query(
+      "SELECT s.programId FROM ProgramMembershipSyncEntity s WHERE s.nextSyncAt <= :now "
+          + "ORDER BY s.nextSyncAt")
+  List<UUID> findDueProgramIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+  /**
+   * Pushes the next reconciliation of a due program out to {@code leaseUntil}, so no other instance
+   * picks it up meanwhile.
+   *
+   * @return 1 if this caller claimed the program, 0 if it was not due
+   */
+  @Modifying
+  @Query(
+      "UPDATE ProgramMembershipSyncEntity s SET s.nextSyncAt = :leaseUntil "
+          + "WHERE s.programId = :programId AND s.nextSyncAt <= :now")
+  int claim(
+      @Param("programId") UUID programId,
+      @Param("now") LocalDateTime now,
+      @Param("leaseUntil") LocalDateTime leaseUntil);
+}
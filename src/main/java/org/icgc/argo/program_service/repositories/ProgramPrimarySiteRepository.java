@@ -20,11 +20,45 @@
 
 package org.icgc.argo.program_service.repositories;
 
+import static org.icgc.argo.program_service.model.enums.CacheRegions.NATIVE_QUERY_SPACES;
+
+import java.util.Collection;
+import javax.persistence.QueryHint;
+import org.icgc.argo.program_service.model.enums.Tables;
 import org.icgc.argo.program_service.model.join.ProgramPrimarySite;
 import org.icgc.argo.program_service.model.join.ProgramPrimarySiteId;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 public interface ProgramPrimarySiteRepository
     extends JpaRepository<ProgramPrimarySite, ProgramPrimarySiteId>,
-        JpaSpecificationExecutor<ProgramPrimarySite> {}
+        JpaSpecificationExecutor<ProgramPrimarySite> {
+
+  /** Unlinks the program from the primary sites whose names are not in {@code names} */
+  @Modifying(flushAutomatically = true)
+  @QueryHints(@QueryHint(name = NATIVE_QUERY_SPACES, value = Tables.PROGRAM_PRIMARY_SITE))
+  @Query(
+      value =
+          "DELETE FROM program_primary_site pps USING primary_site p "
+              + "WHERE pps.primary_site_id = p.id AND pps.program_id = CAST(:programId AS uuid) "
+              + "AND p.name NOT IN (:names)",
+      nativeQuery = true)
+  int removeAllExcept(
+      @Param("programId") String programId, @Param("names") Collection<String> names);
+
+  /** Links the program to the named primary sites it is not linked to yet */
+  @Modifying(flushAutomatically = true)
+  @QueryHints(@QueryHint(name = NATIVE_QUERY_SPACES, value = Tables.PROGRAM_PRIMARY_SITE))
+  @Query(
+      value =
+          "INSERT INTO program_primary_site (program_id, primary_site_id) "
+              + "SELECT CAST(:programId AS uuid), p.id FROM primary_site p "
+              + "WHERE p.name IN (:names) "
+              + "ON CONFLICT DO NOTHING",
+      nativeQuery = true)
+  int addAllMissing(@Param("programId") String programId, @Param("names") Collection<String> names);
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.icgc.argo.program_service.model.entity.ProgramProvisioningEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ProgramProvisioningRepository
+    extends JpaRepository<ProgramProvisioningEntity, UUID> {
+
+  @Query(
+      "SELECT p.programId FROM ProgramProvisioningEntity p WHERE p.nextAttemptAt <= :now "
+          + "ORDER BY p.nextAttemptAt")
+  List<UUID> findDueProgramIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+  /**
+   * Pushes the next attempt of a due workflow out to {@code leaseUntil}, so no other instance picks
+   * it up meanwhile.
+   *
+   * @return 1 if this caller claimed the workflow, 0 if it was not due
+   */
+  @Modifying
+  @Query(
+      "UPDATE ProgramProvisioningEntity p SET p.nextAttemptAt = :leaseUntil "
+          + "WHERE p.programId = :programId AND p.nextAttemptAt <= :now")
+  int claim(
+      @Param("programId") UUID programId,
+      @Param("now") LocalDateTime now,
+      @Param("leaseUntil") LocalDateTime leaseUntil);
+
+  /**
+   * Moves the lease of a claimed workflow from {@code lease} to {@code leaseUntil}, or only checks
+   * it when both are the same.
+   *
+   * @return 1 if the caller still held the lease, 0 if the lease ran out and another worker claimed
+   *     the workflow, or the workflow was removed along with its program
+   */
+  @Modifying
+  @Query(
+      "UPDATE ProgramProvisioningEntity p SET p.nextAttemptAt = :leaseUntil "
+          + "WHERE p.programId = :programId AND p.nextAttemptAt = :lease")
+  int extendLease(
+      @Param("programId") UUID programId,
+      @Param("lease") LocalDateTime lease,
+      @Param("leaseUntil") LocalDateTime leaseUntil);
+}
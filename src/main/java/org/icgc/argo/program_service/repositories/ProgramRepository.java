@@ -20,17 +20,21 @@
 
 package org.icgc.argo.program_service.repositories;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 public interface ProgramRepository
-    extends JpaRepository<ProgramEntity, UUID>, JpaSpecificationExecutor<ProgramEntity> {
+    extends JpaRepository<ProgramEntity, UUID>,
+        JpaSpecificationExecutor<ProgramEntity>,
+        ProgramIdRepository {
   Optional<ProgramEntity> findByShortName(String name);
 
   @Query("select distinct p.shortName from ProgramEntity p where p.active =true")
@@ -39,4 +43,32 @@ public interface ProgramRepository
   @Query(
       "SELECT P FROM ProgramEntity AS P INNER JOIN DataCenterEntity AS D ON P.dataCenterId=D.id WHERE D.shortName=:shortName AND P.active = false")
   List<ProgramEntity> getActiveProgramsForDataCenter(@Param("shortName") String shortName);
+
+  /**
+   * Case-insensitive substring search over the short name and name of active programs. Prefix
+   * matches rank first, then programs are ordered by short name.
+   */
+  @Query(
+      value =
+          "SELECT * FROM program WHERE active AND (lower(short_name) LIKE '%' || :pattern || '%' "
+              + "OR lower(name) LIKE '%' || :pattern || '%') "
+              + "ORDER BY (lower(short_name) LIKE :pattern || '%' "
+              + "OR lower(name) LIKE :pattern || '%') DESC, short_name "
+              + "LIMIT :limit",
+      nativeQuery = true)
+  List<ProgramEntity> searchByName(@Param("pattern") String pattern, @Param("limit") int limit);
+
+  /** Keyset paged ids for {@link #getActiveProgramsForDataCenter(String)} */
+  @Query(
+      "SELECT P.id FROM ProgramEntity AS P "
+          + "INNER JOIN DataCenterEntity AS D ON P.dataCenterId=D.id "
+          + "WHERE D.shortName=:shortName AND P.active = false AND P.shortName > :after "
+          + "ORDER BY P.shortName")
+  List<UUID> findProgramIdsForDataCenterAfter(
+      @Param("shortName") String shortName, @Param("after") String after, Pageable pageable);
+
+  @Query(
+      "SELECT P.id FROM ProgramEntity AS P WHERE P.active = true AND P.shortName IN :shortNames "
+          + "ORDER BY P.shortName")
+  List<UUID> findActiveIdsByShortNameIn(@Param("shortNames") Collection<String> shortNames);
 }
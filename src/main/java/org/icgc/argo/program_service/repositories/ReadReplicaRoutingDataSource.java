@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.repositories;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary. Reads fall back to
+ * the primary while the replica lags by more than the allowed staleness or cannot be reached.
+ *
+ * <p>The lookup key is resolved when a connection is first requested, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} for the transaction's
+ * read-only flag to be visible.
+ *
+ * <p>Reads whose result outlives the request, e.g. cached snapshots, run {@link #onPrimary}. The
+ * cache is evicted once a write commits on the primary, and a load from a lagging replica right
+ * after would keep the state from before the write until the snapshot expires.
+ */
+@Slf4j
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+  enum Target {
+    PRIMARY,
+    REPLICA
+  }
+
+  // Zero when the replica has replayed everything it received, so an idle replica is not stale
+  private static final String REPLICATION_LAG_MS =
+      "SELECT CASE WHEN NOT pg_is_in_recovery() "
+          + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+          + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) "
+          + "END";
+
+  private static final ThreadLocal<Boolean> PRIMARY_ONLY = ThreadLocal.withInitial(() -> false);
+
+  private final DataSource replica;
+  private final long maxStalenessMs;
+
+  private volatile boolean replicaFresh = true;
+
+  public ReadReplicaRoutingDataSource(
+      @NonNull DataSource primary, @NonNull DataSource replica, long maxStalenessMs) {
+    this.replica = replica;
+    this.maxStalenessMs = maxStalenessMs;
+    setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+    setDefaultTargetDataSource(primary);
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (replicaFresh
+        && !PRIMARY_ONLY.get()
+        && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return Target.REPLICA;
+    }
+    return Target.PRIMARY;
+  }
+
+  /**
+   * Runs {@code reads} with their read-only transactions routed to the primary as well. Only
+   * transactions started within {@code reads} are affected, one already holding a connection keeps
+   * it.
+   */
+  public static <T> T onPrimary(@NonNull Supplier<T> reads) {
+    val outer = PRIMARY_ONLY.get();
+    PRIMARY_ONLY.set(true);
+    try {
+      return reads.get();
+    } finally {
+      PRIMARY_ONLY.set(outer);
+    }
+  }
+
+  @Scheduled(
+      fixedDelayString = "${app.read-replica.lag-check-interval-ms:5000}",
+      initialDelayString = "${app.read-replica.lag-check-interval-ms:5000}")
+  public void checkReplicationLag() {
+    boolean fresh;
+    try (Connection connection = replica.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery(REPLICATION_LAG_MS)) {
+      resultSet.next();
+      val lagMs = resultSet.getDouble(1);
+      fresh = lagMs <= maxStalenessMs;
+      if (!fresh) {
+        log.debug("Read replica is {} ms behind the primary", (long) lagMs);
+      }
+    } catch (SQLException e) {
+      log.debug("Could not measure read replica lag: {}", e.getMessage());
+      fresh = false;
+    }
+    if (fresh != replicaFresh) {
+      log.warn("Routing read-only transactions to the {}", fresh ? "read replica" : "primary");
+      replicaFresh = fresh;
+    }
+  }
+
+  boolean isReplicaFresh() {
+    return replicaFresh;
+  }
+}
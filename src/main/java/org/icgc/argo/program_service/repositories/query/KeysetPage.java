@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.repositories.query;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.val;
+
+/** One page of a keyset paged listing, see {@link KeysetPageRequest}. */
+@Value
+public class KeysetPage<T> {
+  List<T> items;
+
+  /** Absent on the last page */
+  Optional<String> nextPageToken;
+
+  /**
+   * Builds the page from rows fetched with {@link KeysetPageRequest#lookahead()}, already sorted by
+   * {@code key}. The extra row, if any, is dropped and only signals that a next page exists.
+   */
+  public static <T> KeysetPage<T> of(
+      @NonNull List<T> rows, @NonNull KeysetPageRequest request, @NonNull Function<T, String> key) {
+    if (!request.isPaged() || rows.size() <= request.getSize()) {
+      return new KeysetPage<>(List.copyOf(rows), Optional.empty());
+    }
+    val items = List.copyOf(rows.subList(0, request.getSize()));
+    val last = key.apply(items.get(items.size() - 1));
+    return new KeysetPage<>(items, Optional.of(KeysetPageRequest.encodeToken(last)));
+  }
+
+  public <R> KeysetPage<R> map(@NonNull Function<T, R> mapper) {
+    return new KeysetPage<>(items.stream().map(mapper).collect(Collectors.toList()), nextPageToken);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.repositories.query;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.grpc.Status;
+import java.util.Base64;
+import lombok.Value;
+import lombok.val;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Cursor for keyset pagination. Instead of an offset, the page token carries the sort key of the
+ * last row that was returned, so each page is a range scan that starts right after it.
+ */
+@Value
+public class KeysetPageRequest {
+  public static final int DEFAULT_PAGE_SIZE = 100;
+  public static final int MAX_PAGE_SIZE = 500;
+
+  private static final KeysetPageRequest UNPAGED = new KeysetPageRequest("", 0);
+
+  /** Sort key of the last row of the previous page, empty for the first page */
+  String after;
+
+  /** Zero when the caller did not ask for paging */
+  int size;
+
+  public static KeysetPageRequest unpaged() {
+    return UNPAGED;
+  }
+
+  /**
+   * Leaving out both the page size and the token returns everything, as before paging existed. A
+   * token without a size uses the default size, and sizes above the maximum are capped.
+   */
+  public static KeysetPageRequest of(int pageSize, String pageToken) {
+    if (pageSize < 0) {
+      throw Status.INVALID_ARGUMENT
+          .augmentDescription("Page size must not be negative")
+          .asRuntimeException();
+    }
+    val hasToken = pageToken != null && !pageToken.isEmpty();
+    if (pageSize == 0 && !hasToken) {
+      return UNPAGED;
+    }
+    val size = pageSize == 0 ? DEFAULT_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+    return new KeysetPageRequest(hasToken ? decodeToken(pageToken) : "", size);
+  }
+
+  public boolean isPaged() {
+    return size > 0;
+  }
+
+  /** Asks for one row more than the page size, which tells whether there is a next page. */
+  public Pageable lookahead() {
+    return isPaged() ? PageRequest.of(0, size + 1) : Pageable.unpaged();
+  }
+
+  /** Same as {@link #lookahead()}, as a row limit where zero means unlimited */
+  public int lookaheadLimit() {
+    return isPaged() ? size + 1 : 0;
+  }
+
+  static String encodeToken(String key) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(UTF_8));
+  }
+
+  private static String decodeToken(String token) {
+    try {
+      return new String(Base64.getUrlDecoder().decode(token), UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw Status.INVALID_ARGUMENT
+          .augmentDescription("Invalid page token '" + token + "'")
+          .asRuntimeException();
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.repositories.query;
+
+import java.util.Set;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import org.icgc.argo.program_service.proto.MembershipType;
+
+/**
+ * Criteria for program listings. Every criterion that is set must match, and a criterion with
+ * several values matches a program that has any one of them.
+ */
+@Value
+@Builder
+public class ProgramFilter {
+  @Singular Set<String> countries;
+  @Singular Set<String> cancerTypes;
+  @Singular Set<String> primarySites;
+  MembershipType membershipType;
+  String dataCenterShortName;
+
+  public static ProgramFilter none() {
+    return ProgramFilter.builder().build();
+  }
+
+  public boolean isEmpty() {
+    return countries.isEmpty()
+        && cancerTypes.isEmpty()
+        && primarySites.isEmpty()
+        && membershipType == null
+        && dataCenterShortName == null;
+  }
+}
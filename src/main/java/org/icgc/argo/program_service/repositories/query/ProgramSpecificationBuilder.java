@@ -22,18 +22,31 @@ package org.icgc.argo.program_service.repositories.query;
 
 import static javax.persistence.criteria.JoinType.LEFT;
 
+import java.util.ArrayList;
+import java.util.Set;
 import java.util.UUID;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import lombok.EqualsAndHashCode;
+import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.Accessors;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.CancerEntity;
+import org.icgc.argo.program_service.model.entity.DataCenterEntity;
 import org.icgc.argo.program_service.model.entity.ProgramEntity;
 import org.icgc.argo.program_service.model.join.*;
+import org.springframework.data.jpa.domain.Specification;
 
 @Setter
 @Accessors(chain = true)
 @EqualsAndHashCode(callSuper = true)
 public class ProgramSpecificationBuilder extends AbstractSpecificationBuilder<ProgramEntity, UUID> {
+  // Every program join entity uses the same names for its program and association sides
+  private static final String JOIN_PROGRAM_FIELD = ProgramCancer.Fields.program;
+  private static final String ASSOCIATION_NAME_FIELD = CancerEntity.Fields.name;
 
   private boolean fetchCancers;
   private boolean fetchPrimarySites;
@@ -60,4 +73,85 @@ public class ProgramSpecificationBuilder extends AbstractSpecificationBuilder<Pr
     }
     return root;
   }
+
+  /**
+   * Active programs matching {@code filter} whose short name sorts after {@code after}. The join
+   * table criteria are EXISTS subqueries, so they never repeat a program row.
+   */
+  public Specification<ProgramEntity> buildActiveByFilter(
+      @NonNull ProgramFilter filter, @NonNull String after) {
+    return (fromUser, query, builder) -> {
+      val root = setupFetchStrategy(fromUser);
+      val predicates = new ArrayList<Predicate>();
+      predicates.add(builder.isTrue(root.get(ProgramEntity.Fields.active)));
+      if (!after.isEmpty()) {
+        predicates.add(
+            builder.greaterThan(root.<String>get(ProgramEntity.Fields.shortName), after));
+      }
+      if (filter.getMembershipType() != null) {
+        predicates.add(
+            builder.equal(
+                root.get(ProgramEntity.Fields.membershipType), filter.getMembershipType()));
+      }
+      if (filter.getDataCenterShortName() != null) {
+        val dataCenterIds = query.subquery(UUID.class);
+        val dataCenter = dataCenterIds.from(DataCenterEntity.class);
+        dataCenterIds
+            .select(dataCenter.<UUID>get(DataCenterEntity.Fields.id))
+            .where(
+                builder.equal(
+                    dataCenter.get(DataCenterEntity.Fields.shortName),
+                    filter.getDataCenterShortName()));
+        predicates.add(root.get(ProgramEntity.Fields.dataCenterId).in(dataCenterIds));
+      }
+      if (!filter.getCountries().isEmpty()) {
+        predicates.add(
+            hasAssociation(
+                root,
+                query,
+                builder,
+                ProgramCountry.class,
+                ProgramCountry.Fields.country,
+                filter.getCountries()));
+      }
+      if (!filter.getCancerTypes().isEmpty()) {
+        predicates.add(
+            hasAssociation(
+                root,
+                query,
+                builder,
+                ProgramCancer.class,
+                ProgramCancer.Fields.cancer,
+                filter.getCancerTypes()));
+      }
+      if (!filter.getPrimarySites().isEmpty()) {
+        predicates.add(
+            hasAssociation(
+                root,
+                query,
+                builder,
+                ProgramPrimarySite.class,
+                ProgramPrimarySite.Fields.primarySite,
+                filter.getPrimarySites()));
+      }
+      return builder.and(predicates.toArray(new Predicate[0]));
+    };
+  }
+
+  private static <J> Predicate hasAssociation(
+      Root<ProgramEntity> root,
+      CriteriaQuery<?> query,
+      CriteriaBuilder builder,
+      Class<J> joinEntity,
+      String association,
+      Set<String> names) {
+    val subquery = query.subquery(Integer.class);
+    val join = subquery.from(joinEntity);
+    subquery
+        .select(builder.literal(1))
+        .where(
+            builder.equal(join.get(JOIN_PROGRAM_FIELD), root),
+            join.join(association).get(ASSOCIATION_NAME_FIELD).in(names));
+    return builder.exists(subquery);
+  }
 }
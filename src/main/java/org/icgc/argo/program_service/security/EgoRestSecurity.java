@@ -20,6 +20,8 @@
 
 package org.icgc.argo.program_service.security;
 
+import static org.springframework.web.context.request.RequestAttributes.SCOPE_REQUEST;
+
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
@@ -29,6 +31,7 @@ import com.auth0.jwt.interfaces.DecodedJWT;
 import java.security.interfaces.RSAPublicKey;
 import java.util.Optional;
 import lombok.NonNull;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.icgc.argo.program_service.model.exceptions.UnauthorizedException;
@@ -37,6 +40,7 @@ import org.icgc.argo.program_service.services.ego.model.entity.EgoToken;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
 
 @Slf4j
 @Service
@@ -45,6 +49,8 @@ public class EgoRestSecurity {
 
   private static final String EGO = "ego";
 
+  private static final String VERIFIED_TOKEN = EgoRestSecurity.class.getName() + ".verifiedToken";
+
   private final RSAPublicKey egoPublicKey;
 
   @Autowired
@@ -52,7 +58,26 @@ public class EgoRestSecurity {
     this.egoPublicKey = egoPublicKey;
   }
 
+  /**
+   * Verifies the token once per REST request. The admission filter, the authorization filter and
+   * every authorization check of a request present the same token, and checking its signature is
+   * what costs. Invalid tokens are not remembered, they fail the request anyway.
+   */
   public Optional<EgoToken> verifyRestTokenHeader(String jwtToken) {
+    val request = RequestContextHolder.getRequestAttributes();
+    if (request == null || jwtToken == null) {
+      return verify(jwtToken);
+    }
+    val verified = (VerifiedToken) request.getAttribute(VERIFIED_TOKEN, SCOPE_REQUEST);
+    if (verified != null && verified.getJwtToken().equals(jwtToken)) {
+      return verified.getToken();
+    }
+    val token = verify(jwtToken);
+    request.setAttribute(VERIFIED_TOKEN, new VerifiedToken(jwtToken, token), SCOPE_REQUEST);
+    return token;
+  }
+
+  private Optional<EgoToken> verify(String jwtToken) {
     try {
       Algorithm algorithm = Algorithm.RSA256(this.egoPublicKey, null);
       JWTVerifier verifier =
@@ -79,4 +104,10 @@ public class EgoRestSecurity {
       return Optional.empty();
     }
   }
+
+  @Value
+  private static class VerifiedToken {
+    String jwtToken;
+    Optional<EgoToken> token;
+  }
 }
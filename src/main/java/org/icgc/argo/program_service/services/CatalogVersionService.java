@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static java.lang.String.format;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.ChangeEventEntity;
+import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.repositories.ChangeEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * HTTP cache validators for the program read endpoints. The catalog version is the id of the latest
+ * change log entry. Every write to a program, its associations or a data center appends to the
+ * change log in commit order, so validators change whenever a response could, and can be checked
+ * without building the response.
+ */
+@Service
+public class CatalogVersionService {
+
+  private static final LocalDateTime EPOCH = LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC);
+
+  /** Dependencies */
+  private final ChangeEventRepository changeEventRepository;
+
+  private final ProgramService programService;
+
+  @Autowired
+  public CatalogVersionService(
+      @NonNull ChangeEventRepository changeEventRepository,
+      @NonNull ProgramService programService) {
+    this.changeEventRepository = changeEventRepository;
+    this.programService = programService;
+  }
+
+  /** Validators for responses built from the whole catalog, e.g. the list of program names */
+  @Transactional(readOnly = true)
+  public Validators getCatalogValidators() {
+    val catalog = getCatalogVersion();
+    return new Validators(
+        format("W/\"%d\"", catalog.getId()), toEpochMillis(catalog.getCreatedAt()));
+  }
+
+  /**
+   * Validators for responses built from a single program and its associations. Fails like {@link
+   * ProgramService#getProgram(String, boolean)} when the program cannot be served.
+   */
+  @Transactional(readOnly = true)
+  public Validators getProgramValidators(@NonNull String shortName, boolean allowInactive) {
+    return getProgramValidators(
+        programService.getProgramWithoutAssociations(shortName, allowInactive));
+  }
+
+  private Validators getProgramValidators(ProgramEntity program) {
+    val catalog = getCatalogVersion();
+    LocalDateTime lastModified = catalog.getCreatedAt();
+    if (program.getUpdatedAt() != null && program.getUpdatedAt().isAfter(lastModified)) {
+      lastModified = program.getUpdatedAt();
+    }
+    val programVersion = program.getUpdatedAt() == null ? 0 : toEpochMillis(program.getUpdatedAt());
+    return new Validators(
+        format("W/\"%d-%d\"", catalog.getId(), programVersion), toEpochMillis(lastModified));
+  }
+
+  /** The latest change log entry, or an entry with id 0 at the epoch while the log is empty */
+  private ChangeEventEntity getCatalogVersion() {
+    return changeEventRepository
+        .findFirstByOrderByIdDesc()
+        .orElseGet(() -> new ChangeEventEntity().setId(0L).setCreatedAt(EPOCH));
+  }
+
+  private static long toEpochMillis(LocalDateTime utc) {
+    return utc.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  @Value
+  public static class Validators {
+    String eTag;
+    long lastModified;
+  }
+}
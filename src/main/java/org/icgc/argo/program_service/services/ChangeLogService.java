@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static org.springframework.transaction.annotation.Propagation.MANDATORY;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.NonNull;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.ChangeEventEntity;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.proto.ChangeType;
+import org.icgc.argo.program_service.repositories.ChangeEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Appends to the change log from within the transaction making the change, so an entry becomes
+ * visible exactly when the change commits.
+ *
+ * <p>Entries are held back until the transaction is about to commit. They are then written under a
+ * transaction scoped advisory lock, which makes ids increase in commit order. Without it a consumer
+ * that read up to id N could later miss an entry with a smaller id committed after its read. The
+ * lock is only held from the append to the commit, so unrelated writes still run concurrently and
+ * only their commits are serialized.
+ */
+@Service
+public class ChangeLogService {
+
+  /** Arbitrary, but must stay unique among the advisory lock keys used against this database */
+  static final long ADVISORY_LOCK_KEY = 0x5052_4f47_0002L;
+
+  /** Dependencies */
+  private final ChangeEventRepository changeEventRepository;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final AppProperties.ChangeLogProperties properties;
+
+  @Autowired
+  public ChangeLogService(
+      @NonNull ChangeEventRepository changeEventRepository,
+      @NonNull JdbcTemplate jdbcTemplate,
+      @NonNull AppProperties appProperties) {
+    this.changeEventRepository = changeEventRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.properties = appProperties.getChangeLog();
+  }
+
+  @Transactional(propagation = MANDATORY)
+  public void programChanged(@NonNull ChangeType type, @NonNull String programShortName) {
+    append(new ChangeEventEntity().setType(type).setProgramShortName(programShortName));
+  }
+
+  @Transactional(propagation = MANDATORY)
+  public void programRenamed(
+      @NonNull ChangeType type,
+      @NonNull String programShortName,
+      @NonNull String previousProgramShortName) {
+    val renamed = !previousProgramShortName.equals(programShortName);
+    append(
+        new ChangeEventEntity()
+            .setType(type)
+            .setProgramShortName(programShortName)
+            .setPreviousProgramShortName(renamed ? previousProgramShortName : null));
+  }
+
+  @Transactional(propagation = MANDATORY)
+  public void dataCenterChanged(@NonNull ChangeType type, @NonNull String dataCenterShortName) {
+    append(new ChangeEventEntity().setType(type).setDataCenterShortName(dataCenterShortName));
+  }
+
+  /** Entries after {@code since} in id order, at most {@link #pageSize(int)} of them */
+  @Transactional(readOnly = true)
+  public List<ChangeEventEntity> listChanges(long since, int limit) {
+    return changeEventRepository.findByIdGreaterThanOrderByIdAsc(
+        since, PageRequest.of(0, pageSize(limit)));
+  }
+
+  /** The requested limit capped to the configured page size, which is also the default */
+  public int pageSize(int limit) {
+    return limit > 0 ? Math.min(limit, properties.getMaxPageSize()) : properties.getMaxPageSize();
+  }
+
+  private void append(ChangeEventEntity event) {
+    PendingEntries pending = (PendingEntries) TransactionSynchronizationManager.getResource(this);
+    if (pending == null) {
+      pending = new PendingEntries();
+      TransactionSynchronizationManager.bindResource(this, pending);
+      TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+    pending.events.add(event);
+  }
+
+  /** The entries of one transaction, written right before it commits */
+  private class PendingEntries implements TransactionSynchronization {
+
+    private final List<ChangeEventEntity> events = new ArrayList<>();
+
+    @Override
+    public void beforeCommit(boolean readOnly) {
+      // Flush the rest of the transaction first, so the lock is not held while it is written
+      changeEventRepository.flush();
+      jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", ADVISORY_LOCK_KEY);
+      val createdAt = LocalDateTime.now(ZoneOffset.UTC);
+      events.forEach(event -> event.setCreatedAt(createdAt));
+      changeEventRepository.saveAll(events);
+      changeEventRepository.flush();
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResource(ChangeLogService.this);
+    }
+  }
+}
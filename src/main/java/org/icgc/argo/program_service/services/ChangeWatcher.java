@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Predicate;
+import javax.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.argo.program_service.converter.ProgramConverter;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.proto.ChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves WatchChanges streams by polling the change log from each stream's position. All streams
+ * share a small scheduler, so an idle stream holds no thread. A stream whose client is not reading
+ * is skipped until it drains, and one that fell behind is caught up a page at a time.
+ */
+@Slf4j
+@Component
+public class ChangeWatcher {
+
+  /** Dependencies */
+  private final ChangeLogService changeLogService;
+
+  private final ProgramConverter programConverter;
+  private final AppProperties.ChangeLogProperties properties;
+
+  private final ScheduledExecutorService scheduler;
+  private final Set<Watch> watches = ConcurrentHashMap.newKeySet();
+
+  @Autowired
+  public ChangeWatcher(
+      @NonNull ChangeLogService changeLogService,
+      @NonNull ProgramConverter programConverter,
+      @NonNull AppProperties appProperties) {
+    this.changeLogService = changeLogService;
+    this.programConverter = programConverter;
+    this.properties = appProperties.getChangeLog();
+    this.scheduler =
+        Executors.newScheduledThreadPool(
+            properties.getWatchThreads(),
+            new ThreadFactoryBuilder().setNameFormat("change-watcher-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Streams the entries after {@code since} that pass {@code filter}, then new ones as they are
+   * committed, until the call is cancelled. The filter runs in the gRPC context of the call.
+   */
+  public void watch(
+      long since,
+      @NonNull Predicate<ChangeEvent> filter,
+      @NonNull ServerCallStreamObserver<ChangeEvent> observer) {
+    val watch = new Watch(since, filter, observer, Context.current());
+    watches.add(watch);
+    observer.setOnCancelHandler(watch::cancel);
+    scheduler.execute(watch);
+  }
+
+  /** Number of open streams */
+  int size() {
+    return watches.size();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    scheduler.shutdownNow();
+    for (val watch : watches) {
+      watch.fail(Status.UNAVAILABLE.withDescription("Server is shutting down"));
+    }
+  }
+
+  private class Watch implements Runnable {
+    private final Predicate<ChangeEvent> filter;
+    private final ServerCallStreamObserver<ChangeEvent> observer;
+    private final Context context;
+
+    private long position;
+    private volatile boolean done;
+
+    Watch(
+        long since,
+        Predicate<ChangeEvent> filter,
+        ServerCallStreamObserver<ChangeEvent> observer,
+        Context context) {
+      this.position = since;
+      this.filter = filter;
+      this.observer = observer;
+      this.context = context;
+    }
+
+    @Override
+    public void run() {
+      if (done) {
+        return;
+      }
+      try {
+        val more = context.call(this::poll);
+        if (more) {
+          scheduler.execute(this);
+        } else {
+          scheduler.schedule(this, properties.getPollIntervalMs(), MILLISECONDS);
+        }
+      } catch (Exception e) {
+        if (done) {
+          // Cancelled while sending
+          return;
+        }
+        log.error("WatchChanges stream failed at position {}", position, e);
+        fail(Status.fromThrowable(e));
+      }
+    }
+
+    /** Sends the next page, returns whether there may be more right away */
+    private boolean poll() {
+      if (!observer.isReady()) {
+        return false;
+      }
+      val pageSize = properties.getMaxPageSize();
+      val entries = changeLogService.listChanges(position, pageSize);
+      for (val entry : entries) {
+        val event = programConverter.changeEventEntityToChangeEvent(entry);
+        if (filter.test(event)) {
+          observer.onNext(event);
+        }
+        position = entry.getId();
+      }
+      return entries.size() == pageSize;
+    }
+
+    void cancel() {
+      done = true;
+      watches.remove(this);
+    }
+
+    void fail(Status status) {
+      if (!done) {
+        cancel();
+        observer.onError(status.asRuntimeException());
+      }
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import java.util.UUID;
+import javax.persistence.EntityManagerFactory;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.icgc.argo.program_service.model.enums.CacheRegions;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.services.ego.EgoMembershipCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the in-process caches of all instances consistent. A write evicts the local caches and
+ * publishes a NOTIFY from within the writing transaction, so other instances hear of the change
+ * once it commits and never of one that rolled back. {@link InvalidationListener} applies the
+ * notifications published by other instances.
+ */
+@Slf4j
+@Component
+public class InvalidationBus {
+
+  private static final String PROGRAM = "program:";
+  private static final String DATA_CENTERS = "data-centers";
+  private static final String REFERENCE_DATA = "reference-data:";
+  private static final String MEMBERSHIP = "membership:";
+  private static final String MEMBERSHIPS = "memberships";
+  private static final char SEPARATOR = '|';
+
+  /** Dependencies */
+  private final ProgramSnapshotCache programSnapshotCache;
+
+  private final ReferenceDataCache referenceDataCache;
+  private final SearchService searchService;
+  private final EgoMembershipCache membershipCache;
+  private final JdbcTemplate jdbcTemplate;
+  private final EntityManagerFactory entityManagerFactory;
+  private final AppProperties.InvalidationBusProperties properties;
+
+  /** Tags our notifications, which were applied locally when published */
+  private final String instanceId = UUID.randomUUID().toString();
+
+  @Autowired
+  public InvalidationBus(
+      @NonNull ProgramSnapshotCache programSnapshotCache,
+      @NonNull ReferenceDataCache referenceDataCache,
+      @NonNull SearchService searchService,
+      @NonNull EgoMembershipCache membershipCache,
+      @NonNull JdbcTemplate jdbcTemplate,
+      @NonNull EntityManagerFactory entityManagerFactory,
+      @NonNull AppProperties appProperties) {
+    this.programSnapshotCache = programSnapshotCache;
+    this.referenceDataCache = referenceDataCache;
+    this.searchService = searchService;
+    this.membershipCache = membershipCache;
+    this.jdbcTemplate = jdbcTemplate;
+    this.entityManagerFactory = entityManagerFactory;
+    this.properties = appProperties.getInvalidationBus();
+  }
+
+  public void programChanged(@NonNull String shortName) {
+    programSnapshotCache.evictProgram(shortName);
+    publish(PROGRAM + shortName);
+  }
+
+  public void dataCentersChanged() {
+    programSnapshotCache.evictDataCenters();
+    publish(DATA_CENTERS);
+  }
+
+  public void referenceDataChanged(@NonNull ReferenceDataCache.Kind kind) {
+    evictReferenceData(kind);
+    publish(REFERENCE_DATA + kind.name());
+  }
+
+  /** Users were added to or removed from an Ego group */
+  public void membershipChanged(@NonNull UUID egoGroupId) {
+    membershipCache.evictGroup(egoGroupId);
+    publish(MEMBERSHIP + egoGroupId);
+  }
+
+  /** Ego groups were deleted, along with their memberships */
+  public void membershipsChanged() {
+    membershipCache.evictAll();
+    publish(MEMBERSHIPS);
+  }
+
+  /** Drops everything cached locally, for when notifications may have been missed */
+  public void evictAllLocally() {
+    programSnapshotCache.evictAll();
+    referenceDataCache.evictAll();
+    searchService.evictInstitutionIndex();
+    membershipCache.evictAll();
+    entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+  }
+
+  /** Applies a notification received on the channel */
+  void apply(@NonNull String payload) {
+    val separator = payload.indexOf(SEPARATOR);
+    if (separator < 0) {
+      log.warn("Malformed invalidation '{}', evicting all local caches", payload);
+      evictAllLocally();
+      return;
+    }
+    if (payload.substring(0, separator).equals(instanceId)) {
+      return;
+    }
+
+    val message = payload.substring(separator + 1);
+    log.debug("Applying invalidation '{}' from another instance", message);
+    if (message.startsWith(PROGRAM)) {
+      programSnapshotCache.evictProgram(message.substring(PROGRAM.length()));
+      evictSecondLevelCache(CacheRegions.PROGRAM, CacheRegions.PROGRAM_ASSOCIATIONS);
+    } else if (message.equals(DATA_CENTERS)) {
+      programSnapshotCache.evictDataCenters();
+      evictSecondLevelCache(CacheRegions.DATA_CENTER);
+    } else if (message.startsWith(REFERENCE_DATA)) {
+      evictReferenceData(
+          ReferenceDataCache.Kind.valueOf(message.substring(REFERENCE_DATA.length())));
+      evictSecondLevelCache(CacheRegions.REFERENCE_DATA);
+    } else if (message.startsWith(MEMBERSHIP)) {
+      membershipCache.evictGroup(UUID.fromString(message.substring(MEMBERSHIP.length())));
+    } else if (message.equals(MEMBERSHIPS)) {
+      membershipCache.evictAll();
+    } else {
+      log.warn("Unknown invalidation '{}', evicting all local caches", message);
+      evictAllLocally();
+    }
+  }
+
+  private void evictReferenceData(ReferenceDataCache.Kind kind) {
+    referenceDataCache.evict(kind);
+    if (kind == ReferenceDataCache.Kind.INSTITUTIONS) {
+      searchService.evictInstitutionIndex();
+    }
+  }
+
+  private void evictSecondLevelCache(String... regions) {
+    val cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    for (val region : regions) {
+      cache.evictRegion(region);
+    }
+  }
+
+  private void publish(String message) {
+    if (!properties.getEnabled()) {
+      return;
+    }
+    // Postgres holds the notification back until the surrounding transaction commits
+    jdbcTemplate.queryForList(
+        "SELECT pg_notify(?, ?)", properties.getChannel(), instanceId + SEPARATOR + message);
+  }
+}
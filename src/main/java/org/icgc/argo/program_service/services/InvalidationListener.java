@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.ChangeEventEntity;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.repositories.ChangeEventRepository;
+import org.icgc.argo.program_service.repositories.InstitutionRepository;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listens for the notifications of {@link InvalidationBus} on a dedicated connection to the primary
+ * database, outside the connection pool. Notifications sent while the connection is down are lost,
+ * so every (re)connect evicts all local caches. As a safety net, a periodic check of the catalog
+ * version and the institution count evicts everything when either changed unnoticed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.invalidation-bus", name = "enabled", havingValue = "true")
+public class InvalidationListener {
+
+  /** Dependencies */
+  private final InvalidationBus invalidationBus;
+
+  private final ChangeEventRepository changeEventRepository;
+  private final InstitutionRepository institutionRepository;
+  private final DataSourceProperties dataSourceProperties;
+  private final AppProperties.InvalidationBusProperties properties;
+
+  private volatile boolean running;
+  private volatile boolean listening;
+  private Thread thread;
+
+  private volatile Long lastCatalogVersion;
+  private volatile Long lastInstitutionCount;
+
+  @Autowired
+  public InvalidationListener(
+      @NonNull InvalidationBus invalidationBus,
+      @NonNull ChangeEventRepository changeEventRepository,
+      @NonNull InstitutionRepository institutionRepository,
+      @NonNull DataSourceProperties dataSourceProperties,
+      @NonNull AppProperties appProperties) {
+    this.invalidationBus = invalidationBus;
+    this.changeEventRepository = changeEventRepository;
+    this.institutionRepository = institutionRepository;
+    this.dataSourceProperties = dataSourceProperties;
+    this.properties = appProperties.getInvalidationBus();
+  }
+
+  @PostConstruct
+  void start() {
+    running = true;
+    thread = new Thread(this::listen, "invalidation-listener");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    running = false;
+    thread.join(properties.getPollIntervalMs() * 4L);
+  }
+
+  /** Whether notifications are currently being received */
+  boolean isListening() {
+    return listening;
+  }
+
+  @Scheduled(
+      fixedDelayString = "${app.invalidation-bus.full-check-interval-ms:60000}",
+      initialDelayString = "${app.invalidation-bus.full-check-interval-ms:60000}")
+  public void checkCatalogVersion() {
+    val catalogVersion =
+        changeEventRepository.findFirstByOrderByIdDesc().map(ChangeEventEntity::getId).orElse(0L);
+    val institutionCount = institutionRepository.count();
+    val changed =
+        lastCatalogVersion != null
+            && (!Objects.equals(catalogVersion, lastCatalogVersion)
+                || institutionCount != lastInstitutionCount);
+    lastCatalogVersion = catalogVersion;
+    lastInstitutionCount = institutionCount;
+    if (changed) {
+      log.debug("Catalog changed since the last check, evicting all local caches");
+      invalidationBus.evictAllLocally();
+    }
+  }
+
+  private void listen() {
+    while (running) {
+      try (Connection connection = connect();
+          Statement statement = connection.createStatement()) {
+        statement.execute("LISTEN " + properties.getChannel());
+        invalidationBus.evictAllLocally();
+        listening = true;
+        log.info("Listening for cache invalidations on '{}'", properties.getChannel());
+
+        val pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+          val notifications = pgConnection.getNotifications(properties.getPollIntervalMs());
+          if (notifications == null) {
+            continue;
+          }
+          for (val notification : notifications) {
+            apply(notification.getParameter());
+          }
+        }
+      } catch (SQLException e) {
+        listening = false;
+        if (running) {
+          log.warn("Invalidation listener connection failed, reconnecting: {}", e.getMessage());
+          sleep(properties.getReconnectDelayMs());
+        }
+      }
+    }
+    listening = false;
+  }
+
+  private void apply(String payload) {
+    try {
+      invalidationBus.apply(payload);
+    } catch (RuntimeException e) {
+      log.error("Cannot apply invalidation '{}', evicting all local caches", payload, e);
+      invalidationBus.evictAllLocally();
+    }
+  }
+
+  private Connection connect() throws SQLException {
+    return DriverManager.getConnection(
+        dataSourceProperties.determineUrl(),
+        dataSourceProperties.determineUsername(),
+        dataSourceProperties.determinePassword());
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
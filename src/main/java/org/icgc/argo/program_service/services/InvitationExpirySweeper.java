@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity.Status.EXPIRED;
+import static org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity.Status.PENDING;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Periodically moves PENDING invitations past their expiry date to EXPIRED with a single UPDATE.
+ *
+ * <p>Every replica schedules the sweep, but only the one holding the transaction scoped advisory
+ * lock does any work. The lock is released when the transaction commits or rolls back.
+ */
+@Slf4j
+@Service
+public class InvitationExpirySweeper {
+
+  /** Arbitrary, but must stay unique among the advisory lock keys used against this database */
+  static final long ADVISORY_LOCK_KEY = 0x5052_4f47_0001L;
+
+  private final JoinProgramInviteRepository invitationRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final AppProperties.InvitationExpiryProperties properties;
+  private final Counter expiredCounter;
+  private final DistributionSummary expiredPerRun;
+
+  @Autowired
+  public InvitationExpirySweeper(
+      @NonNull JoinProgramInviteRepository invitationRepository,
+      @NonNull JdbcTemplate jdbcTemplate,
+      @NonNull AppProperties appProperties,
+      @NonNull MeterRegistry meterRegistry) {
+    this.invitationRepository = invitationRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.properties = appProperties.getInvitationExpiry();
+    this.expiredCounter =
+        Counter.builder("program_service.invitations.expired")
+            .description("Invitations moved from PENDING to EXPIRED by the expiry sweeper")
+            .register(meterRegistry);
+    this.expiredPerRun =
+        DistributionSummary.builder("program_service.invitations.expired.per_run")
+            .description("Invitations expired by a single sweep")
+            .register(meterRegistry);
+  }
+
+  @Transactional
+  @Scheduled(
+      fixedDelayString = "${app.invitation-expiry.fixed-delay-ms:300000}",
+      initialDelayString = "${app.invitation-expiry.fixed-delay-ms:300000}")
+  public int expireStaleInvitations() {
+    if (!properties.getEnabled()) {
+      return 0;
+    }
+    if (!tryAcquireLock()) {
+      log.debug("Invitation expiry sweep is running on another instance, skipping.");
+      return 0;
+    }
+    val expired =
+        invitationRepository.expirePendingInvitations(
+            PENDING, EXPIRED, LocalDateTime.now(ZoneOffset.UTC));
+    expiredCounter.increment(expired);
+    expiredPerRun.record(expired);
+    if (expired > 0) {
+      log.info("Expired {} pending invitations.", expired);
+    }
+    return expired;
+  }
+
+  private boolean tryAcquireLock() {
+    val acquired =
+        jdbcTemplate.queryForObject(
+            "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ADVISORY_LOCK_KEY);
+    return Boolean.TRUE.equals(acquired);
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity.Status.PENDING;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Sends the invite emails of PENDING invitations stored with {@code emailSent = false}, so the
+ * invitation table is the queue of emails still to send.
+ *
+ * <p>Batch invitations are only stored, the sender is woken up once they committed. Whatever it
+ * could not send, e.g. while the mail server is down, is picked up again by a poll until the email
+ * went out or the invitation expired or was replaced.
+ *
+ * <p>Every instance polls, but only the one holding the transaction scoped advisory lock sends. A
+ * run holds one connection while it talks to the mail server, and sends at most {@code batchSize}
+ * emails. Emails sent by a run that then fails to commit are sent again by the next one.
+ */
+@Slf4j
+@Service
+public class InvitationMailSender {
+
+  /** Arbitrary, but must stay unique among the advisory lock keys used against this database */
+  static final long ADVISORY_LOCK_KEY = 0x5052_4f47_0003L;
+
+  /** Dependencies */
+  private final JoinProgramInviteRepository invitationRepository;
+
+  private final MailService mailService;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final AppProperties.InvitationMailProperties properties;
+
+  private final ExecutorService executor;
+
+  @Autowired
+  public InvitationMailSender(
+      @NonNull JoinProgramInviteRepository invitationRepository,
+      @NonNull MailService mailService,
+      @NonNull JdbcTemplate jdbcTemplate,
+      @NonNull TransactionTemplate transactionTemplate,
+      @NonNull AppProperties appProperties) {
+    this.invitationRepository = invitationRepository;
+    this.mailService = mailService;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.properties = appProperties.getInvitationMail();
+    // A run that has not started yet also sends what was committed meanwhile, so one is enough
+    this.executor =
+        new ThreadPoolExecutor(
+            1,
+            1,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(1),
+            new ThreadFactoryBuilder().setNameFormat("invitation-mail-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.DiscardPolicy());
+  }
+
+  @PreDestroy
+  void shutdown() {
+    // Unsent emails are picked up by the poll of any instance
+    executor.shutdownNow();
+  }
+
+  /** Sends the pending emails once the current transaction committed, or right away without one */
+  public void sendAfterCommit() {
+    if (!properties.getEnabled()) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      submit();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            submit();
+          }
+        });
+  }
+
+  @Scheduled(
+      fixedDelayString = "${app.invitation-mail.poll-interval-ms:60000}",
+      initialDelayString = "${app.invitation-mail.poll-interval-ms:60000}")
+  public void sendPending() {
+    if (properties.getEnabled()) {
+      send();
+    }
+  }
+
+  /** @return the number of emails sent, 0 when another instance is sending */
+  int send() {
+    Integer sent =
+        transactionTemplate.execute(
+            status -> {
+              if (!tryAcquireLock()) {
+                log.debug("Invite emails are being sent by another instance, skipping.");
+                return 0;
+              }
+              val invitations =
+                  invitationRepository
+                      .findAllByStatusAndEmailSentFalseAndExpiresAtAfterOrderByCreatedAt(
+                          PENDING,
+                          LocalDateTime.now(ZoneOffset.UTC),
+                          PageRequest.of(0, properties.getBatchSize()));
+              if (invitations.isEmpty()) {
+                return 0;
+              }
+              // Marks the invitations it sent, which are saved when the transaction commits
+              val count = mailService.sendInviteEmails(invitations);
+              if (count < invitations.size()) {
+                log.warn(
+                    "Sent {} of {} invite emails, retrying the rest in {} ms.",
+                    count,
+                    invitations.size(),
+                    properties.getPollIntervalMs());
+              }
+              return count;
+            });
+    return sent == null ? 0 : sent;
+  }
+
+  private void submit() {
+    executor.execute(
+        () -> {
+          try {
+            send();
+          } catch (RuntimeException e) {
+            log.warn("Cannot send invite emails, retrying with the next poll.", e);
+          }
+        });
+  }
+
+  private boolean tryAcquireLock() {
+    val acquired =
+        jdbcTemplate.queryForObject(
+            "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ADVISORY_LOCK_KEY);
+    return Boolean.TRUE.equals(acquired);
+  }
+}
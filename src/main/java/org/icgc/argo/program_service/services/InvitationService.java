@@ -22,8 +22,12 @@ package org.icgc.argo.program_service.services;
 
 import static java.lang.String.format;
 import static org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity.Status.*;
+import static org.icgc.argo.program_service.utils.CollectionUtils.mapToSet;
 
 import io.grpc.Status;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -31,12 +35,16 @@ import java.util.stream.Collectors;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.NonNull;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity;
 import org.icgc.argo.program_service.model.entity.ProgramEntity;
 import org.icgc.argo.program_service.model.exceptions.NotFoundException;
+import org.icgc.argo.program_service.proto.User;
 import org.icgc.argo.program_service.proto.UserRole;
 import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
 import org.icgc.argo.program_service.services.ego.EgoService;
@@ -49,15 +57,18 @@ import org.springframework.stereotype.Service;
 public class InvitationService {
 
   private final MailService mailService;
+  private final InvitationMailSender invitationMailSender;
   private final JoinProgramInviteRepository invitationRepository;
   private final EgoService egoService;
 
   @Autowired
   InvitationService(
       @NonNull MailService mailService,
+      @NonNull InvitationMailSender invitationMailSender,
       @NonNull JoinProgramInviteRepository invitationRepository,
       @NonNull EgoService egoService) {
     this.mailService = mailService;
+    this.invitationMailSender = invitationMailSender;
     this.invitationRepository = invitationRepository;
     this.egoService = egoService;
   }
@@ -92,6 +103,66 @@ public class InvitationService {
     return invitation.getId();
   }
 
+  /**
+   * Batch version of {@link #inviteUser}. Previous invitations for every email are fetched with one
+   * query, and the invalidated and new invitations are saved together. An entry whose user already
+   * accepted an invitation is rejected without failing the rest of the batch. Emails are expected
+   * to be unique within the batch.
+   *
+   * <p>The invite emails are not sent here but queued, see {@link InvitationMailSender}.
+   *
+   * @return one result per user, in the order given
+   */
+  public List<InvitationResult> inviteUsers(
+      @NotNull ProgramEntity program, @NotNull List<User> users) {
+    val emails = mapToSet(users, u -> u.getEmail().getValue());
+    val previousInvitations =
+        invitationRepository.findAllByProgramShortNameAndUserEmailIn(program.getShortName(), emails)
+            .stream()
+            .collect(Collectors.groupingBy(JoinProgramInviteEntity::getUserEmail));
+
+    val modified = new ArrayList<JoinProgramInviteEntity>();
+    val created = new ArrayList<JoinProgramInviteEntity>();
+    for (val user : users) {
+      val email = user.getEmail().getValue();
+      val previous = previousInvitations.getOrDefault(email, List.of());
+      if (previous.stream().anyMatch(i -> i.getStatus() == ACCEPTED)) {
+        continue;
+      }
+      previous.stream()
+          .filter(i -> i.getStatus() == PENDING)
+          .map(i -> i.setStatus(INVALID))
+          .forEach(modified::add);
+      created.add(
+          new JoinProgramInviteEntity(
+              program,
+              email,
+              user.getFirstName().getValue(),
+              user.getLastName().getValue(),
+              user.getRole().getValue()));
+    }
+
+    modified.addAll(created);
+    invitationRepository.saveAll(modified);
+    if (!created.isEmpty()) {
+      invitationMailSender.sendAfterCommit();
+    }
+
+    val invited =
+        created.stream()
+            .collect(
+                Collectors.toMap(
+                    JoinProgramInviteEntity::getUserEmail, JoinProgramInviteEntity::getId));
+    return users.stream()
+        .map(u -> u.getEmail().getValue())
+        .map(
+            email ->
+                invited.containsKey(email)
+                    ? InvitationResult.invited(email, invited.get(email))
+                    : InvitationResult.rejected(email, "Invitation was already accepted"))
+        .collect(Collectors.toList());
+  }
+
   public EgoUser acceptInvite(@NonNull UUID invitationId) throws NotFoundException {
     val invitation =
         invitationRepository
@@ -150,11 +221,33 @@ public class InvitationService {
   }
 
   public List<JoinProgramInviteEntity> listPendingInvitations(String programShortName) {
-    return invitationRepository.findAllByProgramShortNameAndStatus(programShortName, PENDING);
+    // Rows the expiry sweeper has not reached yet are still stored as PENDING, skip them here
+    return invitationRepository.findAllByProgramShortNameAndStatusAndExpiresAtAfter(
+        programShortName, PENDING, LocalDateTime.now(ZoneOffset.UTC));
   }
 
   public List<JoinProgramInviteEntity> listInvitations(String programShortName, String email) {
     return invitationRepository.findAllByProgramShortNameAndUserEmailOrderByCreatedAtDesc(
         programShortName, email);
   }
+
+  @Value
+  @AllArgsConstructor(access = AccessLevel.PRIVATE)
+  public static class InvitationResult {
+    String email;
+    UUID inviteId;
+    String error;
+
+    public static InvitationResult invited(String email, UUID inviteId) {
+      return new InvitationResult(email, inviteId, null);
+    }
+
+    public static InvitationResult rejected(String email, String error) {
+      return new InvitationResult(email, null, error);
+    }
+
+    public boolean isInvited() {
+      return inviteId != null;
+    }
+  }
 }
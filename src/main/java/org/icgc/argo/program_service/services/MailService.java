@@ -24,7 +24,12 @@ import java.io.StringWriter;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
@@ -34,6 +39,7 @@ import org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity;
 import org.icgc.argo.program_service.properties.AppProperties;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
@@ -59,6 +65,56 @@ public class MailService {
   }
 
   boolean sendInviteEmail(JoinProgramInviteEntity invitation) {
+    val msg = createInviteMessage(invitation);
+    if (msg.isEmpty()) {
+      return false;
+    }
+
+    try {
+      mailSender.send(msg.get());
+      invitation.setEmailSent(true);
+      return true;
+    } catch (MailAuthenticationException e) {
+      log.error("Cannot log in to mail server", e);
+      return false;
+    }
+  }
+
+  /**
+   * Renders all invitation emails up front and hands them to the mail sender in one call, so a
+   * batch of invitations shares a single connection to the mail server.
+   *
+   * @return the number of emails that were sent
+   */
+  int sendInviteEmails(List<JoinProgramInviteEntity> invitations) {
+    val messages = new LinkedHashMap<MimeMessage, JoinProgramInviteEntity>();
+    invitations.forEach(i -> createInviteMessage(i).ifPresent(msg -> messages.put(msg, i)));
+    if (messages.isEmpty()) {
+      return 0;
+    }
+
+    Set<Object> failed = Set.of();
+    try {
+      mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+    } catch (MailAuthenticationException e) {
+      log.error("Cannot log in to mail server", e);
+      return 0;
+    } catch (MailSendException e) {
+      failed = e.getFailedMessages().keySet();
+      log.error("Failed to send {} of {} invite emails", failed.size(), messages.size(), e);
+    }
+
+    int sent = 0;
+    for (val entry : messages.entrySet()) {
+      if (!failed.contains(entry.getKey())) {
+        entry.getValue().setEmailSent(true);
+        sent++;
+      }
+    }
+    return sent;
+  }
+
+  private Optional<MimeMessage> createInviteMessage(JoinProgramInviteEntity invitation) {
     val msg = mailSender.createMimeMessage();
 
     try {
@@ -101,16 +157,8 @@ public class MailService {
       msg.setContent(sw.toString(), "text/html");
     } catch (MessagingException e) {
       log.error("Cannot create invite email message", e);
-      return false;
-    }
-
-    try {
-      mailSender.send(msg);
-      invitation.setEmailSent(true);
-      return true;
-    } catch (MailAuthenticationException e) {
-      log.error("Cannot log in to mail server", e);
-      return false;
+      return Optional.empty();
     }
+    return Optional.of(msg);
   }
 }
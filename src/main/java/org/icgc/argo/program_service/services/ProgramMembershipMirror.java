@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.model.entity.ProgramMembershipEntity;
+import org.icgc.argo.program_service.model.entity.ProgramMembershipSyncEntity;
+import org.icgc.argo.program_service.model.join.ProgramMembershipId;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.proto.UserRole;
+import org.icgc.argo.program_service.repositories.ProgramMembershipRepository;
+import org.icgc.argo.program_service.repositories.ProgramMembershipSyncRepository;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.icgc.argo.program_service.repositories.query.KeysetPageRequest;
+import org.icgc.argo.program_service.services.ego.EgoService;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * A local copy of the members of each program, so ListUsers is one indexed query instead of a walk
+ * through the program's Ego groups.
+ *
+ * <p>The join, leave and role update paths write the copy in the same transaction as the rest of
+ * their changes. Every program is also reconciled against Ego every {@code syncIntervalMs}, which
+ * catches memberships changed directly in Ego and writes that did not make it. Reconciling reads
+ * Ego outside of any transaction and only touches rows written before it started, so a concurrent
+ * join or leave is not undone. Like provisioning workflows, a due program is claimed with a
+ * conditional update that hides it from the other instances for {@code leaseMs}.
+ *
+ * <p>The copy of a program is only read once it was reconciled, and not after it has gone without
+ * reconciling for {@code maxStalenessMs}; ListUsers reads from Ego then.
+ */
+@Slf4j
+@Service
+public class ProgramMembershipMirror {
+
+  /** Most DACO lookups of new members waiting for a thread, the rest are left to reconciliation */
+  private static final int DACO_REFRESH_QUEUE_SIZE = 1000;
+
+  /** Dependencies */
+  private final ProgramMembershipRepository membershipRepository;
+
+  private final ProgramMembershipSyncRepository syncRepository;
+  private final ProgramRepository programRepository;
+  private final EgoService egoService;
+  private final TransactionTemplate transactionTemplate;
+  private final AppProperties.MembershipMirrorProperties properties;
+
+  private final ExecutorService dacoRefreshExecutor;
+
+  @Autowired
+  public ProgramMembershipMirror(
+      @NonNull ProgramMembershipRepository membershipRepository,
+      @NonNull ProgramMembershipSyncRepository syncRepository,
+      @NonNull ProgramRepository programRepository,
+      @NonNull EgoService egoService,
+      @NonNull TransactionTemplate transactionTemplate,
+      @NonNull AppProperties appProperties) {
+    this.membershipRepository = membershipRepository;
+    this.syncRepository = syncRepository;
+    this.programRepository = programRepository;
+    this.egoService = egoService;
+    this.transactionTemplate = transactionTemplate;
+    this.properties = appProperties.getMembershipMirror();
+    this.dacoRefreshExecutor =
+        new ThreadPoolExecutor(
+            properties.getDacoRefreshThreads(),
+            properties.getDacoRefreshThreads(),
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(DACO_REFRESH_QUEUE_SIZE),
+            new ThreadFactoryBuilder()
+                .setNameFormat("membership-daco-refresh-%d")
+                .setDaemon(true)
+                .build(),
+            (task, executor) ->
+                log.debug("DACO lookup queue is full, leaving it to the next reconciliation"));
+  }
+
+  @PreDestroy
+  void shutdown() {
+    // Lookups not done yet are picked up by the next reconciliation
+    dacoRefreshExecutor.shutdownNow();
+  }
+
+  /**
+   * One page of the program's members by email, with the lookahead row of {@link
+   * KeysetPageRequest#lookahead()}. Empty if the copy of this program is not to be read.
+   */
+  @Transactional(readOnly = true)
+  public Optional<List<ProgramMembershipEntity>> listMembers(
+      @NonNull UUID programId, @NonNull KeysetPageRequest page) {
+    if (!properties.getEnabled()) {
+      return Optional.empty();
+    }
+    val oldest = now().minus(properties.getMaxStalenessMs(), MILLIS);
+    val fresh =
+        syncRepository
+            .findById(programId)
+            .map(ProgramMembershipSyncEntity::getSyncedAt)
+            .filter(syncedAt -> syncedAt.isAfter(oldest))
+            .isPresent();
+    if (!fresh) {
+      return Optional.empty();
+    }
+    return Optional.of(membershipRepository.findPage(programId, page.getAfter(), page.lookahead()));
+  }
+
+  /**
+   * Records the new member with their DACO approval unknown, and looks it up on another thread once
+   * the join has committed, so the Ego requests it takes hold neither the join's transaction nor
+   * its connection.
+   */
+  @Transactional
+  public void joined(
+      @NonNull ProgramEntity program, @NonNull EgoUser user, @NonNull UserRole role) {
+    if (!properties.getEnabled()) {
+      return;
+    }
+    val programId = program.getId();
+    membershipRepository.save(toMembership(programId, user, role, null, null, now()));
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            dacoRefreshExecutor.execute(() -> refreshDaco(programId, user));
+          }
+        });
+  }
+
+  /** Left to the next reconciliation if Ego cannot be reached */
+  void refreshDaco(@NonNull UUID programId, @NonNull EgoUser user) {
+    try {
+      val dacoApproved = isDacoApproved(user);
+      val checkedAt = now();
+      transactionTemplate.executeWithoutResult(
+          status ->
+              membershipRepository.updateUnknownDaco(
+                  new ProgramMembershipId(programId, user.getId()), dacoApproved, checkedAt));
+    } catch (RuntimeException e) {
+      log.warn("Cannot look up the DACO approval of {}", user.getEmail(), e);
+    }
+  }
+
+  @Transactional
+  public void left(@NonNull String programShortName, @NonNull String email) {
+    if (properties.getEnabled()) {
+      membershipRepository.deleteByProgramShortNameAndEmail(programShortName, email);
+    }
+  }
+
+  @Transactional
+  public void roleChanged(
+      @NonNull String programShortName, @NonNull String email, @NonNull UserRole role) {
+    if (properties.getEnabled()) {
+      membershipRepository.updateRole(programShortName, email, role, now());
+    }
+  }
+
+  @Scheduled(
+      fixedDelayString = "${app.membership-mirror.poll-interval-ms:30000}",
+      initialDelayString = "${app.membership-mirror.poll-interval-ms:30000}")
+  public void reconcileDue() {
+    if (!properties.getEnabled()) {
+      return;
+    }
+    val now = now();
+    transactionTemplate.executeWithoutResult(status -> syncRepository.addMissing(now));
+    syncRepository
+        .findDueProgramIds(now, PageRequest.of(0, properties.getBatchSize()))
+        .forEach(
+            programId -> {
+              try {
+                reconcile(programId);
+              } catch (RuntimeException e) {
+                // Retried by whichever instance polls once the lease ran out
+                log.warn("Cannot reconcile the members of program {}", programId, e);
+              }
+            });
+  }
+
+  /** Diffs the program's Ego groups against its copy, unless another instance claimed it first */
+  void reconcile(@NonNull UUID programId) {
+    val startedAt = now();
+    val leaseUntil = startedAt.plus(properties.getLeaseMs(), MILLIS);
+    val program =
+        transactionTemplate.execute(
+            status ->
+                syncRepository.claim(programId, startedAt, leaseUntil) == 1
+                    ? programRepository.findById(programId).orElse(null)
+                    : null);
+    if (program == null) {
+      return;
+    }
+
+    // Read before Ego, so rows removed while Ego is read can be told from rows never copied
+    val before = members(programId);
+    // A user in several groups of the program keeps the role of the last one
+    val egoUsers =
+        egoService.getEgoUsersInProgram(program.getShortName()).stream()
+            .collect(toMap(EgoUser::getId, identity(), (first, second) -> second));
+
+    val dacoCheckedAfter = startedAt.minus(properties.getDacoMaxAgeMs(), MILLIS);
+    val upserts =
+        egoUsers.values().stream()
+            .map(
+                user -> {
+                  val previous = before.get(new ProgramMembershipId(programId, user.getId()));
+                  if (previous != null
+                      && previous.getDacoCheckedAt() != null
+                      && previous.getDacoCheckedAt().isAfter(dacoCheckedAfter)) {
+                    return toMembership(
+                        programId,
+                        user,
+                        user.getRole(),
+                        previous.getDacoApproved(),
+                        previous.getDacoCheckedAt(),
+                        startedAt);
+                  }
+                  return toMembership(
+                      programId, user, user.getRole(), isDacoApproved(user), startedAt, startedAt);
+                })
+            .collect(Collectors.toList());
+
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          apply(programId, startedAt, before, upserts, egoUsers.keySet());
+          syncRepository.save(
+              new ProgramMembershipSyncEntity()
+                  .setProgramId(programId)
+                  .setSyncedAt(startedAt)
+                  .setNextSyncAt(startedAt.plus(properties.getSyncIntervalMs(), MILLIS)));
+        });
+    log.debug("Reconciled the {} members of program {}", upserts.size(), program.getShortName());
+  }
+
+  /**
+   * Leaves alone rows written or removed since the reconciliation started, those changes are newer
+   * than what Ego returned.
+   */
+  private void apply(
+      UUID programId,
+      LocalDateTime startedAt,
+      Map<ProgramMembershipId, ProgramMembershipEntity> before,
+      List<ProgramMembershipEntity> upserts,
+      Set<UUID> egoUserIds) {
+    val current = members(programId);
+    for (val member : upserts) {
+      val row = current.get(member.getId());
+      val removedMeanwhile = row == null && before.containsKey(member.getId());
+      if (!removedMeanwhile && (row == null || !row.getSyncedAt().isAfter(startedAt))) {
+        membershipRepository.save(member);
+      }
+    }
+    for (val row : current.values()) {
+      if (!egoUserIds.contains(row.getId().getUserId()) && !row.getSyncedAt().isAfter(startedAt)) {
+        membershipRepository.delete(row);
+      }
+    }
+  }
+
+  private Map<ProgramMembershipId, ProgramMembershipEntity> members(UUID programId) {
+    return transactionTemplate.execute(
+        status ->
+            membershipRepository.findAllByIdProgramId(programId).stream()
+                .collect(toMap(ProgramMembershipEntity::getId, identity())));
+  }
+
+  private boolean isDacoApproved(EgoUser user) {
+    return egoService.isUserDacoApproved(user.getEmail());
+  }
+
+  private static ProgramMembershipEntity toMembership(
+      UUID programId,
+      EgoUser user,
+      UserRole role,
+      Boolean dacoApproved,
+      LocalDateTime dacoCheckedAt,
+      LocalDateTime syncedAt) {
+    return new ProgramMembershipEntity()
+        .setId(new ProgramMembershipId(programId, user.getId()))
+        .setEmail(user.getEmail())
+        .setFirstName(user.getFirstName())
+        .setLastName(user.getLastName())
+        .setRole(role)
+        .setDacoApproved(dacoApproved)
+        .setDacoCheckedAt(dacoCheckedAt)
+        .setSyncedAt(syncedAt);
+  }
+
+  private static LocalDateTime now() {
+    return LocalDateTime.now(ZoneOffset.UTC);
+  }
+}
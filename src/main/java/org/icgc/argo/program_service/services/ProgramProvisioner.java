@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static org.icgc.argo.program_service.model.entity.ProgramProvisioningEntity.Step.*;
+import static org.icgc.argo.program_service.proto.ChangeType.PROGRAM_UPDATED;
+import static org.icgc.argo.program_service.proto.ProvisioningStatus.*;
+import static org.icgc.argo.program_service.utils.CollectionUtils.mapToList;
+import static org.springframework.transaction.annotation.Propagation.MANDATORY;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.argo.program_service.converter.CommonConverter;
+import org.icgc.argo.program_service.model.dto.UserDTO;
+import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.model.entity.ProgramProvisioningEntity;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.proto.ProvisioningStatus;
+import org.icgc.argo.program_service.proto.User;
+import org.icgc.argo.program_service.proto.UserRole;
+import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
+import org.icgc.argo.program_service.repositories.ProgramProvisioningRepository;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.icgc.argo.program_service.services.ego.EgoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Sets up new and activated programs in Ego: the group, data and membership permissions, then an
+ * invitation for every admin.
+ *
+ * <p>The creating transaction only records a workflow row and marks the program PROVISIONING. The
+ * steps run once it committed, each one outside of any transaction, and progress is saved after
+ * every step so a retry resumes where the last attempt stopped. A step that keeps failing is
+ * retried with exponential backoff until {@code maxAttempts}, then everything set up in Ego is
+ * removed again with a mass delete and the program is marked PROVISIONING_FAILED.
+ *
+ * <p>Due workflows are also picked up by a poll, which resumes them after a restart. Every instance
+ * polls, so a workflow is claimed with a conditional update that hides it from the others for
+ * {@code leaseMs}. The worker extends its lease before every step and saves progress only while it
+ * still holds the lease. It stops as soon as it lost the lease, because a step outlasted it and
+ * another worker took over, or because the program was removed meanwhile.
+ */
+@Slf4j
+@Service
+public class ProgramProvisioner {
+
+  /** Most due workflows picked up by one poll */
+  private static final int POLL_BATCH_SIZE = 100;
+
+  /** Dependencies */
+  private final ProgramProvisioningRepository provisioningRepository;
+
+  private final ProgramRepository programRepository;
+  private final JoinProgramInviteRepository invitationRepository;
+  private final EgoService egoService;
+  private final InvitationService invitationService;
+  private final InvalidationBus invalidationBus;
+  private final ChangeLogService changeLogService;
+  private final CommonConverter commonConverter;
+  private final ObjectMapper objectMapper;
+  private final TransactionTemplate transactionTemplate;
+  private final AppProperties.ProvisioningProperties properties;
+
+  private final ExecutorService executor;
+
+  @Autowired
+  public ProgramProvisioner(
+      @NonNull ProgramProvisioningRepository provisioningRepository,
+      @NonNull ProgramRepository programRepository,
+      @NonNull JoinProgramInviteRepository invitationRepository,
+      @NonNull EgoService egoService,
+      @NonNull InvitationService invitationService,
+      @NonNull InvalidationBus invalidationBus,
+      @NonNull ChangeLogService changeLogService,
+      @NonNull CommonConverter commonConverter,
+      @NonNull ObjectMapper objectMapper,
+      @NonNull TransactionTemplate transactionTemplate,
+      @NonNull AppProperties appProperties) {
+    this.provisioningRepository = provisioningRepository;
+    this.programRepository = programRepository;
+    this.invitationRepository = invitationRepository;
+    this.egoService = egoService;
+    this.invitationService = invitationService;
+    this.invalidationBus = invalidationBus;
+    this.changeLogService = changeLogService;
+    this.commonConverter = commonConverter;
+    this.objectMapper = objectMapper;
+    this.transactionTemplate = transactionTemplate;
+    this.properties = appProperties.getProvisioning();
+    this.executor =
+        Executors.newFixedThreadPool(
+            properties.getThreads(),
+            new ThreadFactoryBuilder()
+                .setNameFormat("program-provisioner-%d")
+                .setDaemon(true)
+                .build());
+  }
+
+  /**
+   * Provisions {@code program} once the current transaction commits. With {@code async} off the
+   * steps run right away instead, and a failure rolls the transaction back.
+   */
+  @Transactional(propagation = MANDATORY)
+  public void provision(@NonNull ProgramEntity program, @NonNull List<User> admins) {
+    val adminDTOs = toAdminDTOs(admins);
+    if (!properties.getAsync()) {
+      egoService.setUpProgram(program.getShortName(), program.getMembershipType());
+      adminDTOs.forEach(admin -> inviteAdmin(program, admin));
+      return;
+    }
+
+    val now = now();
+    programRepository.save(program.setProvisioningStatus(PROVISIONING));
+    provisioningRepository.save(
+        new ProgramProvisioningEntity()
+            .setProgramId(program.getId())
+            .setStep(SET_UP_PERMISSIONS)
+            .setAdmins(writeAdmins(adminDTOs))
+            .setAdminsInvited(0)
+            .setAttempts(0)
+            .setNextAttemptAt(now)
+            .setCreatedAt(now)
+            .setUpdatedAt(now));
+
+    val programId = program.getId();
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            submit(programId);
+          }
+        });
+  }
+
+  @Scheduled(
+      fixedDelayString = "${app.provisioning.poll-interval-ms:5000}",
+      initialDelayString = "${app.provisioning.poll-interval-ms:5000}")
+  public void resumeDue() {
+    if (!properties.getAsync()) {
+      return;
+    }
+    provisioningRepository
+        .findDueProgramIds(now(), PageRequest.of(0, POLL_BATCH_SIZE))
+        .forEach(this::submit);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    // Interrupted workflows are resumed by the poll of any instance once their lease ran out
+    executor.shutdownNow();
+  }
+
+  private void submit(UUID programId) {
+    executor.execute(() -> run(programId));
+  }
+
+  /** Runs the remaining steps of a due workflow, unless another worker claimed it first */
+  void run(@NonNull UUID programId) {
+    val now = now();
+    val lease = new Lease(leaseUntil(now));
+    val provisioning =
+        transactionTemplate.execute(
+            status ->
+                provisioningRepository.claim(programId, now, lease.getUntil()) == 1
+                    ? provisioningRepository.findById(programId).orElse(null)
+                    : null);
+    if (provisioning == null) {
+      return;
+    }
+    // Gone if the program was removed meanwhile, which also removed the workflow
+    val program =
+        transactionTemplate.execute(status -> programRepository.findById(programId).orElse(null));
+    if (program == null) {
+      return;
+    }
+
+    try {
+      runSteps(program, provisioning, lease);
+    } catch (LeaseLostException e) {
+      log.info(
+          "Stopped provisioning program {}, it was removed or another worker took over.",
+          program.getShortName());
+    } catch (RuntimeException e) {
+      fail(program, lease, e);
+    }
+  }
+
+  private void runSteps(
+      ProgramEntity program, ProgramProvisioningEntity provisioning, Lease lease) {
+    val shortName = program.getShortName();
+    while (true) {
+      extendLease(provisioning, lease);
+      switch (provisioning.getStep()) {
+        case SET_UP_PERMISSIONS:
+          egoService.setUpProgram(shortName, program.getMembershipType());
+          advance(provisioning.setStep(INVITE_ADMINS), lease);
+          break;
+
+        case INVITE_ADMINS:
+          val admins = readAdmins(provisioning.getAdmins());
+          val invited = provisioning.getAdminsInvited();
+          if (invited < admins.size()) {
+            // The invitation, its email and the progress commit together. An email that cannot be
+            // sent rolls the invitation back and the step is retried, so the transaction holds its
+            // connection while the mail server answers, at most one per provisioning thread.
+            transactionTemplate.executeWithoutResult(
+                status -> {
+                  inviteAdmin(program, admins.get(invited));
+                  advance(provisioning.setAdminsInvited(invited + 1), lease);
+                });
+            break;
+          }
+          transactionTemplate.executeWithoutResult(
+              status -> {
+                checkLease(provisioning.getProgramId(), lease);
+                provisioningRepository.deleteById(provisioning.getProgramId());
+                setStatus(provisioning.getProgramId(), PROVISIONED);
+              });
+          log.info("Provisioned program {} in Ego", shortName);
+          return;
+
+        case COMPENSATE:
+          egoService.getEgoClient().massDelete(egoService.getProgramCleanupRequest(shortName));
+          transactionTemplate.executeWithoutResult(
+              status -> {
+                invitationRepository.deleteAllByProgramShortName(shortName);
+                advance(provisioning.setStep(COMPENSATED).setNextAttemptAt(null), lease);
+              });
+          log.info("Removed the partial Ego setup of program {}", shortName);
+          return;
+
+        default:
+          return;
+      }
+    }
+  }
+
+  /**
+   * Extends the lease before a step, so a worker that lost the workflow meanwhile stops instead of
+   * running the step a second time.
+   */
+  private void extendLease(ProgramProvisioningEntity provisioning, Lease lease) {
+    val programId = provisioning.getProgramId();
+    val leaseUntil = leaseUntil(now());
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          if (!programRepository.existsById(programId)
+              || provisioningRepository.extendLease(programId, lease.getUntil(), leaseUntil) != 1) {
+            throw new LeaseLostException();
+          }
+        });
+    lease.setUntil(leaseUntil);
+    // Saving the progress must not move the lease back
+    provisioning.setNextAttemptAt(leaseUntil);
+  }
+
+  /** Saves the progress of a step that succeeded, resetting its attempts */
+  private void advance(ProgramProvisioningEntity provisioning, Lease lease) {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          checkLease(provisioning.getProgramId(), lease);
+          provisioningRepository.save(provisioning.setAttempts(0).setUpdatedAt(now()));
+        });
+  }
+
+  private void checkLease(UUID programId, Lease lease) {
+    if (!holdsLease(programId, lease)) {
+      throw new LeaseLostException();
+    }
+  }
+
+  /** Also locks the workflow row for the rest of the transaction, if this worker still holds it */
+  private boolean holdsLease(UUID programId, Lease lease) {
+    return provisioningRepository.extendLease(programId, lease.getUntil(), lease.getUntil()) == 1;
+  }
+
+  private void fail(ProgramEntity program, Lease lease, RuntimeException e) {
+    // Start from the saved progress, the failed step may have changed the entity in memory
+    val provisioning =
+        transactionTemplate.execute(
+            status ->
+                holdsLease(program.getId(), lease)
+                    ? provisioningRepository.findById(program.getId()).orElse(null)
+                    : null);
+    if (provisioning == null) {
+      // Removed, or another worker took over and retries the step itself
+      return;
+    }
+    val attempts = provisioning.getAttempts() + 1;
+    provisioning.setAttempts(attempts).setLastError(e.toString()).setUpdatedAt(now());
+
+    if (provisioning.getStep() != COMPENSATE && attempts >= properties.getMaxAttempts()) {
+      log.error(
+          "Provisioning program {} failed {} times at step {}, removing its Ego setup.",
+          program.getShortName(),
+          attempts,
+          provisioning.getStep(),
+          e);
+      provisioning.setStep(COMPENSATE).setAttempts(0).setNextAttemptAt(now());
+      if (saveFailure(provisioning, lease, PROVISIONING_FAILED)) {
+        submit(provisioning.getProgramId());
+      }
+      return;
+    }
+
+    // Compensation is retried until it succeeds, an orphaned Ego setup would grant access
+    val backoffMs = backoffMs(attempts);
+    log.warn(
+        "Step {} of provisioning program {} failed (attempt {}), retrying in {} ms.",
+        provisioning.getStep(),
+        program.getShortName(),
+        attempts,
+        backoffMs,
+        e);
+    saveFailure(provisioning.setNextAttemptAt(now().plus(backoffMs, MILLIS)), lease, null);
+  }
+
+  /**
+   * Saves a failed attempt, and the new status of the program unless it is null. Like {@link
+   * #advance}, only while this worker still holds the lease.
+   *
+   * @return false if another worker took over since the failure, it retries the step itself
+   */
+  private boolean saveFailure(
+      ProgramProvisioningEntity provisioning, Lease lease, ProvisioningStatus programStatus) {
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            checkLease(provisioning.getProgramId(), lease);
+            provisioningRepository.save(provisioning);
+            if (programStatus != null) {
+              setStatus(provisioning.getProgramId(), programStatus);
+            }
+          });
+      return true;
+    } catch (LeaseLostException e) {
+      return false;
+    }
+  }
+
+  long backoffMs(int attempts) {
+    val doublings = Math.min(attempts - 1, 30);
+    return Math.min(properties.getInitialBackoffMs() << doublings, properties.getMaxBackoffMs());
+  }
+
+  private void setStatus(UUID programId, ProvisioningStatus status) {
+    programRepository
+        .findById(programId)
+        .ifPresent(
+            program -> {
+              programRepository.save(program.setProvisioningStatus(status).setUpdatedAt(now()));
+              invalidationBus.programChanged(program.getShortName());
+              changeLogService.programChanged(PROGRAM_UPDATED, program.getShortName());
+            });
+  }
+
+  private void inviteAdmin(ProgramEntity program, UserDTO admin) {
+    invitationService.inviteUser(
+        program, admin.getEmail(), admin.getFirstName(), admin.getLastName(), UserRole.ADMIN);
+  }
+
+  private List<UserDTO> toAdminDTOs(List<User> admins) {
+    return mapToList(
+        admins,
+        admin ->
+            UserDTO.builder()
+                .email(commonConverter.unboxStringValue(admin.getEmail()))
+                .firstName(commonConverter.unboxStringValue(admin.getFirstName()))
+                .lastName(commonConverter.unboxStringValue(admin.getLastName()))
+                .build());
+  }
+
+  private String writeAdmins(List<UserDTO> admins) {
+    try {
+      return objectMapper.writeValueAsString(admins);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Cannot serialize the program admins", e);
+    }
+  }
+
+  private List<UserDTO> readAdmins(String admins) {
+    try {
+      return objectMapper.readValue(admins, new TypeReference<List<UserDTO>>() {});
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Cannot read the program admins", e);
+    }
+  }
+
+  /** Truncated, as the lease is compared with the stored one */
+  private LocalDateTime leaseUntil(LocalDateTime now) {
+    return now.plus(properties.getLeaseMs(), MILLIS).truncatedTo(MILLIS);
+  }
+
+  private static LocalDateTime now() {
+    return LocalDateTime.now(ZoneOffset.UTC);
+  }
+
+  /** The end of the lease this worker holds on a workflow, moved before every step */
+  @Data
+  @AllArgsConstructor
+  private static class Lease {
+    private LocalDateTime until;
+  }
+
+  /** This worker no longer holds the lease on a workflow, or the program is gone */
+  private static class LeaseLostException extends RuntimeException {}
+}
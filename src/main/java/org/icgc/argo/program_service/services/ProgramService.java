@@ -21,19 +21,21 @@
 package org.icgc.argo.program_service.services;
 
 import static java.lang.String.format;
+import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.*;
 import static org.icgc.argo.program_service.model.join.ProgramCancer.createProgramCancer;
 import static org.icgc.argo.program_service.model.join.ProgramCountry.createProgramCountry;
 import static org.icgc.argo.program_service.model.join.ProgramInstitution.createProgramInstitution;
 import static org.icgc.argo.program_service.model.join.ProgramPrimarySite.createProgramPrimarySite;
 import static org.icgc.argo.program_service.utils.CollectionUtils.*;
-import static org.icgc.argo.program_service.utils.CollectionUtils.mapToSet;
 import static org.icgc.argo.program_service.utils.EntityService.*;
 
 import io.grpc.Status;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -57,6 +59,9 @@ import org.icgc.argo.program_service.model.join.*;
 import org.icgc.argo.program_service.proto.Program;
 import org.icgc.argo.program_service.repositories.*;
 import org.icgc.argo.program_service.repositories.query.DataCenterSpecificationBuilder;
+import org.icgc.argo.program_service.repositories.query.KeysetPage;
+import org.icgc.argo.program_service.repositories.query.KeysetPageRequest;
+import org.icgc.argo.program_service.repositories.query.ProgramFilter;
 import org.icgc.argo.program_service.repositories.query.ProgramSpecificationBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -86,6 +91,7 @@ public class ProgramService {
   private final ProgramRegionRepository programRegionRepository;
   private final ProgramCountryRepository programCountryRepository;
   private final ValidatorFactory validatorFactory;
+  private final InvalidationBus invalidationBus;
 
   @Autowired
   public ProgramService(
@@ -103,7 +109,8 @@ public class ProgramService {
       @NonNull ProgramInstitutionRepository programInstitutionRepository,
       @NonNull ProgramRegionRepository programRegionRepository,
       @NonNull ProgramCountryRepository programCountryRepository,
-      @NonNull ValidatorFactory validatorFactory) {
+      @NonNull ValidatorFactory validatorFactory,
+      @NonNull InvalidationBus invalidationBus) {
     this.programRepository = programRepository;
     this.dataCenterRepository = dataCenterRepository;
     this.cancerRepository = cancerRepository;
@@ -119,6 +126,7 @@ public class ProgramService {
     this.programRegionRepository = programRegionRepository;
     this.programCountryRepository = programCountryRepository;
     this.validatorFactory = validatorFactory;
+    this.invalidationBus = invalidationBus;
   }
 
   private ProgramEntity findProgramByShortName(@NonNull String name, boolean allowInactive) {
@@ -130,7 +138,11 @@ public class ProgramService {
                 .setFetchInstitutions(true)
                 .setFetchCountries(true)
                 .buildByShortName(name));
+    return checkProgramFound(name, search, allowInactive);
+  }
 
+  private ProgramEntity checkProgramFound(
+      @NonNull String name, Optional<ProgramEntity> search, boolean allowInactive) {
     if (search.isEmpty()) {
       throw Status.NOT_FOUND
           .withDescription("Program '" + name + "' not found")
@@ -161,10 +173,32 @@ public class ProgramService {
     return listProgramsByDataCenterName(name);
   }
 
+  public KeysetPage<ProgramEntity> listProgramsByDataCenter(
+      @NonNull String name, @NonNull KeysetPageRequest page) {
+    val ids =
+        programRepository.findProgramIdsForDataCenterAfter(name, page.getAfter(), page.lookahead());
+    if (ids.isEmpty() && page.getAfter().isEmpty()) {
+      throw new NotFoundException("Programs for DataCenter '" + name + "' not found");
+    }
+    return fetchProgramPage(ids, page);
+  }
+
   public ProgramEntity getProgram(@NonNull String name, boolean allowInactive) {
     return findProgramByShortName(name, allowInactive);
   }
 
+  /**
+   * Same checks as {@link #getProgram(String)}, but skips fetching the cancer, primary site,
+   * institution and country associations for callers that only need the program row.
+   */
+  public ProgramEntity getProgramWithoutAssociations(@NonNull String name) {
+    return getProgramWithoutAssociations(name, false);
+  }
+
+  public ProgramEntity getProgramWithoutAssociations(@NonNull String name, boolean allowInactive) {
+    return checkProgramFound(name, programRepository.findByShortName(name), allowInactive);
+  }
+
   public ProgramEntity createWithSideEffect(
       @NonNull Program program, Consumer<ProgramEntity> consumer) {
     val programEntity = createProgram(program);
@@ -209,6 +243,7 @@ public class ProgramService {
     programPrimarySiteRepository.saveAll(programPrimarySites);
     programInstitutionRepository.saveAll(programInstitutions);
     programCountryRepository.saveAll(programCountries);
+    invalidationBus.programChanged(programEntity.getShortName());
 
     return programEntity;
   }
@@ -253,11 +288,16 @@ public class ProgramService {
     programPrimarySiteRepository.saveAll(programPrimarySites);
     programInstitutionRepository.saveAll(programInstitutions);
     programCountryRepository.saveAll(programCountries);
+    invalidationBus.programChanged(programEntity.getShortName());
 
     return programEntity;
   }
 
-  private List<InstitutionEntity> filterAndAddInstitutions(@NonNull List<String> names) {
+  /**
+   * Looks up the named institutions, creating the missing ones. Safe to call concurrently with the
+   * same new names: whichever transaction inserts a name first wins and the others reuse its row.
+   */
+  List<InstitutionEntity> filterAndAddInstitutions(@NonNull List<String> names) {
     val duplicates = findDuplicates(names);
     if (!duplicates.isEmpty()) {
       throw Status.INVALID_ARGUMENT
@@ -265,18 +305,12 @@ public class ProgramService {
               format("Please remove duplicate institutions %s in the list.", duplicates))
           .asRuntimeException();
     }
-    List<InstitutionEntity> institutions = institutionRepository.findAllByNameIn(names);
-    val existing =
-        institutions.stream().map(InstitutionEntity::getName).collect(toUnmodifiableSet());
-    names.stream()
-        .filter(i -> !existing.contains(i))
-        .forEach(
-            i -> {
-              val newInstitute = new InstitutionEntity();
-              newInstitute.setName(i);
-              institutionRepository.save(newInstitute);
-            });
-    institutions = institutionRepository.findAllByNameIn(names);
+    val inserted = institutionRepository.insertMissing(names);
+    log.debug("Added {} new institutions: {}", inserted.size(), inserted);
+    if (!inserted.isEmpty()) {
+      invalidationBus.referenceDataChanged(ReferenceDataCache.Kind.INSTITUTIONS);
+    }
+    val institutions = institutionRepository.findAllByNameIn(names);
     if (institutions.size() != names.size()) {
       throw new IllegalStateException("Was unable to add new institutions"); // Final Sanity Check
     }
@@ -300,6 +334,8 @@ public class ProgramService {
               "Cannot update program. Cancer, primary site, institution, country cannot be empty.")
           .asRuntimeException();
     }
+    invalidationBus.programChanged(programToUpdate.getShortName());
+
     // update associations
     processCancers(programToUpdate, cancers);
     processPrimarySites(programToUpdate, primarySites);
@@ -308,6 +344,7 @@ public class ProgramService {
 
     // update program info
     programConverter.updateProgram(updatingProgram, programToUpdate);
+    programToUpdate.setUpdatedAt(LocalDateTime.now(ZoneId.of("UTC")));
     programRepository.save(programToUpdate);
     return programToUpdate;
   }
@@ -344,6 +381,8 @@ public class ProgramService {
       processDataCenter(dataCenterDetailsDTO, dataCenterEntity.get());
     }
 
+    invalidationBus.programChanged(programToUpdate.getShortName());
+
     // update associations
     processCancers(programToUpdate, cancers);
     processPrimarySites(programToUpdate, primarySites);
@@ -352,6 +391,7 @@ public class ProgramService {
 
     // update program info
     programConverter.updateProgram(updatingProgram, programToUpdate);
+    programToUpdate.setUpdatedAt(LocalDateTime.now(ZoneId.of("UTC")));
     programRepository.save(programToUpdate);
     return programToUpdate;
   }
@@ -364,109 +404,54 @@ public class ProgramService {
           .withDescription("The program '" + program.getShortName() + "' is already active.")
           .asRuntimeException();
     }
+    invalidationBus.programChanged(program.getShortName());
+    invalidationBus.programChanged(updatedShortName);
+
     // update program info
     program.setShortName(updatedShortName);
     program.setActive(true);
+    program.setUpdatedAt(LocalDateTime.now(ZoneId.of("UTC")));
     programRepository.save(program);
     return program;
   }
 
+  /*
+   * Association updates run as one DELETE and one INSERT ... SELECT per join table, keyed by name,
+   * so neither the program's current associations nor the reverse collections on the lookup
+   * entities are loaded. Collections already loaded on programToUpdate are left stale.
+   */
+
   private void processCancers(
       @NonNull ProgramEntity programToUpdate, @NonNull List<String> cancerNames) {
-    val cancerEntities = checkExistenceByName(CancerEntity.class, cancerRepository, cancerNames);
-    val currentCancers = mapToSet(programToUpdate.getProgramCancers(), ProgramCancer::getCancer);
-
-    val toDelete =
-        currentCancers.stream().filter(c -> !cancerEntities.contains(c)).collect(toSet());
-    val toAdd =
-        cancerEntities.stream()
-            .filter(c -> !currentCancers.contains(c))
-            .map(c -> createProgramCancer(programToUpdate, c))
-            .map(Optional::get)
-            .collect(toSet());
-
-    programToUpdate.getProgramCancers().removeIf(programCancerPredicate(programToUpdate, toDelete));
-    currentCancers.forEach(
-        c -> c.getProgramCancers().removeIf(programCancerPredicate(programToUpdate, toDelete)));
-    programCancerRepository.saveAll(toAdd);
+    checkExistenceByName(CancerEntity.class, cancerRepository, cancerNames);
+    val programId = programToUpdate.getId().toString();
+    programCancerRepository.removeAllExcept(programId, cancerNames);
+    programCancerRepository.addAllMissing(programId, cancerNames);
   }
 
   private void processPrimarySites(
       @NonNull ProgramEntity programToUpdate, @NonNull List<String> primarySitesNames) {
-    val primarySiteEntities =
-        checkExistenceByName(PrimarySiteEntity.class, primarySiteRepository, primarySitesNames);
-    val currentPrimarySites =
-        mapToSet(programToUpdate.getProgramPrimarySites(), ProgramPrimarySite::getPrimarySite);
-
-    val toDelete =
-        currentPrimarySites.stream().filter(p -> !primarySiteEntities.contains(p)).collect(toSet());
-    val toAdd =
-        primarySiteEntities.stream()
-            .filter(p -> !currentPrimarySites.contains(p))
-            .map(p -> createProgramPrimarySite(programToUpdate, p))
-            .map(Optional::get)
-            .collect(toSet());
-
-    programToUpdate
-        .getProgramPrimarySites()
-        .removeIf(programPrimarySitePredicate(programToUpdate, toDelete));
-    currentPrimarySites.forEach(
-        p ->
-            p.getProgramPrimarySites()
-                .removeIf(programPrimarySitePredicate(programToUpdate, toDelete)));
-    programPrimarySiteRepository.saveAll(toAdd);
+    checkExistenceByName(PrimarySiteEntity.class, primarySiteRepository, primarySitesNames);
+    val programId = programToUpdate.getId().toString();
+    programPrimarySiteRepository.removeAllExcept(programId, primarySitesNames);
+    programPrimarySiteRepository.addAllMissing(programId, primarySitesNames);
   }
 
   private void processInstitutions(
       @NonNull ProgramEntity programToUpdate, @NonNull List<String> institutionNames) {
-    // convert institution names to institution entities and add missing institutions to repo
-    val updatedInstitutionEntities = filterAndAddInstitutions(institutionNames);
-    val currentInstitutionEntities =
-        mapToSet(programToUpdate.getProgramInstitutions(), ProgramInstitution::getInstitution);
-
-    val institutionsToRemove =
-        currentInstitutionEntities.stream()
-            .filter(i -> !updatedInstitutionEntities.contains(i))
-            .collect(toSet());
-    val programInstitutionsToAdd =
-        updatedInstitutionEntities.stream()
-            .filter(i -> !currentInstitutionEntities.contains(i))
-            .map(i -> createProgramInstitution(programToUpdate, i))
-            .map(Optional::get)
-            .collect(toSet());
-
-    programToUpdate
-        .getProgramInstitutions()
-        .removeIf(programInstitutionPredicate(programToUpdate, institutionsToRemove));
-    currentInstitutionEntities.forEach(
-        p ->
-            p.getProgramInstitutions()
-                .removeIf(programInstitutionPredicate(programToUpdate, institutionsToRemove)));
-
-    programInstitutionRepository.saveAll(programInstitutionsToAdd);
+    // add missing institutions to repo
+    filterAndAddInstitutions(institutionNames);
+    val programId = programToUpdate.getId().toString();
+    programInstitutionRepository.removeAllExcept(programId, institutionNames);
+    programInstitutionRepository.addAllMissing(programId, institutionNames);
   }
 
   private void processCountries(
       @NonNull ProgramEntity programToUpdate, @NonNull List<String> names) {
-    val countryEntities = checkExistenceByName(CountryEntity.class, countryRepository, names);
-    val currentCountries =
-        mapToSet(programToUpdate.getProgramCountries(), ProgramCountry::getCountry);
-
-    val toDelete =
-        currentCountries.stream().filter(c -> !countryEntities.contains(c)).collect(toSet());
-    val toAdd =
-        countryEntities.stream()
-            .filter(c -> !currentCountries.contains(c))
-            .map(c -> createProgramCountry(programToUpdate, c))
-            .map(Optional::get)
-            .collect(toSet());
-
-    programToUpdate
-        .getProgramCountries()
-        .removeIf(programCountryPredicate(programToUpdate, toDelete));
-    currentCountries.forEach(
-        c -> c.getProgramCountries().removeIf(programCountryPredicate(programToUpdate, toDelete)));
-    programCountryRepository.saveAll(toAdd);
+    checkExistenceByName(CountryEntity.class, countryRepository, names);
+    val programId = programToUpdate.getId().toString();
+    programCountryRepository.removeAllExcept(programId, names);
+    programCountryRepository.addAllMissing(programId, names);
   }
 
   /**
@@ -497,6 +482,7 @@ public class ProgramService {
 
   public void removeProgram(String name) throws EmptyResultDataAccessException {
     val p = getProgram(name);
+    invalidationBus.programChanged(name);
     programRepository.deleteById(p.getId());
     log.info("Program {} is successfully deleted. ", name);
   }
@@ -513,6 +499,51 @@ public class ProgramService {
     return List.copyOf(programs);
   }
 
+  /**
+   * Active programs matching {@code filter}, ordered by short name, one page at a time. The
+   * fetch-join of the associations cannot be limited in SQL, so the filtered page of ids is
+   * selected first and only those programs are then fetched with their associations.
+   */
+  public KeysetPage<ProgramEntity> listPrograms(
+      @NonNull ProgramFilter filter, @NonNull KeysetPageRequest page) {
+    val ids =
+        programRepository.findIds(
+            new ProgramSpecificationBuilder().buildActiveByFilter(filter, page.getAfter()),
+            page.lookaheadLimit());
+    return fetchProgramPage(ids, page);
+  }
+
+  /** Active programs among {@code shortNames} with their associations, ordered by short name */
+  public List<ProgramEntity> listActivePrograms(@NonNull Collection<String> shortNames) {
+    if (shortNames.isEmpty()) {
+      return List.of();
+    }
+    return fetchPrograms(programRepository.findActiveIdsByShortNameIn(shortNames));
+  }
+
+  private KeysetPage<ProgramEntity> fetchProgramPage(List<UUID> ids, KeysetPageRequest page) {
+    return KeysetPage.of(fetchPrograms(ids), page, ProgramEntity::getShortName);
+  }
+
+  /** The programs with {@code ids} and their associations, in the order of {@code ids} */
+  private List<ProgramEntity> fetchPrograms(List<UUID> ids) {
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    val programs =
+        programRepository.findAll(
+            new ProgramSpecificationBuilder()
+                .setFetchCancers(true)
+                .setFetchPrimarySites(true)
+                .setFetchInstitutions(true)
+                .setFetchCountries(true)
+                .buildByIds(ids));
+    // the fetch-join repeats each program once per association row, and loses the order of the ids
+    val byId =
+        programs.stream().collect(toMap(ProgramEntity::getId, identity(), (first, dup) -> first));
+    return ids.stream().map(byId::get).filter(Objects::nonNull).collect(toUnmodifiableList());
+  }
+
   public List<DataCenterEntity> listDataCenters() {
     val dataCenters = dataCenterRepository.findAll();
     return List.copyOf(dataCenters);
@@ -532,6 +563,7 @@ public class ProgramService {
 
   public DataCenterEntity updateDataCenter(
       @NonNull DataCenterEntity dataCenterToUpdate, @NonNull DataCenterEntity updatingDataCenter) {
+    invalidationBus.dataCentersChanged();
     dataCenterConverter.updateDataCenter(updatingDataCenter, dataCenterToUpdate);
     dataCenterRepository.save(dataCenterToUpdate);
     return dataCenterToUpdate;
@@ -540,6 +572,7 @@ public class ProgramService {
   public void processDataCenter (
           @NonNull DataCenterDetailsDTO dataCenterDetailsDTO,
           @NonNull DataCenterEntity updatingDataCenter) {
+    invalidationBus.dataCentersChanged();
     updatingDataCenter.setShortName(dataCenterDetailsDTO.getShortName());
     updatingDataCenter.setName(dataCenterDetailsDTO.getName());
     updatingDataCenter.setUiUrl(dataCenterDetailsDTO.getUiUrl());
@@ -592,31 +625,9 @@ public class ProgramService {
         names.stream()
             .map(name -> new InstitutionEntity().setName(name))
             .collect(toUnmodifiableList());
-    return institutionRepository.saveAll(entities);
-  }
-
-  private static Predicate<ProgramCancer> programCancerPredicate(
-      ProgramEntity program, Set<CancerEntity> cancers) {
-    val id = program.getId();
-    return c -> c.getProgram().getId().equals(id) && cancers.contains(c.getCancer());
-  }
-
-  private static Predicate<ProgramPrimarySite> programPrimarySitePredicate(
-      ProgramEntity program, Set<PrimarySiteEntity> sites) {
-    val id = program.getId();
-    return ps -> ps.getProgram().getId().equals(id) && sites.contains(ps.getPrimarySite());
-  }
-
-  private static Predicate<ProgramInstitution> programInstitutionPredicate(
-      ProgramEntity program, Set<InstitutionEntity> institutions) {
-    val id = program.getId();
-    return i -> i.getProgram().getId().equals(id) && institutions.contains(i.getInstitution());
-  }
-
-  private static Predicate<ProgramCountry> programCountryPredicate(
-      ProgramEntity program, Set<CountryEntity> countries) {
-    val id = program.getId();
-    return c -> c.getProgram().getId().equals(id) && countries.contains(c.getCountry());
+    val saved = institutionRepository.saveAll(entities);
+    invalidationBus.referenceDataChanged(ReferenceDataCache.Kind.INSTITUTIONS);
+    return saved;
   }
 
   private static Predicate<ProgramRegion> programRegionPredicate(
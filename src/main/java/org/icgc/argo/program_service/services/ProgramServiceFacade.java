@@ -24,13 +24,27 @@ import static io.grpc.Status.NOT_FOUND;
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
 import static org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity.Status.ACCEPTED;
+import static org.icgc.argo.program_service.proto.ChangeType.*;
+import static org.icgc.argo.program_service.services.ReferenceDataCache.Kind.*;
 import static org.icgc.argo.program_service.utils.CollectionUtils.*;
 
+import com.google.protobuf.BoolValue;
+import com.google.protobuf.Int64Value;
+import com.google.protobuf.StringValue;
 import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import lombok.NonNull;
@@ -43,8 +57,12 @@ import org.icgc.argo.program_service.converter.ProgramConverter;
 import org.icgc.argo.program_service.model.dto.*;
 import org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity;
 import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.model.entity.ProgramMembershipEntity;
 import org.icgc.argo.program_service.model.exceptions.BadRequestException;
 import org.icgc.argo.program_service.proto.*;
+import org.icgc.argo.program_service.repositories.query.KeysetPage;
+import org.icgc.argo.program_service.repositories.query.KeysetPageRequest;
+import org.icgc.argo.program_service.repositories.query.ProgramFilter;
 import org.icgc.argo.program_service.services.ego.EgoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -64,9 +82,15 @@ public class ProgramServiceFacade {
   private final DataCenterConverter dataCenterConverter;
   private final CommonConverter commonConverter;
   private final ValidationService validationService;
+  private final SearchService searchService;
+  private final ReferenceDataCache referenceDataCache;
+  private final ChangeLogService changeLogService;
+  private final ProgramProvisioner programProvisioner;
+  private final ProgramMembershipMirror membershipMirror;
 
-  private static final String FULL_MEMBERSHIP_POLICY = "PROGRAMMEMBERSHIP-FULL";
-  private static final String ASSOCIATE_MEMBERSHIP_POLICY = "PROGRAMMEMBERSHIP-ASSOCIATE";
+  /** Change log entries that alter what ListPrograms returns */
+  private static final Set<ChangeType> PROGRAM_CHANGES =
+      EnumSet.of(PROGRAM_CREATED, PROGRAM_UPDATED, PROGRAM_ACTIVATED, PROGRAM_REMOVED);
 
   @Autowired
   public ProgramServiceFacade(
@@ -77,7 +101,12 @@ public class ProgramServiceFacade {
       @NonNull Grpc2JsonConverter grpc2JsonConverter,
       @NonNull DataCenterConverter dataCenterConverter,
       @NonNull CommonConverter commonConverter,
-      @NonNull ValidationService validationService) {
+      @NonNull ValidationService validationService,
+      @NonNull SearchService searchService,
+      @NonNull ReferenceDataCache referenceDataCache,
+      @NonNull ChangeLogService changeLogService,
+      @NonNull ProgramProvisioner programProvisioner,
+      @NonNull ProgramMembershipMirror membershipMirror) {
     this.programService = programService;
     this.egoService = egoService;
     this.invitationService = invitationService;
@@ -86,6 +115,11 @@ public class ProgramServiceFacade {
     this.dataCenterConverter = dataCenterConverter;
     this.commonConverter = commonConverter;
     this.validationService = validationService;
+    this.searchService = searchService;
+    this.referenceDataCache = referenceDataCache;
+    this.changeLogService = changeLogService;
+    this.programProvisioner = programProvisioner;
+    this.membershipMirror = membershipMirror;
   }
 
   @Transactional
@@ -101,15 +135,15 @@ public class ProgramServiceFacade {
     val program = request.getProgram();
     val admins = request.getAdminsList();
 
-    // TODO: Refactor this, having a transactional side effect is no longer needed thanks to the
-    // facade
+    // The Ego setup runs once this transaction committed, see ProgramProvisioner
     val programEntity =
         programService.createWithSideEffect(
             program,
             (ProgramEntity pe) -> {
-              initializeProgramInEgo(pe, admins);
+              programProvisioner.provision(pe, admins);
             });
     log.debug("Created {}", programEntity.getShortName());
+    changeLogService.programChanged(PROGRAM_CREATED, programEntity.getShortName());
     return programConverter.programEntityToCreateProgramResponse(programEntity);
   }
 
@@ -129,19 +163,20 @@ public class ProgramServiceFacade {
     val program = request.getProgram();
     val admins = request.getAdminsList();
 
-    // TODO: Refactor this, having a transactional side effect is no longer needed thanks to the
-    // facade
+    // The Ego setup runs once this transaction committed, see ProgramProvisioner
     val programEntity =
             programService.createWithSideEffect(
                     program,
                     (ProgramEntity pe) -> {
-                      initializeProgramInEgo(pe, admins);
+                      programProvisioner.provision(pe, admins);
                     },
                     dataCenterId);
     log.debug("Created {}", programEntity.getShortName());
+    changeLogService.programChanged(PROGRAM_CREATED, programEntity.getShortName());
     return programConverter.programEntityToCreateProgramResponse(programEntity);
   }
 
+  @Transactional(readOnly = true)
   public GetProgramResponse getProgram(GetProgramRequest request) {
     val shortName = request.getShortName().getValue();
     val programEntity = programService.getProgram(shortName);
@@ -149,12 +184,14 @@ public class ProgramServiceFacade {
     return GetProgramResponse.newBuilder().setProgram(programDetails).build();
   }
 
+  @Transactional(readOnly = true)
   public ProgramDetailsDTO getProgramWithDataCenterDetails(GetProgramRequest request) {
     val shortName = request.getShortName().getValue();
     val programEntity = programService.getProgram(shortName);
     return mapDataCenterDetails(programEntity);
   }
 
+  @Transactional(readOnly = true)
   public ProgramsResponseDTO listProgramsByDataCenter(String shortName) {
     val programEntities = programService.listProgramsByDataCenter(shortName);
     val programs =
@@ -164,11 +201,21 @@ public class ProgramServiceFacade {
     return programsResponseDTO;
   }
 
+  @Transactional(readOnly = true)
+  public KeysetPage<ProgramDetailsDTO> listProgramsByDataCenter(
+      String shortName, KeysetPageRequest page) {
+    if (!page.isPaged()) {
+      return new KeysetPage<>(listProgramsByDataCenter(shortName).getPrograms(), Optional.empty());
+    }
+    return programService.listProgramsByDataCenter(shortName, page).map(this::mapDataCenterDetails);
+  }
+
   @Transactional
   public UpdateProgramResponse updateProgram(UpdateProgramRequest request) {
     val program = request.getProgram();
     val updatingProgram = programConverter.programToProgramEntity(program);
-    val programToUpdate = programService.getProgram(updatingProgram.getShortName(), false);
+    val programToUpdate =
+        programService.getProgramWithoutAssociations(updatingProgram.getShortName());
 
     updateMembershipPermission(programToUpdate, updatingProgram);
 
@@ -180,13 +227,15 @@ public class ProgramServiceFacade {
             program.getPrimarySitesList(),
             program.getInstitutionsList(),
             program.getCountriesList());
+    changeLogService.programChanged(PROGRAM_UPDATED, programToUpdate.getShortName());
     return programConverter.programEntityToUpdateProgramResponse(updatedProgram);
   }
 
   @Transactional
   public UpdateProgramResponse updateProgramWithDataCenter (UpdateProgramRequestDTO request) {
     val updatingProgram = programConverter.programsDTOToProgramEntity(request.getProgram());
-    val programToUpdate = programService.getProgram(request.getProgram().getShortName(), false);
+    val programToUpdate =
+        programService.getProgramWithoutAssociations(request.getProgram().getShortName());
 
     updateMembershipPermission(programToUpdate, updatingProgram);
 
@@ -199,6 +248,7 @@ public class ProgramServiceFacade {
                     request.getProgram().getPrimarySites(),
                     request.getProgram().getInstitutions(),
                     request.getProgram().getCountries());
+    changeLogService.programChanged(PROGRAM_UPDATED, programToUpdate.getShortName());
     return programConverter.programEntityToUpdateProgramResponse(updatedProgram);
   }
 
@@ -215,10 +265,11 @@ public class ProgramServiceFacade {
 
     val admins = request.getAdminsList();
 
-    // Activate it, update ego, then send response
+    // Activate it, set it up in ego once committed, then send response
     val updatedProgram = programService.activateProgram(programEntity, updatedName);
 
-    initializeProgramInEgo(updatedProgram, admins);
+    programProvisioner.provision(updatedProgram, admins);
+    changeLogService.programRenamed(PROGRAM_ACTIVATED, updatedProgram.getShortName(), originalName);
 
     val programDetails = programConverter.programEntityToProgramDetails(updatedProgram);
 
@@ -238,9 +289,53 @@ public class ProgramServiceFacade {
     val inviteId =
         invitationService.inviteUser(
             programResult, email, firstName, lastName, request.getRole().getValue());
+    changeLogService.programChanged(USER_INVITED, programShortName);
     return programConverter.inviteIdToInviteUserResponse(inviteId);
   }
 
+  @Transactional
+  public InviteUsersResponse inviteUsers(InviteUsersRequest request) {
+    val programShortName = request.getProgramShortName().getValue();
+    val program = programService.getProgramWithoutAssociations(programShortName);
+
+    // Reject invalid and repeated entries up front, the rest of the batch still goes through
+    val errors = new HashMap<Integer, String>();
+    val emails = new HashSet<String>();
+    val validUsers = new ArrayList<User>();
+    for (int i = 0; i < request.getUsersCount(); i++) {
+      val user = request.getUsers(i);
+      val userErrors = validationService.validateInvitee(user);
+      if (!userErrors.isEmpty()) {
+        errors.put(i, join(userErrors, ", "));
+      } else if (!emails.add(user.getEmail().getValue().toLowerCase(Locale.ROOT))) {
+        errors.put(i, "Email appears more than once in the request");
+      } else {
+        validUsers.add(user);
+      }
+    }
+
+    val invited = invitationService.inviteUsers(program, validUsers).iterator();
+    if (!validUsers.isEmpty()) {
+      changeLogService.programChanged(USER_INVITED, programShortName);
+    }
+    val response = InviteUsersResponse.newBuilder();
+    for (int i = 0; i < request.getUsersCount(); i++) {
+      val email = request.getUsers(i).getEmail();
+      if (errors.containsKey(i)) {
+        response.addResults(
+            InviteUserResult.newBuilder().setEmail(email).setError(StringValue.of(errors.get(i))));
+      } else {
+        response.addResults(programConverter.invitationResultToInviteUserResult(invited.next()));
+      }
+    }
+    log.debug(
+        "Invited {} of {} users to {}",
+        validUsers.size(),
+        request.getUsersCount(),
+        programShortName);
+    return response.build();
+  }
+
   @Transactional
   public JoinProgramResponse joinProgram(
       JoinProgramRequest request, Consumer<JoinProgramInviteEntity> condition) {
@@ -252,9 +347,12 @@ public class ProgramServiceFacade {
     condition.accept(invitation);
 
     val user = invitationService.acceptInvite(id);
+    membershipMirror.joined(invitation.getProgram(), user, invitation.getRole());
+    changeLogService.programChanged(USER_JOINED, invitation.getProgram().getShortName());
     return programConverter.egoUserToJoinProgramResponse(user);
   }
 
+  @Transactional(readOnly = true)
   public ListProgramsResponse listPrograms(Predicate<ProgramEntity> predicate) {
     val programEntities =
         programService.listPrograms().stream()
@@ -265,6 +363,56 @@ public class ProgramServiceFacade {
     return programConverter.programEntitiesToListProgramsResponse(programEntities);
   }
 
+  @Transactional(readOnly = true)
+  public ListProgramsResponse listPrograms(
+      ListProgramsRequest request, Predicate<ProgramEntity> predicate) {
+    val page =
+        KeysetPageRequest.of(request.getPageSize().getValue(), request.getPageToken().getValue());
+    val filter = toProgramFilter(request);
+    if (!page.isPaged() && filter.isEmpty()) {
+      return listPrograms(predicate);
+    }
+    val programs = programService.listPrograms(filter, page);
+    val response =
+        programConverter.programEntitiesToListProgramsResponse(
+            programs.getItems().stream().filter(predicate).collect(toList()));
+    return programs
+        .getNextPageToken()
+        .map(token -> response.toBuilder().setNextPageToken(StringValue.of(token)).build())
+        .orElse(response);
+  }
+
+  private ProgramFilter toProgramFilter(ListProgramsRequest request) {
+    val filter =
+        ProgramFilter.builder()
+            .countries(request.getCountriesList())
+            .cancerTypes(request.getCancerTypesList())
+            .primarySites(request.getPrimarySitesList());
+    if (request.hasMembershipType()) {
+      filter.membershipType(request.getMembershipType().getValue());
+    }
+    if (request.hasDataCenterShortName()) {
+      filter.dataCenterShortName(request.getDataCenterShortName().getValue());
+    }
+    return filter.build();
+  }
+
+  @Transactional(readOnly = true)
+  public KeysetPage<ProgramDetailsDTO> listProgramsWithDataCenterDetails(
+      Predicate<ProgramEntity> predicate, ProgramFilter filter, KeysetPageRequest page) {
+    if (!page.isPaged() && filter.isEmpty()) {
+      return new KeysetPage<>(listProgramsWithDataCenterDetails(predicate), Optional.empty());
+    }
+    val programs = programService.listPrograms(filter, page);
+    return new KeysetPage<>(
+        programs.getItems().stream()
+            .filter(predicate)
+            .map(this::mapDataCenterDetails)
+            .collect(toList()),
+        programs.getNextPageToken());
+  }
+
+  @Transactional(readOnly = true)
   public List<ProgramDetailsDTO> listProgramsWithDataCenterDetails(
       Predicate<ProgramEntity> predicate) {
     val programEntities =
@@ -293,19 +441,100 @@ public class ProgramServiceFacade {
   }
 
   public ListUsersResponse listUsers(String programShortName) {
+    return listUsers(programShortName, KeysetPageRequest.unpaged());
+  }
+
+  public ListUsersResponse listUsers(String programShortName, KeysetPageRequest page) {
+    return listUsers(programShortName, page, false);
+  }
+
+  /**
+   * Lists the members from the local mirror when it is fresh enough, see {@link
+   * ProgramMembershipMirror}. With {@code live} set, or otherwise, they are read from Ego.
+   */
+  public ListUsersResponse listUsers(
+      String programShortName, KeysetPageRequest page, boolean live) {
     // Fetching the program first will throw an error if it is not active or doesnt exist
     // stopping the ego requests for a program that was never initialized
-    programService.getProgram(programShortName);
+    val program = programService.getProgram(programShortName);
+    if (!live) {
+      val members = membershipMirror.listMembers(program.getId(), page);
+      if (members.isPresent()) {
+        return listMirroredUsers(programShortName, members.get(), page);
+      }
+    }
     val users = egoService.getUsersInProgram(programShortName);
-    Set<UserDetails> userDetails =
-        mapToSet(users, user -> convertUserToUserDetail(user, programShortName));
+    val pendingInvitations = invitationService.listPendingInvitations(programShortName);
 
-    userDetails.addAll(
-        mapToList(
-            invitationService.listPendingInvitations(programShortName),
-            this::convertPendingInviteToUserDetail));
+    // Page on the emails first, so invitation and DACO lookups are only made for this page
+    val emails = new TreeSet<String>();
+    users.forEach(user -> emails.add(user.getEmail().getValue()));
+    pendingInvitations.forEach(invite -> emails.add(invite.getUserEmail()));
+    val emailPage =
+        KeysetPage.of(
+            List.copyOf(emails.tailSet(page.getAfter(), false)), page, Function.identity());
+    val pageEmails = Set.copyOf(emailPage.getItems());
 
-    return ListUsersResponse.newBuilder().addAllUserDetails(userDetails).build();
+    Set<UserDetails> userDetails =
+        users.stream()
+            .filter(user -> pageEmails.contains(user.getEmail().getValue()))
+            .map(user -> convertUserToUserDetail(user, programShortName))
+            .collect(Collectors.toSet());
+    pendingInvitations.stream()
+        .filter(invite -> pageEmails.contains(invite.getUserEmail()))
+        .map(this::convertPendingInviteToUserDetail)
+        .forEach(userDetails::add);
+
+    val response =
+        ListUsersResponse.newBuilder()
+            .addAllUserDetails(
+                userDetails.stream()
+                    .sorted(Comparator.comparing(u -> u.getUser().getEmail().getValue()))
+                    .collect(toList()));
+    emailPage.getNextPageToken().map(StringValue::of).ifPresent(response::setNextPageToken);
+    return response.build();
+  }
+
+  /** Same page as the live listing, with the members and their DACO approval from the mirror */
+  private ListUsersResponse listMirroredUsers(
+      String programShortName, List<ProgramMembershipEntity> members, KeysetPageRequest page) {
+    val pendingInvitations = invitationService.listPendingInvitations(programShortName);
+
+    // The members are one lookahead page already, which holds every member of the merged page
+    val emails = new TreeSet<String>();
+    members.forEach(member -> emails.add(member.getEmail()));
+    pendingInvitations.forEach(invite -> emails.add(invite.getUserEmail()));
+    val emailPage =
+        KeysetPage.of(
+            List.copyOf(emails.tailSet(page.getAfter(), false)), page, Function.identity());
+    val pageEmails = Set.copyOf(emailPage.getItems());
+
+    val userDetails = new ArrayList<UserDetails>();
+    members.stream()
+        .filter(member -> pageEmails.contains(member.getEmail()))
+        .map(
+            member ->
+                programConverter.userWithOptionalJoinProgramInviteToUserDetails(
+                    programConverter.programMembershipToUser(member),
+                    invitationService.getLatestInvitation(programShortName, member.getEmail()),
+                    // Unknown only until the lookup made after the member joined
+                    member.getDacoApproved() != null
+                        ? member.getDacoApproved()
+                        : egoService.isUserDacoApproved(member.getEmail())))
+        .forEach(userDetails::add);
+    pendingInvitations.stream()
+        .filter(invite -> pageEmails.contains(invite.getUserEmail()))
+        .map(this::convertPendingInviteToUserDetail)
+        .forEach(userDetails::add);
+
+    val response =
+        ListUsersResponse.newBuilder()
+            .addAllUserDetails(
+                userDetails.stream()
+                    .sorted(Comparator.comparing(u -> u.getUser().getEmail().getValue()))
+                    .collect(toList()));
+    emailPage.getNextPageToken().map(StringValue::of).ifPresent(response::setNextPageToken);
+    return response.build();
   }
 
   @Transactional
@@ -314,6 +543,8 @@ public class ProgramServiceFacade {
     val email = request.getUserEmail().getValue();
     invitationService.revoke(programName, email);
     egoService.leaveProgram(email, programName);
+    membershipMirror.left(programName, email);
+    changeLogService.programChanged(USER_REMOVED, programName);
     return programConverter.toRemoveUserResponse("User is successfully removed!");
   }
 
@@ -334,6 +565,7 @@ public class ProgramServiceFacade {
 
     if (existingUserInvite.getStatus() == ACCEPTED) {
       egoService.updateUserRole(email, programShortName, role);
+      membershipMirror.roleChanged(programShortName, email, role);
     } else {
       val firstName = existingUserInvite.getFirstName();
       val lastName = existingUserInvite.getLastName();
@@ -341,6 +573,7 @@ public class ProgramServiceFacade {
 
       invitationService.inviteUser(programResult, email, firstName, lastName, role);
     }
+    changeLogService.programChanged(USER_UPDATED, programShortName);
   }
 
   @Transactional
@@ -348,9 +581,10 @@ public class ProgramServiceFacade {
     val shortName = request.getProgramShortName().getValue();
     egoService.cleanUpProgram(shortName);
     programService.removeProgram(request.getProgramShortName().getValue());
+    changeLogService.programChanged(PROGRAM_REMOVED, shortName);
   }
 
-  @Transactional
+  @Transactional(readOnly = true)
   public JoinProgramInvite getInvitationById(UUID id) {
     val joinProgramInvite =
         invitationService
@@ -363,26 +597,103 @@ public class ProgramServiceFacade {
     return programConverter.joinProgramInviteEntityToJoinProgramInvite(joinProgramInvite);
   }
 
+  @Transactional(readOnly = true)
   public ListCancersResponse listCancers() {
-    return programConverter.cancerEntitiesToListCancersResponse(programService.listCancers());
+    return referenceDataCache.get(
+        CANCERS,
+        () -> programConverter.cancerEntitiesToListCancersResponse(programService.listCancers()));
   }
 
+  @Transactional(readOnly = true)
   public ListPrimarySitesResponse listPrimarySites() {
-    return programConverter.primarySiteEntitiesToListPrimarySitesResponse(
-        programService.listPrimarySites());
+    return referenceDataCache.get(
+        PRIMARY_SITES,
+        () ->
+            programConverter.primarySiteEntitiesToListPrimarySitesResponse(
+                programService.listPrimarySites()));
   }
 
+  @Transactional(readOnly = true)
   public ListCountriesResponse listCountries() {
-    return programConverter.countryEntitiesToListCountriesResponse(programService.listCountries());
+    return referenceDataCache.get(
+        COUNTRIES,
+        () ->
+            programConverter.countryEntitiesToListCountriesResponse(
+                programService.listCountries()));
   }
 
+  @Transactional(readOnly = true)
   public ListRegionsResponse listRegions() {
-    return programConverter.regionEntitiesToListRegionsResponse(programService.listRegions());
+    return referenceDataCache.get(
+        REGIONS,
+        () -> programConverter.regionEntitiesToListRegionsResponse(programService.listRegions()));
   }
 
+  @Transactional(readOnly = true)
   public ListInstitutionsResponse listInstitutions() {
+    return referenceDataCache.get(
+        INSTITUTIONS,
+        () ->
+            programConverter.institutionEntitiesToListInstitutionsResponse(
+                programService.listInstitutions()));
+  }
+
+  @Transactional(readOnly = true)
+  public ListInstitutionsResponse searchInstitutions(SearchRequest request) {
     return programConverter.institutionEntitiesToListInstitutionsResponse(
-        programService.listInstitutions());
+        searchService.searchInstitutions(
+            request.getQuery().getValue(), request.getLimit().getValue()));
+  }
+
+  /** Programs the caller cannot read are dropped after the limit, so a page may come back short */
+  @Transactional(readOnly = true)
+  public SearchProgramsResponse searchPrograms(
+      SearchRequest request, Predicate<ProgramEntity> predicate) {
+    val programs =
+        searchService.searchPrograms(request.getQuery().getValue(), request.getLimit().getValue());
+    return programConverter.programEntitiesToSearchProgramsResponse(
+        programs.stream().filter(predicate).collect(toList()));
+  }
+
+  /**
+   * Programs named by the change log entries after {@code since}. A program changed several times
+   * is returned once, in its current state. A name that no longer belongs to an active program is
+   * reported as removed.
+   */
+  @Transactional(readOnly = true)
+  public ListProgramsChangedSinceResponse listProgramsChangedSince(
+      ListProgramsChangedSinceRequest request, Predicate<String> canRead) {
+    val since = request.getSince().getValue();
+    val pageSize = changeLogService.pageSize(request.getPageSize().getValue());
+    val changes = changeLogService.listChanges(since, pageSize);
+
+    val shortNames = new TreeSet<String>();
+    for (val change : changes) {
+      if (PROGRAM_CHANGES.contains(change.getType())) {
+        shortNames.add(change.getProgramShortName());
+        Optional.ofNullable(change.getPreviousProgramShortName()).ifPresent(shortNames::add);
+      }
+    }
+    val readable = shortNames.stream().filter(canRead).collect(toList());
+    val programs = programService.listActivePrograms(readable);
+    val current = programs.stream().map(ProgramEntity::getShortName).collect(Collectors.toSet());
+
+    val highWaterMark = changes.isEmpty() ? since : changes.get(changes.size() - 1).getId();
+    return ListProgramsChangedSinceResponse.newBuilder()
+        .addAllPrograms(mapToList(programs, programConverter::programEntityToProgramDetails))
+        .addAllRemovedShortNames(
+            readable.stream().filter(name -> !current.contains(name)).collect(toList()))
+        .setHighWaterMark(Int64Value.of(highWaterMark))
+        .setMore(BoolValue.of(changes.size() == pageSize))
+        .build();
+  }
+
+  /** Change log entries after {@code since}, in the order they were committed */
+  @Transactional(readOnly = true)
+  public List<ChangeEventDTO> listChanges(long since, int limit) {
+    return changeLogService.listChanges(since, limit).stream()
+        .map(programConverter::changeEventEntityToChangeEventDTO)
+        .collect(toList());
   }
 
   public AddInstitutionsResponse addInstitutions(List<String> names) {
@@ -390,47 +701,15 @@ public class ProgramServiceFacade {
         programService.addInstitutions(names));
   }
 
-  private void initializeProgramInEgo(ProgramEntity pe, List<User> admins) {
-    egoService.setUpProgram(pe.getShortName());
-    egoService.setUpMembershipPermissions(pe.getShortName(), pe.getMembershipType());
-    admins.forEach(
-        admin -> {
-          val email = commonConverter.unboxStringValue(admin.getEmail());
-          val firstName = commonConverter.unboxStringValue(admin.getFirstName());
-          val lastName = commonConverter.unboxStringValue(admin.getLastName());
-          invitationService.inviteUser(pe, email, firstName, lastName, UserRole.ADMIN);
-        });
-  }
-
   private void updateMembershipPermission(
       @NonNull ProgramEntity programToUpdate, @NonNull ProgramEntity updatingProgram) {
     // check if membership type is updated:
     if (!programToUpdate.getMembershipType().equals(updatingProgram.getMembershipType())
         && !updatingProgram.getMembershipType().equals(MembershipType.UNRECOGNIZED)) {
-
-      val shortName = updatingProgram.getShortName();
-      val adminGroupId = egoService.getProgramEgoGroup(shortName, UserRole.ADMIN).getId();
-      val submitterGroupId = egoService.getProgramEgoGroup(shortName, UserRole.SUBMITTER).getId();
-
-      val fullPolicyId = egoService.getPolicyByName(FULL_MEMBERSHIP_POLICY).getId();
-      val associatePolicyId = egoService.getPolicyByName(ASSOCIATE_MEMBERSHIP_POLICY).getId();
-
-      if (updatingProgram.getMembershipType().equals(MembershipType.FULL)) {
-        // delete associate membership permission from admin group and submitter group
-        egoService.deleteGroupPermission(associatePolicyId, adminGroupId);
-        egoService.deleteGroupPermission(associatePolicyId, submitterGroupId);
-
-        // assign full membership permission to admin group and submitter group
-        egoService.setUpMembershipPermissions(shortName, MembershipType.FULL);
-
-      } else if (updatingProgram.getMembershipType().equals(MembershipType.ASSOCIATE)) {
-        // delete existing full membership permission from admin group and submitter group
-        egoService.deleteGroupPermission(fullPolicyId, adminGroupId);
-        egoService.deleteGroupPermission(fullPolicyId, submitterGroupId);
-
-        // assign associate membership permission to admin group and submitter group
-        egoService.setUpMembershipPermissions(shortName, MembershipType.ASSOCIATE);
-      }
+      egoService.updateMembershipPermissions(
+          updatingProgram.getShortName(),
+          programToUpdate.getMembershipType(),
+          updatingProgram.getMembershipType());
     }
   }
 
@@ -446,6 +725,7 @@ public class ProgramServiceFacade {
         invite, egoService.isUserDacoApproved(invite.getUserEmail()));
   }
 
+  @Transactional(readOnly = true)
   public List<DataCenterDTO> listDataCenters() {
     val dataCenterEntities = programService.listDataCenters();
     return dataCenterEntities.stream()
@@ -461,6 +741,7 @@ public class ProgramServiceFacade {
           format("Cannot create datacenter: DataCenter errors are [%s]", join(errors, ",")));
     }
     val dataCenterEntity = programService.createDataCenter(dataCenterRequestDTO);
+    changeLogService.dataCenterChanged(DATA_CENTER_CREATED, dataCenterEntity.getShortName());
     return dataCenterConverter.dataCenterToDataCenterEntity(dataCenterEntity);
   }
 
@@ -471,6 +752,7 @@ public class ProgramServiceFacade {
         dataCenterConverter.dataCenterToUpdateDataCenterEntity(dataCenterRequestDTO);
     val dataCenterToUpdate = programService.findDataCenterByShortName(dataCenterShortName);
     val dataCenterEntity = programService.updateDataCenter(dataCenterToUpdate, updatingDataCenter);
+    changeLogService.dataCenterChanged(DATA_CENTER_UPDATED, dataCenterEntity.getShortName());
     return dataCenterConverter.dataCenterToDataCenterEntity(dataCenterEntity);
   }
 }
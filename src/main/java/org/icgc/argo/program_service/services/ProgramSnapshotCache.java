@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.argo.program_service.model.dto.ProgramDetailsDTO;
+import org.icgc.argo.program_service.model.exceptions.ProgramRuntimeException;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.proto.GetProgramResponse;
+import org.icgc.argo.program_service.proto.ListProgramsRequest;
+import org.icgc.argo.program_service.proto.ListProgramsResponse;
+import org.icgc.argo.program_service.repositories.ReadReplicaRoutingDataSource;
+import org.icgc.argo.program_service.utils.SingleFlight;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fully built getProgram responses per program short name: the gRPC response, and the serialized
+ * REST response including the data center details. A hit skips the association fetch, the
+ * conversions and the data center lookup.
+ *
+ * <p>ProgramService evicts the affected snapshots through the {@link InvalidationBus} on every
+ * write, once right away and once more when the writing transaction completes. Loads that overlap
+ * an eviction are not kept, as they may have read the state from before the write. Snapshots also
+ * expire after a configured time, which bounds staleness when the bus is disabled.
+ *
+ * <p>Loads always read from the primary, also when read-only transactions go to a replica. The
+ * eviction after commit would otherwise be followed by a load from a replica that has not replayed
+ * the write yet, and that snapshot would be served until it expires.
+ *
+ * <p>Concurrent misses for the same snapshot share one load, and so do concurrent identical program
+ * listings, which are not kept. A caller arriving after an eviction never shares a load started
+ * before it.
+ */
+@Slf4j
+@Component
+public class ProgramSnapshotCache {
+
+  private final AppProperties.ProgramSnapshotProperties properties;
+  private final ObjectMapper objectMapper;
+
+  private final Map<String, Snapshot<GetProgramResponse>> responses = new ConcurrentHashMap<>();
+  private final Map<String, Snapshot<byte[]>> jsonResponses = new ConcurrentHashMap<>();
+
+  /** Bumped by every eviction, so loads can tell whether they raced one */
+  private final AtomicLong evictions = new AtomicLong();
+
+  private final SingleFlight<Load> responseLoads;
+  private final SingleFlight<Load> jsonResponseLoads;
+  private final SingleFlight<Load> listingLoads;
+
+  @Autowired
+  public ProgramSnapshotCache(
+      @NonNull AppProperties appProperties,
+      @NonNull ObjectMapper objectMapper,
+      @NonNull MeterRegistry meterRegistry) {
+    this.properties = appProperties.getProgramSnapshot();
+    this.objectMapper = objectMapper;
+    this.responseLoads = new SingleFlight<>("program_snapshot", meterRegistry);
+    this.jsonResponseLoads = new SingleFlight<>("program_snapshot_json", meterRegistry);
+    this.listingLoads = new SingleFlight<>("program_listing", meterRegistry);
+  }
+
+  /** Callers may skip building what the cache would keep when it is off */
+  public boolean isEnabled() {
+    return properties.getEnabled();
+  }
+
+  public GetProgramResponse getProgram(
+      @NonNull String shortName, @NonNull Supplier<GetProgramResponse> loader) {
+    return get(responses, responseLoads, shortName, null, loader);
+  }
+
+  /**
+   * Loads a program listing, sharing the load with concurrent callers asking for the same one. The
+   * loader must not filter by caller, callers filter the shared response themselves.
+   */
+  public ListProgramsResponse listPrograms(
+      @NonNull ListProgramsRequest request, @NonNull Supplier<ListProgramsResponse> loader) {
+    return listingLoads.execute(new Load(request, null, evictions.get()), loader);
+  }
+
+  /**
+   * The REST response, already serialized as JSON. A snapshot built for a different {@code version}
+   * (the response ETag) is rebuilt, which also catches writes made by other instances.
+   */
+  public byte[] getProgramJson(
+      @NonNull String shortName,
+      @NonNull String version,
+      @NonNull Supplier<ProgramDetailsDTO> loader) {
+    return get(jsonResponses, jsonResponseLoads, shortName, version, () -> toJson(loader.get()));
+  }
+
+  public void evictProgram(@NonNull String shortName) {
+    evict(
+        () -> {
+          responses.remove(shortName);
+          jsonResponses.remove(shortName);
+        });
+  }
+
+  /** The REST responses embed the data center, so any data center change drops all of them */
+  public void evictDataCenters() {
+    evict(jsonResponses::clear);
+  }
+
+  public void evictAll() {
+    evict(
+        () -> {
+          responses.clear();
+          jsonResponses.clear();
+        });
+  }
+
+  private <T> T get(
+      Map<String, Snapshot<T>> cache,
+      SingleFlight<Load> loads,
+      String shortName,
+      String version,
+      Supplier<T> loader) {
+    val enabled = properties.getEnabled();
+    val now = System.currentTimeMillis();
+    val cached = enabled ? cache.get(shortName) : null;
+    if (cached != null
+        && cached.getExpiresAt() > now
+        && Objects.equals(cached.getVersion(), version)) {
+      return cached.getValue();
+    }
+
+    val evictionsBefore = evictions.get();
+    return loads.execute(
+        new Load(shortName, version, evictionsBefore),
+        () -> {
+          val value = ReadReplicaRoutingDataSource.onPrimary(loader);
+          if (enabled) {
+            val snapshot = new Snapshot<>(value, version, now + properties.getTtlMs());
+            cache.put(shortName, snapshot);
+            if (evictions.get() != evictionsBefore) {
+              // The value may have been read before a concurrent write, serve it but don't keep it
+              cache.remove(shortName, snapshot);
+            }
+          }
+          return value;
+        });
+  }
+
+  private void evict(Runnable eviction) {
+    Evictions.runNowAndAfterCompletion(
+        () -> {
+          evictions.incrementAndGet();
+          eviction.run();
+        });
+  }
+
+  private byte[] toJson(ProgramDetailsDTO programDetails) {
+    try {
+      return objectMapper.writeValueAsBytes(programDetails);
+    } catch (JsonProcessingException e) {
+      log.error("Cannot serialize program details", e);
+      throw new ProgramRuntimeException(e.getMessage());
+    }
+  }
+
+  /** Loads of the same request share only while no eviction happened in between */
+  @Value
+  private static class Load {
+    Object request;
+    String version;
+    long evictions;
+  }
+
+  @Value
+  private static class Snapshot<T> {
+    T value;
+    String version;
+    long expiresAt;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.NonNull;
+import lombok.val;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The reference data listings (cancers, primary sites, countries, regions and institutions) as
+ * served to clients. Writes evict through the {@link InvalidationBus}, which also relays evictions
+ * made on other instances.
+ */
+@Component
+public class ReferenceDataCache {
+
+  public enum Kind {
+    CANCERS,
+    PRIMARY_SITES,
+    COUNTRIES,
+    REGIONS,
+    INSTITUTIONS
+  }
+
+  private final AppProperties.ReferenceDataCacheProperties properties;
+
+  private final Map<Kind, Object> entries = new ConcurrentHashMap<>();
+
+  /** Bumped by every eviction, so loads can tell whether they raced one */
+  private final AtomicLong evictions = new AtomicLong();
+
+  @Autowired
+  public ReferenceDataCache(@NonNull AppProperties appProperties) {
+    this.properties = appProperties.getReferenceDataCache();
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T get(@NonNull Kind kind, @NonNull Supplier<T> loader) {
+    if (!properties.getEnabled()) {
+      return loader.get();
+    }
+    val cached = entries.get(kind);
+    if (cached != null) {
+      return (T) cached;
+    }
+
+    val evictionsBefore = evictions.get();
+    val value = loader.get();
+    entries.put(kind, value);
+    if (evictions.get() != evictionsBefore) {
+      // The value may have been read before a concurrent write, serve it but don't keep it
+      entries.remove(kind, value);
+    }
+    return value;
+  }
+
+  public void evict(@NonNull Kind kind) {
+    Evictions.runNowAndAfterCompletion(
+        () -> {
+          evictions.incrementAndGet();
+          entries.remove(kind);
+        });
+  }
+
+  public void evictAll() {
+    Evictions.runNowAndAfterCompletion(
+        () -> {
+          evictions.incrementAndGet();
+          entries.clear();
+        });
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static java.util.stream.Collectors.toCollection;
+
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.InstitutionEntity;
+import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.repositories.InstitutionRepository;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Prefix and substring search over institution names and program names. Queries go to the trigram
+ * indices by default; institutions can instead be served from an in-memory sorted index, which is
+ * built on first use and dropped by the {@link InvalidationBus} whenever institutions change, on
+ * this or another instance.
+ */
+@Slf4j
+@Service
+public class SearchService {
+
+  /** Dependencies */
+  private final InstitutionRepository institutionRepository;
+
+  private final ProgramRepository programRepository;
+  private final AppProperties.SearchProperties properties;
+
+  private volatile InstitutionIndex institutionIndex;
+
+  /** Bumped by every eviction, so builds can tell whether they raced one */
+  private final AtomicLong institutionIndexEvictions = new AtomicLong();
+
+  @Autowired
+  public SearchService(
+      @NonNull InstitutionRepository institutionRepository,
+      @NonNull ProgramRepository programRepository,
+      @NonNull AppProperties appProperties) {
+    this.institutionRepository = institutionRepository;
+    this.programRepository = programRepository;
+    this.properties = appProperties.getSearch();
+  }
+
+  @Transactional(readOnly = true)
+  public List<InstitutionEntity> searchInstitutions(String query, int limit) {
+    val term = normalize(query);
+    val max = clampLimit(limit);
+    if (properties.getInMemoryIndex()) {
+      return institutionIndex().search(term, max);
+    }
+    return institutionRepository.searchByName(escapeLike(term), term, max);
+  }
+
+  @Transactional(readOnly = true)
+  public List<ProgramEntity> searchPrograms(String query, int limit) {
+    return programRepository.searchByName(escapeLike(normalize(query)), clampLimit(limit));
+  }
+
+  public void evictInstitutionIndex() {
+    Evictions.runNowAndAfterCompletion(
+        () -> {
+          institutionIndexEvictions.incrementAndGet();
+          institutionIndex = null;
+        });
+  }
+
+  private InstitutionIndex institutionIndex() {
+    InstitutionIndex index = institutionIndex;
+    if (index == null) {
+      val evictionsBefore = institutionIndexEvictions.get();
+      index = InstitutionIndex.of(institutionRepository.findAll());
+      log.debug("Built institution search index with {} entries", index.getSize());
+      institutionIndex = index;
+      if (institutionIndexEvictions.get() != evictionsBefore) {
+        // The institutions may have been read before a concurrent write, use them but don't keep
+        institutionIndex = null;
+      }
+    }
+    return index;
+  }
+
+  private int clampLimit(int limit) {
+    if (limit <= 0) {
+      return properties.getDefaultLimit();
+    }
+    return Math.min(limit, properties.getMaxLimit());
+  }
+
+  static String normalize(String query) {
+    if (query == null || query.isBlank()) {
+      throw Status.INVALID_ARGUMENT
+          .augmentDescription("Search query must not be empty")
+          .asRuntimeException();
+    }
+    return query.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /** Escapes LIKE wildcards so the term is matched literally, using Postgres' default escape */
+  static String escapeLike(String term) {
+    return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
+  /**
+   * Institutions keyed by lower-cased name, so prefix matches are a contiguous range of the keys.
+   * The original name is appended to the key to keep names that only differ by case apart.
+   */
+  @Value
+  static class InstitutionIndex {
+    NavigableMap<String, InstitutionEntity> entries;
+    long size;
+
+    static InstitutionIndex of(Iterable<InstitutionEntity> institutions) {
+      val entries = new TreeMap<String, InstitutionEntity>();
+      for (val institution : institutions) {
+        entries.put(lower(institution) + '\0' + institution.getName(), institution);
+      }
+      return new InstitutionIndex(Collections.unmodifiableNavigableMap(entries), entries.size());
+    }
+
+    /** Same ranking as {@link InstitutionRepository#searchByName(String, String, int)} */
+    List<InstitutionEntity> search(String term, int limit) {
+      val byLength =
+          Comparator.<InstitutionEntity>comparingInt(i -> i.getName().length())
+              .thenComparing(InstitutionEntity::getName);
+      val results =
+          entries.subMap(term, true, term + Character.MAX_VALUE, false).values().stream()
+              .sorted(byLength)
+              .limit(limit)
+              .collect(toCollection(ArrayList::new));
+      if (results.size() < limit) {
+        entries.values().stream()
+            .filter(i -> lower(i).indexOf(term) > 0)
+            .sorted(
+                Comparator.<InstitutionEntity>comparingInt(i -> lower(i).indexOf(term))
+                    .thenComparing(byLength))
+            .limit(limit - results.size())
+            .forEach(results::add);
+      }
+      return results;
+    }
+
+    private static String lower(InstitutionEntity institution) {
+      return institution.getName().toLowerCase(Locale.ROOT);
+    }
+  }
+}
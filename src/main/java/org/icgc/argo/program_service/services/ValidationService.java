@@ -23,9 +23,11 @@ package org.icgc.argo.program_service.services;
 import static java.lang.String.format;
 import static org.icgc.argo.program_service.utils.CollectionUtils.mapToSet;
 
+import com.google.protobuf.StringValue;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -43,6 +45,7 @@ import org.icgc.argo.program_service.model.entity.*;
 import org.icgc.argo.program_service.proto.CreateProgramRequest;
 import org.icgc.argo.program_service.proto.Program;
 import org.icgc.argo.program_service.proto.User;
+import org.icgc.argo.program_service.proto.UserRole;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
@@ -52,6 +55,9 @@ import org.springframework.validation.annotation.Validated;
 @Slf4j
 public class ValidationService {
 
+  private static final Set<UserRole> INVITABLE_ROLES =
+      EnumSet.of(UserRole.ADMIN, UserRole.CURATOR, UserRole.SUBMITTER, UserRole.COLLABORATOR);
+
   /** Dependencies */
   private final ProgramService programService;
 
@@ -134,6 +140,32 @@ public class ValidationService {
     return List.of();
   }
 
+  public List<String> validateInvitee(User user) {
+    val errors = new ArrayList<String>();
+    if (isBlank(user.getFirstName()) || isBlank(user.getLastName())) {
+      errors.add("First and last name are required");
+    }
+    if (isBlank(user.getEmail())) {
+      errors.add("Email is required");
+    } else if (!validatorFactory
+        .getValidator()
+        .validate(new EmailCheck(user.getEmail().getValue()))
+        .isEmpty()) {
+      errors.add(format("Invalid email address '%s'", user.getEmail().getValue()));
+    }
+    val role = user.getRole().getValue();
+    if (role == UserRole.DEFAULT) {
+      errors.add("Role is required");
+    } else if (!INVITABLE_ROLES.contains(role)) {
+      errors.add(format("Invalid role '%s'", role));
+    }
+    return errors;
+  }
+
+  private static boolean isBlank(StringValue value) {
+    return value.getValue().isBlank();
+  }
+
   private List<String> getErrors(Set<ConstraintViolation<ProgramEntity>> constraints) {
     Set<String> s = mapToSet(constraints, c -> c.getPropertyPath() + " " + c.getMessage());
 
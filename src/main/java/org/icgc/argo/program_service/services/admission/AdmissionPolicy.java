@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.services.admission;
+
+import static java.lang.String.format;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import lombok.NonNull;
+import lombok.val;
+import org.icgc.argo.program_service.model.exceptions.TooManyRequestsException;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides whether a gRPC or REST call may start, shared by {@code AdmissionInterceptor} and {@code
+ * AdmissionFilter}. A call is refused when:
+ *
+ * <ul>
+ *   <li>its caller already has the configured number of calls running,
+ *   <li>its caller's token bucket lacks the tokens the operation costs, e.g. ListUsers costs more
+ *       than GetProgram, or
+ *   <li>the instance already runs the configured number of calls, so load is shed before requests
+ *       queue up for database connections or Ego.
+ * </ul>
+ *
+ * <p>Callers are keyed by the authenticated Ego user, or by client address for anonymous calls.
+ * Operations are named like the gRPC methods. Callers with a full bucket and nothing running are
+ * forgotten periodically.
+ */
+@Component
+public class AdmissionPolicy {
+
+  /** When to retry after being refused because the instance is busy */
+  public static final long OVERLOADED_RETRY_AFTER_MS = 1000;
+
+  private final AppProperties.AdmissionProperties properties;
+  private final LongSupplier nanoTime;
+
+  private final Map<String, Caller> callers = new ConcurrentHashMap<>();
+  private final Semaphore calls;
+  private final Counter rateLimited;
+  private final Counter callerBusy;
+  private final Counter overloaded;
+
+  @Autowired
+  public AdmissionPolicy(
+      @NonNull AppProperties appProperties, @NonNull MeterRegistry meterRegistry) {
+    this(appProperties, meterRegistry, System::nanoTime);
+  }
+
+  AdmissionPolicy(AppProperties appProperties, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+    this.properties = appProperties.getAdmission();
+    this.nanoTime = nanoTime;
+    this.calls = new Semaphore(properties.getMaxConcurrentCalls());
+    this.rateLimited = rejected("rate_limited", meterRegistry);
+    this.callerBusy = rejected("caller_busy", meterRegistry);
+    this.overloaded = rejected("overloaded", meterRegistry);
+    Gauge.builder(
+            "program_service.admission.calls",
+            calls,
+            s -> properties.getMaxConcurrentCalls() - s.availablePermits())
+        .description("Calls admitted and still running")
+        .register(meterRegistry);
+  }
+
+  public boolean isEnabled() {
+    return properties.getEnabled();
+  }
+
+  /**
+   * Admits the call or throws {@link TooManyRequestsException}. The returned permit must be closed
+   * once the call is over.
+   */
+  public Permit admit(@NonNull String caller, @NonNull String operation) {
+    if (!isEnabled()) {
+      return Permit.NONE;
+    }
+    val now = nanoTime.getAsLong();
+    val cost = (double) Math.min(cost(operation), properties.getBurst());
+    while (true) {
+      val state = callers.computeIfAbsent(caller, k -> new Caller(newBucket(now)));
+      synchronized (state) {
+        if (state.forgotten) {
+          // Forgotten after it was looked up, the next lookup finds or adds the caller's new state
+          continue;
+        }
+        if (state.running >= properties.getMaxConcurrentCallsPerCaller()) {
+          callerBusy.increment();
+          throw new TooManyRequestsException(
+              format("Too many concurrent calls from %s", caller), OVERLOADED_RETRY_AFTER_MS);
+        }
+        val waitNanos = state.bucket.take(cost, now);
+        if (waitNanos > 0) {
+          rateLimited.increment();
+          throw new TooManyRequestsException(
+              format("Rate limit exceeded for %s calling %s", caller, operation),
+              TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1);
+        }
+        if (!calls.tryAcquire()) {
+          state.bucket.refund(cost);
+          overloaded.increment();
+          throw new TooManyRequestsException(
+              "Server is busy, please retry later", OVERLOADED_RETRY_AFTER_MS);
+        }
+        state.running++;
+      }
+      return new Permit(() -> release(state));
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${app.admission.idle-check-interval-ms:60000}")
+  public void forgetIdleCallers() {
+    val now = nanoTime.getAsLong();
+    for (val entry : callers.entrySet()) {
+      val state = entry.getValue();
+      synchronized (state) {
+        // Marked under the lock, an admit that already looked the state up then retries
+        if (state.running == 0 && state.bucket.isFull(now)) {
+          state.forgotten = true;
+          callers.remove(entry.getKey(), state);
+        }
+      }
+    }
+  }
+
+  private void release(Caller state) {
+    synchronized (state) {
+      state.running--;
+    }
+    calls.release();
+  }
+
+  private int cost(String operation) {
+    return properties.getCosts().getOrDefault(operation, 1);
+  }
+
+  private TokenBucket newBucket(long now) {
+    return new TokenBucket(properties.getBurst(), properties.getRatePerSecond(), now);
+  }
+
+  private static Counter rejected(String reason, MeterRegistry meterRegistry) {
+    return Counter.builder("program_service.admission.rejected")
+        .description("Calls refused before doing any work")
+        .tag("reason", reason)
+        .register(meterRegistry);
+  }
+
+  /** One caller's bucket and number of running calls, guarded by the instance lock */
+  private static class Caller {
+    final TokenBucket bucket;
+    int running;
+
+    /** Removed from the callers, a new state counts the caller's calls */
+    boolean forgotten;
+
+    Caller(TokenBucket bucket) {
+      this.bucket = bucket;
+    }
+  }
+
+  /** Released once by the first close */
+  public static final class Permit implements AutoCloseable {
+
+    static final Permit NONE = new Permit(() -> {});
+
+    private final Runnable release;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private Permit(Runnable release) {
+      this.release = release;
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        release.run();
+      }
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.services.admission;
+
+/**
+ * Holds up to {@code capacity} tokens and refills continuously at a fixed rate. Starts full. Not
+ * thread safe, callers synchronize.
+ */
+final class TokenBucket {
+
+  private final double capacity;
+  private final double tokensPerNano;
+
+  private double tokens;
+  private long refilledAt;
+
+  TokenBucket(double capacity, double tokensPerSecond, long nowNanos) {
+    this.capacity = capacity;
+    this.tokensPerNano = tokensPerSecond / 1e9;
+    this.tokens = capacity;
+    this.refilledAt = nowNanos;
+  }
+
+  /** Takes {@code cost} tokens, or takes none and returns the nanos until enough have refilled */
+  long take(double cost, long nowNanos) {
+    refill(nowNanos);
+    if (tokens >= cost) {
+      tokens -= cost;
+      return 0;
+    }
+    return (long) Math.ceil((cost - tokens) / tokensPerNano);
+  }
+
+  /** Gives back tokens taken for a call that was refused for another reason */
+  void refund(double cost) {
+    tokens = Math.min(capacity, tokens + cost);
+  }
+
+  boolean isFull(long nowNanos) {
+    refill(nowNanos);
+    return tokens >= capacity;
+  }
+
+  private void refill(long nowNanos) {
+    if (nowNanos > refilledAt) {
+      tokens = Math.min(capacity, tokens + (nowNanos - refilledAt) * tokensPerNano);
+      refilledAt = nowNanos;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.services.ego;
+
+/**
+ * An additive increase, multiplicative decrease concurrency limit. A call that took longer than the
+ * latency threshold, or failed because the server is struggling, shrinks the limit by the backoff
+ * ratio, at most once per round trip so one slow burst counts once. Calls within the threshold grow
+ * it by about one per round trip, but only while the limit is in use. Not thread safe, callers
+ * synchronize.
+ */
+final class AimdLimit {
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double backoffRatio;
+  private final long latencyThresholdNanos;
+
+  private double limit;
+  private long lastDecreaseAt;
+  private boolean decreased;
+
+  AimdLimit(
+      int initialLimit,
+      int minLimit,
+      int maxLimit,
+      double backoffRatio,
+      long latencyThresholdNanos) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.backoffRatio = backoffRatio;
+    this.latencyThresholdNanos = latencyThresholdNanos;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+  }
+
+  int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * @param nowNanos when the call completed
+   * @param rttNanos how long the call took
+   * @param inFlight calls running when it completed, itself included
+   * @param dropped whether the call failed because the server is overloaded or unreachable
+   */
+  void onSample(long nowNanos, long rttNanos, int inFlight, boolean dropped) {
+    if (dropped || rttNanos > latencyThresholdNanos) {
+      if (!decreased || nowNanos - lastDecreaseAt >= rttNanos) {
+        limit = Math.max(minLimit, limit * backoffRatio);
+        lastDecreaseAt = nowNanos;
+        decreased = true;
+      }
+    } else if (inFlight * 2 >= limit) {
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+  }
+}
@@ -45,8 +45,10 @@ public interface EgoClient {
 
   void deleteUserById(UUID userId);
 
+  /** Fetched page by page as the stream is consumed, close it to cancel a page fetched ahead */
   Stream<EgoUser> getUsersByGroupId(UUID groupId);
 
+  /** Fetched page by page as the stream is consumed, close it to cancel a page fetched ahead */
   Stream<EgoGroup> getGroupsByUserId(UUID userId);
 
   void deleteGroup(UUID egoGroupId);
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.services.ego;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import lombok.NonNull;
+import lombok.val;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.services.ego.model.exceptions.EgoException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Bounds the requests {@link EgoRESTClient} has in flight to Ego by an {@link AimdLimit}, which
+ * shrinks while Ego answers slowly or fails with server errors and timeouts, and grows again while
+ * it keeps up. Requests beyond the limit wait for a slot, and fail with an {@link EgoException}
+ * after the configured wait.
+ *
+ * <p>Exports the current limit, the requests in flight, the time spent waiting for a slot and the
+ * requests that gave up waiting under {@code program_service.ego.concurrency}.
+ */
+@Component
+public class EgoConcurrencyLimiter {
+
+  private final AppProperties.EgoConcurrencyProperties properties;
+  private final LongSupplier nanoTime;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition slotFreed = lock.newCondition();
+
+  /** Guarded by lock */
+  private final AimdLimit limit;
+
+  private int inFlight;
+
+  private final Timer queueTime;
+  private final Counter rejected;
+
+  @Autowired
+  public EgoConcurrencyLimiter(
+      @NonNull AppProperties appProperties, @NonNull MeterRegistry meterRegistry) {
+    this(appProperties, meterRegistry, System::nanoTime);
+  }
+
+  EgoConcurrencyLimiter(
+      AppProperties appProperties, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+    this.properties = appProperties.getEgoConcurrency();
+    this.nanoTime = nanoTime;
+    this.limit =
+        new AimdLimit(
+            properties.getInitialLimit(),
+            properties.getMinLimit(),
+            properties.getMaxLimit(),
+            properties.getBackoffRatio(),
+            TimeUnit.MILLISECONDS.toNanos(properties.getLatencyThresholdMs()));
+    Gauge.builder("program_service.ego.concurrency.limit", this, EgoConcurrencyLimiter::getLimit)
+        .description("Requests allowed in flight to Ego")
+        .register(meterRegistry);
+    Gauge.builder(
+            "program_service.ego.concurrency.in_flight", this, EgoConcurrencyLimiter::getInFlight)
+        .description("Requests in flight to Ego")
+        .register(meterRegistry);
+    this.queueTime =
+        Timer.builder("program_service.ego.concurrency.queue_time")
+            .description("Time requests to Ego waited for a slot")
+            .register(meterRegistry);
+    this.rejected =
+        Counter.builder("program_service.ego.concurrency.rejected")
+            .description("Requests to Ego that gave up waiting for a slot")
+            .register(meterRegistry);
+  }
+
+  /** Runs the request once a slot is free, feeding its latency back into the limit */
+  public <T> T call(@NonNull Supplier<T> request) {
+    if (!properties.getEnabled()) {
+      return request.get();
+    }
+    val permit = acquire();
+    boolean dropped = false;
+    try {
+      return request.get();
+    } catch (ResourceAccessException | HttpServerErrorException e) {
+      dropped = true;
+      throw e;
+    } finally {
+      permit.release(dropped);
+    }
+  }
+
+  public int getLimit() {
+    lock.lock();
+    try {
+      return limit.getLimit();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getInFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  Permit acquire() {
+    val start = nanoTime.getAsLong();
+    long remaining = TimeUnit.MILLISECONDS.toNanos(properties.getMaxQueueWaitMs());
+    lock.lock();
+    try {
+      while (inFlight >= limit.getLimit()) {
+        if (remaining <= 0) {
+          rejected.increment();
+          throw new EgoException("Too many concurrent requests to Ego, please retry later");
+        }
+        remaining = slotFreed.awaitNanos(remaining);
+      }
+      return admit();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EgoException("Interrupted while waiting for a request slot to Ego");
+    } finally {
+      lock.unlock();
+      queueTime.record(nanoTime.getAsLong() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private Permit admit() {
+    inFlight++;
+    return new Permit(nanoTime.getAsLong());
+  }
+
+  /** A slot taken by one request, released once */
+  class Permit {
+    private final long startedAt;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(long startedAt) {
+      this.startedAt = startedAt;
+    }
+
+    void release(boolean dropped) {
+      if (!released.compareAndSet(false, true)) {
+        return;
+      }
+      val now = nanoTime.getAsLong();
+      lock.lock();
+      try {
+        limit.onSample(now, now - startedAt, inFlight, dropped);
+        inFlight--;
+        slotFreed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services.ego;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.val;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Whether a user is in an Ego group, by group id and email. Both answers are remembered, a user
+ * found outside of a group for a shorter time since that is the answer a join is about to change.
+ * EgoService updates or drops entries for the membership changes it makes itself, and publishes
+ * them through the InvalidationBus so other instances drop theirs. Changes made in Ego directly are
+ * picked up once the entry expires.
+ */
+@Component
+public class EgoMembershipCache {
+
+  /** Dependencies */
+  private final AppProperties.EgoMembershipCacheProperties properties;
+
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  /** Bumped by every eviction, so loads can tell whether they raced one */
+  private final AtomicLong evictions = new AtomicLong();
+
+  @Autowired
+  public EgoMembershipCache(@NonNull AppProperties appProperties) {
+    this.properties = appProperties.getEgoMembershipCache();
+  }
+
+  public boolean isMember(
+      @NonNull UUID groupId, @NonNull String email, @NonNull BooleanSupplier loader) {
+    if (!properties.getEnabled()) {
+      return loader.getAsBoolean();
+    }
+    val key = new Key(groupId, email.toLowerCase(Locale.ROOT));
+    val now = System.currentTimeMillis();
+    val cached = entries.get(key);
+    if (cached != null && cached.getExpiresAt() > now) {
+      return cached.isMember();
+    }
+
+    val evictionsBefore = evictions.get();
+    val member = loader.getAsBoolean();
+    if (evictions.get() == evictionsBefore) {
+      remember(key, member, now);
+    }
+    return member;
+  }
+
+  /** The user was just added to the group */
+  public void joined(@NonNull UUID groupId, @NonNull String email) {
+    if (properties.getEnabled()) {
+      evictions.incrementAndGet();
+      remember(new Key(groupId, email.toLowerCase(Locale.ROOT)), true, System.currentTimeMillis());
+    }
+  }
+
+  /** Members were removed from or added to the group, Ego only tells us their user ids */
+  public void evictGroup(@NonNull UUID groupId) {
+    evictions.incrementAndGet();
+    entries.keySet().removeIf(key -> key.getGroupId().equals(groupId));
+  }
+
+  public void evictAll() {
+    evictions.incrementAndGet();
+    entries.clear();
+  }
+
+  private void remember(Key key, boolean member, long now) {
+    if (entries.size() >= properties.getMaxEntries()) {
+      entries.clear();
+    }
+    val ttl = member ? properties.getPositiveTtlMs() : properties.getNegativeTtlMs();
+    entries.put(key, new Entry(member, now + ttl));
+  }
+
+  @Value
+  private static class Key {
+    UUID groupId;
+    String email;
+  }
+
+  @Value
+  private static class Entry {
+    boolean member;
+    long expiresAt;
+  }
+}
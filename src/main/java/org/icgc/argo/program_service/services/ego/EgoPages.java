@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services.ego;
+
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.NonNull;
+import lombok.val;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoCollection;
+
+/**
+ * The items of an Ego listing, fetched page by page with limit and offset as the caller consumes
+ * them. At most the current page and, with prefetching, the one after it are held in memory.
+ *
+ * <p>When Ego reports the count, the listing ends once that many items were returned or on an empty
+ * page; Ego may return fewer items than asked for, so a short page alone does not end it. Without a
+ * count, a short or empty page ends the listing.
+ *
+ * <p>Callers that may stop before the end close the stream, which cancels a page fetched ahead.
+ */
+final class EgoPages<T> implements Iterator<T> {
+
+  /** Fetches the page starting at the given offset */
+  private final IntFunction<EgoCollection<T>> fetch;
+
+  private final int pageSize;
+
+  /** Fetches the next page while the current one is consumed, null to fetch on demand only */
+  private final Executor prefetchExecutor;
+
+  private Iterator<T> current = Collections.emptyIterator();
+  private int offset = 0;
+  private boolean last = false;
+  private CompletableFuture<EgoCollection<T>> prefetched;
+
+  private EgoPages(IntFunction<EgoCollection<T>> fetch, int pageSize, Executor prefetchExecutor) {
+    this.fetch = fetch;
+    this.pageSize = pageSize;
+    this.prefetchExecutor = prefetchExecutor;
+  }
+
+  static <T> Stream<T> stream(
+      @NonNull IntFunction<EgoCollection<T>> fetch, int pageSize, Executor prefetchExecutor) {
+    val pages = new EgoPages<>(fetch, pageSize, prefetchExecutor);
+    val spliterator = Spliterators.spliteratorUnknownSize(pages, ORDERED | NONNULL);
+    return StreamSupport.stream(spliterator, false).onClose(pages::close);
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!current.hasNext()) {
+      if (last) {
+        return false;
+      }
+      advance();
+    }
+    return true;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return current.next();
+  }
+
+  private void advance() {
+    val page = prefetched == null ? fetch.apply(offset) : join(prefetched);
+    prefetched = null;
+
+    List<T> items = page == null || page.getResultSet() == null ? List.of() : page.getResultSet();
+    offset += items.size();
+    val count = page == null ? null : page.getCount();
+    last = count == null ? items.size() < pageSize : items.isEmpty() || offset >= count;
+    current = items.iterator();
+
+    if (!last && prefetchExecutor != null) {
+      val nextOffset = offset;
+      prefetched = CompletableFuture.supplyAsync(() -> fetch.apply(nextOffset), prefetchExecutor);
+    }
+  }
+
+  /** Drops a prefetched page the caller did not get to, e.g. after findFirst */
+  private void close() {
+    if (prefetched != null) {
+      prefetched.cancel(false);
+      prefetched = null;
+    }
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      // Rethrow what fetching on the calling thread would have thrown
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
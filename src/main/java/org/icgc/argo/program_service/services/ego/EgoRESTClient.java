@@ -22,12 +22,17 @@ package org.icgc.argo.program_service.services.ego;
 
 import static java.lang.String.format;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.Context;
 import java.security.interfaces.RSAPublicKey;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
 import javax.validation.constraints.Email;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -35,6 +40,7 @@ import lombok.val;
 import org.icgc.argo.program_service.Utils;
 import org.icgc.argo.program_service.converter.CommonConverter;
 import org.icgc.argo.program_service.model.exceptions.NotFoundException;
+import org.icgc.argo.program_service.properties.AppProperties;
 import org.icgc.argo.program_service.services.ego.model.entity.*;
 import org.icgc.argo.program_service.services.ego.model.exceptions.ConflictException;
 import org.icgc.argo.program_service.services.ego.model.exceptions.EgoException;
@@ -57,16 +63,38 @@ public class EgoRESTClient implements EgoClient {
   private final RetryTemplate lenientRetryTemplate;
   private final RetryTemplate retryTemplate;
   private final CommonConverter commonConverter;
+  private final AppProperties.EgoPagingProperties pagingProperties;
+  private final EgoConcurrencyLimiter concurrencyLimiter;
+
+  /** Null when pages are only fetched on demand */
+  private final ExecutorService prefetchExecutor;
 
   public EgoRESTClient(
       RetryTemplate lenientRetryTemplate,
       RetryTemplate retryTemplate,
       RestTemplate restTemplate,
-      CommonConverter commonConverter) {
+      CommonConverter commonConverter,
+      AppProperties appProperties,
+      EgoConcurrencyLimiter concurrencyLimiter) {
     this.lenientRetryTemplate = lenientRetryTemplate;
     this.retryTemplate = retryTemplate;
     this.restTemplate = restTemplate;
     this.commonConverter = commonConverter;
+    this.pagingProperties = appProperties.getEgoPaging();
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.prefetchExecutor =
+        pagingProperties.getPrefetch()
+            ? Executors.newFixedThreadPool(
+                pagingProperties.getPrefetchThreads(),
+                new ThreadFactoryBuilder().setNameFormat("ego-prefetch-%d").setDaemon(true).build())
+            : null;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (prefetchExecutor != null) {
+      prefetchExecutor.shutdownNow();
+    }
   }
 
   @Override
@@ -76,7 +104,12 @@ public class EgoRESTClient implements EgoClient {
       log.info("Start fetching ego public key");
       String key =
           lenientRetryTemplate.execute(
-              x -> restTemplate.getForEntity("/oauth/token/public_key", String.class).getBody());
+              x ->
+                  concurrencyLimiter.call(
+                      () ->
+                          restTemplate
+                              .getForEntity("/oauth/token/public_key", String.class)
+                              .getBody()));
       log.info("Ego public key is fetched");
       egoPublicKey = (RSAPublicKey) Utils.getPublicKey(key, "RSA");
       return egoPublicKey;
@@ -92,16 +125,19 @@ public class EgoRESTClient implements EgoClient {
     retry(() -> restTemplate.postForObject(url, new HttpEntity<>(permissionRequests), List.class));
   }
 
+  /** Each attempt takes its own concurrency limiter slot, none is held while backing off */
   private <T> T retry(Supplier<T> supplier) {
-    return retryTemplate.execute(r -> supplier.get());
+    return retryTemplate.execute(r -> concurrencyLimiter.call(supplier));
   }
 
   private void retryRunnable(Runnable runnable) {
     retryTemplate.execute(
-        r -> {
-          runnable.run();
-          return r;
-        });
+        r ->
+            concurrencyLimiter.call(
+                () -> {
+                  runnable.run();
+                  return r;
+                }));
   }
 
   @Override
@@ -125,21 +161,36 @@ public class EgoRESTClient implements EgoClient {
     return createObject(user, EgoUser.class, "/users");
   }
 
+  /** The first item of a single request, as Ego returns it without paging parameters */
   private <T> Optional<T> getObject(
       String url, ParameterizedTypeReference<EgoCollection<T>> typeReference) {
-    return getObjects(url, typeReference).findFirst();
+    val collection = getCollection(url, typeReference);
+    if (collection != null && collection.getResultSet() != null) {
+      return collection.getResultSet().stream().findFirst();
+    }
+    return Optional.empty();
   }
 
+  /** All items of a listing, requested page by page as the stream is consumed */
   private <T> Stream<T> getObjects(
       String url, ParameterizedTypeReference<EgoCollection<T>> typeReference) {
+    val pageSize = pagingProperties.getPageSize();
+    val separator = url.contains("?") ? "&" : "?";
+    return EgoPages.stream(
+        offset ->
+            getCollection(
+                format("%s%slimit=%d&offset=%d", url, separator, pageSize, offset), typeReference),
+        pageSize,
+        // Pages fetched ahead run in the caller's context, e.g. its Ego request scope
+        prefetchExecutor == null ? null : Context.currentContextExecutor(prefetchExecutor));
+  }
+
+  private <T> EgoCollection<T> getCollection(
+      String url, ParameterizedTypeReference<EgoCollection<T>> typeReference) {
     try {
       ResponseEntity<EgoCollection<T>> responseEntity =
           retry(() -> restTemplate.exchange(url, HttpMethod.GET, null, typeReference));
-      val collection = responseEntity.getBody();
-      if (collection != null && collection.getResultSet() != null) {
-        return collection.getResultSet().stream();
-      }
-      return Stream.empty();
+      return responseEntity.getBody();
     } catch (HttpClientErrorException | HttpServerErrorException e) {
       log.error("Cannot get ego object {}", typeReference.getType(), e);
       throw new EgoException(e.getResponseBodyAsString());
@@ -258,11 +309,11 @@ public class EgoRESTClient implements EgoClient {
 
   @Override
   public boolean isMember(UUID groupId, String email) {
-    val user =
-        getObject(
+    // The query also matches users whose email merely contains this one
+    return getObjects(
             String.format("/groups/%s/users?query=%s", groupId, email),
-            new ParameterizedTypeReference<EgoCollection<EgoUser>>() {});
-    return user.isPresent();
+            new ParameterizedTypeReference<EgoCollection<EgoUser>>() {})
+        .anyMatch(user -> email.equalsIgnoreCase(user.getEmail()));
   }
 
   @Override
@@ -274,8 +325,12 @@ public class EgoRESTClient implements EgoClient {
   }
 
   public EgoPermission[] getUserResolvedPermissions(UUID userId) {
-    return restTemplate
-        .getForEntity(format("/users/%s/groups/permissions", userId), EgoPermission[].class)
-        .getBody();
+    val url = format("/users/%s/groups/permissions", userId);
+    try {
+      return retry(() -> restTemplate.getForEntity(url, EgoPermission[].class)).getBody();
+    } catch (HttpClientErrorException | HttpServerErrorException e) {
+      log.error("Cannot get resolved permissions of user {}", userId, e);
+      throw new EgoException(e.getResponseBodyAsString());
+    }
   }
 }
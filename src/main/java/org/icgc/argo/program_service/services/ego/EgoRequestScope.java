@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services.ego;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Ego lookups made while serving one gRPC call or HTTP request. The scope lives in the gRPC {@link
+ * Context} of the call, so it follows the call across threads and is gone with it. Code running
+ * outside of a call, like the provisioning workers, has no scope and always reads through.
+ *
+ * <p>The scope also decides when a cancelled call stops talking to Ego, see {@link
+ * #checkNotCancelled()}.
+ */
+public final class EgoRequestScope {
+
+  private static final Context.Key<EgoRequestScope> KEY = Context.key("egoRequestScope");
+
+  /** Results keyed by operation name followed by its arguments */
+  private final Map<List<Object>, Object> results = new ConcurrentHashMap<>();
+
+  /** Set by the first write to Ego, the call is not stopped from then on */
+  private volatile boolean written;
+
+  /** A child of the current context carrying a new, empty scope */
+  public static Context open() {
+    return Context.current().withValue(KEY, new EgoRequestScope());
+  }
+
+  public static Optional<EgoRequestScope> current() {
+    return Optional.ofNullable(KEY.get());
+  }
+
+  /**
+   * Throws CANCELLED when the current call was cancelled or ran past its deadline, as nobody waits
+   * for the answers of the Ego requests it is about to make. A call that already wrote to Ego is
+   * left to finish, so a chain of writes is never stopped halfway. Without a scope nothing is
+   * stopped.
+   */
+  static void checkNotCancelled() {
+    EgoRequestScope scope = KEY.get();
+    if (scope == null || scope.written) {
+      return;
+    }
+    Context context = Context.current();
+    if (context.isCancelled()) {
+      throw Status.CANCELLED
+          .withDescription("Call was cancelled before its request to Ego")
+          .withCause(context.cancellationCause())
+          .asRuntimeException();
+    }
+  }
+
+  /** Checks for cancellation before the first write of the call, but not between writes */
+  static void beforeWrite() {
+    checkNotCancelled();
+    current().ifPresent(scope -> scope.written = true);
+  }
+
+  @SuppressWarnings("unchecked")
+  <T> T get(List<Object> key, Supplier<T> loader) {
+    // Not computeIfAbsent, a loader may itself look up (and so insert) other keys
+    T result = (T) results.get(key);
+    if (result == null) {
+      result = loader.get();
+      if (result != null) {
+        results.put(key, result);
+      }
+    }
+    return result;
+  }
+
+  /** A remembered result, or null */
+  @SuppressWarnings("unchecked")
+  <T> T find(List<Object> key) {
+    return (T) results.get(key);
+  }
+
+  /** Adds a result learned from another lookup, unless one is already known */
+  void put(List<Object> key, Object result) {
+    results.putIfAbsent(key, result);
+  }
+
+  public void clear() {
+    results.clear();
+  }
+}
@@ -24,14 +24,17 @@ import static com.google.common.base.Preconditions.checkState;
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toUnmodifiableList;
 import static org.icgc.argo.program_service.proto.UserRole.ADMIN;
-import static org.icgc.argo.program_service.proto.UserRole.SUBMITTER;
 import static org.icgc.argo.program_service.services.ego.GroupName.createProgramGroupName;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.validation.constraints.Email;
@@ -47,6 +50,7 @@ import org.icgc.argo.program_service.proto.MembershipType;
 import org.icgc.argo.program_service.proto.User;
 import org.icgc.argo.program_service.proto.UserRole;
 import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
+import org.icgc.argo.program_service.services.InvalidationBus;
 import org.icgc.argo.program_service.services.ego.model.entity.*;
 import org.icgc.argo.program_service.services.ego.model.exceptions.EgoException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -63,18 +67,29 @@ public class EgoService {
   private final JoinProgramInviteRepository invitationRepository;
   private final AppProperties appProperties;
 
-  private static final String FULL_MEMBERSHIP_POLICY = "PROGRAMMEMBERSHIP-FULL";
-  private static final String ASSOCIATE_MEMBERSHIP_POLICY = "PROGRAMMEMBERSHIP-ASSOCIATE";
+  private static final Set<String> MEMBERSHIP_POLICIES =
+      Set.of(
+          ProgramPermissionPlan.FULL_MEMBERSHIP_POLICY,
+          ProgramPermissionPlan.ASSOCIATE_MEMBERSHIP_POLICY);
+
+  private final Map<String, UUID> membershipPolicyIds = new ConcurrentHashMap<>();
+
+  private final EgoMembershipCache membershipCache;
+  private final InvalidationBus invalidationBus;
 
   @Autowired
   public EgoService(
       @NonNull ProgramConverter programConverter,
       @NonNull EgoClient restClient,
       @NonNull JoinProgramInviteRepository invitationRepository,
+      @NonNull EgoMembershipCache membershipCache,
+      @NonNull InvalidationBus invalidationBus,
       @NonNull AppProperties appProperties) {
     this.programConverter = programConverter;
     this.egoClient = restClient;
     this.invitationRepository = invitationRepository;
+    this.membershipCache = membershipCache;
+    this.invalidationBus = invalidationBus;
     this.appProperties = appProperties;
   }
 
@@ -84,45 +99,6 @@ public class EgoService {
         .collect(Collectors.toList());
   }
 
-  public List<EgoGroupPermissionRequest> getPermissionsForProgram(@NonNull String shortName) {
-    List<EgoGroupPermissionRequest> requests = new ArrayList<>();
-
-    val programPolicy = "PROGRAM-" + shortName;
-    val dataPolicy = "PROGRAMDATA-" + shortName;
-
-    for (val role : roles()) {
-      requests.add(
-          new EgoGroupPermissionRequest(
-              groupName(shortName, role), programPolicy, getProgramMask(role)));
-      requests.add(
-          new EgoGroupPermissionRequest(groupName(shortName, role), dataPolicy, getDataMask(role)));
-    }
-
-    return requests;
-  }
-
-  public List<EgoGroupPermissionRequest> addMembershipPermissions(
-      @NonNull String shortName, @NonNull MembershipType membershipType) {
-    List<EgoGroupPermissionRequest> requests = new ArrayList<>();
-
-    // admin group and data submitter group must already exist in ego:
-    val adminGroup = getProgramEgoGroup(shortName, ADMIN).getName();
-    val submitterGroup = getProgramEgoGroup(shortName, SUBMITTER).getName();
-
-    if (membershipType.equals(MembershipType.FULL)) {
-      requests.add(new EgoGroupPermissionRequest(adminGroup, FULL_MEMBERSHIP_POLICY, "READ"));
-      requests.add(new EgoGroupPermissionRequest(submitterGroup, FULL_MEMBERSHIP_POLICY, "READ"));
-    } else if (membershipType.equals(MembershipType.ASSOCIATE)) {
-      requests.add(new EgoGroupPermissionRequest(adminGroup, ASSOCIATE_MEMBERSHIP_POLICY, "READ"));
-      requests.add(
-          new EgoGroupPermissionRequest(submitterGroup, ASSOCIATE_MEMBERSHIP_POLICY, "READ"));
-    } else
-      throw new IllegalArgumentException(
-          "Cannot create new group permission: Unrecognized Membership type.");
-
-    return requests;
-  }
-
   List<String> programGroupNames(String shortName) {
     return Stream.of(UserRole.values())
         .filter(role -> !role.equals(UserRole.UNRECOGNIZED))
@@ -130,16 +106,48 @@ public class EgoService {
         .collect(Collectors.toList());
   }
 
-  public void setUpProgram(@NonNull String shortName) {
-    val requests = getPermissionsForProgram(shortName);
-    egoClient.assignGroupPermissions(requests);
+  /** Sets up the group, data and membership permissions of a program in one Ego transaction */
+  public void setUpProgram(@NonNull String shortName, @NonNull MembershipType membershipType) {
+    applyPermissionPlan(ProgramPermissionPlan.setUp(shortName, membershipType));
   }
 
-  // Creates file metadata access control permissions
-  public void setUpMembershipPermissions(
-      @NonNull String shortName, @NonNull MembershipType membershipType) {
-    val requests = addMembershipPermissions(shortName, membershipType);
-    egoClient.assignGroupPermissions(requests);
+  public void updateMembershipPermissions(
+      @NonNull String shortName, @NonNull MembershipType from, @NonNull MembershipType to) {
+    applyPermissionPlan(ProgramPermissionPlan.changeMembership(shortName, from, to));
+  }
+
+  /**
+   * Grants before revoking, so members never lose access in between. The transaction endpoint only
+   * adds and updates permissions, revocations are deleted one at a time.
+   */
+  void applyPermissionPlan(@NonNull ProgramPermissionPlan plan) {
+    if (!plan.getGrants().isEmpty()) {
+      egoClient.assignGroupPermissions(plan.getGrants());
+    }
+    if (plan.getRevokes().isEmpty()) {
+      return;
+    }
+    val groupIds = new HashMap<String, UUID>();
+    for (val revoke : plan.getRevokes()) {
+      val groupId =
+          groupIds.computeIfAbsent(
+              revoke.getGroupName(),
+              name ->
+                  egoClient
+                      .getGroupByName(name)
+                      .orElseThrow(
+                          () -> new NotFoundException(format("Ego group '%s' not found.", name)))
+                      .getId());
+      deleteGroupPermission(policyId(revoke.getPolicyName()), groupId);
+    }
+  }
+
+  /** The membership policies are shared by all programs and never deleted, so their ids are kept */
+  private UUID policyId(String policyName) {
+    if (!MEMBERSHIP_POLICIES.contains(policyName)) {
+      return getPolicyByName(policyName).getId();
+    }
+    return membershipPolicyIds.computeIfAbsent(policyName, name -> getPolicyByName(name).getId());
   }
 
   public EgoMassDeleteRequest getProgramCleanupRequest(@NonNull String programShortName) {
@@ -195,7 +203,10 @@ public class EgoService {
       log.error("Cannot find ego user with email {}", userEmail);
       throw new EgoException(format("Cannot find ego user with email '%s' ", userEmail));
     }
-    val groups = egoClient.getGroupsByUserId(user.getId()).collect(toUnmodifiableList());
+    List<EgoGroup> groups;
+    try (Stream<EgoGroup> userGroups = egoClient.getGroupsByUserId(user.getId())) {
+      groups = userGroups.collect(toUnmodifiableList());
+    }
 
     NotFoundException.checkNotFound(
         !groups.isEmpty(), format("No groups found for user id %s.", userEmail));
@@ -207,11 +218,13 @@ public class EgoService {
     val programEgoGroup = getProgramEgoGroup(shortName, role);
     val egoGroupId = programEgoGroup.getId();
     egoClient.addUserToGroup(egoGroupId, user.getId());
+    invalidationBus.membershipChanged(egoGroupId);
   }
 
   void processUserWithGroup(UserRole role, EgoGroup group, UUID userId) {
     if (!isSameRole(role, group.getName())) {
       egoClient.removeUserFromGroup(group.getId(), userId);
+      invalidationBus.membershipChanged(group.getId());
     } else {
       log.error("Cannot update user role to {}, new role is the same as current role.", role);
       throw new IllegalArgumentException(
@@ -275,7 +288,14 @@ public class EgoService {
   }
 
   public List<User> getUsersInProgram(String programShortName) {
-    val userResults = new ArrayList<User>();
+    return getEgoUsersInProgram(programShortName).stream()
+        .map(programConverter::egoUserToUser)
+        .collect(Collectors.toList());
+  }
+
+  /** The Ego users of all program groups, with the role of the group they were found in */
+  public List<EgoUser> getEgoUsersInProgram(String programShortName) {
+    val userResults = new ArrayList<EgoUser>();
     for (val role : roles()) {
       if (UserRole.DEFAULT.equals(role)) {
         log.info("Skipping users fetch for DEFAULT role in program {}", programShortName);
@@ -294,12 +314,8 @@ public class EgoService {
       }
 
       val groupId = group.getId();
-      try {
-        egoClient
-            .getUsersByGroupId(groupId)
-            .map(egoUser -> egoUser.setRole(role))
-            .map(programConverter::egoUserToUser)
-            .forEach(userResults::add);
+      try (Stream<EgoUser> users = egoClient.getUsersByGroupId(groupId)) {
+        users.map(egoUser -> egoUser.setRole(role)).forEach(userResults::add);
       } catch (HttpClientErrorException | HttpServerErrorException e) {
         log.error(
             "Fail to retrieve users from ego group '{}': {}", groupId, e.getResponseBodyAsString());
@@ -312,6 +328,7 @@ public class EgoService {
 
   public void cleanUpProgram(@NonNull String programShortName) {
     egoClient.massDelete(getProgramCleanupRequest(programShortName));
+    invalidationBus.membershipsChanged();
     invitationRepository.deleteAllByProgramShortName(programShortName);
   }
 
@@ -333,8 +350,7 @@ public class EgoService {
     val programEgoGroup = getProgramEgoGroup(programShortName, role);
     val egoGroupId = programEgoGroup.getId();
 
-    val usersInGroup = egoClient.getUsersByGroupId(egoGroupId);
-    if (usersInGroup.anyMatch(egoUser -> egoUser.getEmail().equalsIgnoreCase(email))) {
+    if (isMember(egoGroupId, email)) {
       log.error(
           "User {} has already joined ego group {} for program {}.",
           email,
@@ -349,6 +365,8 @@ public class EgoService {
 
     try {
       egoClient.addUserToGroup(egoGroupId, user.getId());
+      invalidationBus.membershipChanged(egoGroupId);
+      membershipCache.joined(egoGroupId, email);
       log.info("{} joined program {}", email, programShortName);
     } catch (HttpClientErrorException | HttpServerErrorException e) {
       throw new EgoException(
@@ -357,6 +375,11 @@ public class EgoService {
     return true;
   }
 
+  /** Looks the user up in the group rather than listing all of its members */
+  boolean isMember(@NonNull UUID groupId, @Email String email) {
+    return membershipCache.isMember(groupId, email, () -> egoClient.isMember(groupId, email));
+  }
+
   public Boolean leaveProgram(@Email String email, String shortName) {
     val user = egoClient.getUser(email).orElse(null);
 
@@ -372,7 +395,9 @@ public class EgoService {
     String errors = "";
 
     try {
-      groups = egoClient.getGroupsByUserId(user.getId()).collect(Collectors.toList());
+      try (Stream<EgoGroup> userGroups = egoClient.getGroupsByUserId(user.getId())) {
+        groups = userGroups.collect(Collectors.toList());
+      }
     } catch (HttpClientErrorException | HttpServerErrorException e) {
       log.error(
           "Cannot get ego groups for user '{}': {}", user.getId(), e.getResponseBodyAsString());
@@ -394,6 +419,7 @@ public class EgoService {
     for (val group : programGroups) {
       try {
         egoClient.removeUserFromGroup(group.getId(), user.getId());
+        invalidationBus.membershipChanged(group.getId());
       } catch (HttpClientErrorException | HttpServerErrorException e) {
         log.error(
             "Cannot remove user {} from group {}: {}",
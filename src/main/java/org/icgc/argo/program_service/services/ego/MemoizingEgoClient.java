@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services.ego;
+
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+
+import io.grpc.Context;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.validation.constraints.Email;
+import lombok.NonNull;
+import lombok.val;
+import org.icgc.argo.program_service.services.ego.model.entity.*;
+import org.icgc.argo.program_service.utils.SingleFlight;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * Remembers Ego lookups for the rest of the current {@link EgoRequestScope}, so a lookup repeated
+ * within one request, e.g. fetching a user to check membership and again to check DACO approval,
+ * goes to Ego once. Any write forgets everything remembered, so later reads in the same request see
+ * its effect. Without a scope every call goes straight to Ego.
+ *
+ * <p>Concurrent identical reads, from any request, share one call to Ego. A read arriving after a
+ * write started through this client does not share a call started before it. A shared call runs
+ * detached from the cancellation of the request that started it, whether to wait for it is up to
+ * each request, see {@link EgoRequestScope#checkNotCancelled()}.
+ *
+ * <p>Listings, like the users of a group, are the exception: they stream page by page as the caller
+ * consumes them and are remembered only once read to the end, so a caller stopping early fetches
+ * just the pages it needed. They are not shared between concurrent reads.
+ *
+ * <p>Users are copied on the way out, callers set their role.
+ */
+@Primary
+@Service
+public class MemoizingEgoClient implements EgoClient {
+
+  /** Dependencies */
+  private final EgoRESTClient delegate;
+
+  private final SingleFlight<List<Object>> reads;
+
+  /** Bumped before and after every write, and part of the key of every shared read */
+  private final AtomicLong writes = new AtomicLong();
+
+  @Autowired
+  public MemoizingEgoClient(@NonNull EgoRESTClient delegate, @NonNull MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.reads = new SingleFlight<>("ego_reads", meterRegistry);
+  }
+
+  @Override
+  public RSAPublicKey getPublicKey() {
+    return shared(List.of("getPublicKey"), delegate::getPublicKey);
+  }
+
+  @Override
+  public Optional<EgoGroup> getGroupByName(String groupName) {
+    return read(List.of("getGroupByName", groupName), () -> delegate.getGroupByName(groupName));
+  }
+
+  @Override
+  public Optional<EgoUser> getUser(@Email String email) {
+    return read(List.of("getUser", email), () -> delegate.getUser(email))
+        .map(MemoizingEgoClient::copy);
+  }
+
+  @Override
+  public EgoUser getUserById(UUID userId) {
+    return copy(read(List.of("getUserById", userId), () -> delegate.getUserById(userId)));
+  }
+
+  @Override
+  public Stream<EgoUser> getUsersByGroupId(UUID groupId) {
+    val scope = EgoRequestScope.current();
+    return readAll(List.of("getUsersByGroupId", groupId), () -> delegate.getUsersByGroupId(groupId))
+        // The members are the same users a lookup by their email would return
+        .peek(user -> scope.ifPresent(s -> primeUser(s, user)))
+        .map(MemoizingEgoClient::copy);
+  }
+
+  @Override
+  public Stream<EgoGroup> getGroupsByUserId(UUID userId) {
+    return readAll(List.of("getGroupsByUserId", userId), () -> delegate.getGroupsByUserId(userId));
+  }
+
+  @Override
+  public Optional<EgoPolicy> getPolicyByName(String name) {
+    return read(List.of("getPolicyByName", name), () -> delegate.getPolicyByName(name));
+  }
+
+  @Override
+  public boolean isMember(UUID groupId, String email) {
+    return read(List.of("isMember", groupId, email), () -> delegate.isMember(groupId, email));
+  }
+
+  @Override
+  public EgoPermission[] getGroupPermissions(UUID groupId) {
+    return read(
+            List.of("getGroupPermissions", groupId), () -> delegate.getGroupPermissions(groupId))
+        .clone();
+  }
+
+  @Override
+  public EgoPermission[] getUserResolvedPermissions(UUID userId) {
+    val permissions =
+        read(
+            List.of("getUserResolvedPermissions", userId),
+            () -> delegate.getUserResolvedPermissions(userId));
+    return permissions == null ? null : permissions.clone();
+  }
+
+  @Override
+  public void assignGroupPermissions(List<EgoGroupPermissionRequest> permissionRequests) {
+    write(() -> delegate.assignGroupPermissions(permissionRequests));
+  }
+
+  @Override
+  public void massDelete(EgoMassDeleteRequest request) {
+    write(() -> delegate.massDelete(request));
+  }
+
+  @Override
+  public EgoUser createEgoUser(String email, String firstname, String lastname) {
+    return write(() -> delegate.createEgoUser(email, firstname, lastname));
+  }
+
+  @Override
+  public void deleteUserById(UUID userId) {
+    write(() -> delegate.deleteUserById(userId));
+  }
+
+  @Override
+  public void deleteGroup(UUID egoGroupId) {
+    write(() -> delegate.deleteGroup(egoGroupId));
+  }
+
+  @Override
+  public void deletePolicy(UUID policyId) {
+    write(() -> delegate.deletePolicy(policyId));
+  }
+
+  @Override
+  public void deleteGroupPermission(UUID policyId, UUID groupId) {
+    write(() -> delegate.deleteGroupPermission(policyId, groupId));
+  }
+
+  @Override
+  public void removePolicyByName(String name) {
+    write(() -> delegate.removePolicyByName(name));
+  }
+
+  @Override
+  public void addUserToGroup(UUID egoGroupId, UUID egoUserId) {
+    write(() -> delegate.addUserToGroup(egoGroupId, egoUserId));
+  }
+
+  @Override
+  public void removeUserFromGroup(UUID egoGroupId, UUID userId) {
+    write(() -> delegate.removeUserFromGroup(egoGroupId, userId));
+  }
+
+  private <T> T read(List<Object> key, Supplier<T> loader) {
+    Supplier<T> shared = () -> shared(key, loader);
+    return EgoRequestScope.current().map(scope -> scope.get(key, shared)).orElseGet(shared);
+  }
+
+  /**
+   * Streams a listing from Ego, remembering its items for the request once the caller read all of
+   * them, unless a write happened meanwhile. A listing read only partly is fetched again next time.
+   */
+  private <T> Stream<T> readAll(List<Object> key, Supplier<Stream<T>> loader) {
+    val scope = EgoRequestScope.current();
+    if (scope.isEmpty()) {
+      EgoRequestScope.checkNotCancelled();
+      return loader.get();
+    }
+    List<T> remembered = scope.get().find(key);
+    if (remembered != null) {
+      return remembered.stream();
+    }
+
+    EgoRequestScope.checkNotCancelled();
+    val writesBefore = writes.get();
+    val source = loader.get();
+    val items = source.iterator();
+    val seen = new ArrayList<T>();
+    Iterator<T> recording =
+        new Iterator<T>() {
+          @Override
+          public boolean hasNext() {
+            val more = items.hasNext();
+            if (!more && writes.get() == writesBefore) {
+              scope.get().put(key, List.copyOf(seen));
+            }
+            return more;
+          }
+
+          @Override
+          public T next() {
+            val item = items.next();
+            seen.add(item);
+            return item;
+          }
+        };
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(recording, ORDERED | NONNULL), false)
+        .onClose(source::close);
+  }
+
+  private <T> T shared(List<Object> key, Supplier<T> loader) {
+    EgoRequestScope.checkNotCancelled();
+    return reads.execute(List.of(writes.get(), key), () -> detached(loader));
+  }
+
+  /** Runs in a context with the same values, but not cancelled with the current one */
+  private static <T> T detached(Supplier<T> loader) {
+    val context = Context.current().fork();
+    val previous = context.attach();
+    try {
+      return loader.get();
+    } finally {
+      context.detach(previous);
+    }
+  }
+
+  private void write(Runnable write) {
+    write(
+        () -> {
+          write.run();
+          return null;
+        });
+  }
+
+  /** Forgets before and after, the write may have partially applied when it fails */
+  private <T> T write(Supplier<T> write) {
+    EgoRequestScope.beforeWrite();
+    writes.incrementAndGet();
+    forget();
+    try {
+      return write.get();
+    } finally {
+      forget();
+      writes.incrementAndGet();
+    }
+  }
+
+  private static void forget() {
+    EgoRequestScope.current().ifPresent(EgoRequestScope::clear);
+  }
+
+  private static void primeUser(EgoRequestScope scope, EgoUser user) {
+    if (user.getEmail() != null) {
+      scope.put(List.of("getUser", user.getEmail()), Optional.of(user));
+    }
+  }
+
+  private static EgoUser copy(EgoUser user) {
+    if (user == null) {
+      return null;
+    }
+    return new EgoUser(
+        user.getId(),
+        user.getEmail(),
+        user.getFirstName(),
+        user.getType(),
+        user.getStatus(),
+        user.getLastName(),
+        user.getRole());
+  }
+}
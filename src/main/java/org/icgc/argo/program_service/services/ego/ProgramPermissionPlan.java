@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services.ego;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.icgc.argo.program_service.proto.UserRole.ADMIN;
+import static org.icgc.argo.program_service.proto.UserRole.SUBMITTER;
+import static org.icgc.argo.program_service.services.ego.GroupName.createProgramGroupName;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.val;
+import org.icgc.argo.program_service.proto.MembershipType;
+import org.icgc.argo.program_service.proto.UserRole;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoGroupPermissionRequest;
+
+/**
+ * The changes that bring the Ego permissions of a program from one state to another. Grants hold
+ * the complete desired state, since the Ego transaction endpoint creates missing groups and
+ * policies and overwrites existing masks, so applying them is one idempotent call that also repairs
+ * drift. Revokes are the permissions of the previous state that the desired one no longer has.
+ */
+@Value
+public class ProgramPermissionPlan {
+
+  public static final String FULL_MEMBERSHIP_POLICY = "PROGRAMMEMBERSHIP-FULL";
+  public static final String ASSOCIATE_MEMBERSHIP_POLICY = "PROGRAMMEMBERSHIP-ASSOCIATE";
+
+  List<EgoGroupPermissionRequest> grants;
+  List<EgoGroupPermissionRequest> revokes;
+
+  /** Sets up a program that has nothing in Ego yet */
+  public static ProgramPermissionPlan setUp(
+      @NonNull String shortName, @NonNull MembershipType membershipType) {
+    return new ProgramPermissionPlan(desiredPermissions(shortName, membershipType), List.of());
+  }
+
+  /** Moves a program from one membership type to another */
+  public static ProgramPermissionPlan changeMembership(
+      @NonNull String shortName, @NonNull MembershipType from, @NonNull MembershipType to) {
+    val previous = desiredPermissions(shortName, from);
+    val desired = desiredPermissions(shortName, to);
+
+    // A permission whose mask changed is overwritten by the grant, only the missing ones go
+    val desiredKeys = desired.stream().map(ProgramPermissionPlan::key).collect(toSet());
+    val revokes = previous.stream().filter(p -> !desiredKeys.contains(key(p))).collect(toList());
+    return new ProgramPermissionPlan(desired, revokes);
+  }
+
+  /**
+   * Every group permission a program needs: each role's mask on the program and program data
+   * policies, and the membership policy of the admin and submitter groups.
+   */
+  public static List<EgoGroupPermissionRequest> desiredPermissions(
+      @NonNull String shortName, @NonNull MembershipType membershipType) {
+    val programPolicy = "PROGRAM-" + shortName;
+    val dataPolicy = "PROGRAMDATA-" + shortName;
+
+    val permissions = new ArrayList<EgoGroupPermissionRequest>();
+    for (val role : EgoService.roles()) {
+      val group = groupName(shortName, role);
+      permissions.add(
+          new EgoGroupPermissionRequest(group, programPolicy, EgoService.getProgramMask(role)));
+      permissions.add(
+          new EgoGroupPermissionRequest(group, dataPolicy, EgoService.getDataMask(role)));
+    }
+
+    val membershipPolicy = membershipPolicy(membershipType);
+    permissions.add(
+        new EgoGroupPermissionRequest(groupName(shortName, ADMIN), membershipPolicy, "READ"));
+    permissions.add(
+        new EgoGroupPermissionRequest(groupName(shortName, SUBMITTER), membershipPolicy, "READ"));
+    return permissions;
+  }
+
+  public static String membershipPolicy(@NonNull MembershipType membershipType) {
+    switch (membershipType) {
+      case FULL:
+        return FULL_MEMBERSHIP_POLICY;
+      case ASSOCIATE:
+        return ASSOCIATE_MEMBERSHIP_POLICY;
+      default:
+        throw new IllegalArgumentException(
+            "Cannot create new group permission: Unrecognized Membership type.");
+    }
+  }
+
+  private static String groupName(String shortName, UserRole role) {
+    return createProgramGroupName(shortName, role).toString();
+  }
+
+  private static List<String> key(EgoGroupPermissionRequest permission) {
+    return List.of(permission.getGroupName(), permission.getPolicyName());
+  }
+}
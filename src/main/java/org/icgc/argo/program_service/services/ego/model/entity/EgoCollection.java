@@ -35,4 +35,7 @@ public class EgoCollection<T> {
   @JsonProperty Integer limit;
 
   @JsonProperty Integer offset;
+
+  /** Total number of results across all pages */
+  @JsonProperty Long count;
 }
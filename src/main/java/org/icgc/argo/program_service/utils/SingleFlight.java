@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.utils;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import lombok.NonNull;
+import lombok.val;
+
+/**
+ * Lets concurrent callers asking for the same key share one computation: the first caller runs it
+ * on its own thread, callers arriving while it runs wait for and get the same result or exception.
+ * Nothing is kept once the computation completes, so later callers compute again.
+ *
+ * <p>Results are shared between threads and must not be modified by callers. Callers that must not
+ * see a result computed before some change, e.g. a write, put a generation into the key.
+ *
+ * <p>A waiting caller stops waiting at the deadline of its gRPC {@link Context}, or once that
+ * context is cancelled, with DEADLINE_EXCEEDED or CANCELLED. The computation keeps running for the
+ * caller that started it and anyone else still waiting.
+ *
+ * <p>Counts calls in {@code program_service.single_flight.calls}, tagged with the flight name and
+ * whether the call {@code executed} or was {@code coalesced} into another one.
+ */
+public class SingleFlight<K> {
+
+  private final Map<K, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final Counter executed;
+  private final Counter coalesced;
+
+  public SingleFlight(@NonNull String name, @NonNull MeterRegistry meterRegistry) {
+    this.executed = counter(name, "executed", meterRegistry);
+    this.coalesced = counter(name, "coalesced", meterRegistry);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <V> V execute(@NonNull K key, @NonNull Supplier<V> computation) {
+    val flight = new CompletableFuture<Object>();
+    val running = inFlight.putIfAbsent(key, flight);
+    if (running != null) {
+      coalesced.increment();
+      return (V) await(running);
+    }
+
+    executed.increment();
+    try {
+      val result = computation.get();
+      flight.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, flight);
+    }
+  }
+
+  private static Object await(CompletableFuture<Object> flight) {
+    val context = Context.current();
+    // A copy to give up on, completing the shared flight would end it for everyone
+    val waiting = flight.thenApply(result -> result);
+    Context.CancellationListener onCancel =
+        cancelled ->
+            waiting.completeExceptionally(
+                Contexts.statusFromCancelled(cancelled).asRuntimeException());
+    context.addListener(onCancel, MoreExecutors.directExecutor());
+    try {
+      val deadline = context.getDeadline();
+      if (deadline == null) {
+        return waiting.get();
+      }
+      return waiting.get(deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      throw Status.DEADLINE_EXCEEDED
+          .withDescription("Deadline exceeded while waiting for a shared computation")
+          .asRuntimeException();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Status.CANCELLED
+          .withDescription("Interrupted while waiting for a shared computation")
+          .withCause(e)
+          .asRuntimeException();
+    } catch (ExecutionException e) {
+      // Rethrow what the computation threw, as if it ran on this thread
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      context.removeListener(onCancel);
+    }
+  }
+
+  private static Counter counter(String name, String outcome, MeterRegistry meterRegistry) {
+    return Counter.builder("program_service.single_flight.calls")
+        .description("Calls to a single flight, executed or coalesced into a running one")
+        .tag("flight", name)
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+}
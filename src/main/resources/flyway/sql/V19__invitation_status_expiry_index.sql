@@ -0,0 +1 @@
+CREATE INDEX idx_join_program_invite_status_expires ON join_program_invite(status, expires_at);
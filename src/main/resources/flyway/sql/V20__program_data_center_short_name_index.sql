@@ -0,0 +1 @@
+CREATE INDEX idx_program_data_center_short_name ON program(data_center_id, short_name);
@@ -0,0 +1,8 @@
+-- The primary keys lead with program_id; these serve lookups from the association side
+CREATE INDEX idx_program_cancer_cancer ON program_cancer(cancer_id, program_id);
+CREATE INDEX idx_program_country_country ON program_country(country_id, program_id);
+CREATE INDEX idx_program_primary_site_primary_site ON program_primary_site(primary_site_id, program_id);
+
+-- Keyset paged listings of active programs, optionally by membership type
+CREATE INDEX idx_program_active_short_name ON program(active, short_name);
+CREATE INDEX idx_program_membership_short_name ON program(membership_type, short_name) WHERE active;
@@ -0,0 +1,6 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Case-insensitive substring search (LIKE '%term%' on lower(...))
+CREATE INDEX idx_institution_name_trgm ON institution USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX idx_program_short_name_trgm ON program USING gin (lower(short_name) gin_trgm_ops);
+CREATE INDEX idx_program_name_trgm ON program USING gin (lower(name) gin_trgm_ops);
@@ -0,0 +1,10 @@
+-- Append-only log of program, membership and data center changes, written in the same transaction
+-- as the change itself. Ids are handed out in commit order, see ChangeLogService.
+CREATE TABLE change_log (
+  id                           BIGSERIAL PRIMARY KEY,
+  type                         VARCHAR(64) NOT NULL,
+  program_short_name           VARCHAR(255),
+  previous_program_short_name  VARCHAR(255),
+  data_center_short_name       VARCHAR(255),
+  created_at                   TIMESTAMP NOT NULL
+);
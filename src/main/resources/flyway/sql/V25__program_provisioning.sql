@@ -0,0 +1,20 @@
+-- Programs created before provisioning moved out of the request transaction are fully set up in Ego.
+ALTER TABLE program ADD COLUMN provisioning_status VARCHAR(32) NOT NULL DEFAULT 'PROVISIONED';
+
+-- Progress of the Ego setup of a program, see ProgramProvisioner. A row is removed once the program
+-- is provisioned, and kept with a null next_attempt_at once a failed setup was compensated.
+CREATE TABLE program_provisioning (
+  program_id       UUID PRIMARY KEY REFERENCES program (id) ON DELETE CASCADE,
+  -- SET_UP_PERMISSIONS, INVITE_ADMINS, COMPENSATE or COMPENSATED
+  step             VARCHAR(32) NOT NULL,
+  admins           TEXT NOT NULL,
+  admins_invited   INTEGER NOT NULL DEFAULT 0,
+  attempts         INTEGER NOT NULL DEFAULT 0,
+  next_attempt_at  TIMESTAMP,
+  last_error       TEXT,
+  created_at       TIMESTAMP NOT NULL,
+  updated_at       TIMESTAMP NOT NULL
+);
+
+CREATE INDEX program_provisioning_next_attempt_at_idx
+  ON program_provisioning (next_attempt_at) WHERE next_attempt_at IS NOT NULL;
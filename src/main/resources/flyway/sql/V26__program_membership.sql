@@ -0,0 +1,30 @@
+-- Local copy of the program members held in Ego, see ProgramMembershipMirror. Written by the join,
+-- leave and role update paths and reconciled against Ego in the background.
+CREATE TABLE program_membership (
+  program_id       UUID NOT NULL REFERENCES program (id) ON DELETE CASCADE,
+  user_id          UUID NOT NULL,
+  email            VARCHAR(255) NOT NULL,
+  first_name       VARCHAR(255),
+  last_name        VARCHAR(255),
+  role             VARCHAR(32) NOT NULL,
+  -- Null until the DACO approval of a member who just joined was looked up, after the join commits
+  daco_approved    BOOLEAN,
+  daco_checked_at  TIMESTAMP,
+  synced_at        TIMESTAMP NOT NULL,
+  PRIMARY KEY (program_id, user_id)
+);
+
+-- ListUsers pages through a program's members by email, in the same byte order as the pending
+-- invitations it merges them with
+CREATE INDEX program_membership_program_id_email_idx
+  ON program_membership (program_id, email COLLATE "C");
+
+-- When each program's members were last reconciled against Ego. Programs without a synced_at have
+-- never been reconciled, so their listing is read from Ego.
+CREATE TABLE program_membership_sync (
+  program_id    UUID PRIMARY KEY REFERENCES program (id) ON DELETE CASCADE,
+  synced_at     TIMESTAMP,
+  next_sync_at  TIMESTAMP NOT NULL
+);
+
+CREATE INDEX program_membership_sync_next_sync_at_idx ON program_membership_sync (next_sync_at);
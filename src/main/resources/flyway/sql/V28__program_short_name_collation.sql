@@ -0,0 +1,5 @@
+-- Keyset paging compares short names in SQL and hands the last one back as the page token. The
+-- default collation of the database orders by locale rules, ignoring case and punctuation at first,
+-- which does not match the plain character order the rest of the code assumes. Changing the column
+-- collation rebuilds every index on it, so the paged listings stay index range scans.
+ALTER TABLE program ALTER COLUMN short_name TYPE VARCHAR(255) COLLATE "C";
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.controller;
+
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.proto.MembershipType.FULL;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.google.protobuf.StringValue;
+import lombok.val;
+import org.icgc.argo.program_service.services.ProgramService;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** GET /programs/{shortName} built for every request, with the snapshot cache off */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProgramControllerIT {
+
+  @Autowired MockMvc mockMvc;
+
+  @Autowired ProgramService programService;
+
+  @Autowired EntityGenerator generator;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final String shortName = randomAlphabetic(8).toUpperCase() + "-CA";
+
+  @BeforeEach
+  void setUp() {
+    val dataCenterId = generator.setUpDataCenter("TEST-DC").getId();
+    new TransactionTemplate(transactionManager)
+        .executeWithoutResult(
+            status ->
+                programService.createProgram(
+                    generator.createProgram(StringValue.of(shortName), FULL), dataCenterId));
+  }
+
+  @AfterEach
+  void cleanUp() {
+    new TransactionTemplate(transactionManager)
+        .executeWithoutResult(status -> programService.removeProgram(shortName));
+  }
+
+  @Test
+  void getProgram() throws Exception {
+    val etag =
+        mockMvc
+            .perform(get("/programs/" + shortName).header(HttpHeaders.AUTHORIZATION, "Bearer test"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+            .andExpect(jsonPath("$.program.shortName").value(shortName))
+            .andExpect(jsonPath("$.program.dataCenter.shortName").value("TEST-DC"))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+    mockMvc
+        .perform(
+            get("/programs/" + shortName)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer test")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+  }
+}
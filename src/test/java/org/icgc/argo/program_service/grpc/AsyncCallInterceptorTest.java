@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.grpc;
+
+import static org.junit.Assert.*;
+
+import com.google.protobuf.Empty;
+import io.grpc.*;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcCleanupRule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import lombok.val;
+import org.icgc.argo.program_service.grpc.interceptor.AdmissionInterceptor;
+import org.icgc.argo.program_service.grpc.interceptor.AsyncCallInterceptor;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.proto.ListCancersResponse;
+import org.icgc.argo.program_service.proto.ProgramServiceGrpc;
+import org.icgc.argo.program_service.proto.ProgramServiceGrpc.ProgramServiceImplBase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+// GrpcCleanupRule only works with junit 4
+public class AsyncCallInterceptorTest {
+
+  private static final Context.Key<String> CALLER = Context.key("caller");
+
+  @Rule public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+  private final AppProperties appProperties = new AppProperties();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private final AtomicInteger handled = new AtomicInteger();
+  private final AtomicReference<String> handlerThread = new AtomicReference<>();
+  private final AtomicReference<String> handlerCaller = new AtomicReference<>();
+  private final AtomicReference<Deadline> handlerDeadline = new AtomicReference<>();
+
+  /** Holds handlers until released */
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private boolean blockHandlers;
+  private String serverName;
+  private Channel channel;
+
+  @Before
+  public void setUp() {
+    appProperties.getGrpcExecutor().setThreads(1);
+    appProperties.getGrpcExecutor().setQueueCapacity(1);
+    serverName = InProcessServerBuilder.generateName();
+    channel =
+        grpcCleanup.register(InProcessChannelBuilder.forName(serverName).directExecutor().build());
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+  }
+
+  @Test
+  public void unaryCall_runsOnBusinessThreadInCallContext() throws Exception {
+    startServer();
+
+    ProgramServiceGrpc.newBlockingStub(channel)
+        .withDeadlineAfter(1, TimeUnit.MINUTES)
+        .listCancers(Empty.getDefaultInstance());
+
+    assertTrue(handlerThread.get().startsWith("grpc-call-"));
+    assertEquals("someone", handlerCaller.get());
+    assertNotNull(handlerDeadline.get());
+  }
+
+  @Test
+  public void unaryCall_poolAndQueueFull_isRefused() throws Exception {
+    blockHandlers = true;
+    startServer();
+    val stub = ProgramServiceGrpc.newFutureStub(channel);
+
+    val running = stub.listCancers(Empty.getDefaultInstance());
+    await(() -> handled.get() == 1);
+    val queued = stub.listCancers(Empty.getDefaultInstance());
+    await(() -> gauge("program_service.grpc.executor.queued") == 1);
+
+    val blockingStub = ProgramServiceGrpc.newBlockingStub(channel);
+    val e =
+        assertThrows(
+            StatusRuntimeException.class,
+            () -> blockingStub.listCancers(Empty.getDefaultInstance()));
+    assertEquals(Status.Code.RESOURCE_EXHAUSTED, e.getStatus().getCode());
+    assertEquals("1000", e.getTrailers().get(AdmissionInterceptor.RETRY_AFTER_MS));
+    assertEquals(1, dropped("rejected"), 0);
+
+    release.countDown();
+    assertNotNull(running.get(5, TimeUnit.SECONDS));
+    assertNotNull(queued.get(5, TimeUnit.SECONDS));
+    assertEquals(2, handled.get());
+  }
+
+  @Test
+  public void unaryCall_deadlinePassedWhileQueued_isNotStarted() throws Exception {
+    blockHandlers = true;
+    startServer();
+    val stub = ProgramServiceGrpc.newFutureStub(channel);
+
+    val running = stub.listCancers(Empty.getDefaultInstance());
+    await(() -> handled.get() == 1);
+
+    val e =
+        assertThrows(
+            StatusRuntimeException.class,
+            () ->
+                ProgramServiceGrpc.newBlockingStub(channel)
+                    .withDeadlineAfter(100, TimeUnit.MILLISECONDS)
+                    .listCancers(Empty.getDefaultInstance()));
+    assertEquals(Status.Code.DEADLINE_EXCEEDED, e.getStatus().getCode());
+
+    release.countDown();
+    assertNotNull(running.get(5, TimeUnit.SECONDS));
+    await(() -> dropped("cancelled") == 1);
+    assertEquals(1, handled.get());
+  }
+
+  private void startServer() throws Exception {
+    val service =
+        new ProgramServiceImplBase() {
+          @Override
+          public void listCancers(
+              Empty request, StreamObserver<ListCancersResponse> responseObserver) {
+            handled.incrementAndGet();
+            handlerThread.set(Thread.currentThread().getName());
+            handlerCaller.set(CALLER.get());
+            handlerDeadline.set(Context.current().getDeadline());
+            if (blockHandlers) {
+              try {
+                release.await(5, TimeUnit.SECONDS);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+            responseObserver.onNext(ListCancersResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+          }
+        };
+    // Stands in for the interceptors setting up the call context, which run before
+    ServerInterceptor callerInterceptor =
+        new ServerInterceptor() {
+          @Override
+          public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+              ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+            return Contexts.interceptCall(
+                Context.current().withValue(CALLER, "someone"), call, headers, next);
+          }
+        };
+
+    grpcCleanup.register(
+        InProcessServerBuilder.forName(serverName)
+            .directExecutor()
+            .addService(
+                ServerInterceptors.intercept(
+                    service, new AsyncCallInterceptor(appProperties, registry), callerInterceptor))
+            .build()
+            .start());
+  }
+
+  private double gauge(String name) {
+    return registry.get(name).gauge().value();
+  }
+
+  private double dropped(String reason) {
+    return registry
+        .get("program_service.grpc.executor.dropped")
+        .tag("reason", reason)
+        .counter()
+        .count();
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    val deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean()) {
+      assertTrue("timed out waiting", System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+}
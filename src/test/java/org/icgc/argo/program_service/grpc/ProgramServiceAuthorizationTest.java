@@ -28,7 +28,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
-import com.google.protobuf.Empty;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.Int32Value;
 import com.google.protobuf.StringValue;
 import io.grpc.*;
@@ -38,6 +38,7 @@ import io.grpc.stub.MetadataUtils;
 import io.grpc.testing.GrpcCleanupRule;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
 import java.security.Key;
 import java.security.interfaces.RSAPublicKey;
@@ -59,11 +60,19 @@ import org.icgc.argo.program_service.model.entity.CountryEntity;
 import org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity;
 import org.icgc.argo.program_service.model.entity.ProgramEntity;
 import org.icgc.argo.program_service.model.join.ProgramCountry;
+import org.icgc.argo.program_service.properties.AppProperties;
 import org.icgc.argo.program_service.proto.*;
 import org.icgc.argo.program_service.security.EgoSecurity;
+import org.icgc.argo.program_service.services.ChangeLogService;
+import org.icgc.argo.program_service.services.ChangeWatcher;
 import org.icgc.argo.program_service.services.InvitationService;
+import org.icgc.argo.program_service.services.ProgramMembershipMirror;
+import org.icgc.argo.program_service.services.ProgramProvisioner;
 import org.icgc.argo.program_service.services.ProgramService;
 import org.icgc.argo.program_service.services.ProgramServiceFacade;
+import org.icgc.argo.program_service.services.ProgramSnapshotCache;
+import org.icgc.argo.program_service.services.ReferenceDataCache;
+import org.icgc.argo.program_service.services.SearchService;
 import org.icgc.argo.program_service.services.ValidationService;
 import org.icgc.argo.program_service.services.auth.EgoAuthorizationService;
 import org.icgc.argo.program_service.services.ego.Context;
@@ -143,6 +152,8 @@ public class ProgramServiceAuthorizationTest {
     when(programService.createWithSideEffect(any(), any())).thenReturn(entity());
     when(programService.getProgram(programName().getValue())).thenReturn(entity());
     when(programService.getProgram(programName().getValue(), false)).thenReturn(entity());
+    when(programService.getProgramWithoutAssociations(programName().getValue()))
+        .thenReturn(entity());
     when(programService.listPrograms()).thenReturn(List.of(entity(), entity2(), entity3()));
 
     ValidationService v = mock(ValidationService.class);
@@ -157,9 +168,21 @@ public class ProgramServiceAuthorizationTest {
             grpc2JsonConverter,
             dataCenterConverter,
             commonConverter,
-            v);
-
-    val service = new ProgramServiceImpl(commonConverter, authorizationService, facade);
+            v,
+            mock(SearchService.class),
+            new ReferenceDataCache(new AppProperties()),
+            mock(ChangeLogService.class),
+            mock(ProgramProvisioner.class),
+            mock(ProgramMembershipMirror.class));
+
+    val service =
+        new ProgramServiceImpl(
+            commonConverter,
+            authorizationService,
+            facade,
+            new ProgramSnapshotCache(
+                new AppProperties(), new ObjectMapper(), new SimpleMeterRegistry()),
+            mock(ChangeWatcher.class));
 
     val serverName = InProcessServerBuilder.generateName();
     ManagedChannel channel =
@@ -208,7 +231,7 @@ public class ProgramServiceAuthorizationTest {
                 "getProgram", () -> client.getProgram(getProgramRequest())), // 8  Program User
             EndpointTest.of(
                 "listProgram",
-                () -> client.listPrograms(Empty.getDefaultInstance())), // 9-10 Public
+                () -> client.listPrograms(ListProgramsRequest.getDefaultInstance())), // 9-10 Public
             EndpointTest.of("joinProgram", () -> client.joinProgram(joinProgramRequest())));
 
     val t = new AuthorizationTest(testName, tests);
@@ -280,7 +303,7 @@ public class ProgramServiceAuthorizationTest {
     assert tests.threwStatusException(Status.PERMISSION_DENIED, 0, 9);
     assert tests.threwNoExceptions(9);
 
-    val programs = client.listPrograms(Empty.getDefaultInstance());
+    val programs = client.listPrograms(ListProgramsRequest.getDefaultInstance());
     closeChannel(c.getChannel());
     assert programs.getProgramsCount() == 0;
   }
@@ -295,7 +318,7 @@ public class ProgramServiceAuthorizationTest {
     assert tests.threwStatusException(Status.PERMISSION_DENIED, 0, 9);
     assert tests.threwNoExceptions(9);
 
-    val programs = client.listPrograms(Empty.getDefaultInstance());
+    val programs = client.listPrograms(ListProgramsRequest.getDefaultInstance());
     closeChannel(c.getChannel());
     assertEquals(0, programs.getProgramsCount());
   }
@@ -322,7 +345,7 @@ public class ProgramServiceAuthorizationTest {
     assert tests.threwStatusException(Status.PERMISSION_DENIED, 0, 1); // wrongEmail should fail
     assert tests.threwNoExceptions(1);
 
-    val programs = client.listPrograms(Empty.getDefaultInstance());
+    val programs = client.listPrograms(ListProgramsRequest.getDefaultInstance());
     closeChannel(c.getChannel());
     assertEquals(3, programs.getProgramsCount());
   }
@@ -337,7 +360,7 @@ public class ProgramServiceAuthorizationTest {
     assert tests.threwStatusException(Status.PERMISSION_DENIED, 0, 9);
     assert tests.threwNoExceptions(9);
 
-    val programs = client.listPrograms(Empty.getDefaultInstance());
+    val programs = client.listPrograms(ListProgramsRequest.getDefaultInstance());
     assert programs.getProgramsCount() == 1;
     closeChannel(c.getChannel());
     assertEquals(
@@ -353,7 +376,7 @@ public class ProgramServiceAuthorizationTest {
     assert tests.threwStatusException(Status.PERMISSION_DENIED, 0, 4);
     assert tests.threwNoExceptions(4);
 
-    val programs = client.listPrograms(Empty.getDefaultInstance());
+    val programs = client.listPrograms(ListProgramsRequest.getDefaultInstance());
     closeChannel(c.getChannel());
     assertEquals(1, programs.getProgramsCount());
     assertEquals(
@@ -369,7 +392,7 @@ public class ProgramServiceAuthorizationTest {
     assert tests.threwStatusException(Status.PERMISSION_DENIED, 0, 8);
     assert tests.threwNoExceptions(8);
 
-    val programs = client.listPrograms(Empty.getDefaultInstance());
+    val programs = client.listPrograms(ListProgramsRequest.getDefaultInstance());
     closeChannel(c.getChannel());
     assertEquals(1, programs.getProgramsCount());
     assertEquals(
@@ -588,11 +611,15 @@ public class ProgramServiceAuthorizationTest {
   }
 
   JoinProgramInviteEntity invite1() {
-    return new JoinProgramInviteEntity().setUserEmail(userId().getValue());
+    return new JoinProgramInviteEntity()
+        .setUserEmail(userId().getValue())
+        .setProgram(new ProgramEntity().setShortName(programName().getValue()));
   }
 
   JoinProgramInviteEntity invite2() {
-    return new JoinProgramInviteEntity().setUserEmail("y@z.com");
+    return new JoinProgramInviteEntity()
+        .setUserEmail("y@z.com")
+        .setProgram(new ProgramEntity().setShortName(programName().getValue()));
   }
 
   RemoveUserRequest removeUserRequest() {
@@ -334,7 +334,7 @@ public class ProgramServiceGrpcIT {
     val programEntity_2 = entityGenerator.setUpProgramEntity(randomProgramName());
     val programEntity_3 = entityGenerator.setUpProgramEntity(randomProgramName());
 
-    val response = stub.listPrograms(Empty.getDefaultInstance());
+    val response = stub.listPrograms(ListProgramsRequest.getDefaultInstance());
 
     assertTrue(response.getProgramsCount() == 3);
     val nameList =
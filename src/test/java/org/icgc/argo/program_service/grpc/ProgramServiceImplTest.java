@@ -28,13 +28,17 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.Mockito.*;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.BoolValue;
+import com.google.protobuf.Int32Value;
 import com.google.protobuf.StringValue;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 import javax.validation.constraints.Email;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
@@ -44,15 +48,21 @@ import org.icgc.argo.program_service.converter.Grpc2JsonConverter;
 import org.icgc.argo.program_service.converter.ProgramConverter;
 import org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity;
 import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.properties.AppProperties;
 import org.icgc.argo.program_service.proto.*;
+import org.icgc.argo.program_service.services.ChangeLogService;
+import org.icgc.argo.program_service.services.ChangeWatcher;
 import org.icgc.argo.program_service.services.InvitationService;
+import org.icgc.argo.program_service.services.ProgramMembershipMirror;
+import org.icgc.argo.program_service.services.ProgramProvisioner;
 import org.icgc.argo.program_service.services.ProgramService;
 import org.icgc.argo.program_service.services.ProgramServiceFacade;
+import org.icgc.argo.program_service.services.ProgramSnapshotCache;
+import org.icgc.argo.program_service.services.ReferenceDataCache;
+import org.icgc.argo.program_service.services.SearchService;
 import org.icgc.argo.program_service.services.ValidationService;
 import org.icgc.argo.program_service.services.auth.AuthorizationService;
 import org.icgc.argo.program_service.services.ego.EgoService;
-import org.icgc.argo.program_service.services.ego.model.entity.EgoGroup;
-import org.icgc.argo.program_service.services.ego.model.entity.EgoPolicy;
 import org.icgc.argo.program_service.utils.EntityGenerator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -91,15 +101,22 @@ class ProgramServiceImplTest {
           grpc2JsonConvertor,
           dataCenterConverter,
           CommonConverter.INSTANCE,
-          validationService);
+          validationService,
+          mock(SearchService.class),
+          new ReferenceDataCache(new AppProperties()),
+          mock(ChangeLogService.class),
+          mock(ProgramProvisioner.class),
+          mock(ProgramMembershipMirror.class));
   ProgramServiceImpl programServiceImpl =
-      new ProgramServiceImpl(CommonConverter.INSTANCE, authorizationService, facade);
+      new ProgramServiceImpl(
+          CommonConverter.INSTANCE,
+          authorizationService,
+          facade,
+          disabledSnapshotCache(),
+          mock(ChangeWatcher.class));
 
   @Autowired EntityGenerator generator;
 
-  private static final String FULL_MEMBERSHIP_POLICY = "PROGRAMMEMBERSHIP-FULL";
-  private static final String ASSOCIATE_MEMBERSHIP_POLICY = "PROGRAMMEMBERSHIP-ASSOCIATE";
-
   @Test
   void test_update_full_program_to_associate() {
     val request = mock(UpdateProgramRequest.class);
@@ -111,36 +128,14 @@ class ProgramServiceImplTest {
     val programToUpdate = generator.createProgramEntity(updatingProgram);
     programToUpdate.setMembershipType(FULL);
 
-    when(programService.getProgram(shortName, false)).thenReturn(programToUpdate);
+    when(programService.getProgramWithoutAssociations(shortName)).thenReturn(programToUpdate);
     val responseObserver = mock(StreamObserver.class);
 
-    val adminGroupId = UUID.randomUUID();
-    val submitterGroupId = UUID.randomUUID();
-    val adminGroup = EgoGroup.builder().id(adminGroupId).build();
-    val submitterGroup = EgoGroup.builder().id(submitterGroupId).build();
-
-    doReturn(adminGroup).when(egoService).getProgramEgoGroup(shortName, UserRole.ADMIN);
-    doReturn(submitterGroup).when(egoService).getProgramEgoGroup(shortName, UserRole.SUBMITTER);
-
-    val fullPolicyId = UUID.randomUUID();
-    val associatePolicyId = UUID.randomUUID();
-
-    val fullPolicy = EgoPolicy.builder().id(fullPolicyId).name(FULL_MEMBERSHIP_POLICY).build();
-
-    val associatePolicy =
-        EgoPolicy.builder().id(associatePolicyId).name(ASSOCIATE_MEMBERSHIP_POLICY).build();
-
-    doReturn(fullPolicy).when(egoService).getPolicyByName(FULL_MEMBERSHIP_POLICY);
-    doReturn(associatePolicy).when(egoService).getPolicyByName(ASSOCIATE_MEMBERSHIP_POLICY);
-
     programServiceImpl.updateProgram(request, responseObserver);
 
-    // verify if delete policy requests have been made:
-    verify(egoService, times(1)).deleteGroupPermission(fullPolicyId, adminGroupId);
-    verify(egoService, times(1)).deleteGroupPermission(fullPolicyId, submitterGroupId);
-
-    // verify if assign group permission requests have been made:
-    verify(egoService, times(1)).setUpMembershipPermissions(shortName, ASSOCIATE);
+    // verify the membership change was handed to ego as one plan:
+    verify(egoService, times(1)).updateMembershipPermissions(shortName, FULL, ASSOCIATE);
+    verify(egoService, never()).deleteGroupPermission(any(), any());
   }
 
   @Test
@@ -154,36 +149,14 @@ class ProgramServiceImplTest {
     val programToUpdate = generator.createProgramEntity(updatingProgram);
     programToUpdate.setMembershipType(ASSOCIATE);
 
-    when(programService.getProgram(shortName, false)).thenReturn(programToUpdate);
+    when(programService.getProgramWithoutAssociations(shortName)).thenReturn(programToUpdate);
     val responseObserver = mock(StreamObserver.class);
 
-    val adminGroupId = UUID.randomUUID();
-    val submitterGroupId = UUID.randomUUID();
-    val adminGroup = EgoGroup.builder().id(adminGroupId).build();
-    val submitterGroup = EgoGroup.builder().id(submitterGroupId).build();
-
-    doReturn(adminGroup).when(egoService).getProgramEgoGroup(shortName, UserRole.ADMIN);
-    doReturn(submitterGroup).when(egoService).getProgramEgoGroup(shortName, UserRole.SUBMITTER);
-
-    val fullPolicyId = UUID.randomUUID();
-    val associatePolicyId = UUID.randomUUID();
-
-    val fullPolicy = EgoPolicy.builder().id(fullPolicyId).name(FULL_MEMBERSHIP_POLICY).build();
-
-    val associatePolicy =
-        EgoPolicy.builder().id(associatePolicyId).name(ASSOCIATE_MEMBERSHIP_POLICY).build();
-
-    doReturn(fullPolicy).when(egoService).getPolicyByName(FULL_MEMBERSHIP_POLICY);
-    doReturn(associatePolicy).when(egoService).getPolicyByName(ASSOCIATE_MEMBERSHIP_POLICY);
-
     programServiceImpl.updateProgram(request, responseObserver);
 
-    // verify if delete policy requests have been made:
-    verify(egoService, times(1)).deleteGroupPermission(associatePolicyId, adminGroupId);
-    verify(egoService, times(1)).deleteGroupPermission(associatePolicyId, submitterGroupId);
-
-    // verify if assign group permission requests have been made:
-    verify(egoService, times(1)).setUpMembershipPermissions(shortName, FULL);
+    // verify the membership change was handed to ego as one plan:
+    verify(egoService, times(1)).updateMembershipPermissions(shortName, ASSOCIATE, FULL);
+    verify(egoService, never()).deleteGroupPermission(any(), any());
   }
 
   @Test
@@ -210,6 +183,38 @@ class ProgramServiceImplTest {
     }
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  void inviteUsers_emailRepeatedInAnotherCase_isRejected() {
+    when(programService.getProgramWithoutAssociations("TEST-CA"))
+        .thenReturn(new ProgramEntity().setShortName("TEST-CA"));
+    when(validationService.validateInvitee(any())).thenReturn(List.of());
+    when(invitationService.inviteUsers(any(), any()))
+        .thenAnswer(
+            invocation ->
+                ((List<User>) invocation.getArgument(1))
+                    .stream()
+                        .map(
+                            u ->
+                                InvitationService.InvitationResult.invited(
+                                    u.getEmail().getValue(), UUID.randomUUID()))
+                        .collect(Collectors.toList()));
+
+    val response =
+        facade.inviteUsers(
+            InviteUsersRequest.newBuilder()
+                .setProgramShortName(StringValue.of("TEST-CA"))
+                .addUsers(User.newBuilder().setEmail(StringValue.of("user@example.com")))
+                .addUsers(User.newBuilder().setEmail(StringValue.of("User@Example.com")))
+                .build());
+
+    assertFalse(response.getResults(0).hasError());
+    assertEquals(
+        "Email appears more than once in the request",
+        response.getResults(1).getError().getValue());
+    verify(invitationService).inviteUsers(any(), argThat(users -> users.size() == 1));
+  }
+
   @Test
   void listUsers() {
     val responseObserver = mock(StreamObserver.class);
@@ -512,6 +517,44 @@ class ProgramServiceImplTest {
         .build();
   }
 
+  @Test
+  void listUsersPaged() {
+    // Five pending invitations, listed two at a time in email order
+    val programName = "TEST-CA";
+    val program = mockProgram(programName);
+    val pendingInvitations = new ArrayList<JoinProgramInviteEntity>();
+    for (int i = 0; i < 5; i++) {
+      pendingInvitations.add(createPendingInvitation(program));
+    }
+    val service = setupListUsersTest(programName, pendingInvitations, List.of(), Map.of());
+
+    val emails = new ArrayList<String>();
+    ListUsersRequest request =
+        createListUsersRequest(programName).toBuilder().setPageSize(Int32Value.of(2)).build();
+    for (int pages = 1; ; pages++) {
+      val responseObserver = mock(StreamObserver.class);
+      service.listUsers(request, responseObserver);
+      val argument = ArgumentCaptor.forClass(ListUsersResponse.class);
+      verify(responseObserver).onNext(argument.capture());
+      val response = argument.getValue();
+
+      assertTrue(response.getUserDetailsCount() <= 2);
+      response.getUserDetailsList().forEach(u -> emails.add(u.getUser().getEmail().getValue()));
+      if (!response.hasNextPageToken()) {
+        assertEquals(3, pages);
+        break;
+      }
+      request = request.toBuilder().setPageToken(response.getNextPageToken()).build();
+    }
+
+    val expected =
+        pendingInvitations.stream()
+            .map(JoinProgramInviteEntity::getUserEmail)
+            .sorted()
+            .collect(Collectors.toList());
+    assertEquals(expected, emails);
+  }
+
   ProgramServiceImpl setupListUsersTest(
       String programName,
       List<JoinProgramInviteEntity> pendingInvitations,
@@ -529,6 +572,8 @@ class ProgramServiceImplTest {
           .thenReturn(Optional.of(egoInvitations.get(key)));
     }
 
+    // The program must exist, its id keys the membership mirror
+    when(programService.getProgram(programName)).thenReturn(mock(ProgramEntity.class));
     when(invitationService.listPendingInvitations(programName)).thenReturn(pendingInvitations);
     when(egoService.getUsersInProgram(programName)).thenReturn(egoUsers);
     ProgramServiceFacade newFacade =
@@ -540,8 +585,23 @@ class ProgramServiceImplTest {
             grpc2JsonConvertor,
             dataCenterConverter,
             CommonConverter.INSTANCE,
-            validationService);
-    return new ProgramServiceImpl(CommonConverter.INSTANCE, authorizationService, newFacade);
+            validationService,
+            mock(SearchService.class),
+            new ReferenceDataCache(new AppProperties()),
+            mock(ChangeLogService.class),
+            mock(ProgramProvisioner.class),
+            mock(ProgramMembershipMirror.class));
+    return new ProgramServiceImpl(
+        CommonConverter.INSTANCE,
+        authorizationService,
+        newFacade,
+        disabledSnapshotCache(),
+        mock(ChangeWatcher.class));
+  }
+
+  static ProgramSnapshotCache disabledSnapshotCache() {
+    return new ProgramSnapshotCache(
+        new AppProperties(), new ObjectMapper(), new SimpleMeterRegistry());
   }
 
   ListUsersRequest createListUsersRequest(String shortName) {
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.repositories;
+
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.proto.MembershipType.FULL;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.protobuf.StringValue;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import lombok.val;
+import org.icgc.argo.program_service.services.ProgramService;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Routing with the replica pointed at the primary database, told apart by the application name of
+ * its connections.
+ */
+@SpringBootTest(
+    properties = {
+      "app.read-replica.enabled=true",
+      "app.read-replica.url=${spring.datasource.url}?ApplicationName=" + ReadReplicaIT.REPLICA
+    })
+@ActiveProfiles("test")
+class ReadReplicaIT {
+
+  static final String REPLICA = "replica";
+
+  @Autowired EntityManagerFactory entityManagerFactory;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  @Autowired ProgramRepository programRepository;
+
+  @Autowired ProgramService programService;
+
+  @Autowired EntityGenerator generator;
+
+  private final String shortName = randomAlphabetic(8).toUpperCase() + "-CA";
+
+  @AfterEach
+  void cleanUp() {
+    transaction(false)
+        .executeWithoutResult(
+            status ->
+                programRepository
+                    .findByShortName(shortName)
+                    .ifPresent(p -> programService.removeProgram(shortName)));
+  }
+
+  @Test
+  void writeAfterReadOnlyTransactionOfTheSameRequestGoesToPrimary() {
+    val dataCenterId = generator.setUpDataCenter("TEST-DC").getId();
+
+    // What open-in-view does for a REST request, one entity manager across its transactions
+    val entityManager = entityManagerFactory.createEntityManager();
+    TransactionSynchronizationManager.bindResource(
+        entityManagerFactory, new EntityManagerHolder(entityManager));
+    try {
+      val readFrom =
+          transaction(true)
+              .execute(
+                  status -> {
+                    programRepository.count();
+                    return applicationName(entityManager);
+                  });
+      assertEquals(REPLICA, readFrom);
+
+      val writtenTo =
+          transaction(false)
+              .execute(
+                  status -> {
+                    programService.createProgram(
+                        generator.createProgram(StringValue.of(shortName), FULL), dataCenterId);
+                    return applicationName(entityManager);
+                  });
+      assertNotEquals(REPLICA, writtenTo);
+    } finally {
+      TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+      entityManager.close();
+    }
+
+    assertTrue(programRepository.findByShortName(shortName).isPresent());
+  }
+
+  private static Object applicationName(EntityManager entityManager) {
+    return entityManager
+        .createNativeQuery("SELECT current_setting('application_name')")
+        .getSingleResult();
+  }
+
+  private TransactionTemplate transaction(boolean readOnly) {
+    val template = new TransactionTemplate(transactionManager);
+    template.setReadOnly(readOnly);
+    return template;
+  }
+}
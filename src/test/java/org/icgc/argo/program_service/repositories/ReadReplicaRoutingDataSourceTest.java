@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.repositories;
+
+import static org.icgc.argo.program_service.repositories.ReadReplicaRoutingDataSource.Target.PRIMARY;
+import static org.icgc.argo.program_service.repositories.ReadReplicaRoutingDataSource.Target.REPLICA;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ReadReplicaRoutingDataSourceTest {
+
+  private final DataSource primary = mock(DataSource.class);
+  private final DataSource replica = mock(DataSource.class);
+
+  @AfterEach
+  void resetTransaction() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+  }
+
+  @Test
+  void routesOnlyReadOnlyTransactionsToReplica() {
+    val routing = new ReadReplicaRoutingDataSource(primary, replica, 1000);
+    assertEquals(PRIMARY, routing.determineCurrentLookupKey());
+
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    assertEquals(REPLICA, routing.determineCurrentLookupKey());
+  }
+
+  @Test
+  void routesReadOnlyTransactionsToPrimaryWhenAsked() {
+    val routing = new ReadReplicaRoutingDataSource(primary, replica, 1000);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertEquals(
+        PRIMARY, ReadReplicaRoutingDataSource.onPrimary(routing::determineCurrentLookupKey));
+    assertEquals(REPLICA, routing.determineCurrentLookupKey());
+  }
+
+  @Test
+  void fallsBackToPrimaryWhileReplicaIsStale() throws SQLException {
+    val routing = new ReadReplicaRoutingDataSource(primary, replica, 1000);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    replicaLag(2500);
+    routing.checkReplicationLag();
+    assertFalse(routing.isReplicaFresh());
+    assertEquals(PRIMARY, routing.determineCurrentLookupKey());
+
+    replicaLag(10);
+    routing.checkReplicationLag();
+    assertEquals(REPLICA, routing.determineCurrentLookupKey());
+  }
+
+  @Test
+  void fallsBackToPrimaryWhenReplicaIsUnreachable() throws SQLException {
+    val routing = new ReadReplicaRoutingDataSource(primary, replica, 1000);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+
+    routing.checkReplicationLag();
+    assertEquals(PRIMARY, routing.determineCurrentLookupKey());
+  }
+
+  private void replicaLag(double lagMs) throws SQLException {
+    val connection = mock(Connection.class);
+    val statement = mock(Statement.class);
+    val resultSet = mock(ResultSet.class);
+    when(replica.getConnection()).thenReturn(connection);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(anyString())).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true);
+    when(resultSet.getDouble(1)).thenReturn(lagMs);
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.repositories.query;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.icgc.argo.program_service.proto.MembershipType;
+import org.junit.jupiter.api.Test;
+
+class ProgramFilterTest {
+
+  @Test
+  void noneIsEmpty() {
+    assertTrue(ProgramFilter.none().isEmpty());
+  }
+
+  @Test
+  void anyCriterionMakesItNonEmpty() {
+    assertFalse(ProgramFilter.builder().country("Canada").build().isEmpty());
+    assertFalse(ProgramFilter.builder().cancerType("Brain cancer").build().isEmpty());
+    assertFalse(ProgramFilter.builder().primarySite("Blood").build().isEmpty());
+    assertFalse(ProgramFilter.builder().membershipType(MembershipType.FULL).build().isEmpty());
+    assertFalse(ProgramFilter.builder().dataCenterShortName("DC").build().isEmpty());
+  }
+}
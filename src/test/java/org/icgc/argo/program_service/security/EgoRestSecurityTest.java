@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.security;
+
+import static org.icgc.argo.program_service.Utils.generateRSAKeys;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Date;
+import lombok.val;
+import org.icgc.argo.program_service.model.exceptions.UnauthorizedException;
+import org.icgc.argo.program_service.services.ego.Context;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+class EgoRestSecurityTest {
+
+  private final KeyPair keys = generateRSAKeys();
+  private final EgoRestSecurity security = new EgoRestSecurity((RSAPublicKey) keys.getPublic());
+
+  @AfterEach
+  void cleanUp() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  void tokenIsVerifiedOncePerRequest() {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    val jwt = token("a@example.com");
+
+    val first = security.verifyRestTokenHeader(jwt).get();
+    assertEquals("a@example.com", first.getEmail());
+    // Another instance, like the ones the authorization checks create, sees the same token
+    assertSame(
+        first,
+        new EgoRestSecurity((RSAPublicKey) keys.getPublic()).verifyRestTokenHeader(jwt).get());
+
+    val other = security.verifyRestTokenHeader(token("b@example.com")).get();
+    assertEquals("b@example.com", other.getEmail());
+  }
+
+  @Test
+  void tokensAreVerifiedEachTimeOutsideOfARequest() {
+    val jwt = token("a@example.com");
+    assertNotSame(
+        security.verifyRestTokenHeader(jwt).get(), security.verifyRestTokenHeader(jwt).get());
+  }
+
+  @Test
+  void invalidTokenFailsEveryTime() {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    val forged = new EgoRestSecurity((RSAPublicKey) generateRSAKeys().getPublic());
+    val jwt = token("a@example.com");
+
+    assertThrows(UnauthorizedException.class, () -> forged.verifyRestTokenHeader(jwt));
+    assertThrows(UnauthorizedException.class, () -> forged.verifyRestTokenHeader(jwt));
+  }
+
+  private String token(String email) {
+    val user = new Context.User();
+    user.setEmail(email);
+    user.setType("USER");
+    val context = new Context();
+    context.setUser(user);
+    context.setScope(new String[0]);
+    return Jwts.builder()
+        .setIssuedAt(new Date())
+        .setIssuer("ego")
+        .setExpiration(Date.from(Instant.now().plusSeconds(3600)))
+        .claim("context", context)
+        .signWith(SignatureAlgorithm.RS256, keys.getPrivate())
+        .compact();
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.proto.ChangeType.PROGRAM_CREATED;
+import static org.icgc.argo.program_service.proto.ChangeType.PROGRAM_UPDATED;
+import static org.icgc.argo.program_service.proto.MembershipType.ASSOCIATE;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.protobuf.StringValue;
+import io.grpc.StatusRuntimeException;
+import java.util.List;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.ChangeEventEntity;
+import org.icgc.argo.program_service.repositories.ChangeEventRepository;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CatalogVersionServiceIT {
+
+  @Autowired CatalogVersionService catalogVersionService;
+
+  @Autowired ProgramService programService;
+
+  @Autowired ChangeLogService changeLogService;
+
+  @Autowired ProgramRepository programRepository;
+
+  @Autowired ChangeEventRepository changeEventRepository;
+
+  @Autowired EntityGenerator generator;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final String shortName = randomAlphabetic(8).toUpperCase() + "-CA";
+
+  private long since;
+
+  @BeforeEach
+  void setUp() {
+    since =
+        changeEventRepository.findAll().stream()
+            .mapToLong(ChangeEventEntity::getId)
+            .max()
+            .orElse(0);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    transactions()
+        .executeWithoutResult(
+            status ->
+                programRepository
+                    .findByShortName(shortName)
+                    .ifPresent(p -> programService.removeProgram(shortName)));
+    changeEventRepository.deleteAll(changeLogService.listChanges(since, 0));
+  }
+
+  @Test
+  void programWritesChangeValidators() {
+    val program = generator.createProgram(StringValue.of(shortName), ASSOCIATE);
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              programService.createProgram(program, generator.setUpDataCenter("TEST-DC").getId());
+              changeLogService.programChanged(PROGRAM_CREATED, shortName);
+            });
+
+    val created = catalogVersionService.getProgramValidators(shortName, false);
+    val catalog = catalogVersionService.getCatalogValidators();
+    assertEquals(created, catalogVersionService.getProgramValidators(shortName, false));
+    assertEquals(catalog, catalogVersionService.getCatalogValidators());
+
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              val programToUpdate = programService.getProgramWithoutAssociations(shortName);
+              programService.updateProgram(
+                  programToUpdate,
+                  programToUpdate,
+                  program.getCancerTypesList(),
+                  program.getPrimarySitesList(),
+                  List.of("Aarhus University"),
+                  program.getCountriesList());
+              changeLogService.programChanged(PROGRAM_UPDATED, shortName);
+            });
+
+    val updated = catalogVersionService.getProgramValidators(shortName, false);
+    assertNotEquals(created.getETag(), updated.getETag());
+    assertNotEquals(catalog.getETag(), catalogVersionService.getCatalogValidators().getETag());
+  }
+
+  @Test
+  void uncommittedWritesDoNotChangeValidators() {
+    val catalog = catalogVersionService.getCatalogValidators();
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              changeLogService.programChanged(PROGRAM_UPDATED, shortName);
+              status.setRollbackOnly();
+            });
+    assertEquals(catalog, catalogVersionService.getCatalogValidators());
+  }
+
+  @Test
+  void unknownProgramIsNotFound() {
+    assertThrows(
+        StatusRuntimeException.class,
+        () -> catalogVersionService.getProgramValidators(randomAlphabetic(10), true));
+  }
+
+  private TransactionTemplate transactions() {
+    return new TransactionTemplate(transactionManager);
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.icgc.argo.program_service.proto.ChangeType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.ChangeEventEntity;
+import org.icgc.argo.program_service.repositories.ChangeEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ChangeLogServiceIT {
+
+  @Autowired ChangeLogService changeLogService;
+
+  @Autowired ChangeEventRepository changeEventRepository;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private long since;
+
+  @BeforeEach
+  void setUp() {
+    since =
+        changeEventRepository.findAll().stream()
+            .mapToLong(ChangeEventEntity::getId)
+            .max()
+            .orElse(0);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    changeEventRepository.deleteAll(changeLogService.listChanges(since, 0));
+  }
+
+  @Test
+  void entriesAreReadInOrderAfterSince() {
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              changeLogService.programChanged(PROGRAM_CREATED, "CHANGE-CA");
+              changeLogService.programRenamed(PROGRAM_ACTIVATED, "CHANGED-CA", "CHANGE-CA");
+            });
+    transactions()
+        .executeWithoutResult(
+            status -> changeLogService.dataCenterChanged(DATA_CENTER_UPDATED, "DC"));
+
+    val changes = changeLogService.listChanges(since, 0);
+    assertEquals(
+        List.of(PROGRAM_CREATED, PROGRAM_ACTIVATED, DATA_CENTER_UPDATED),
+        changes.stream().map(ChangeEventEntity::getType).collect(toList()));
+    assertEquals("CHANGE-CA", changes.get(1).getPreviousProgramShortName());
+    assertEquals("DC", changes.get(2).getDataCenterShortName());
+
+    val rest = changeLogService.listChanges(changes.get(0).getId(), 1);
+    assertEquals(1, rest.size());
+    assertEquals(changes.get(1).getId(), rest.get(0).getId());
+  }
+
+  @Test
+  void rolledBackChangesAreNotLogged() {
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              changeLogService.programChanged(PROGRAM_REMOVED, "CHANGE-CA");
+              status.setRollbackOnly();
+            });
+    assertTrue(changeLogService.listChanges(since, 0).isEmpty());
+  }
+
+  @Test
+  void unrelatedWritesDoNotWaitForEachOther() throws Exception {
+    val appended = new CountDownLatch(1);
+    val release = new CountDownLatch(1);
+    val executor = Executors.newFixedThreadPool(2);
+    try {
+      val slow =
+          executor.submit(
+              () ->
+                  transactions()
+                      .executeWithoutResult(
+                          status -> {
+                            changeLogService.programChanged(PROGRAM_UPDATED, "SLOW-CA");
+                            appended.countDown();
+                            await(release);
+                          }));
+      assertTrue(appended.await(10, SECONDS));
+
+      // Would block until the slow transaction commits if appending locked the whole log
+      executor
+          .submit(
+              () ->
+                  transactions()
+                      .executeWithoutResult(
+                          status -> changeLogService.programChanged(PROGRAM_UPDATED, "FAST-CA")))
+          .get(10, SECONDS);
+
+      release.countDown();
+      slow.get(10, SECONDS);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+
+    val changes = changeLogService.listChanges(since, 0);
+    assertEquals(
+        List.of("FAST-CA", "SLOW-CA"),
+        changes.stream().map(ChangeEventEntity::getProgramShortName).collect(toList()));
+  }
+
+  @Test
+  void appendingRequiresTheWritingTransaction() {
+    assertThrows(
+        IllegalTransactionStateException.class,
+        () -> changeLogService.programChanged(PROGRAM_UPDATED, "CHANGE-CA"));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assertTrue(latch.await(10, SECONDS));
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private TransactionTemplate transactions() {
+    return new TransactionTemplate(transactionManager);
+  }
+}
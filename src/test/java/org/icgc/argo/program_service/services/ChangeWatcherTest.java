@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static org.icgc.argo.program_service.proto.ChangeType.PROGRAM_UPDATED;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.val;
+import org.icgc.argo.program_service.converter.ProgramConverter;
+import org.icgc.argo.program_service.model.entity.ChangeEventEntity;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.proto.ChangeEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class ChangeWatcherTest {
+
+  private static final int PAGE_SIZE = 2;
+
+  private final ChangeLogService changeLogService = mock(ChangeLogService.class);
+
+  private final ChangeWatcher watcher = watcher();
+
+  @SuppressWarnings("unchecked")
+  private final ServerCallStreamObserver<ChangeEvent> observer =
+      mock(ServerCallStreamObserver.class);
+
+  @AfterEach
+  void shutdown() {
+    watcher.shutdown();
+  }
+
+  @Test
+  void streamsReadableEntriesFromSinceOn() {
+    when(observer.isReady()).thenReturn(true);
+    when(changeLogService.listChanges(5L, PAGE_SIZE))
+        .thenReturn(List.of(entry(6, "A-CA"), entry(7, "B-CA")));
+    when(changeLogService.listChanges(7L, PAGE_SIZE)).thenReturn(List.of(entry(8, "A-CA")));
+
+    watcher.watch(5, e -> e.getProgramShortName().getValue().equals("A-CA"), observer);
+
+    // A full page is followed up right away, then the stream polls from the last entry read
+    verify(changeLogService, timeout(1000).atLeast(2)).listChanges(8L, PAGE_SIZE);
+    val events = ArgumentCaptor.forClass(ChangeEvent.class);
+    verify(observer, times(2)).onNext(events.capture());
+    assertEquals(6, events.getAllValues().get(0).getId().getValue());
+    assertEquals(8, events.getAllValues().get(1).getId().getValue());
+  }
+
+  @Test
+  void pausesWhileClientIsNotReading() {
+    when(observer.isReady()).thenReturn(false);
+    watcher.watch(0, e -> true, observer);
+
+    verify(observer, timeout(1000).atLeast(2)).isReady();
+    verify(changeLogService, never()).listChanges(anyLong(), anyInt());
+  }
+
+  @Test
+  void cancelledStreamStopsPolling() {
+    when(observer.isReady()).thenReturn(true);
+    watcher.watch(0, e -> true, observer);
+    assertEquals(1, watcher.size());
+
+    val onCancel = ArgumentCaptor.forClass(Runnable.class);
+    verify(observer).setOnCancelHandler(onCancel.capture());
+    onCancel.getValue().run();
+    assertEquals(0, watcher.size());
+
+    watcher.shutdown();
+    verify(observer, never()).onError(any());
+  }
+
+  @Test
+  void failingPollEndsStream() {
+    when(observer.isReady()).thenReturn(true);
+    when(changeLogService.listChanges(anyLong(), anyInt()))
+        .thenThrow(new IllegalStateException("database is gone"));
+
+    watcher.watch(0, e -> true, observer);
+
+    verify(observer, timeout(1000)).onError(any());
+    assertEquals(0, watcher.size());
+  }
+
+  private ChangeWatcher watcher() {
+    val appProperties = new AppProperties();
+    appProperties.getChangeLog().setMaxPageSize(PAGE_SIZE);
+    appProperties.getChangeLog().setPollIntervalMs(10);
+    return new ChangeWatcher(changeLogService, ProgramConverter.INSTANCE, appProperties);
+  }
+
+  private static ChangeEventEntity entry(long id, String programShortName) {
+    return new ChangeEventEntity()
+        .setId(id)
+        .setType(PROGRAM_UPDATED)
+        .setProgramShortName(programShortName)
+        .setCreatedAt(LocalDateTime.now());
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.InstitutionEntity;
+import org.icgc.argo.program_service.repositories.InstitutionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InstitutionConcurrencyIT {
+
+  private static final int CALLERS = 8;
+  private static final String EXISTING = "Ontario Institute for Cancer Research";
+
+  @Autowired ProgramService programService;
+
+  @Autowired InstitutionRepository institutionRepository;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final List<String> newNames =
+      IntStream.range(0, 5)
+          .mapToObj(i -> "Concurrent Institution " + UUID.randomUUID())
+          .collect(toList());
+
+  @AfterEach
+  void cleanUp() {
+    new TransactionTemplate(transactionManager)
+        .executeWithoutResult(
+            status ->
+                institutionRepository.deleteAll(institutionRepository.findAllByNameIn(newNames)));
+  }
+
+  @Test
+  void concurrentCallersShareNewInstitutions() throws Exception {
+    val names = new ArrayList<>(newNames);
+    names.add(EXISTING);
+
+    val transactions = new TransactionTemplate(transactionManager);
+    val start = new CountDownLatch(1);
+    val executor = Executors.newFixedThreadPool(CALLERS);
+    val results = new ArrayList<List<InstitutionEntity>>();
+    try {
+      val futures = new ArrayList<Future<List<InstitutionEntity>>>();
+      for (int i = 0; i < CALLERS; i++) {
+        // Every caller lists the same names in a different order
+        val shuffled = new ArrayList<>(names);
+        Collections.shuffle(shuffled);
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return transactions.execute(
+                      status -> programService.filterAndAddInstitutions(shuffled));
+                }));
+      }
+      start.countDown();
+      for (val future : futures) {
+        results.add(future.get(30, SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    val stored = institutionRepository.findAllByNameIn(names);
+    assertEquals(names.size(), stored.size());
+    val storedIds = ids(stored);
+    for (val result : results) {
+      assertEquals(storedIds, ids(result));
+    }
+  }
+
+  private static Set<UUID> ids(List<InstitutionEntity> institutions) {
+    return institutions.stream().map(InstitutionEntity::getId).collect(toSet());
+  }
+}
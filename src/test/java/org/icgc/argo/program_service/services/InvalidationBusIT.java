@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.proto.MembershipType.ASSOCIATE;
+import static org.icgc.argo.program_service.services.ReferenceDataCache.Kind.INSTITUTIONS;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.protobuf.StringValue;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import lombok.val;
+import org.icgc.argo.program_service.ProgramServiceApplication;
+import org.icgc.argo.program_service.proto.GetProgramResponse;
+import org.icgc.argo.program_service.proto.Program;
+import org.icgc.argo.program_service.proto.ProgramDetails;
+import org.icgc.argo.program_service.repositories.InstitutionRepository;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.icgc.argo.program_service.services.ego.EgoMembershipCache;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Two application contexts against the same database, standing in for two instances */
+@SpringBootTest(
+    properties = {
+      "app.grpcPort=0",
+      "app.invalidation-bus.enabled=true",
+      "app.program-snapshot.enabled=true",
+      "app.reference-data-cache.enabled=true"
+    })
+@ActiveProfiles("test")
+class InvalidationBusIT {
+
+  private static final long TIMEOUT_MS = 10000;
+
+  private static ConfigurableApplicationContext other;
+
+  @Autowired ProgramService programService;
+
+  @Autowired InvalidationBus invalidationBus;
+
+  @Autowired InvalidationListener listener;
+
+  @Autowired ProgramRepository programRepository;
+
+  @Autowired InstitutionRepository institutionRepository;
+
+  @Autowired EntityGenerator generator;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final String shortName = randomAlphabetic(8).toUpperCase() + "-CA";
+  private final String institution = "Invalidated Institution " + UUID.randomUUID();
+
+  @BeforeAll
+  static void startOtherInstance() {
+    other =
+        new SpringApplicationBuilder(ProgramServiceApplication.class)
+            .profiles("test")
+            // Arguments rather than default properties, which application.yml would override
+            .run(
+                "--server.port=0",
+                "--app.grpcPort=0",
+                "--app.invalidation-bus.enabled=true",
+                "--app.program-snapshot.enabled=true",
+                "--app.reference-data-cache.enabled=true");
+  }
+
+  @AfterAll
+  static void stopOtherInstance() {
+    other.close();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              programRepository
+                  .findByShortName(shortName)
+                  .ifPresent(p -> programService.removeProgram(shortName));
+              institutionRepository.deleteAll(
+                  institutionRepository.findAllByNameIn(List.of(institution)));
+            });
+  }
+
+  @Test
+  void programWriteEvictsOtherInstance() {
+    val program = generator.createProgram(StringValue.of(shortName), ASSOCIATE);
+    val dataCenterId = generator.setUpDataCenter("TEST-DC").getId();
+    transactions()
+        .executeWithoutResult(status -> programService.createProgram(program, dataCenterId));
+    awaitListening();
+
+    // The notification of the create may still be on its way, wait until the entry sticks
+    val otherCache = other.getBean(ProgramSnapshotCache.class);
+    await(
+        () -> {
+          otherCache.getProgram(shortName, () -> response("before"));
+          val reloaded = new AtomicBoolean();
+          otherCache.getProgram(
+              shortName,
+              () -> {
+                reloaded.set(true);
+                return response("before");
+              });
+          return !reloaded.get();
+        });
+
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              val entity = programService.getProgramWithoutAssociations(shortName);
+              programService.updateProgram(
+                  entity,
+                  entity,
+                  program.getCancerTypesList(),
+                  program.getPrimarySitesList(),
+                  List.of("Aarhus University"),
+                  program.getCountriesList());
+            });
+
+    await(() -> name(otherCache.getProgram(shortName, () -> response("after"))).equals("after"));
+  }
+
+  @Test
+  void rolledBackWriteIsNotPublished() {
+    awaitListening();
+    val otherCache = other.getBean(ProgramSnapshotCache.class);
+    val otherReferenceData = other.getBean(ReferenceDataCache.class);
+    otherCache.getProgram(shortName, () -> response("before"));
+    otherReferenceData.get(INSTITUTIONS, () -> "before");
+
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              invalidationBus.programChanged(shortName);
+              status.setRollbackOnly();
+            });
+    programService.addInstitutions(List.of(institution));
+
+    // Notifications arrive in commit order, so the rolled back one would have been applied first
+    await(() -> otherReferenceData.get(INSTITUTIONS, () -> "after").equals("after"));
+    assertEquals("before", name(otherCache.getProgram(shortName, () -> response("cached"))));
+  }
+
+  @Test
+  void membershipChangeEvictsOtherInstance() {
+    awaitListening();
+    val groupId = UUID.randomUUID();
+    val otherCache = other.getBean(EgoMembershipCache.class);
+    assertTrue(otherCache.isMember(groupId, "user@example.com", () -> true));
+
+    invalidationBus.membershipChanged(groupId);
+
+    await(() -> !otherCache.isMember(groupId, "user@example.com", () -> false));
+  }
+
+  private void awaitListening() {
+    await(listener::isListening);
+    await(other.getBean(InvalidationListener.class)::isListening);
+  }
+
+  private static void await(BooleanSupplier condition) {
+    val deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for invalidation");
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  private static GetProgramResponse response(String name) {
+    val program = Program.newBuilder().setName(StringValue.of(name));
+    return GetProgramResponse.newBuilder()
+        .setProgram(ProgramDetails.newBuilder().setProgram(program))
+        .build();
+  }
+
+  private static String name(GetProgramResponse response) {
+    return response.getProgram().getProgram().getName().getValue();
+  }
+
+  private TransactionTemplate transactions() {
+    return new TransactionTemplate(transactionManager);
+  }
+}
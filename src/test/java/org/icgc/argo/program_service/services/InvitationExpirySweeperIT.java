@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.services;
+
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity.Status.ACCEPTED;
+import static org.icgc.argo.program_service.proto.MembershipType.FULL;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.protobuf.StringValue;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity;
+import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.proto.UserRole;
+import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
+import org.icgc.argo.program_service.services.ego.EgoService;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The expiry sweep against Postgres. The scheduled sweep is pushed out of the way, the tests run it
+ * themselves. Statuses are read with plain SQL, the entity reports a stale PENDING invitation as
+ * EXPIRED on its own.
+ */
+@SpringBootTest(properties = "app.invitation-expiry.fixed-delay-ms=3600000")
+@ActiveProfiles("test")
+class InvitationExpirySweeperIT {
+
+  @MockBean EgoService egoService;
+
+  @Autowired InvitationExpirySweeper sweeper;
+
+  @Autowired ProgramService programService;
+
+  @Autowired JoinProgramInviteRepository invitationRepository;
+
+  @Autowired EntityGenerator generator;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final String shortName = randomAlphabetic(8).toUpperCase() + "-CA";
+
+  private ProgramEntity program;
+
+  @BeforeEach
+  void setUp() {
+    val dataCenterId = generator.setUpDataCenter("TEST-DC").getId();
+    program =
+        transactions()
+            .execute(
+                status ->
+                    programService.createProgram(
+                        generator.createProgram(StringValue.of(shortName), FULL), dataCenterId));
+  }
+
+  @AfterEach
+  void cleanUp() {
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              invitationRepository.deleteAllByProgramShortName(shortName);
+              programService.removeProgram(shortName);
+            });
+  }
+
+  @Test
+  void expiresOnlyStalePendingInvitations() {
+    val stale = invitation("stale@example.com", -1, null);
+    val current = invitation("current@example.com", 1, null);
+    val accepted = invitation("accepted@example.com", -1, ACCEPTED);
+
+    assertTrue(sweeper.expireStaleInvitations() >= 1);
+
+    assertEquals("EXPIRED", storedStatus(stale));
+    assertEquals("PENDING", storedStatus(current));
+    assertEquals("ACCEPTED", storedStatus(accepted));
+  }
+
+  @Test
+  void onlyTheInstanceHoldingTheLockSweeps() {
+    val stale = invitation("stale@example.com", -1, null);
+
+    val locked = new CountDownLatch(1);
+    val release = new CountDownLatch(1);
+    val otherInstance =
+        CompletableFuture.runAsync(
+            () ->
+                transactions()
+                    .executeWithoutResult(
+                        status -> {
+                          jdbcTemplate.queryForList(
+                              "SELECT pg_advisory_xact_lock(?)",
+                              InvitationExpirySweeper.ADVISORY_LOCK_KEY);
+                          locked.countDown();
+                          await(release);
+                        }));
+    await(locked);
+    try {
+      assertEquals(0, sweeper.expireStaleInvitations());
+      assertEquals("PENDING", storedStatus(stale));
+    } finally {
+      release.countDown();
+      otherInstance.join();
+    }
+
+    // The lock went with the other transaction
+    assertTrue(sweeper.expireStaleInvitations() >= 1);
+    assertEquals("EXPIRED", storedStatus(stale));
+  }
+
+  /** An invitation expiring {@code days} from now, PENDING unless another status is given */
+  private UUID invitation(String email, int days, JoinProgramInviteEntity.Status status) {
+    val invitation =
+        new JoinProgramInviteEntity(program, email, "First", "Last", UserRole.SUBMITTER);
+    invitation.setExpiresAt(LocalDateTime.now(ZoneOffset.UTC).plusDays(days));
+    if (status != null) {
+      invitation.setStatus(status);
+    }
+    return transactions().execute(s -> invitationRepository.save(invitation).getId());
+  }
+
+  private String storedStatus(UUID id) {
+    return jdbcTemplate.queryForObject(
+        "SELECT status FROM join_program_invite WHERE id = ?", String.class, id);
+  }
+
+  @SneakyThrows
+  private static void await(CountDownLatch latch) {
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+  }
+
+  private TransactionTemplate transactions() {
+    return new TransactionTemplate(transactionManager);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity.Status.EXPIRED;
+import static org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity.Status.PENDING;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.val;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class InvitationExpirySweeperTest {
+
+  @Test
+  void expiresPendingInvitationsWhenLockAcquired() {
+    val repository = mock(JoinProgramInviteRepository.class);
+    val jdbcTemplate = mock(JdbcTemplate.class);
+    val registry = new SimpleMeterRegistry();
+    when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any()))
+        .thenReturn(Boolean.TRUE);
+    when(repository.expirePendingInvitations(eq(PENDING), eq(EXPIRED), any())).thenReturn(7);
+
+    val sweeper =
+        new InvitationExpirySweeper(repository, jdbcTemplate, new AppProperties(), registry);
+    assertEquals(7, sweeper.expireStaleInvitations());
+    assertEquals(7.0, registry.get("program_service.invitations.expired").counter().count());
+    assertEquals(1L, registry.get("program_service.invitations.expired.per_run").summary().count());
+  }
+
+  @Test
+  void skipsSweepWhenAnotherInstanceHoldsLock() {
+    val repository = mock(JoinProgramInviteRepository.class);
+    val jdbcTemplate = mock(JdbcTemplate.class);
+    when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any()))
+        .thenReturn(Boolean.FALSE);
+
+    val sweeper =
+        new InvitationExpirySweeper(
+            repository, jdbcTemplate, new AppProperties(), new SimpleMeterRegistry());
+    assertEquals(0, sweeper.expireStaleInvitations());
+    verify(repository, never()).expirePendingInvitations(any(), any(), any());
+  }
+
+  @Test
+  void skipsSweepWhenDisabled() {
+    val repository = mock(JoinProgramInviteRepository.class);
+    val jdbcTemplate = mock(JdbcTemplate.class);
+    val appProperties = new AppProperties();
+    appProperties.getInvitationExpiry().setEnabled(false);
+
+    val sweeper =
+        new InvitationExpirySweeper(
+            repository, jdbcTemplate, appProperties, new SimpleMeterRegistry());
+    assertEquals(0, sweeper.expireStaleInvitations());
+    verifyNoInteractions(repository, jdbcTemplate);
+  }
+}
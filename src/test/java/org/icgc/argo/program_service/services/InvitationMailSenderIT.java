@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.services;
+
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.proto.MembershipType.FULL;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.google.protobuf.StringValue;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity;
+import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.proto.User;
+import org.icgc.argo.program_service.proto.UserRole;
+import org.icgc.argo.program_service.proto.UserRoleValue;
+import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
+import org.icgc.argo.program_service.services.ego.EgoService;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The invite email queue against Postgres, with the mail server mocked. The scheduled poll is
+ * pushed out of the way, the tests run it themselves.
+ */
+@SpringBootTest(properties = "app.invitation-mail.poll-interval-ms=3600000")
+@ActiveProfiles("test")
+class InvitationMailSenderIT {
+
+  @MockBean MailService mailService;
+
+  @MockBean EgoService egoService;
+
+  @Autowired InvitationMailSender invitationMailSender;
+
+  @Autowired InvitationService invitationService;
+
+  @Autowired ProgramService programService;
+
+  @Autowired JoinProgramInviteRepository invitationRepository;
+
+  @Autowired EntityGenerator generator;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final String shortName = randomAlphabetic(8).toUpperCase() + "-CA";
+
+  private ProgramEntity program;
+
+  @BeforeEach
+  void setUp() {
+    val dataCenterId = generator.setUpDataCenter("TEST-DC").getId();
+    program =
+        transactions()
+            .execute(
+                status ->
+                    programService.createProgram(
+                        generator.createProgram(StringValue.of(shortName), FULL), dataCenterId));
+  }
+
+  @AfterEach
+  void cleanUp() {
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              invitationRepository.deleteAllByProgramShortName(shortName);
+              programService.removeProgram(shortName);
+            });
+  }
+
+  @Test
+  void failedEmailsAreRetriedByThePoll() {
+    // The mail server is down, nothing gets sent
+    when(mailService.sendInviteEmails(any())).thenReturn(0);
+
+    val results =
+        transactions()
+            .execute(
+                status ->
+                    invitationService.inviteUsers(
+                        program, List.of(user("a@example.com"), user("b@example.com"))));
+    val ids = results.stream().map(r -> r.getInviteId()).collect(Collectors.toList());
+
+    // Tried once the invitations committed
+    verify(mailService, timeout(5000)).sendInviteEmails(any());
+    assertFalse(isSent(ids.get(0)));
+    assertFalse(isSent(ids.get(1)));
+
+    // The mail server is back, the next poll sends both
+    when(mailService.sendInviteEmails(any()))
+        .thenAnswer(invocation -> markSent(invocation.getArgument(0)));
+    awaitSent(ids);
+    assertTrue(isSent(ids.get(0)));
+    assertTrue(isSent(ids.get(1)));
+
+    // Nothing left to send
+    reset(mailService);
+    assertEquals(0, invitationMailSender.send());
+    verify(mailService, never()).sendInviteEmails(any());
+  }
+
+  @Test
+  void onlyTheInstanceHoldingTheLockSends() {
+    when(mailService.sendInviteEmails(any()))
+        .thenAnswer(invocation -> markSent(invocation.getArgument(0)));
+    val id =
+        transactions()
+            .execute(
+                status ->
+                    invitationRepository
+                        .save(
+                            new JoinProgramInviteEntity(
+                                program, "c@example.com", "First", "Last", UserRole.SUBMITTER))
+                        .getId());
+
+    val locked = new CountDownLatch(1);
+    val release = new CountDownLatch(1);
+    val otherInstance =
+        CompletableFuture.runAsync(
+            () ->
+                transactions()
+                    .executeWithoutResult(
+                        status -> {
+                          jdbcTemplate.queryForList(
+                              "SELECT pg_advisory_xact_lock(?)",
+                              InvitationMailSender.ADVISORY_LOCK_KEY);
+                          locked.countDown();
+                          await(release);
+                        }));
+    await(locked);
+    try {
+      assertEquals(0, invitationMailSender.send());
+      verify(mailService, never()).sendInviteEmails(any());
+      assertFalse(isSent(id));
+    } finally {
+      release.countDown();
+      otherInstance.join();
+    }
+
+    assertTrue(invitationMailSender.send() >= 1);
+    assertTrue(isSent(id));
+  }
+
+  private int markSent(List<JoinProgramInviteEntity> invitations) {
+    invitations.forEach(i -> i.setEmailSent(true));
+    return invitations.size();
+  }
+
+  private boolean isSent(UUID id) {
+    return invitationRepository.findById(id).orElseThrow().getEmailSent();
+  }
+
+  /** The run woken up by the commit may still hold the lock for a moment */
+  @SneakyThrows
+  private void awaitSent(List<UUID> ids) {
+    val deadline = System.currentTimeMillis() + 5000;
+    while (!ids.stream().allMatch(this::isSent) && System.currentTimeMillis() < deadline) {
+      invitationMailSender.send();
+      Thread.sleep(50);
+    }
+  }
+
+  @SneakyThrows
+  private static void await(CountDownLatch latch) {
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+  }
+
+  private User user(String email) {
+    return User.newBuilder()
+        .setEmail(StringValue.of(email))
+        .setFirstName(StringValue.of("First"))
+        .setLastName(StringValue.of("Last"))
+        .setRole(UserRoleValue.newBuilder().setValue(UserRole.SUBMITTER))
+        .build();
+  }
+
+  private TransactionTemplate transactions() {
+    return new TransactionTemplate(transactionManager);
+  }
+}
@@ -23,6 +23,7 @@ package org.icgc.argo.program_service.services;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import com.google.protobuf.StringValue;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import java.time.LocalDateTime;
@@ -33,16 +34,21 @@ import java.util.UUID;
 import lombok.val;
 import org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity;
 import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.proto.User;
 import org.icgc.argo.program_service.proto.UserRole;
+import org.icgc.argo.program_service.proto.UserRoleValue;
 import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
 import org.icgc.argo.program_service.services.ego.EgoService;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
+import org.springframework.mail.MailSendException;
 import org.springframework.test.util.ReflectionTestUtils;
 
 class InvitationServiceTest {
 
+  private final InvitationMailSender invitationMailSender = mock(InvitationMailSender.class);
+
   @Test
   void inviteUser() {
     val programEntity = mock(ProgramEntity.class);
@@ -53,7 +59,8 @@ class InvitationServiceTest {
     val invitationRepository = mock(JoinProgramInviteRepository.class);
     val email = "user@example.com";
 
-    val invitationService = new InvitationService(mailService, invitationRepository, egoService);
+    val invitationService =
+        new InvitationService(mailService, invitationMailSender, invitationRepository, egoService);
     invitationService.inviteUser(
         programEntity, "user@example.com", "First", "Last", UserRole.ADMIN);
     val invitationCaptor = ArgumentCaptor.forClass(JoinProgramInviteEntity.class);
@@ -128,7 +135,8 @@ class InvitationServiceTest {
     when(invitationRepository.findAllByProgramShortNameAndUserEmail(programName, email))
         .thenReturn(invites);
 
-    val invitationService = new InvitationService(mailService, invitationRepository, egoService);
+    val invitationService =
+        new InvitationService(mailService, invitationMailSender, invitationRepository, egoService);
     invitationService.inviteUser(
         programEntity, "user@example.com", "First", "Last", UserRole.ADMIN);
 
@@ -146,11 +154,73 @@ class InvitationServiceTest {
     val mailService = mock(MailService.class);
     val invitationRepository = mock(JoinProgramInviteRepository.class);
 
-    val invitationService = new InvitationService(mailService, invitationRepository, egoService);
+    val invitationService =
+        new InvitationService(mailService, invitationMailSender, invitationRepository, egoService);
     invitationService.inviteUser(
         programEntity, "user@example.com", "First", "Last", UserRole.ADMIN);
   }
 
+  @Test
+  void inviteUsers() {
+    val programEntity = mock(ProgramEntity.class);
+    when(programEntity.getShortName()).thenReturn("TEST-CA");
+
+    val egoService = mock(EgoService.class);
+    val mailService = mock(MailService.class);
+    val invitationRepository = mock(JoinProgramInviteRepository.class);
+    val pending =
+        createInvite(programEntity, "pending@example.com", JoinProgramInviteEntity.Status.PENDING);
+    val accepted =
+        createInvite(
+            programEntity, "accepted@example.com", JoinProgramInviteEntity.Status.ACCEPTED);
+    when(invitationRepository.findAllByProgramShortNameAndUserEmailIn(
+            ArgumentMatchers.eq("TEST-CA"), ArgumentMatchers.anyCollection()))
+        .thenReturn(List.of(pending, accepted));
+    // ids are generated on persist
+    when(invitationRepository.saveAll(ArgumentMatchers.anyIterable()))
+        .thenAnswer(
+            invocation -> {
+              Iterable<JoinProgramInviteEntity> saved = invocation.getArgument(0);
+              saved.forEach(i -> i.setId(i.getId() == null ? UUID.randomUUID() : i.getId()));
+              return saved;
+            });
+
+    val invitationService =
+        new InvitationService(mailService, invitationMailSender, invitationRepository, egoService);
+    val results =
+        invitationService.inviteUsers(
+            programEntity,
+            List.of(
+                user("new@example.com"),
+                user("accepted@example.com"),
+                user("pending@example.com")));
+
+    assertEquals(3, results.size());
+    assertTrue(results.get(0).isInvited());
+    assertFalse(results.get(1).isInvited());
+    assertEquals("accepted@example.com", results.get(1).getEmail());
+    assertTrue(results.get(2).isInvited());
+    assertEquals(JoinProgramInviteEntity.Status.INVALID, pending.getStatus());
+
+    // one query for previous invitations and one batch of saves, no per-user round trips
+    verify(invitationRepository, times(1))
+        .findAllByProgramShortNameAndUserEmailIn(
+            ArgumentMatchers.any(), ArgumentMatchers.anyCollection());
+    verify(invitationRepository, never()).save(ArgumentMatchers.any());
+    // the emails are queued, not sent by the request
+    verifyNoInteractions(mailService);
+    verify(invitationMailSender).sendAfterCommit();
+  }
+
+  private User user(String email) {
+    return User.newBuilder()
+        .setEmail(StringValue.of(email))
+        .setFirstName(StringValue.of("First"))
+        .setLastName(StringValue.of("Last"))
+        .setRole(UserRoleValue.newBuilder().setValue(UserRole.SUBMITTER))
+        .build();
+  }
+
   @Test
   void acceptInvitation() {
     // ensure that accepting an invitation works
@@ -177,7 +247,8 @@ class InvitationServiceTest {
     val egoService = mock(EgoService.class);
     val mailService = mock(MailService.class);
 
-    val invitationService = new InvitationService(mailService, invitationRepository, egoService);
+    val invitationService =
+        new InvitationService(mailService, invitationMailSender, invitationRepository, egoService);
     val invitation = mock(JoinProgramInviteEntity.class);
     val program = new ProgramEntity();
     program.setShortName("TEST1");
@@ -256,17 +327,68 @@ class InvitationServiceTest {
     val egoService = mock(EgoService.class);
     val mailService = mock(MailService.class);
 
-    val invitationService = new InvitationService(mailService, invitationRepository, egoService);
+    val invitationService =
+        new InvitationService(mailService, invitationMailSender, invitationRepository, egoService);
     invitationService.revoke(program, email);
   }
 
+  @Test
+  void inviteUserFailsWhenEmailCannotBeSent() {
+    val programEntity = mock(ProgramEntity.class);
+    when(programEntity.getShortName()).thenReturn("TEST-CA");
+    val mailService = mock(MailService.class);
+    when(mailService.sendInviteEmail(ArgumentMatchers.any()))
+        .thenThrow(new MailSendException("Mail server connection failed"));
+    val invitationService =
+        new InvitationService(
+            mailService,
+            invitationMailSender,
+            mock(JoinProgramInviteRepository.class),
+            mock(EgoService.class));
+
+    assertThrows(
+        MailSendException.class,
+        () ->
+            invitationService.inviteUser(
+                programEntity, "user@example.com", "First", "Last", UserRole.ADMIN));
+    verifyNoInteractions(invitationMailSender);
+  }
+
+  @Test
+  void inviteUsersWithoutNewInvitationQueuesNoEmail() {
+    val programEntity = mock(ProgramEntity.class);
+    when(programEntity.getShortName()).thenReturn("TEST-CA");
+    val invitationRepository = mock(JoinProgramInviteRepository.class);
+    when(invitationRepository.findAllByProgramShortNameAndUserEmailIn(
+            ArgumentMatchers.eq("TEST-CA"), ArgumentMatchers.anyCollection()))
+        .thenReturn(
+            List.of(
+                createInvite(
+                    programEntity,
+                    "accepted@example.com",
+                    JoinProgramInviteEntity.Status.ACCEPTED)));
+    val invitationService =
+        new InvitationService(
+            mock(MailService.class),
+            invitationMailSender,
+            invitationRepository,
+            mock(EgoService.class));
+
+    val results =
+        invitationService.inviteUsers(programEntity, List.of(user("accepted@example.com")));
+
+    assertFalse(results.get(0).isInvited());
+    verifyNoInteractions(invitationMailSender);
+  }
+
   Optional<JoinProgramInviteEntity> testGetLatestInvitation(
       String program, String email, List<JoinProgramInviteEntity> invites) {
     val invitationRepository = mock(JoinProgramInviteRepository.class);
     val egoService = mock(EgoService.class);
     val mailService = mock(MailService.class);
 
-    val invitationService = new InvitationService(mailService, invitationRepository, egoService);
+    val invitationService =
+        new InvitationService(mailService, invitationMailSender, invitationRepository, egoService);
     when(invitationRepository.findAllByProgramShortNameAndUserEmailOrderByCreatedAtDesc(
             program, email))
         .thenReturn(invites);
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.proto.MembershipType.ASSOCIATE;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.google.protobuf.StringValue;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import javax.persistence.EntityManager;
+import lombok.val;
+import org.hibernate.engine.jdbc.batch.internal.BatchingBatch;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Transactional
+class ProgramBatchWriteIT {
+
+  private static final int INSTITUTIONS = 50;
+
+  @Autowired ProgramService programService;
+
+  @Autowired EntityManager entityManager;
+
+  @Autowired EntityGenerator generator;
+
+  /** Hibernate logs the size of every JDBC batch it executes */
+  private final Logger batchLogger = (Logger) LoggerFactory.getLogger(BatchingBatch.class);
+
+  private final ListAppender<ILoggingEvent> batches = new ListAppender<>();
+
+  private Level batchLoggerLevel;
+
+  private UUID dataCenterId;
+
+  @BeforeEach
+  void setUp() {
+    dataCenterId = generator.setUpDataCenter("TEST-DC").getId();
+    batchLoggerLevel = batchLogger.getLevel();
+    batchLogger.setLevel(Level.DEBUG);
+    batchLogger.addAppender(batches);
+    batches.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    batches.stop();
+    batchLogger.detachAppender(batches);
+    batchLogger.setLevel(batchLoggerLevel);
+  }
+
+  @Test
+  void updateProgramReplacesAssociations() {
+    val prefix = randomAlphabetic(10);
+    val kept = prefix + " Kept";
+    val removed = prefix + " Removed";
+    val added = prefix + " Added";
+    val program =
+        generator
+            .createProgram(StringValue.of(shortName()), ASSOCIATE)
+            .toBuilder()
+            .clearInstitutions()
+            .addAllInstitutions(List.of(kept, removed))
+            .build();
+    val created = programService.createProgram(program, dataCenterId);
+    entityManager.flush();
+    entityManager.clear();
+
+    val programToUpdate =
+        programService.getProgramWithoutAssociations(program.getShortName().getValue());
+    programService.updateProgram(
+        programToUpdate,
+        programToUpdate,
+        program.getCancerTypesList(),
+        program.getPrimarySitesList(),
+        List.of(kept, added),
+        program.getCountriesList());
+    entityManager.flush();
+    entityManager.clear();
+
+    val updated = programService.getProgram(program.getShortName().getValue());
+    assertEquals(created.getId(), updated.getId());
+    assertEquals(Set.of(kept, added), Set.copyOf(updated.listInstitutions()));
+    assertEquals(Set.copyOf(program.getCancerTypesList()), Set.copyOf(updated.listCancerTypes()));
+  }
+
+  @Test
+  void createProgramBatchesJoinTableInserts() {
+    val prefix = randomAlphabetic(10);
+    val names =
+        IntStream.range(0, INSTITUTIONS)
+            .mapToObj(i -> prefix + " Institution " + i)
+            .collect(toList());
+    programService.addInstitutions(names);
+    entityManager.flush();
+    entityManager.clear();
+
+    val sessionFactory =
+        entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+    // All institution rows of the program fit in one batch
+    assertTrue(sessionFactory.getSessionFactoryOptions().getJdbcBatchSize() >= INSTITUTIONS);
+    val statistics = sessionFactory.getStatistics();
+    statistics.clear();
+    batches.list.clear();
+
+    val program =
+        generator
+            .createProgram(StringValue.of(shortName()), ASSOCIATE)
+            .toBuilder()
+            .clearInstitutions()
+            .addAllInstitutions(names)
+            .build();
+    programService.createProgram(program, dataCenterId);
+    entityManager.flush();
+
+    // The program, its 50 institution rows and one cancer, primary site and country row
+    assertEquals(INSTITUTIONS + 4, statistics.getEntityInsertCount());
+    // One batch per table, rather than one statement per row
+    assertEquals(List.of(1, 1, 1, 1, INSTITUTIONS), batchSizes());
+  }
+
+  private List<Integer> batchSizes() {
+    return batches.list.stream()
+        .map(ILoggingEvent::getFormattedMessage)
+        .filter(message -> message.startsWith("Executing batch size: "))
+        .map(message -> Integer.valueOf(message.substring("Executing batch size: ".length())))
+        .sorted()
+        .collect(toList());
+  }
+
+  private static String shortName() {
+    return randomAlphabetic(8).toUpperCase() + "-CA";
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.services;
+
+import static java.util.stream.Collectors.toSet;
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.proto.MembershipType.ASSOCIATE;
+import static org.icgc.argo.program_service.proto.MembershipType.FULL;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.google.protobuf.Int32Value;
+import com.google.protobuf.StringValue;
+import com.jayway.jsonpath.JsonPath;
+import io.grpc.stub.StreamObserver;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.icgc.argo.program_service.grpc.ProgramServiceImpl;
+import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.proto.ListProgramsRequest;
+import org.icgc.argo.program_service.proto.ListProgramsResponse;
+import org.icgc.argo.program_service.proto.MembershipType;
+import org.icgc.argo.program_service.proto.MembershipTypeValue;
+import org.icgc.argo.program_service.proto.Program;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Program listings filtered in the database, through both the gRPC and the REST endpoint */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProgramFilterIT {
+
+  @Autowired ProgramServiceImpl programServiceImpl;
+
+  @Autowired MockMvc mockMvc;
+
+  @Autowired ProgramService programService;
+
+  @Autowired ProgramRepository programRepository;
+
+  @Autowired EntityGenerator generator;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final String prefix = randomAlphabetic(4).toUpperCase();
+  private final String dataCenter = "DC-" + prefix;
+  private final String otherDataCenter = "DC2-" + prefix;
+
+  /** Blood cancer in Canada, a full member */
+  private final String canadian = prefix + "A-CA";
+
+  /** Brain cancer in Germany, at the other data center */
+  private final String german = prefix + "B-CA";
+
+  /** Brain cancer in both countries, sampled from blood */
+  private final String international = prefix + "C-CA";
+
+  @BeforeEach
+  void setUp() {
+    val dataCenterId = generator.setUpDataCenter(dataCenter).getId();
+    val otherDataCenterId = generator.setUpDataCenter(otherDataCenter).getId();
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              programService.createProgram(
+                  program(canadian, FULL, List.of("Canada"), "Blood cancer", "Blood"),
+                  dataCenterId);
+              programService.createProgram(
+                  program(german, ASSOCIATE, List.of("Germany"), "Brain cancer", "Brain"),
+                  otherDataCenterId);
+              programService.createProgram(
+                  program(
+                      international,
+                      ASSOCIATE,
+                      List.of("Canada", "Germany"),
+                      "Brain cancer",
+                      "Blood"),
+                  dataCenterId);
+            });
+  }
+
+  @AfterEach
+  void cleanUp() {
+    transactions()
+        .executeWithoutResult(
+            status ->
+                programRepository.findAll().stream()
+                    .map(ProgramEntity::getShortName)
+                    .filter(shortName -> shortName.startsWith(prefix))
+                    .forEach(programService::removeProgram));
+  }
+
+  @Test
+  void emptyFilterListsEveryProgram() {
+    val all = Set.of(canadian, german, international);
+    assertEquals(all, grpc(ListProgramsRequest.newBuilder()));
+    assertEquals(all, rest(get("/programs")));
+  }
+
+  @Test
+  void countryFilter() {
+    val expected = Set.of(canadian, international);
+    assertEquals(expected, grpc(ListProgramsRequest.newBuilder().addCountries("Canada")));
+    assertEquals(expected, rest(get("/programs").param("country", "Canada")));
+  }
+
+  @Test
+  void cancerTypeFilter() {
+    val expected = Set.of(german, international);
+    assertEquals(expected, grpc(ListProgramsRequest.newBuilder().addCancerTypes("Brain cancer")));
+    assertEquals(expected, rest(get("/programs").param("cancerType", "Brain cancer")));
+  }
+
+  @Test
+  void primarySiteFilter() {
+    val expected = Set.of(canadian, international);
+    assertEquals(expected, grpc(ListProgramsRequest.newBuilder().addPrimarySites("Blood")));
+    assertEquals(expected, rest(get("/programs").param("primarySite", "Blood")));
+  }
+
+  @Test
+  void membershipTypeFilter() {
+    val expected = Set.of(german, international);
+    assertEquals(
+        expected,
+        grpc(ListProgramsRequest.newBuilder().setMembershipType(membershipType(ASSOCIATE))));
+    assertEquals(expected, rest(get("/programs").param("membershipType", "ASSOCIATE")));
+  }
+
+  @Test
+  void dataCenterFilter() {
+    val expected = Set.of(german);
+    assertEquals(
+        expected,
+        grpc(
+            ListProgramsRequest.newBuilder()
+                .setDataCenterShortName(StringValue.of(otherDataCenter))));
+    assertEquals(expected, rest(get("/programs").param("dataCenter", otherDataCenter)));
+  }
+
+  @Test
+  void severalValuesMatchAnyOfThem() {
+    val expected = Set.of(canadian, german, international);
+    assertEquals(
+        expected,
+        grpc(ListProgramsRequest.newBuilder().addPrimarySites("Blood").addPrimarySites("Brain")));
+    assertEquals(
+        expected,
+        rest(get("/programs").param("primarySite", "Blood").param("primarySite", "Brain")));
+  }
+
+  @Test
+  void combinedFiltersMustAllMatch() {
+    val expected = Set.of(international);
+    assertEquals(
+        expected,
+        grpc(
+            ListProgramsRequest.newBuilder()
+                .addCountries("Canada")
+                .addCancerTypes("Brain cancer")
+                .setMembershipType(membershipType(ASSOCIATE))
+                .setDataCenterShortName(StringValue.of(dataCenter))));
+    assertEquals(
+        expected,
+        rest(
+            get("/programs")
+                .param("country", "Canada")
+                .param("cancerType", "Brain cancer")
+                .param("membershipType", "ASSOCIATE")
+                .param("dataCenter", dataCenter)));
+
+    // No program has blood cancer in Germany
+    assertEquals(
+        Set.of(),
+        grpc(
+            ListProgramsRequest.newBuilder()
+                .addCountries("Germany")
+                .addCancerTypes("Blood cancer")));
+  }
+
+  @Test
+  void pagedFilteredListingKeepsTheFilter() {
+    val request =
+        ListProgramsRequest.newBuilder().addCountries("Canada").setPageSize(Int32Value.of(1));
+    val first = grpcResponse(request);
+    assertEquals(1, first.getProgramsCount());
+    assertTrue(first.hasNextPageToken());
+  }
+
+  @Test
+  void associationLookupsUseTheFilterIndices() {
+    val indices =
+        Map.of(
+            "program_country", "idx_program_country_country",
+            "program_cancer", "idx_program_cancer_cancer",
+            "program_primary_site", "idx_program_primary_site_primary_site",
+            "program", "idx_program_active_short_name");
+    indices.forEach(
+        (table, index) ->
+            assertEquals(
+                1,
+                jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM pg_indexes WHERE tablename = ? AND indexname = ?",
+                    Integer.class,
+                    table,
+                    index),
+                index));
+
+    // The tables are too small for the planner to prefer an index on its own
+    val plan =
+        transactions()
+            .execute(
+                status -> {
+                  jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+                  return String.join(
+                      "\n",
+                      jdbcTemplate.queryForList(
+                          "EXPLAIN SELECT pc.program_id FROM program_country pc "
+                              + "JOIN country c ON c.id = pc.country_id WHERE c.name = 'Canada'",
+                          String.class));
+                });
+    assertTrue(plan.contains("idx_program_country_country"), plan);
+  }
+
+  private Set<String> grpc(ListProgramsRequest.Builder request) {
+    return grpcResponse(request).getProgramsList().stream()
+        .map(p -> p.getProgram().getShortName().getValue())
+        .filter(shortName -> shortName.startsWith(prefix))
+        .collect(toSet());
+  }
+
+  @SuppressWarnings("unchecked")
+  private ListProgramsResponse grpcResponse(ListProgramsRequest.Builder request) {
+    StreamObserver<ListProgramsResponse> observer = mock(StreamObserver.class);
+    programServiceImpl.listPrograms(request.build(), observer);
+    val response = ArgumentCaptor.forClass(ListProgramsResponse.class);
+    verify(observer).onNext(response.capture());
+    verify(observer).onCompleted();
+    return response.getValue();
+  }
+
+  @SneakyThrows
+  private Set<String> rest(MockHttpServletRequestBuilder request) {
+    val json =
+        mockMvc
+            .perform(request.header("Authorization", "Bearer test"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    List<String> shortNames = JsonPath.read(json, "$[*].program.shortName");
+    return shortNames.stream().filter(shortName -> shortName.startsWith(prefix)).collect(toSet());
+  }
+
+  private Program program(
+      String shortName,
+      MembershipType membershipType,
+      List<String> countries,
+      String cancerType,
+      String primarySite) {
+    return generator
+        .createProgram(StringValue.of(shortName), membershipType)
+        .toBuilder()
+        .clearCountries()
+        .addAllCountries(countries)
+        .clearCancerTypes()
+        .addCancerTypes(cancerType)
+        .clearPrimarySites()
+        .addPrimarySites(primarySite)
+        .build();
+  }
+
+  private static MembershipTypeValue membershipType(MembershipType membershipType) {
+    return MembershipTypeValue.newBuilder().setValue(membershipType).build();
+  }
+
+  private TransactionTemplate transactions() {
+    return new TransactionTemplate(transactionManager);
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.services;
+
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.proto.MembershipType.FULL;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.google.protobuf.StringValue;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.icgc.argo.program_service.controller.ProgramController;
+import org.icgc.argo.program_service.model.entity.JoinProgramInviteEntity;
+import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.proto.JoinProgramRequest;
+import org.icgc.argo.program_service.proto.User;
+import org.icgc.argo.program_service.proto.UserDetails;
+import org.icgc.argo.program_service.proto.UserRole;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.icgc.argo.program_service.services.ego.EgoService;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoUser;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Joining and listing the members of a program with the mirror on, with Ego mocked. The scheduled
+ * reconciliation is pushed out of the way, it would replace the members with the mocked Ego's.
+ */
+@SpringBootTest(
+    properties = {
+      "app.membership-mirror.enabled=true",
+      "app.membership-mirror.poll-interval-ms=3600000"
+    })
+@ActiveProfiles("test")
+class ProgramMembershipMirrorIT {
+
+  @MockBean EgoService egoService;
+
+  @MockBean InvitationService invitationService;
+
+  @Autowired ProgramServiceFacade facade;
+
+  @Autowired ProgramController programController;
+
+  @Autowired ProgramService programService;
+
+  @Autowired ProgramRepository programRepository;
+
+  @Autowired EntityGenerator generator;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final String shortName = randomAlphabetic(8).toUpperCase() + "-CA";
+
+  private final EgoUser user =
+      new EgoUser()
+          .setId(UUID.randomUUID())
+          .setEmail("member@example.com")
+          .setFirstName("Program")
+          .setLastName("Member");
+
+  private ProgramEntity program;
+
+  @BeforeEach
+  void setUp() {
+    val dataCenterId = generator.setUpDataCenter("TEST-DC").getId();
+    program =
+        transactions()
+            .execute(
+                status ->
+                    programService.createProgram(
+                        generator.createProgram(StringValue.of(shortName), FULL), dataCenterId));
+  }
+
+  @AfterEach
+  void cleanUp() {
+    transactions().executeWithoutResult(status -> programService.removeProgram(shortName));
+  }
+
+  @Test
+  void dacoIsLookedUpOnceTheJoinCommitted() {
+    when(egoService.isUserDacoApproved(user.getEmail()))
+        .thenAnswer(
+            invocation -> {
+              // Another connection already sees the new member, with the approval still unknown
+              val member = CompletableFuture.supplyAsync(this::membershipRow).join();
+              assertNull(member.get("daco_approved"));
+              return true;
+            });
+
+    join();
+
+    // Looked up on another thread once the join committed
+    val member = awaitDacoChecked();
+    assertEquals(true, member.get("daco_approved"));
+    assertNotNull(member.get("daco_checked_at"));
+
+    val userDetails = listUsers();
+    assertEquals(user.getEmail(), userDetails.getUser().getEmail().getValue());
+    assertEquals(UserRole.SUBMITTER, userDetails.getUser().getRole().getValue());
+    assertTrue(userDetails.getDacoApproved().getValue());
+    // Listed from the mirror, without asking Ego again
+    verify(egoService, never()).getUsersInProgram(any());
+    verify(egoService, times(1)).isUserDacoApproved(user.getEmail());
+  }
+
+  @Test
+  void unknownDacoIsLookedUpWhenListed() {
+    when(egoService.isUserDacoApproved(user.getEmail()))
+        .thenThrow(new IllegalStateException("Ego is down"))
+        .thenReturn(true);
+
+    join();
+
+    verify(egoService, timeout(5000)).isUserDacoApproved(user.getEmail());
+    assertNull(membershipRow().get("daco_approved"));
+    assertTrue(listUsers().getDacoApproved().getValue());
+    verify(egoService, never()).getUsersInProgram(any());
+  }
+
+  @SneakyThrows
+  private Map<String, Object> awaitDacoChecked() {
+    val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    Map<String, Object> member = membershipRow();
+    while (member.get("daco_checked_at") == null && System.nanoTime() < deadline) {
+      Thread.sleep(50);
+      member = membershipRow();
+    }
+    return member;
+  }
+
+  @Test
+  void restListUsersReadsEgoWhenLive() {
+    when(egoService.isUserDacoApproved(user.getEmail())).thenReturn(true);
+    join();
+    awaitDacoChecked();
+    markReconciled();
+    when(egoService.getUsersInProgram(shortName))
+        .thenReturn(List.of(User.newBuilder().setEmail(StringValue.of(user.getEmail())).build()));
+
+    val mirrored = programController.listUsers("Bearer test", shortName, 0, null, false);
+    assertEquals(1, mirrored.getBody().size());
+    verify(egoService, never()).getUsersInProgram(any());
+
+    val live = programController.listUsers("Bearer test", shortName, 0, null, true);
+    assertEquals(1, live.getBody().size());
+    verify(egoService, times(1)).getUsersInProgram(shortName);
+  }
+
+  private void join() {
+    val invitation =
+        new JoinProgramInviteEntity()
+            .setId(UUID.randomUUID())
+            .setProgram(program)
+            .setUserEmail(user.getEmail())
+            .setRole(UserRole.SUBMITTER);
+    when(invitationService.getInvitationById(invitation.getId()))
+        .thenReturn(Optional.of(invitation));
+    when(invitationService.acceptInvite(invitation.getId())).thenReturn(user);
+
+    facade.joinProgram(
+        JoinProgramRequest.newBuilder()
+            .setJoinProgramInvitationId(StringValue.of(invitation.getId().toString()))
+            .build(),
+        invite -> {});
+  }
+
+  private UserDetails listUsers() {
+    markReconciled();
+    val response = facade.listUsers(shortName);
+    assertEquals(1, response.getUserDetailsCount());
+    return response.getUserDetails(0);
+  }
+
+  /** Reconciled just now, so the mirror is read */
+  private void markReconciled() {
+    val now = LocalDateTime.now(ZoneOffset.UTC);
+    jdbcTemplate.update(
+        "INSERT INTO program_membership_sync (program_id, synced_at, next_sync_at) VALUES (?, ?, ?)",
+        program.getId(),
+        Timestamp.valueOf(now),
+        Timestamp.valueOf(now.plusHours(1)));
+  }
+
+  private Map<String, Object> membershipRow() {
+    return jdbcTemplate.queryForMap(
+        "SELECT daco_approved, daco_checked_at FROM program_membership "
+            + "WHERE program_id = ? AND user_id = ?",
+        program.getId(),
+        user.getId());
+  }
+
+  private TransactionTemplate transactions() {
+    return new TransactionTemplate(transactionManager);
+  }
+}
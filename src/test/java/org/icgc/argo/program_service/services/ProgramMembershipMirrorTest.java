@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.model.entity.ProgramMembershipEntity;
+import org.icgc.argo.program_service.model.entity.ProgramMembershipSyncEntity;
+import org.icgc.argo.program_service.model.join.ProgramMembershipId;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.proto.UserRole;
+import org.icgc.argo.program_service.repositories.ProgramMembershipRepository;
+import org.icgc.argo.program_service.repositories.ProgramMembershipSyncRepository;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.icgc.argo.program_service.repositories.query.KeysetPageRequest;
+import org.icgc.argo.program_service.services.ego.EgoService;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ProgramMembershipMirrorTest {
+
+  private static final String SHORT_NAME = "TEST-CA";
+
+  private final ProgramMembershipRepository membershipRepository =
+      mock(ProgramMembershipRepository.class);
+  private final ProgramMembershipSyncRepository syncRepository =
+      mock(ProgramMembershipSyncRepository.class);
+  private final ProgramRepository programRepository = mock(ProgramRepository.class);
+  private final EgoService egoService = mock(EgoService.class);
+
+  private final UUID programId = UUID.randomUUID();
+  private final ProgramEntity program =
+      new ProgramEntity().setId(programId).setShortName(SHORT_NAME);
+
+  private final ProgramMembershipMirror mirror =
+      new ProgramMembershipMirror(
+          membershipRepository,
+          syncRepository,
+          programRepository,
+          egoService,
+          new TransactionTemplate(mock(PlatformTransactionManager.class)),
+          new AppProperties());
+
+  @BeforeEach
+  void setUp() {
+    when(syncRepository.claim(eq(programId), any(), any())).thenReturn(1);
+    when(programRepository.findById(programId)).thenReturn(Optional.of(program));
+  }
+
+  @Test
+  void listsFromTheMirrorOnlyOnceReconciled() {
+    val page = KeysetPageRequest.of(10, "");
+    assertTrue(mirror.listMembers(programId, page).isEmpty());
+
+    when(syncRepository.findById(programId)).thenReturn(Optional.of(sync(null)));
+    assertTrue(mirror.listMembers(programId, page).isEmpty());
+
+    when(syncRepository.findById(programId)).thenReturn(Optional.of(sync(now().minusDays(1))));
+    assertTrue(mirror.listMembers(programId, page).isEmpty());
+
+    val member = member(user("a@example.com"), UserRole.SUBMITTER, now());
+    when(syncRepository.findById(programId)).thenReturn(Optional.of(sync(now())));
+    when(membershipRepository.findPage(programId, "", page.lookahead()))
+        .thenReturn(List.of(member));
+    assertEquals(Optional.of(List.of(member)), mirror.listMembers(programId, page));
+  }
+
+  @Test
+  void reconcileCopiesEgoMembership() {
+    val kept = user("kept@example.com");
+    val added = user("added@example.com");
+    val departed = member(user("departed@example.com"), UserRole.COLLABORATOR, now().minusHours(1));
+    val keptRow = member(kept, UserRole.COLLABORATOR, now().minusMinutes(10));
+    when(membershipRepository.findAllByIdProgramId(programId))
+        .thenReturn(List.of(keptRow, departed));
+    when(egoService.getEgoUsersInProgram(SHORT_NAME))
+        .thenReturn(List.of(kept.setRole(UserRole.SUBMITTER), added.setRole(UserRole.ADMIN)));
+    when(egoService.isUserDacoApproved("added@example.com")).thenReturn(true);
+
+    mirror.reconcile(programId);
+
+    verify(membershipRepository)
+        .save(
+            argThat(
+                m -> m.getEmail().equals("kept@example.com") && m.getRole() == UserRole.SUBMITTER));
+    verify(membershipRepository)
+        .save(argThat(m -> m.getEmail().equals("added@example.com") && m.getDacoApproved()));
+    verify(membershipRepository).delete(departed);
+    // The kept member's DACO approval was checked recently enough
+    verify(egoService, never()).isUserDacoApproved("kept@example.com");
+    verify(syncRepository).save(argThat(sync -> sync.getSyncedAt() != null));
+  }
+
+  @Test
+  void reconcileKeepsChangesMadeWhileEgoWasRead() {
+    val joined = user("joined@example.com");
+    val left = user("left@example.com");
+    val leftRow = member(left, UserRole.SUBMITTER, now().minusHours(1));
+    // Ego still lists both, but one joined with a new role and the other left meanwhile
+    when(membershipRepository.findAllByIdProgramId(programId))
+        .thenReturn(List.of(leftRow), List.of(member(joined, UserRole.ADMIN, now().plusHours(1))));
+    when(egoService.getEgoUsersInProgram(SHORT_NAME))
+        .thenReturn(List.of(joined.setRole(UserRole.SUBMITTER), left.setRole(UserRole.SUBMITTER)));
+
+    mirror.reconcile(programId);
+
+    verify(membershipRepository, never()).save(any());
+    verify(membershipRepository, never()).delete(any());
+  }
+
+  @Test
+  void joinedLooksUpDacoAfterCommit() {
+    val user = user("joined@example.com");
+    when(egoService.isUserDacoApproved("joined@example.com")).thenReturn(true);
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      mirror.joined(program, user, UserRole.SUBMITTER);
+
+      verify(membershipRepository)
+          .save(argThat(m -> m.getDacoApproved() == null && m.getDacoCheckedAt() == null));
+      verifyNoInteractions(egoService);
+
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    // Looked up on another thread
+    verify(membershipRepository, timeout(5000))
+        .updateUnknownDaco(eq(new ProgramMembershipId(programId, user.getId())), eq(true), any());
+  }
+
+  @Test
+  void dacoLookupFailureIsLeftToReconcile() {
+    val user = user("joined@example.com");
+    when(egoService.isUserDacoApproved("joined@example.com"))
+        .thenThrow(new IllegalStateException("Ego is down"));
+
+    mirror.refreshDaco(programId, user);
+
+    verify(membershipRepository, never()).updateUnknownDaco(any(), anyBoolean(), any());
+  }
+
+  @Test
+  void reconcileLooksUpUnknownDaco() {
+    val joined = user("joined@example.com");
+    val row =
+        member(joined, UserRole.SUBMITTER, now()).setDacoApproved(null).setDacoCheckedAt(null);
+    when(membershipRepository.findAllByIdProgramId(programId)).thenReturn(List.of(row));
+    when(egoService.getEgoUsersInProgram(SHORT_NAME))
+        .thenReturn(List.of(joined.setRole(UserRole.SUBMITTER)));
+    when(egoService.isUserDacoApproved("joined@example.com")).thenReturn(true);
+
+    mirror.reconcile(programId);
+
+    verify(membershipRepository)
+        .save(argThat(m -> m.getDacoApproved() && m.getDacoCheckedAt() != null));
+  }
+
+  @Test
+  void reconcileSkipsProgramsClaimedElsewhere() {
+    when(syncRepository.claim(eq(programId), any(), any())).thenReturn(0);
+
+    mirror.reconcile(programId);
+
+    verifyNoInteractions(egoService);
+    verify(syncRepository, never()).save(any());
+  }
+
+  private ProgramMembershipSyncEntity sync(LocalDateTime syncedAt) {
+    return new ProgramMembershipSyncEntity()
+        .setProgramId(programId)
+        .setSyncedAt(syncedAt)
+        .setNextSyncAt(now());
+  }
+
+  private ProgramMembershipEntity member(EgoUser user, UserRole role, LocalDateTime syncedAt) {
+    return new ProgramMembershipEntity()
+        .setId(new ProgramMembershipId(programId, user.getId()))
+        .setEmail(user.getEmail())
+        .setRole(role)
+        .setDacoApproved(false)
+        .setDacoCheckedAt(syncedAt)
+        .setSyncedAt(syncedAt);
+  }
+
+  private static EgoUser user(String email) {
+    return new EgoUser().setId(UUID.randomUUID()).setEmail(email);
+  }
+
+  private static LocalDateTime now() {
+    return LocalDateTime.now(ZoneOffset.UTC);
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.proto.MembershipType.ASSOCIATE;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.protobuf.StringValue;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.icgc.argo.program_service.repositories.query.KeysetPage;
+import org.icgc.argo.program_service.repositories.query.KeysetPageRequest;
+import org.icgc.argo.program_service.repositories.query.ProgramFilter;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProgramPagingIT {
+
+  @Autowired ProgramService programService;
+
+  @Autowired ProgramRepository programRepository;
+
+  @Autowired EntityGenerator generator;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final String prefix = randomAlphabetic(3).toUpperCase();
+  private final String dataCenter = "DC-" + prefix;
+
+  /**
+   * Locale aware collations ignore punctuation and case at first, so they would order these as PCC,
+   * P0, P_A, Pb, P-ZZ. Page tokens compare by character code.
+   */
+  private final List<String> shortNames =
+      List.of(prefix + "-ZZ-CA", prefix + "0-CA", prefix + "CC-CA", prefix + "_A-CA");
+
+  private final String mixedCase = prefix + "b-CA";
+
+  @BeforeEach
+  void setUp() {
+    val dataCenterId = generator.setUpDataCenter(dataCenter).getId();
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              for (val shortName : shortNames) {
+                programService.createProgram(
+                    generator.createProgram(StringValue.of(shortName), ASSOCIATE), dataCenterId);
+              }
+              // Short names are validated to be upper case, but older programs are not
+              programService.createProgram(
+                  generator.createProgram(StringValue.of(prefix + "B-CA"), ASSOCIATE),
+                  dataCenterId);
+            });
+    jdbcTemplate.update(
+        "UPDATE program SET short_name = ? WHERE short_name = ?", mixedCase, prefix + "B-CA");
+  }
+
+  @AfterEach
+  void cleanUp() {
+    transactions()
+        .executeWithoutResult(
+            status ->
+                programRepository.findAll().stream()
+                    .map(ProgramEntity::getShortName)
+                    .filter(shortName -> shortName.startsWith(prefix))
+                    .forEach(programService::removeProgram));
+  }
+
+  @Test
+  void pagesFollowCharacterOrder() {
+    val expected = new ArrayList<>(shortNames);
+    expected.add(mixedCase);
+    expected.sort(String::compareTo);
+
+    val listed = new ArrayList<String>();
+    KeysetPage<String> page = listPrograms(KeysetPageRequest.of(2, null));
+    listed.addAll(page.getItems());
+    while (page.getNextPageToken().isPresent()) {
+      page = listPrograms(KeysetPageRequest.of(2, page.getNextPageToken().get()));
+      listed.addAll(page.getItems());
+    }
+
+    assertEquals(expected, listed);
+  }
+
+  @Test
+  void unpagedListingFollowsCharacterOrder() {
+    val listed = listPrograms(KeysetPageRequest.unpaged()).getItems();
+    assertEquals(listed.stream().sorted().collect(toList()), listed);
+    assertEquals(shortNames.size() + 1, listed.size());
+  }
+
+  private KeysetPage<String> listPrograms(KeysetPageRequest page) {
+    val filter = ProgramFilter.builder().dataCenterShortName(dataCenter).build();
+    return transactions()
+        .execute(
+            status -> programService.listPrograms(filter, page).map(ProgramEntity::getShortName));
+  }
+
+  private TransactionTemplate transactions() {
+    return new TransactionTemplate(transactionManager);
+  }
+}
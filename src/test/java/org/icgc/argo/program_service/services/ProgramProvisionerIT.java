@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.services;
+
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.model.entity.ProgramProvisioningEntity.Step.SET_UP_PERMISSIONS;
+import static org.icgc.argo.program_service.proto.MembershipType.ASSOCIATE;
+import static org.icgc.argo.program_service.proto.ProvisioningStatus.PROVISIONED;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.google.protobuf.StringValue;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import lombok.val;
+import org.icgc.argo.program_service.proto.CreateProgramRequest;
+import org.icgc.argo.program_service.proto.User;
+import org.icgc.argo.program_service.proto.UserRole;
+import org.icgc.argo.program_service.proto.UserRoleValue;
+import org.icgc.argo.program_service.repositories.ProgramProvisioningRepository;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.icgc.argo.program_service.services.ego.EgoService;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** The Ego setup running after the creating transaction committed, with Ego itself mocked */
+@SpringBootTest(properties = "app.provisioning.async=true")
+@ActiveProfiles("test")
+class ProgramProvisionerIT {
+
+  private static final long TIMEOUT_MS = 10000;
+
+  @MockBean EgoService egoService;
+
+  @MockBean InvitationService invitationService;
+
+  @Autowired ProgramServiceFacade facade;
+
+  @Autowired ProgramService programService;
+
+  @Autowired ProgramRepository programRepository;
+
+  @Autowired ProgramProvisioningRepository provisioningRepository;
+
+  @Autowired EntityGenerator generator;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final String shortName = randomAlphabetic(8).toUpperCase() + "-CA";
+
+  @AfterEach
+  void cleanUp() {
+    transactions()
+        .executeWithoutResult(
+            status ->
+                programRepository
+                    .findByShortName(shortName)
+                    .ifPresent(p -> programService.removeProgram(shortName)));
+  }
+
+  @Test
+  void createdProgramIsProvisionedAfterCommit() {
+    val programId = createProgram();
+
+    await(
+        () ->
+            programRepository
+                .findById(programId)
+                .map(p -> p.getProvisioningStatus() == PROVISIONED)
+                .orElse(false));
+    verify(egoService).setUpProgram(shortName, ASSOCIATE);
+    verify(invitationService)
+        .inviteUser(any(), eq("admin@example.com"), eq("Program"), eq("Admin"), eq(UserRole.ADMIN));
+    assertFalse(provisioningRepository.existsById(programId));
+  }
+
+  @Test
+  void programRemovedDuringAStepIsNotProvisionedFurther() {
+    doAnswer(
+            invocation -> {
+              transactions()
+                  .executeWithoutResult(status -> programService.removeProgram(shortName));
+              return null;
+            })
+        .when(egoService)
+        .setUpProgram(shortName, ASSOCIATE);
+
+    createProgram();
+
+    verify(egoService, timeout(TIMEOUT_MS)).setUpProgram(shortName, ASSOCIATE);
+    verify(invitationService, after(1000).never()).inviteUser(any(), any(), any(), any(), any());
+    assertTrue(programRepository.findByShortName(shortName).isEmpty());
+  }
+
+  @Test
+  void workerThatLostItsLeaseStops() {
+    val otherLease = LocalDateTime.now(ZoneOffset.UTC).plusHours(1).withNano(0);
+    doAnswer(
+            invocation -> {
+              // The step outlasted the lease and another worker claimed the workflow meanwhile
+              jdbcTemplate.update(
+                  "UPDATE program_provisioning SET next_attempt_at = ? WHERE program_id = ?",
+                  Timestamp.valueOf(otherLease),
+                  programRepository.findByShortName(shortName).get().getId());
+              return null;
+            })
+        .when(egoService)
+        .setUpProgram(shortName, ASSOCIATE);
+
+    val programId = createProgram();
+
+    verify(egoService, timeout(TIMEOUT_MS)).setUpProgram(shortName, ASSOCIATE);
+    verify(invitationService, after(1000).never()).inviteUser(any(), any(), any(), any(), any());
+    val provisioning = provisioningRepository.findById(programId).get();
+    assertEquals(SET_UP_PERMISSIONS, provisioning.getStep());
+    assertEquals(0, provisioning.getAttempts());
+    assertEquals(otherLease, provisioning.getNextAttemptAt());
+  }
+
+  private UUID createProgram() {
+    val program = generator.createProgram(StringValue.of(shortName), ASSOCIATE);
+    val admin =
+        User.newBuilder()
+            .setRole(UserRoleValue.newBuilder().setValue(UserRole.ADMIN))
+            .setEmail(StringValue.of("admin@example.com"))
+            .setFirstName(StringValue.of("Program"))
+            .setLastName(StringValue.of("Admin"))
+            .build();
+    val dataCenterId = generator.setUpDataCenter("TEST-DC").getId();
+    facade.createProgram(
+        CreateProgramRequest.newBuilder().setProgram(program).addAdmins(admin).build(),
+        dataCenterId);
+    return programRepository.findByShortName(shortName).get().getId();
+  }
+
+  private TransactionTemplate transactions() {
+    return new TransactionTemplate(transactionManager);
+  }
+
+  private static void await(BooleanSupplier condition) {
+    val deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for provisioning");
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static org.icgc.argo.program_service.model.entity.ProgramProvisioningEntity.Step.*;
+import static org.icgc.argo.program_service.proto.MembershipType.FULL;
+import static org.icgc.argo.program_service.proto.ProvisioningStatus.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.val;
+import org.icgc.argo.program_service.converter.CommonConverter;
+import org.icgc.argo.program_service.model.entity.ProgramEntity;
+import org.icgc.argo.program_service.model.entity.ProgramProvisioningEntity;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.proto.UserRole;
+import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
+import org.icgc.argo.program_service.repositories.ProgramProvisioningRepository;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.icgc.argo.program_service.services.ego.EgoClient;
+import org.icgc.argo.program_service.services.ego.EgoService;
+import org.icgc.argo.program_service.services.ego.model.exceptions.EgoException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ProgramProvisionerTest {
+
+  private static final String SHORT_NAME = "TEST-CA";
+  private static final String ADMINS =
+      "[{\"email\":\"a@example.com\",\"firstName\":\"A\",\"lastName\":\"Admin\"},"
+          + "{\"email\":\"b@example.com\",\"firstName\":\"B\",\"lastName\":\"Admin\"}]";
+
+  private final ProgramProvisioningRepository provisioningRepository =
+      mock(ProgramProvisioningRepository.class);
+  private final ProgramRepository programRepository = mock(ProgramRepository.class);
+  private final JoinProgramInviteRepository invitationRepository =
+      mock(JoinProgramInviteRepository.class);
+  private final EgoService egoService = mock(EgoService.class);
+  private final EgoClient egoClient = mock(EgoClient.class);
+  private final InvitationService invitationService = mock(InvitationService.class);
+
+  private final UUID programId = UUID.randomUUID();
+  private final ProgramEntity program =
+      new ProgramEntity()
+          .setId(programId)
+          .setShortName(SHORT_NAME)
+          .setMembershipType(FULL)
+          .setProvisioningStatus(PROVISIONING);
+
+  private final ProgramProvisioner provisioner = provisioner();
+
+  @BeforeEach
+  void setUp() {
+    when(provisioningRepository.claim(eq(programId), any(), any())).thenReturn(1);
+    when(provisioningRepository.extendLease(eq(programId), any(), any())).thenReturn(1);
+    when(programRepository.findById(programId)).thenReturn(Optional.of(program));
+    when(programRepository.existsById(programId)).thenReturn(true);
+    when(egoService.getEgoClient()).thenReturn(egoClient);
+  }
+
+  @AfterEach
+  void shutdown() {
+    provisioner.shutdown();
+  }
+
+  @Test
+  void runsAllStepsThenMarksProgramProvisioned() {
+    val provisioning = provisioning(SET_UP_PERMISSIONS, 0, 0);
+
+    provisioner.run(programId);
+
+    verify(egoService).setUpProgram(SHORT_NAME, FULL);
+    verify(invitationService).inviteUser(program, "a@example.com", "A", "Admin", UserRole.ADMIN);
+    verify(invitationService).inviteUser(program, "b@example.com", "B", "Admin", UserRole.ADMIN);
+    verify(provisioningRepository).deleteById(programId);
+    assertEquals(PROVISIONED, program.getProvisioningStatus());
+    assertEquals(2, provisioning.getAdminsInvited());
+  }
+
+  @Test
+  void resumesAtTheSavedStep() {
+    provisioning(INVITE_ADMINS, 1, 0);
+
+    provisioner.run(programId);
+
+    verify(egoService, never()).setUpProgram(any(), any());
+    verify(invitationService, never()).inviteUser(any(), eq("a@example.com"), any(), any(), any());
+    verify(invitationService).inviteUser(program, "b@example.com", "B", "Admin", UserRole.ADMIN);
+    assertEquals(PROVISIONED, program.getProvisioningStatus());
+  }
+
+  @Test
+  void workflowClaimedElsewhereIsLeftAlone() {
+    provisioning(SET_UP_PERMISSIONS, 0, 0);
+    when(provisioningRepository.claim(eq(programId), any(), any())).thenReturn(0);
+
+    provisioner.run(programId);
+
+    verifyNoInteractions(egoService, invitationService);
+    verify(provisioningRepository, never()).save(any());
+  }
+
+  @Test
+  void lostLeaseStopsBeforeTheNextStep() {
+    provisioning(INVITE_ADMINS, 0, 0);
+    // The lease ran out while the first admin was invited and another worker claimed the workflow
+    when(provisioningRepository.extendLease(eq(programId), any(), any())).thenReturn(1, 1, 0);
+
+    provisioner.run(programId);
+
+    verify(invitationService).inviteUser(program, "a@example.com", "A", "Admin", UserRole.ADMIN);
+    verify(invitationService, never()).inviteUser(any(), eq("b@example.com"), any(), any(), any());
+    verify(provisioningRepository, times(1)).save(any());
+    assertEquals(PROVISIONING, program.getProvisioningStatus());
+  }
+
+  @Test
+  void removedProgramStopsBeforeTheNextStep() {
+    provisioning(SET_UP_PERMISSIONS, 0, 0);
+    when(programRepository.existsById(programId)).thenReturn(true, false);
+
+    provisioner.run(programId);
+
+    verify(egoService).setUpProgram(SHORT_NAME, FULL);
+    verifyNoInteractions(invitationService);
+  }
+
+  @Test
+  void failureAfterLosingTheLeaseIsLeftToTheNewWorker() {
+    val provisioning = provisioning(SET_UP_PERMISSIONS, 0, 0);
+    doThrow(new EgoException("Ego is down")).when(egoService).setUpProgram(SHORT_NAME, FULL);
+    when(provisioningRepository.extendLease(eq(programId), any(), any())).thenReturn(1, 0);
+
+    provisioner.run(programId);
+
+    assertEquals(0, provisioning.getAttempts());
+    verify(provisioningRepository, never()).save(any());
+  }
+
+  @Test
+  void failedStepIsRetriedLater() {
+    val provisioning = provisioning(INVITE_ADMINS, 0, 0);
+    doThrow(new EgoException("Ego is down"))
+        .when(invitationService)
+        .inviteUser(program, "b@example.com", "B", "Admin", UserRole.ADMIN);
+
+    val before = LocalDateTime.now(ZoneOffset.UTC);
+    provisioner.run(programId);
+
+    // The first invitation is kept, the second one is retried after the backoff
+    assertEquals(INVITE_ADMINS, provisioning.getStep());
+    assertEquals(1, provisioning.getAdminsInvited());
+    assertEquals(1, provisioning.getAttempts());
+    assertTrue(provisioning.getLastError().contains("Ego is down"));
+    assertTrue(provisioning.getNextAttemptAt().isAfter(before));
+    assertEquals(PROVISIONING, program.getProvisioningStatus());
+  }
+
+  @Test
+  void failedInviteEmailIsRetriedWithTheStep() {
+    val provisioning = provisioning(INVITE_ADMINS, 0, 0);
+    // The invitation is sent within the step, a mail server that is down fails it
+    doThrow(new MailSendException("Mail server connection failed"))
+        .when(invitationService)
+        .inviteUser(program, "a@example.com", "A", "Admin", UserRole.ADMIN);
+
+    provisioner.run(programId);
+
+    assertEquals(INVITE_ADMINS, provisioning.getStep());
+    assertEquals(0, provisioning.getAdminsInvited());
+    assertEquals(1, provisioning.getAttempts());
+    verify(invitationService, never()).inviteUser(any(), eq("b@example.com"), any(), any(), any());
+
+    reset(invitationService);
+    provisioner.run(programId);
+
+    verify(invitationService).inviteUser(program, "a@example.com", "A", "Admin", UserRole.ADMIN);
+    verify(invitationService).inviteUser(program, "b@example.com", "B", "Admin", UserRole.ADMIN);
+    assertEquals(PROVISIONED, program.getProvisioningStatus());
+  }
+
+  @Test
+  void failureIsNotSavedOnceTheLeaseIsLost() {
+    provisioning(SET_UP_PERMISSIONS, 0, 0);
+    doThrow(new EgoException("Ego is down")).when(egoService).setUpProgram(SHORT_NAME, FULL);
+    // Still held when the failure is read, taken over before it is saved
+    when(provisioningRepository.extendLease(eq(programId), any(), any())).thenReturn(1, 1, 0);
+
+    provisioner.run(programId);
+
+    verify(provisioningRepository, never()).save(any());
+    assertEquals(PROVISIONING, program.getProvisioningStatus());
+  }
+
+  @Test
+  void lastFailedAttemptIsCompensated() {
+    val provisioning = provisioning(SET_UP_PERMISSIONS, 0, 2);
+    doThrow(new EgoException("Ego is down")).when(egoService).setUpProgram(SHORT_NAME, FULL);
+
+    provisioner.run(programId);
+
+    assertEquals(PROVISIONING_FAILED, program.getProvisioningStatus());
+    verify(egoClient, timeout(1000)).massDelete(any());
+    verify(invitationRepository, timeout(1000)).deleteAllByProgramShortName(SHORT_NAME);
+    verify(provisioningRepository, timeout(1000).atLeastOnce())
+        .save(argThat(p -> p.getStep() == COMPENSATED && p.getNextAttemptAt() == null));
+    assertEquals(COMPENSATED, provisioning.getStep());
+  }
+
+  @Test
+  void backoffDoublesUpToTheMaximum() {
+    assertEquals(10, provisioner.backoffMs(1));
+    assertEquals(20, provisioner.backoffMs(2));
+    assertEquals(40, provisioner.backoffMs(3));
+    assertEquals(100, provisioner.backoffMs(10));
+    assertEquals(100, provisioner.backoffMs(1000));
+  }
+
+  private ProgramProvisioningEntity provisioning(
+      ProgramProvisioningEntity.Step step, int adminsInvited, int attempts) {
+    val provisioning =
+        new ProgramProvisioningEntity()
+            .setProgramId(programId)
+            .setStep(step)
+            .setAdmins(ADMINS)
+            .setAdminsInvited(adminsInvited)
+            .setAttempts(attempts)
+            .setNextAttemptAt(LocalDateTime.now());
+    when(provisioningRepository.findById(programId)).thenReturn(Optional.of(provisioning));
+    return provisioning;
+  }
+
+  private ProgramProvisioner provisioner() {
+    val appProperties = new AppProperties();
+    val properties = appProperties.getProvisioning();
+    properties.setMaxAttempts(3);
+    properties.setInitialBackoffMs(10L);
+    properties.setMaxBackoffMs(100L);
+    return new ProgramProvisioner(
+        provisioningRepository,
+        programRepository,
+        invitationRepository,
+        egoService,
+        invitationService,
+        mock(InvalidationBus.class),
+        mock(ChangeLogService.class),
+        CommonConverter.INSTANCE,
+        new ObjectMapper(),
+        new TransactionTemplate(mock(PlatformTransactionManager.class)),
+        appProperties);
+  }
+}
@@ -23,15 +23,18 @@ package org.icgc.argo.program_service.services;
 import static java.lang.String.format;
 import static org.icgc.argo.program_service.services.ego.EgoService.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
 
 import java.util.Arrays;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.icgc.argo.program_service.converter.ProgramConverter;
 import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.proto.MembershipType;
 import org.icgc.argo.program_service.proto.UserRole;
 import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
 import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.icgc.argo.program_service.services.ego.EgoMembershipCache;
 import org.icgc.argo.program_service.services.ego.EgoRESTClient;
 import org.icgc.argo.program_service.services.ego.EgoService;
 import org.icgc.argo.program_service.services.ego.model.entity.EgoPermission;
@@ -67,7 +70,14 @@ class ProgramServiceIT {
   @BeforeAll
   void setUp() {
     System.err.printf("Setting up...\n");
-    egoService = new EgoService(converter, client, inviteRepository, appProperties);
+    egoService =
+        new EgoService(
+            converter,
+            client,
+            inviteRepository,
+            new EgoMembershipCache(appProperties),
+            mock(InvalidationBus.class),
+            appProperties);
 
     try {
       egoService.cleanUpProgram(name);
@@ -78,7 +88,7 @@ class ProgramServiceIT {
 
   @Test
   public void test_setupProgram() {
-    egoService.setUpProgram(name);
+    egoService.setUpProgram(name, MembershipType.FULL);
 
     // Policies are created
     assertTrue(client.getPolicyByName("PROGRAM-" + name).isPresent());
@@ -97,8 +107,10 @@ class ProgramServiceIT {
     val group = client.getGroupByName(name);
     assertTrue(group.isPresent());
 
+    // Admins and submitters also get the membership policy
     val permissions = client.getGroupPermissions(group.get().getId());
-    assertEquals(2, permissions.length);
+    val hasMembership = role == UserRole.ADMIN || role == UserRole.SUBMITTER;
+    assertEquals(hasMembership ? 3 : 2, permissions.length);
 
     assertTrue(
         Arrays.asList(permissions).stream()
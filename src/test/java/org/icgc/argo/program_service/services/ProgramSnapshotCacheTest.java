@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.StringValue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.icgc.argo.program_service.model.dto.ProgramDetailsDTO;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.proto.GetProgramResponse;
+import org.icgc.argo.program_service.proto.Program;
+import org.icgc.argo.program_service.proto.ProgramDetails;
+import org.icgc.argo.program_service.repositories.ReadReplicaRoutingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ProgramSnapshotCacheTest {
+
+  private static final String SHORT_NAME = "TEST-CA";
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @AfterEach
+  void clearSynchronization() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+  }
+
+  @Test
+  void servesSnapshotUntilEvicted() {
+    val cache = cache(true);
+    assertEquals(response("first"), cache.getProgram(SHORT_NAME, () -> load("first")));
+    assertEquals(response("first"), cache.getProgram(SHORT_NAME, () -> load("second")));
+    assertEquals(1, loads.get());
+
+    cache.evictProgram(SHORT_NAME);
+    assertEquals(response("second"), cache.getProgram(SHORT_NAME, () -> load("second")));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void disabledCacheAlwaysLoads() {
+    val cache = cache(false);
+    cache.getProgram(SHORT_NAME, () -> load("first"));
+    cache.getProgram(SHORT_NAME, () -> load("first"));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void doesNotKeepLoadsThatRacedAnEviction() {
+    val cache = cache(true);
+    val stale =
+        cache.getProgram(
+            SHORT_NAME,
+            () -> {
+              // A write lands while this load is reading the old state
+              cache.evictProgram(SHORT_NAME);
+              return load("old");
+            });
+    assertEquals(response("old"), stale);
+    assertEquals(response("new"), cache.getProgram(SHORT_NAME, () -> load("new")));
+  }
+
+  @Test
+  void evictsAgainWhenTheWritingTransactionCompletes() {
+    val cache = cache(true);
+    TransactionSynchronizationManager.initSynchronization();
+    cache.evictProgram(SHORT_NAME);
+
+    // Read before the write commits, still the old state
+    cache.getProgram(SHORT_NAME, () -> load("old"));
+
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    assertEquals(response("new"), cache.getProgram(SHORT_NAME, () -> load("new")));
+  }
+
+  @Test
+  void loadsReadFromThePrimary() throws SQLException {
+    val primary = mock(DataSource.class);
+    val replica = mock(DataSource.class);
+    val routing = new ReadReplicaRoutingDataSource(primary, replica, 1000);
+    routing.afterPropertiesSet();
+    val cache = cache(true);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    // Evicted after a write committed, the replica may not have replayed it yet
+    cache.getProgram(
+        SHORT_NAME,
+        () -> {
+          getConnection(routing);
+          return load("new");
+        });
+    verify(primary).getConnection();
+    verifyNoInteractions(replica);
+
+    // Other read-only transactions still go to the replica
+    routing.getConnection();
+    verify(replica).getConnection();
+  }
+
+  @Test
+  void dataCenterChangesOnlyDropRestSnapshots() throws Exception {
+    val cache = cache(true);
+    cache.getProgram(SHORT_NAME, () -> load("grpc"));
+    val json = cache.getProgramJson(SHORT_NAME, "v1", ProgramDetailsDTO::new);
+    assertEquals(new ObjectMapper().writeValueAsString(new ProgramDetailsDTO()), new String(json));
+
+    cache.evictDataCenters();
+    assertEquals(response("grpc"), cache.getProgram(SHORT_NAME, () -> load("other")));
+    assertNotSame(json, cache.getProgramJson(SHORT_NAME, "v1", ProgramDetailsDTO::new));
+  }
+
+  @Test
+  void rebuildsRestSnapshotForNewVersion() {
+    val cache = cache(true);
+    val json = cache.getProgramJson(SHORT_NAME, "v1", ProgramDetailsDTO::new);
+    assertSame(json, cache.getProgramJson(SHORT_NAME, "v1", ProgramDetailsDTO::new));
+    assertNotSame(json, cache.getProgramJson(SHORT_NAME, "v2", ProgramDetailsDTO::new));
+  }
+
+  @SneakyThrows
+  private static void getConnection(DataSource dataSource) {
+    dataSource.getConnection();
+  }
+
+  private GetProgramResponse load(String name) {
+    loads.incrementAndGet();
+    return response(name);
+  }
+
+  private static GetProgramResponse response(String name) {
+    val program = Program.newBuilder().setShortName(StringValue.of(SHORT_NAME));
+    program.setName(StringValue.of(name));
+    return GetProgramResponse.newBuilder()
+        .setProgram(ProgramDetails.newBuilder().setProgram(program))
+        .build();
+  }
+
+  private static ProgramSnapshotCache cache(boolean enabled) {
+    val properties = new AppProperties();
+    properties.getProgramSnapshot().setEnabled(enabled);
+    return new ProgramSnapshotCache(properties, new ObjectMapper(), new SimpleMeterRegistry());
+  }
+}
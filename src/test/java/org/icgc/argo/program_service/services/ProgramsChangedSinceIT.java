@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.proto.ChangeType.*;
+import static org.icgc.argo.program_service.proto.MembershipType.ASSOCIATE;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.protobuf.Int64Value;
+import com.google.protobuf.StringValue;
+import java.util.List;
+import java.util.function.Predicate;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.ChangeEventEntity;
+import org.icgc.argo.program_service.proto.ListProgramsChangedSinceRequest;
+import org.icgc.argo.program_service.proto.ListProgramsChangedSinceResponse;
+import org.icgc.argo.program_service.proto.Program;
+import org.icgc.argo.program_service.repositories.ChangeEventRepository;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProgramsChangedSinceIT {
+
+  @Autowired ProgramServiceFacade facade;
+
+  @Autowired ProgramService programService;
+
+  @Autowired ChangeLogService changeLogService;
+
+  @Autowired ProgramRepository programRepository;
+
+  @Autowired ChangeEventRepository changeEventRepository;
+
+  @Autowired EntityGenerator generator;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final String shortName = randomAlphabetic(8).toUpperCase() + "-CA";
+
+  private long since;
+
+  @BeforeEach
+  void setUp() {
+    since =
+        changeEventRepository.findAll().stream()
+            .mapToLong(ChangeEventEntity::getId)
+            .max()
+            .orElse(0);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    transactions()
+        .executeWithoutResult(
+            status ->
+                programRepository
+                    .findByShortName(shortName)
+                    .ifPresent(p -> programService.removeProgram(shortName)));
+    changeEventRepository.deleteAll(changeLogService.listChanges(since, 0));
+  }
+
+  @Test
+  void updateProgramBumpsUpdatedAt() {
+    val program = createProgram();
+    val created = programService.getProgramWithoutAssociations(shortName).getUpdatedAt();
+
+    updateProgram(program);
+
+    val updated = programService.getProgramWithoutAssociations(shortName).getUpdatedAt();
+    assertTrue(updated.isAfter(created));
+  }
+
+  @Test
+  void changedProgramsAreReturnedOnceUntilRemoved() {
+    val program = createProgram();
+    updateProgram(program);
+
+    val changed = listChangedSince(since, name -> true);
+    assertEquals(
+        List.of(shortName),
+        changed.getProgramsList().stream()
+            .map(p -> p.getProgram().getShortName().getValue())
+            .collect(toList()));
+    assertTrue(changed.getRemovedShortNamesList().isEmpty());
+    assertFalse(changed.getMore().getValue());
+
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              programService.removeProgram(shortName);
+              changeLogService.programChanged(PROGRAM_REMOVED, shortName);
+            });
+
+    val removed = listChangedSince(changed.getHighWaterMark().getValue(), name -> true);
+    assertTrue(removed.getProgramsList().isEmpty());
+    assertEquals(List.of(shortName), removed.getRemovedShortNamesList());
+    assertTrue(removed.getHighWaterMark().getValue() > changed.getHighWaterMark().getValue());
+
+    val caughtUp = listChangedSince(removed.getHighWaterMark().getValue(), name -> true);
+    assertEquals(0, caughtUp.getProgramsCount() + caughtUp.getRemovedShortNamesCount());
+    assertEquals(removed.getHighWaterMark(), caughtUp.getHighWaterMark());
+  }
+
+  @Test
+  void unreadableProgramsAreLeftOut() {
+    createProgram();
+
+    val changed = listChangedSince(since, name -> !name.equals(shortName));
+    assertEquals(0, changed.getProgramsCount() + changed.getRemovedShortNamesCount());
+    assertTrue(changed.getHighWaterMark().getValue() > since);
+  }
+
+  private Program createProgram() {
+    val program = generator.createProgram(StringValue.of(shortName), ASSOCIATE);
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              programService.createProgram(program, generator.setUpDataCenter("TEST-DC").getId());
+              changeLogService.programChanged(PROGRAM_CREATED, shortName);
+            });
+    return program;
+  }
+
+  private void updateProgram(Program program) {
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              val entity = programService.getProgramWithoutAssociations(shortName);
+              programService.updateProgram(
+                  entity,
+                  entity,
+                  program.getCancerTypesList(),
+                  program.getPrimarySitesList(),
+                  List.of("Aarhus University"),
+                  program.getCountriesList());
+              changeLogService.programChanged(PROGRAM_UPDATED, shortName);
+            });
+  }
+
+  private ListProgramsChangedSinceResponse listChangedSince(long since, Predicate<String> canRead) {
+    return facade.listProgramsChangedSince(
+        ListProgramsChangedSinceRequest.newBuilder().setSince(Int64Value.of(since)).build(),
+        canRead);
+  }
+
+  private TransactionTemplate transactions() {
+    return new TransactionTemplate(transactionManager);
+  }
+}
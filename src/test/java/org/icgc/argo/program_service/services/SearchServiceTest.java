@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import io.grpc.StatusRuntimeException;
+import java.util.List;
+import java.util.stream.Stream;
+import lombok.val;
+import org.icgc.argo.program_service.model.entity.InstitutionEntity;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.repositories.InstitutionRepository;
+import org.icgc.argo.program_service.repositories.ProgramRepository;
+import org.junit.jupiter.api.Test;
+
+class SearchServiceTest {
+
+  private final InstitutionRepository institutionRepository = mock(InstitutionRepository.class);
+  private final ProgramRepository programRepository = mock(ProgramRepository.class);
+
+  @Test
+  void escapesWildcardsForDatabaseSearch() {
+    val service = new SearchService(institutionRepository, programRepository, properties(false));
+    service.searchInstitutions("  100%_Cancer ", 0);
+    verify(institutionRepository).searchByName("100\\%\\_cancer", "100%_cancer", 20);
+  }
+
+  @Test
+  void clampsLimitToMaximum() {
+    val service = new SearchService(institutionRepository, programRepository, properties(false));
+    service.searchPrograms("oicr", 10_000);
+    verify(programRepository).searchByName("oicr", 100);
+  }
+
+  @Test
+  void rejectsBlankQuery() {
+    val service = new SearchService(institutionRepository, programRepository, properties(false));
+    assertThrows(StatusRuntimeException.class, () -> service.searchInstitutions(" ", 10));
+    verifyNoInteractions(institutionRepository);
+  }
+
+  @Test
+  void inMemoryIndexRanksPrefixMatchesFirst() {
+    val institutions =
+        institutions(
+            "Children's Hospital of Toronto",
+            "Toronto General Hospital",
+            "Ontario Institute for Cancer Research",
+            "University of Toronto",
+            "TORONTO");
+    when(institutionRepository.findAll()).thenReturn(institutions);
+    val service = new SearchService(institutionRepository, programRepository, properties(true));
+
+    val names = names(service.searchInstitutions("toronto", 10));
+    assertEquals(
+        List.of(
+            "TORONTO",
+            "Toronto General Hospital",
+            "University of Toronto",
+            "Children's Hospital of Toronto"),
+        names);
+    assertEquals(
+        List.of("TORONTO", "Toronto General Hospital"),
+        names(service.searchInstitutions("toronto", 2)));
+
+    // The index is built once, searching does not go to the database
+    service.searchInstitutions("cancer", 10);
+    verify(institutionRepository, times(1)).findAll();
+    verify(institutionRepository, never()).count();
+    verify(institutionRepository, never()).searchByName(anyString(), anyString(), anyInt());
+  }
+
+  @Test
+  void inMemoryIndexIsRebuiltAfterEviction() {
+    when(institutionRepository.findAll())
+        .thenReturn(institutions("Toronto General Hospital"))
+        .thenReturn(institutions("Toronto General Hospital", "Toronto Western Hospital"));
+    val service = new SearchService(institutionRepository, programRepository, properties(true));
+
+    assertEquals(1, service.searchInstitutions("toronto", 10).size());
+    service.evictInstitutionIndex();
+    assertEquals(2, service.searchInstitutions("toronto", 10).size());
+    verify(institutionRepository, times(2)).findAll();
+  }
+
+  private static AppProperties properties(boolean inMemoryIndex) {
+    val properties = new AppProperties();
+    properties.getSearch().setInMemoryIndex(inMemoryIndex);
+    return properties;
+  }
+
+  private static List<InstitutionEntity> institutions(String... names) {
+    return Stream.of(names).map(n -> new InstitutionEntity().setName(n)).collect(toList());
+  }
+
+  private static List<String> names(List<InstitutionEntity> institutions) {
+    return institutions.stream().map(InstitutionEntity::getName).collect(toList());
+  }
+}
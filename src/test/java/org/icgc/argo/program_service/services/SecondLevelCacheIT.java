@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services;
+
+import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.icgc.argo.program_service.proto.MembershipType.ASSOCIATE;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.protobuf.StringValue;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.EntityManagerFactory;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.icgc.argo.program_service.model.enums.CacheRegions;
+import org.icgc.argo.program_service.proto.Program;
+import org.icgc.argo.program_service.utils.EntityGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest(properties = "app.second-level-cache.enabled=true")
+@ActiveProfiles("test")
+class SecondLevelCacheIT {
+
+  private static final String FIRST = "Aarhus University";
+  private static final String SECOND = "Aarhus University Hospital";
+  private static final String THIRD = "Academia Sinica";
+
+  @Autowired ProgramService programService;
+
+  @Autowired EntityGenerator generator;
+
+  @Autowired EntityManagerFactory entityManagerFactory;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final String shortName = randomAlphabetic(8).toUpperCase() + "-CA";
+
+  @AfterEach
+  void cleanUp() {
+    transactions().executeWithoutResult(status -> programService.removeProgram(shortName));
+  }
+
+  @Test
+  void programAssociationsAreServedFromCache() {
+    createProgram(List.of(FIRST, SECOND));
+    readInstitutions();
+
+    val statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    assertEquals(Set.of(FIRST, SECOND), readInstitutions());
+    assertTrue(regionStatistics(CacheRegions.PROGRAM_ASSOCIATIONS).getHitCount() > 0);
+    assertTrue(regionStatistics(CacheRegions.REFERENCE_DATA).getHitCount() > 0);
+  }
+
+  @Test
+  void updateProgramEvictsCachedAssociations() {
+    val program = createProgram(List.of(FIRST, SECOND));
+    readInstitutions();
+
+    transactions()
+        .executeWithoutResult(
+            status -> {
+              val entity = programService.getProgramWithoutAssociations(shortName);
+              programService.updateProgram(
+                  entity,
+                  entity,
+                  program.getCancerTypesList(),
+                  program.getPrimarySitesList(),
+                  List.of(FIRST, THIRD),
+                  program.getCountriesList());
+            });
+
+    assertEquals(Set.of(FIRST, THIRD), readInstitutions());
+  }
+
+  private Program createProgram(List<String> institutions) {
+    val program =
+        generator
+            .createProgram(StringValue.of(shortName), ASSOCIATE)
+            .toBuilder()
+            .clearInstitutions()
+            .addAllInstitutions(institutions)
+            .build();
+    val dataCenterId = generator.setUpDataCenter("TEST-DC").getId();
+    transactions()
+        .executeWithoutResult(status -> programService.createProgram(program, dataCenterId));
+    return program;
+  }
+
+  private Set<String> readInstitutions() {
+    return transactions()
+        .execute(
+            status ->
+                Set.copyOf(
+                    programService.getProgramWithoutAssociations(shortName).listInstitutions()));
+  }
+
+  private CacheRegionStatistics regionStatistics(String region) {
+    return entityManagerFactory
+        .unwrap(SessionFactory.class)
+        .getStatistics()
+        .getDomainDataRegionStatistics(region);
+  }
+
+  private TransactionTemplate transactions() {
+    return new TransactionTemplate(transactionManager);
+  }
+}
@@ -262,4 +262,27 @@ class ValidationServiceTest {
             .build();
     createProgramExpectingErrorMessage(request, "Invalid country 'New Freedonia'");
   }
+
+  @Test
+  void validateInviteeRole() {
+    val invitee =
+        User.newBuilder()
+            .setEmail(StringValue.of("user@example.com"))
+            .setFirstName(StringValue.of("First"))
+            .setLastName(StringValue.of("Last"));
+
+    assertEquals(List.of("Role is required"), validationService.validateInvitee(invitee.build()));
+    assertEquals(
+        List.of("Invalid role 'BANNED'"),
+        validationService.validateInvitee(
+            invitee.setRole(UserRoleValue.newBuilder().setValue(UserRole.BANNED)).build()));
+    assertEquals(
+        List.of("Invalid role 'UNRECOGNIZED'"),
+        validationService.validateInvitee(
+            invitee.setRole(UserRoleValue.newBuilder().setValueValue(42)).build()));
+    assertEquals(
+        List.of(),
+        validationService.validateInvitee(
+            invitee.setRole(UserRoleValue.newBuilder().setValue(UserRole.SUBMITTER)).build()));
+  }
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.services.admission;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.val;
+import org.icgc.argo.program_service.model.exceptions.TooManyRequestsException;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AdmissionPolicyTest {
+
+  private static final String ALICE = "user:alice@example.com";
+  private static final String BOB = "user:bob@example.com";
+
+  private final AppProperties appProperties = new AppProperties();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final AtomicLong now = new AtomicLong();
+
+  @BeforeEach
+  void setUp() {
+    val properties = appProperties.getAdmission();
+    properties.setEnabled(true);
+    properties.setRatePerSecond(1.0);
+    properties.setBurst(10);
+    properties.setCosts(Map.of("ListUsers", 5));
+    properties.setMaxConcurrentCalls(3);
+    properties.setMaxConcurrentCallsPerCaller(2);
+  }
+
+  @Test
+  void admit_expensiveOperation_takesItsCost() {
+    val policy = policy();
+    policy.admit(ALICE, "ListUsers").close();
+    policy.admit(ALICE, "ListUsers").close();
+
+    val e = assertThrows(TooManyRequestsException.class, () -> policy.admit(ALICE, "GetProgram"));
+    assertEquals(1001, e.getRetryAfterMs());
+    assertEquals(1, rejected("rate_limited"));
+
+    // Other callers have their own bucket
+    policy.admit(BOB, "ListUsers").close();
+  }
+
+  @Test
+  void admit_afterRefill_admitsAgain() {
+    val policy = policy();
+    policy.admit(ALICE, "ListUsers").close();
+    policy.admit(ALICE, "ListUsers").close();
+    assertThrows(TooManyRequestsException.class, () -> policy.admit(ALICE, "ListUsers"));
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+    policy.admit(ALICE, "ListUsers").close();
+  }
+
+  @Test
+  void admit_costAboveBurst_isCappedAtBurst() {
+    appProperties.getAdmission().setCosts(Map.of("InviteUsers", 50));
+    val policy = policy();
+
+    policy.admit(ALICE, "InviteUsers").close();
+    assertThrows(TooManyRequestsException.class, () -> policy.admit(ALICE, "GetProgram"));
+  }
+
+  @Test
+  void admit_callerAtConcurrencyLimit_isRefusedUntilACallEnds() {
+    val policy = policy();
+    val first = policy.admit(ALICE, "GetProgram");
+    policy.admit(ALICE, "GetProgram");
+
+    val e = assertThrows(TooManyRequestsException.class, () -> policy.admit(ALICE, "GetProgram"));
+    assertEquals(AdmissionPolicy.OVERLOADED_RETRY_AFTER_MS, e.getRetryAfterMs());
+    assertEquals(1, rejected("caller_busy"));
+
+    first.close();
+    policy.admit(ALICE, "GetProgram");
+  }
+
+  @Test
+  void admit_instanceAtConcurrencyLimit_shedsWithoutTakingTokens() {
+    appProperties.getAdmission().setMaxConcurrentCallsPerCaller(3);
+    val policy = policy();
+    policy.admit(ALICE, "GetProgram");
+    policy.admit(ALICE, "GetProgram");
+    val third = policy.admit(BOB, "GetProgram");
+
+    for (int i = 0; i < 3; i++) {
+      assertThrows(TooManyRequestsException.class, () -> policy.admit(BOB, "ListUsers"));
+    }
+    assertEquals(3, rejected("overloaded"));
+
+    // The refused calls did not drain the bucket
+    third.close();
+    policy.admit(BOB, "ListUsers");
+  }
+
+  @Test
+  void permit_closedTwice_releasesOnce() {
+    val policy = policy();
+    val permit = policy.admit(ALICE, "GetProgram");
+    permit.close();
+    permit.close();
+
+    policy.admit(ALICE, "GetProgram");
+    policy.admit(ALICE, "GetProgram");
+    assertThrows(TooManyRequestsException.class, () -> policy.admit(ALICE, "GetProgram"));
+  }
+
+  @Test
+  void forgetIdleCallers_keepsCallersWithRunningCallsOrSpentTokens() {
+    val policy = policy();
+    policy.admit(ALICE, "GetProgram");
+    policy.admit(BOB, "ListUsers").close();
+    policy.admit(BOB, "ListUsers").close();
+
+    policy.forgetIdleCallers();
+    assertThrows(TooManyRequestsException.class, () -> policy.admit(BOB, "GetProgram"));
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    policy.forgetIdleCallers();
+    // Alice still has a call running, so her limit still applies
+    policy.admit(ALICE, "GetProgram");
+    assertThrows(TooManyRequestsException.class, () -> policy.admit(ALICE, "GetProgram"));
+  }
+
+  @Test
+  void admit_disabled_admitsEverything() {
+    appProperties.getAdmission().setEnabled(false);
+    val policy = policy();
+    for (int i = 0; i < 100; i++) {
+      policy.admit(ALICE, "ListUsers");
+    }
+  }
+
+  private AdmissionPolicy policy() {
+    return new AdmissionPolicy(appProperties, registry, now::get);
+  }
+
+  private double rejected(String reason) {
+    return registry
+        .get("program_service.admission.rejected")
+        .tag("reason", reason)
+        .counter()
+        .count();
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.services.ego;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Value;
+import lombok.val;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.services.ego.model.exceptions.EgoException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+class EgoConcurrencyLimiterTest {
+
+  /** Ego answers this fast while it keeps up */
+  private static final long BASE_LATENCY_MS = 20;
+
+  private static final long LATENCY_THRESHOLD_MS = 2 * BASE_LATENCY_MS;
+
+  /** Far more callers than Ego can serve, so the limiter alone decides what is in flight */
+  private static final int CALLERS = 200;
+
+  private static final long PHASE_MS = 20_000;
+
+  private final AppProperties appProperties = new AppProperties();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final AtomicLong now = new AtomicLong();
+
+  @BeforeEach
+  void setUp() {
+    val properties = appProperties.getEgoConcurrency();
+    properties.setInitialLimit(10);
+    properties.setMinLimit(2);
+    properties.setMaxLimit(100);
+    properties.setLatencyThresholdMs(LATENCY_THRESHOLD_MS);
+    properties.setBackoffRatio(0.9);
+    properties.setMaxQueueWaitMs(0L);
+  }
+
+  @Test
+  void limit_followsEgoCapacityThroughTheDay() {
+    val limiter = limiter();
+    val ego = new SimulatedEgo(limiter);
+
+    // The limit settles where latency reaches the threshold, i.e. at twice the capacity
+    for (val capacity : new int[] {16, 8, 24}) {
+      val phase = ego.run(capacity, PHASE_MS);
+      assertConverged(capacity, phase);
+    }
+  }
+
+  @Test
+  void limit_startingFarAboveCapacity_shrinks() {
+    appProperties.getEgoConcurrency().setInitialLimit(100);
+    val phase = new SimulatedEgo(limiter()).run(16, PHASE_MS);
+    assertConverged(16, phase);
+  }
+
+  @Test
+  void call_serverError_shrinksLimit() {
+    val limiter = limiter();
+    assertThrows(
+        HttpServerErrorException.class,
+        () ->
+            limiter.call(
+                () -> {
+                  throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+                }));
+    assertEquals(9, limiter.getLimit());
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  void call_noSlotWithinWait_isRejected() {
+    val properties = appProperties.getEgoConcurrency();
+    properties.setInitialLimit(1);
+    properties.setMinLimit(1);
+    val limiter = limiter();
+
+    val permit = limiter.acquire();
+    assertThrows(EgoException.class, () -> limiter.call(() -> "unused"));
+    assertEquals(1, registry.get("program_service.ego.concurrency.rejected").counter().count());
+
+    permit.release(false);
+    assertEquals("answered", limiter.call(() -> "answered"));
+    assertEquals(0, registry.get("program_service.ego.concurrency.in_flight").gauge().value());
+  }
+
+  private EgoConcurrencyLimiter limiter() {
+    return new EgoConcurrencyLimiter(appProperties, registry, now::get);
+  }
+
+  private static void assertConverged(int capacity, Phase phase) {
+    assertTrue(
+        phase.getAverageLimit() > 1.6 * capacity && phase.getAverageLimit() < 2.4 * capacity,
+        "limit " + phase.getAverageLimit() + " for capacity " + capacity);
+    assertTrue(
+        phase.getAverageLatencyMs() <= 1.1 * LATENCY_THRESHOLD_MS,
+        "latency " + phase.getAverageLatencyMs() + "ms for capacity " + capacity);
+  }
+
+  /** Averages over the second half of a phase, once the limit had time to adapt */
+  @Value
+  private static class Phase {
+    double averageLimit;
+    double averageLatencyMs;
+  }
+
+  /**
+   * An Ego that answers in {@link #BASE_LATENCY_MS} up to its capacity. Beyond that, requests queue
+   * and latency grows with the requests in flight. Time advances in steps of one millisecond.
+   */
+  private class SimulatedEgo {
+    private final EgoConcurrencyLimiter limiter;
+    private final PriorityQueue<Request> inFlight =
+        new PriorityQueue<>(Comparator.comparingLong(Request::getDoneAtMs));
+    private long nowMs;
+
+    SimulatedEgo(EgoConcurrencyLimiter limiter) {
+      this.limiter = limiter;
+    }
+
+    Phase run(int capacity, long durationMs) {
+      val measureFromMs = nowMs + durationMs / 2;
+      val endMs = nowMs + durationMs;
+      double limitSum = 0;
+      long limitSamples = 0;
+      double latencySum = 0;
+      long latencySamples = 0;
+
+      for (; nowMs < endMs; nowMs++) {
+        now.set(TimeUnit.MILLISECONDS.toNanos(nowMs));
+        while (!inFlight.isEmpty() && inFlight.peek().getDoneAtMs() <= nowMs) {
+          val request = inFlight.poll();
+          request.getPermit().release(false);
+          if (nowMs >= measureFromMs) {
+            latencySum += request.getDoneAtMs() - request.getStartedAtMs();
+            latencySamples++;
+          }
+        }
+        while (inFlight.size() < CALLERS) {
+          EgoConcurrencyLimiter.Permit permit;
+          try {
+            // Rejected right away while the limit is reached, there is no queue wait
+            permit = limiter.acquire();
+          } catch (EgoException e) {
+            break;
+          }
+          val latencyMs =
+              Math.round(BASE_LATENCY_MS * Math.max(1.0, (inFlight.size() + 1.0) / capacity));
+          inFlight.add(new Request(nowMs, nowMs + latencyMs, permit));
+        }
+        if (nowMs >= measureFromMs) {
+          limitSum += limiter.getLimit();
+          limitSamples++;
+        }
+      }
+      return new Phase(limitSum / limitSamples, latencySum / latencySamples);
+    }
+  }
+
+  @Value
+  private static class Request {
+    long startedAtMs;
+    long doneAtMs;
+    EgoConcurrencyLimiter.Permit permit;
+  }
+}
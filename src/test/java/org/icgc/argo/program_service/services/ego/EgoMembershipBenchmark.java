@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services.ego;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.argo.program_service.converter.ProgramConverter;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
+import org.icgc.argo.program_service.services.InvalidationBus;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoUser;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Membership checks against a stubbed Ego group of 5,000 members: listing the group and scanning
+ * it, as joinProgram used to, versus the targeted lookup behind {@link EgoService#isMember}. The
+ * stub builds every user it returns, standing in for the transfer and deserialization. Not part of
+ * the regular test run, start it with {@code mvn test -Dtest=EgoMembershipBenchmark}.
+ */
+@Slf4j
+class EgoMembershipBenchmark {
+
+  private static final int MEMBERS = 5000;
+  private static final int CHECKS = 2000;
+  private static final UUID GROUP_ID = UUID.randomUUID();
+
+  private final Map<String, UUID> members =
+      IntStream.range(0, MEMBERS)
+          .mapToObj(i -> "member" + i + "@example.com")
+          .collect(toMap(identity(), email -> UUID.randomUUID()));
+
+  private final AtomicLong requests = new AtomicLong();
+
+  /** Users the stub handed out, i.e. that Ego would have sent */
+  private final AtomicLong usersReturned = new AtomicLong();
+
+  private final EgoClient egoClient = stubbedEgoClient();
+
+  @Test
+  void membershipChecksOnALargeGroup() {
+    val emails =
+        IntStream.range(0, CHECKS)
+            // Every other check is for someone outside of the group, who is then looked up again
+            .mapToObj(i -> i % 2 == 0 ? "member" + i + "@example.com" : "outsider@example.com")
+            .toArray(String[]::new);
+
+    val scan = run("listing the group", this::scanGroup, emails);
+
+    val uncachedProperties = new AppProperties();
+    uncachedProperties.getEgoMembershipCache().setEnabled(false);
+    val lookup = run("targeted lookup", isMember(uncachedProperties), emails);
+    val cached = run("cached lookup", isMember(new AppProperties()), emails);
+
+    // Scanning stops at a member, but every check for the outsider downloads the whole group
+    assertTrue(scan.getUsers() >= (long) CHECKS / 2 * MEMBERS);
+    assertTrue(lookup.getUsers() <= CHECKS);
+    assertEquals(CHECKS, lookup.getRequests());
+    // The outsider is looked up once, later checks fall within the negative TTL
+    assertTrue(cached.getRequests() < lookup.getRequests());
+  }
+
+  private Transfer run(String name, Predicate<String> isMember, String[] emails) {
+    requests.set(0);
+    usersReturned.set(0);
+    val start = System.nanoTime();
+    for (val email : emails) {
+      assertEquals(members.containsKey(email), isMember.test(email));
+    }
+    val elapsedMs = (System.nanoTime() - start) / 1_000_000;
+    log.info(
+        "{}: {} checks in {} ms, {} Ego requests returning {} users",
+        name,
+        emails.length,
+        elapsedMs,
+        requests.get(),
+        usersReturned.get());
+    return new Transfer(requests.get(), usersReturned.get());
+  }
+
+  private boolean scanGroup(String email) {
+    return egoClient
+        .getUsersByGroupId(GROUP_ID)
+        .anyMatch(user -> user.getEmail().equalsIgnoreCase(email));
+  }
+
+  private Predicate<String> isMember(AppProperties appProperties) {
+    val egoService =
+        new EgoService(
+            mock(ProgramConverter.class),
+            egoClient,
+            mock(JoinProgramInviteRepository.class),
+            new EgoMembershipCache(appProperties),
+            mock(InvalidationBus.class),
+            appProperties);
+    return email -> egoService.isMember(GROUP_ID, email);
+  }
+
+  private EgoClient stubbedEgoClient() {
+    val client = mock(EgoClient.class);
+    when(client.getUsersByGroupId(GROUP_ID))
+        .thenAnswer(
+            invocation -> {
+              requests.incrementAndGet();
+              return members.entrySet().stream()
+                  .map(member -> user(member.getKey(), member.getValue()));
+            });
+    when(client.isMember(any(), anyString()))
+        .thenAnswer(
+            invocation -> {
+              requests.incrementAndGet();
+              String email = invocation.getArgument(1);
+              val id = members.get(email);
+              if (id == null) {
+                return false;
+              }
+              user(email, id);
+              return true;
+            });
+    return client;
+  }
+
+  private EgoUser user(String email, UUID id) {
+    usersReturned.incrementAndGet();
+    return new EgoUser(id, email, "First", "USER", "APPROVED", "Last", null);
+  }
+
+  @Value
+  private static class Transfer {
+    long requests;
+    long users;
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services.ego;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.EntityManagerFactory;
+import lombok.val;
+import org.icgc.argo.program_service.converter.ProgramConverter;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.proto.UserRole;
+import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
+import org.icgc.argo.program_service.services.InvalidationBus;
+import org.icgc.argo.program_service.services.ProgramSnapshotCache;
+import org.icgc.argo.program_service.services.ReferenceDataCache;
+import org.icgc.argo.program_service.services.SearchService;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoGroup;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoUser;
+import org.icgc.argo.program_service.services.ego.model.exceptions.EgoException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class EgoMembershipCacheTest {
+
+  private static final String SHORT_NAME = "TEST-CA";
+  private static final String EMAIL = "user@example.com";
+
+  private final EgoGroup group =
+      new EgoGroup(UUID.randomUUID(), "PROGRAM-TEST-CA-SUBMITTER", null, "APPROVED");
+  private final EgoUser user =
+      new EgoUser(UUID.randomUUID(), EMAIL, "First", "USER", "APPROVED", "Last", null);
+
+  private final EgoClient egoClient = mock(EgoClient.class);
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private final AppProperties appProperties = new AppProperties();
+
+  @BeforeEach
+  void setUp() {
+    when(egoClient.getUser(EMAIL)).thenReturn(Optional.of(user));
+    when(egoClient.getGroupByName(anyString())).thenReturn(Optional.of(group));
+  }
+
+  @Test
+  void joinLooksTheUserUpInsteadOfListingTheGroup() {
+    when(egoClient.isMember(group.getId(), EMAIL)).thenReturn(true);
+
+    assertThrows(
+        EgoException.class, () -> egoService().joinProgram(EMAIL, SHORT_NAME, UserRole.SUBMITTER));
+    verify(egoClient, never()).getUsersByGroupId(any());
+    verify(egoClient, never()).addUserToGroup(any(), any());
+  }
+
+  @Test
+  void joiningIsRemembered() {
+    val egoService = egoService();
+    assertTrue(egoService.joinProgram(EMAIL, SHORT_NAME, UserRole.SUBMITTER));
+
+    assertThrows(
+        EgoException.class, () -> egoService.joinProgram(EMAIL, SHORT_NAME, UserRole.SUBMITTER));
+    verify(egoClient, times(1)).isMember(group.getId(), EMAIL);
+    verify(egoClient, times(1)).addUserToGroup(group.getId(), user.getId());
+  }
+
+  @Test
+  void leavingForgetsTheGroup() {
+    when(egoClient.getGroupsByUserId(user.getId())).thenReturn(Stream.of(group));
+    val egoService = egoService();
+    egoService.joinProgram(EMAIL, SHORT_NAME, UserRole.SUBMITTER);
+
+    egoService.leaveProgram(EMAIL, SHORT_NAME);
+    assertFalse(egoService.isMember(group.getId(), EMAIL));
+    verify(egoClient, times(2)).isMember(group.getId(), EMAIL);
+  }
+
+  @Test
+  void emailsAreComparedIgnoringCase() {
+    when(egoClient.isMember(group.getId(), EMAIL)).thenReturn(true);
+    val egoService = egoService();
+
+    assertTrue(egoService.isMember(group.getId(), EMAIL));
+    assertTrue(egoService.isMember(group.getId(), EMAIL.toUpperCase()));
+    verify(egoClient, times(1)).isMember(any(), any());
+  }
+
+  @Test
+  void usersOutsideOfTheGroupAreRememberedForTheNegativeTtl() {
+    val egoService = egoService();
+    assertFalse(egoService.isMember(group.getId(), EMAIL));
+    assertFalse(egoService.isMember(group.getId(), EMAIL));
+    verify(egoClient, times(1)).isMember(group.getId(), EMAIL);
+
+    appProperties.getEgoMembershipCache().setNegativeTtlMs(0L);
+    val uncached = egoService();
+    uncached.isMember(group.getId(), EMAIL);
+    uncached.isMember(group.getId(), EMAIL);
+    verify(egoClient, times(3)).isMember(group.getId(), EMAIL);
+  }
+
+  @Test
+  void disabledCacheAlwaysAsksEgo() {
+    appProperties.getEgoMembershipCache().setEnabled(false);
+    when(egoClient.isMember(group.getId(), EMAIL)).thenReturn(true);
+    val egoService = egoService();
+
+    egoService.isMember(group.getId(), EMAIL);
+    egoService.isMember(group.getId(), EMAIL);
+    verify(egoClient, times(2)).isMember(group.getId(), EMAIL);
+  }
+
+  @Test
+  void membershipChangesArePublished() {
+    appProperties.getInvalidationBus().setEnabled(true);
+    when(egoClient.getGroupsByUserId(user.getId())).thenReturn(Stream.of(group));
+    val egoService = egoService();
+
+    egoService.joinProgram(EMAIL, SHORT_NAME, UserRole.SUBMITTER);
+    egoService.leaveProgram(EMAIL, SHORT_NAME);
+    verify(jdbcTemplate, times(2))
+        .queryForList(
+            eq("SELECT pg_notify(?, ?)"),
+            eq(appProperties.getInvalidationBus().getChannel()),
+            endsWith("|membership:" + group.getId()));
+  }
+
+  private EgoService egoService() {
+    val membershipCache = new EgoMembershipCache(appProperties);
+    val invalidationBus =
+        new InvalidationBus(
+            mock(ProgramSnapshotCache.class),
+            mock(ReferenceDataCache.class),
+            mock(SearchService.class),
+            membershipCache,
+            jdbcTemplate,
+            mock(EntityManagerFactory.class),
+            appProperties);
+    return new EgoService(
+        mock(ProgramConverter.class),
+        egoClient,
+        mock(JoinProgramInviteRepository.class),
+        membershipCache,
+        invalidationBus,
+        appProperties);
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.services.ego;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+import lombok.val;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoCollection;
+import org.icgc.argo.program_service.services.ego.model.exceptions.EgoException;
+import org.junit.jupiter.api.Test;
+
+class EgoPagesTest {
+
+  private static final int PAGE_SIZE = 10;
+
+  private final List<Integer> requestedOffsets = new ArrayList<>();
+
+  /** A listing of the given number of items, recording the offset of each page requested */
+  private EgoCollection<Integer> page(int offset, int total, Long count) {
+    requestedOffsets.add(offset);
+    val items =
+        IntStream.range(offset, Math.min(offset + PAGE_SIZE, total)).boxed().collect(toList());
+    return new EgoCollection<>(items, PAGE_SIZE, offset, count);
+  }
+
+  @Test
+  void stream_allPages_returnsEveryItemInOrder() {
+    val items =
+        EgoPages.stream(offset -> page(offset, 25, null), PAGE_SIZE, null).collect(toList());
+
+    assertEquals(IntStream.range(0, 25).boxed().collect(toList()), items);
+    assertEquals(List.of(0, 10, 20), requestedOffsets);
+  }
+
+  @Test
+  void stream_findFirst_fetchesOnlyFirstPage() {
+    val first = EgoPages.stream(offset -> page(offset, 25, null), PAGE_SIZE, null).findFirst();
+
+    assertEquals(0, first.get());
+    assertEquals(List.of(0), requestedOffsets);
+  }
+
+  @Test
+  void stream_countReached_stopsWithoutRequestingEmptyPage() {
+    val items = EgoPages.stream(offset -> page(offset, 20, 20L), PAGE_SIZE, null).count();
+
+    assertEquals(20, items);
+    assertEquals(List.of(0, 10), requestedOffsets);
+  }
+
+  @Test
+  void stream_fullLastPageWithoutCount_endsOnEmptyPage() {
+    val items = EgoPages.stream(offset -> page(offset, 20, null), PAGE_SIZE, null).count();
+
+    assertEquals(20, items);
+    assertEquals(List.of(0, 10, 20), requestedOffsets);
+  }
+
+  @Test
+  void stream_shortPagesBelowCount_continueUntilCount() {
+    // Ego returning fewer items than asked for, e.g. because it caps the page size
+    val items =
+        EgoPages.stream(
+                offset -> {
+                  requestedOffsets.add(offset);
+                  val pageItems =
+                      IntStream.range(offset, Math.min(offset + 4, 10)).boxed().collect(toList());
+                  return new EgoCollection<>(pageItems, 4, offset, 10L);
+                },
+                PAGE_SIZE,
+                null)
+            .collect(toList());
+
+    assertEquals(IntStream.range(0, 10).boxed().collect(toList()), items);
+    assertEquals(List.of(0, 4, 8), requestedOffsets);
+  }
+
+  @Test
+  void stream_emptyPageBelowCount_ends() {
+    val items = EgoPages.stream(offset -> page(offset, 15, 30L), PAGE_SIZE, null).count();
+
+    assertEquals(15, items);
+    assertEquals(List.of(0, 10, 15), requestedOffsets);
+  }
+
+  @Test
+  void stream_missingResultSet_isEmpty() {
+    val items =
+        EgoPages.<Integer>stream(offset -> new EgoCollection<>(), PAGE_SIZE, null)
+            .collect(toList());
+
+    assertTrue(items.isEmpty());
+  }
+
+  @Test
+  void stream_prefetch_requestsNextPageBeforeItIsConsumed() {
+    val prefetches = new ArrayList<Runnable>();
+    Executor deferred = prefetches::add;
+
+    val iterator =
+        EgoPages.stream(offset -> page(offset, 25, null), PAGE_SIZE, deferred).iterator();
+    assertEquals(0, iterator.next());
+    assertEquals(List.of(0), requestedOffsets);
+    assertEquals(1, prefetches.size());
+
+    // The prefetched page is used instead of fetching it again
+    prefetches.remove(0).run();
+    assertEquals(List.of(0, 10), requestedOffsets);
+    for (int i = 1; i < 11; i++) {
+      assertEquals(i, iterator.next());
+    }
+    assertEquals(List.of(0, 10), requestedOffsets);
+  }
+
+  @Test
+  void stream_closedEarly_cancelsPrefetchedPage() {
+    val prefetches = new ArrayList<Runnable>();
+    Executor deferred = prefetches::add;
+
+    try (val stream = EgoPages.stream(offset -> page(offset, 25, null), PAGE_SIZE, deferred)) {
+      assertEquals(0, stream.findFirst().get());
+    }
+
+    prefetches.forEach(Runnable::run);
+    assertEquals(List.of(0), requestedOffsets);
+  }
+
+  @Test
+  void stream_prefetchFails_rethrowsOriginalException() {
+    Executor direct = Runnable::run;
+    val stream =
+        EgoPages.<Integer>stream(
+            offset -> {
+              if (offset > 0) {
+                throw new EgoException("page unavailable");
+              }
+              return page(offset, 25, null);
+            },
+            PAGE_SIZE,
+            direct);
+
+    val e = assertThrows(EgoException.class, () -> stream.collect(toList()));
+    assertEquals("page unavailable", e.getMessage());
+  }
+}
@@ -22,14 +22,21 @@ package org.icgc.argo.program_service.services.ego;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 import static java.lang.String.format;
 import static junit.framework.TestCase.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
@@ -44,12 +51,14 @@ import org.icgc.argo.program_service.properties.AppProperties;
 import org.icgc.argo.program_service.proto.MembershipType;
 import org.icgc.argo.program_service.proto.UserRole;
 import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
+import org.icgc.argo.program_service.services.InvalidationBus;
 import org.icgc.argo.program_service.services.ego.model.exceptions.EgoException;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.web.client.RestTemplateBuilder;
@@ -57,6 +66,8 @@ import org.springframework.retry.support.RetryTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 
 @Slf4j
@@ -68,6 +79,8 @@ public class EgoServiceIT {
 
   private EgoRESTClient client;
 
+  private RestTemplate testTemplate;
+
   @Autowired private RetryTemplate lenientRetryTemplate;
 
   @Autowired private RetryTemplate retryTemplate;
@@ -99,7 +112,7 @@ public class EgoServiceIT {
     val egoClientId = "program-service";
     val egoClientSecret = "qa-program-service";
 
-    val testTemplate =
+    testTemplate =
         new RestTemplateBuilder()
             .basicAuthentication(egoClientId, egoClientSecret)
             .setConnectTimeout(Duration.ofSeconds(15))
@@ -108,18 +121,38 @@ public class EgoServiceIT {
 
     client =
         new EgoRESTClient(
-            lenientRetryTemplate, retryTemplate, testTemplate, CommonConverter.INSTANCE);
-    egoService = new EgoService(converter, client, inviteRepository, appProperties);
+            lenientRetryTemplate,
+            retryTemplate,
+            testTemplate,
+            CommonConverter.INSTANCE,
+            appProperties,
+            new EgoConcurrencyLimiter(appProperties, new SimpleMeterRegistry()));
+    egoService =
+        new EgoService(
+            converter,
+            client,
+            inviteRepository,
+            new EgoMembershipCache(appProperties),
+            mock(InvalidationBus.class),
+            appProperties);
   }
 
+  /** Matches the path and the given query, leaving paging parameters unconstrained */
   void stub(String url, String filename) {
+    val parts = url.split("\\?", 2);
+    val request = get(urlPathEqualTo(parts[0]));
+    if (parts.length > 1) {
+      for (val param : parts[1].split("&")) {
+        val kv = param.split("=", 2);
+        request.withQueryParam(kv[0], equalTo(kv[1]));
+      }
+    }
     stubFor(
-        get(urlEqualTo(url))
-            .willReturn(
-                aResponse()
-                    .withStatus(OK.value())
-                    .withHeader("Content-Type", "application/json")
-                    .withBodyFile(filename)));
+        request.willReturn(
+            aResponse()
+                .withStatus(OK.value())
+                .withHeader("Content-Type", "application/json")
+                .withBodyFile(filename)));
   }
 
   public void getUser(String filename) {
@@ -128,72 +161,56 @@ public class EgoServiceIT {
 
   @Test
   @SneakyThrows
-  public void test_setUpMembershipPermissions_full() {
-    val adminGroup = "PROGRAM-" + SHORT_NAME + "-ADMIN";
-    val url_1 = format("/groups?query=%s", adminGroup);
-    stub(url_1, "resp_get_admin_group.json");
-    assertTrue(client.getGroupByName(adminGroup).isPresent());
-
-    val submitterGroup = "PROGRAM-" + SHORT_NAME + "-SUBMITTER";
-    val url_2 = format("/groups?query=%s", submitterGroup);
-    stub(url_2, "resp_get_submitter_group.json");
-    assertTrue(client.getGroupByName(submitterGroup).isPresent());
-
-    val url_3 = "/transaction/group_permissions";
+  public void test_setUpProgram_fullMembership() {
+    val url = "/transaction/group_permissions";
 
     stubFor(
-        post(urlEqualTo(format(url_3)))
+        post(urlEqualTo(url))
             .willReturn(
                 aResponse()
                     .withStatus(OK.value())
                     .withHeader("Content-Type", "application/json")
                     .withBodyFile("req_add_full_member_permission.json")));
 
-    egoService.setUpMembershipPermissions(SHORT_NAME, MembershipType.FULL);
+    egoService.setUpProgram(SHORT_NAME, MembershipType.FULL);
 
     val requestFile = Path.of(BASE_PATH + "req_add_full_member_permission.json");
     val jsonString = Files.readString(requestFile);
 
+    // The membership permissions are part of the one transaction setting up the program
     verify(
         1,
-        postRequestedFor(urlEqualTo(url_3))
+        postRequestedFor(urlEqualTo(url))
             .withHeader("Content-Type", containing("application/json"))
-            .withRequestBody(equalToJson(jsonString)));
+            .withRequestBody(equalToJson(jsonString, true, true)));
+    verify(0, getRequestedFor(urlPathEqualTo("/groups")));
   }
 
   @Test
   @SneakyThrows
-  public void test_setUpMembershipPermissions_associate() {
-    val adminGroup = "PROGRAM-" + SHORT_NAME + "-ADMIN";
-    val url_1 = format("/groups?query=%s", adminGroup);
-    stub(url_1, "resp_get_admin_group.json");
-    assertTrue(client.getGroupByName(adminGroup).isPresent());
-
-    val submitterGroup = "PROGRAM-" + SHORT_NAME + "-SUBMITTER";
-    val url_2 = format("/groups?query=%s", submitterGroup);
-    stub(url_2, "resp_get_submitter_group.json");
-    assertTrue(client.getGroupByName(submitterGroup).isPresent());
-
-    val url_3 = "/transaction/group_permissions";
+  public void test_setUpProgram_associateMembership() {
+    val url = "/transaction/group_permissions";
 
     stubFor(
-        post(urlEqualTo(format(url_3)))
+        post(urlEqualTo(url))
             .willReturn(
                 aResponse()
                     .withStatus(OK.value())
                     .withHeader("Content-Type", "application/json")
                     .withBodyFile("req_add_associate_member_permission.json")));
 
-    egoService.setUpMembershipPermissions(SHORT_NAME, MembershipType.ASSOCIATE);
+    egoService.setUpProgram(SHORT_NAME, MembershipType.ASSOCIATE);
 
     val requestFile = Path.of(BASE_PATH + "req_add_associate_member_permission.json");
     val jsonString = Files.readString(requestFile);
 
+    // The membership permissions are part of the one transaction setting up the program
     verify(
         1,
-        postRequestedFor(urlEqualTo(url_3))
+        postRequestedFor(urlEqualTo(url))
             .withHeader("Content-Type", containing("application/json"))
-            .withRequestBody(equalToJson(jsonString)));
+            .withRequestBody(equalToJson(jsonString, true, true)));
+    verify(0, getRequestedFor(urlPathEqualTo("/groups")));
   }
 
   @Test
@@ -219,7 +236,7 @@ public class EgoServiceIT {
 
   public void getGroupsFail(UUID userId) {
     stubFor(
-        get(urlEqualTo(format("/users/%s/groups", userId)))
+        get(urlPathEqualTo(format("/users/%s/groups", userId)))
             .willReturn(aResponse().withStatus(INTERNAL_SERVER_ERROR.value())));
   }
 
@@ -453,4 +470,45 @@ public class EgoServiceIT {
     exceptionRule.expectMessage(errMsg);
     egoService.leaveProgram(TEST_EMAIL, SHORT_NAME);
   }
+
+  @Test
+  public void getUserResolvedPermissions_serviceUnavailable_isRetriedThroughLimiter() {
+    val url = format("/users/%s/groups/permissions", TEST_ID);
+    stubFor(
+        get(urlEqualTo(url))
+            .inScenario("permissions")
+            .whenScenarioStateIs(STARTED)
+            .willReturn(aResponse().withStatus(SERVICE_UNAVAILABLE.value()))
+            .willSetStateTo("recovered"));
+    stubFor(
+        get(urlEqualTo(url))
+            .inScenario("permissions")
+            .whenScenarioStateIs("recovered")
+            .willReturn(
+                aResponse()
+                    .withStatus(OK.value())
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("[]")));
+
+    // the configured backoff is seconds long, so retry the 503 straight away here
+    val fastRetryTemplate =
+        RetryTemplate.builder()
+            .maxAttempts(2)
+            .fixedBackoff(1)
+            .retryOn(HttpServerErrorException.class)
+            .build();
+    val limiter = spy(new EgoConcurrencyLimiter(appProperties, new SimpleMeterRegistry()));
+    val retryingClient =
+        new EgoRESTClient(
+            lenientRetryTemplate,
+            fastRetryTemplate,
+            testTemplate,
+            CommonConverter.INSTANCE,
+            appProperties,
+            limiter);
+
+    assertEquals(0, retryingClient.getUserResolvedPermissions(TEST_ID).length);
+    verify(2, getRequestedFor(urlEqualTo(url)));
+    Mockito.verify(limiter, times(2)).call(any());
+  }
 }
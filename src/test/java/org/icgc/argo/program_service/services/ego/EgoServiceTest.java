@@ -35,6 +35,7 @@ import org.icgc.argo.program_service.Utils;
 import org.icgc.argo.program_service.model.entity.ProgramEntity;
 import org.icgc.argo.program_service.proto.UserRole;
 import org.icgc.argo.program_service.security.EgoSecurity;
+import org.icgc.argo.program_service.services.InvalidationBus;
 import org.icgc.argo.program_service.services.ego.model.entity.EgoGroup;
 import org.icgc.argo.program_service.services.ego.model.entity.EgoUser;
 import org.junit.jupiter.api.Test;
@@ -173,6 +174,8 @@ class EgoServiceTest {
     val egoService = mock(EgoService.class);
     val egoClient = mock(EgoClient.class);
     ReflectionTestUtils.setField(egoService, "egoClient", egoClient);
+    val invalidationBus = mock(InvalidationBus.class);
+    ReflectionTestUtils.setField(egoService, "invalidationBus", invalidationBus);
 
     val userId = UUID.randomUUID();
     val email = "raptors@gmail.com";
@@ -210,5 +213,6 @@ class EgoServiceTest {
     egoService.updateUserRole(email, shortname, newRole);
 
     verify(egoClient, times(1)).addUserToGroup(collabGroupId, userId);
+    verify(invalidationBus).membershipChanged(collabGroupId);
   }
 }
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services.ego;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import javax.servlet.FilterChain;
+import lombok.val;
+import org.icgc.argo.program_service.controller.EgoRequestScopeFilter;
+import org.icgc.argo.program_service.proto.UserRole;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoGroup;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class MemoizingEgoClientTest {
+
+  private static final UUID GROUP_ID = UUID.randomUUID();
+  private static final String EMAIL = "user@example.com";
+
+  private final EgoRESTClient egoClient = mock(EgoRESTClient.class);
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final MemoizingEgoClient client = new MemoizingEgoClient(egoClient, registry);
+
+  @Test
+  void repeatedLookupsWithinAScopeGoToEgoOnce() {
+    when(egoClient.getGroupByName("PROGRAM-TEST-CA-ADMIN")).thenReturn(Optional.of(new EgoGroup()));
+
+    EgoRequestScope.open()
+        .run(
+            () -> {
+              client.getGroupByName("PROGRAM-TEST-CA-ADMIN");
+              client.getGroupByName("PROGRAM-TEST-CA-ADMIN");
+            });
+    verify(egoClient, times(1)).getGroupByName("PROGRAM-TEST-CA-ADMIN");
+  }
+
+  @Test
+  void lookupsOutsideOfAScopeAlwaysGoToEgo() {
+    client.isMember(GROUP_ID, EMAIL);
+    client.isMember(GROUP_ID, EMAIL);
+    verify(egoClient, times(2)).isMember(GROUP_ID, EMAIL);
+  }
+
+  @Test
+  void scopesDoNotShareResults() {
+    EgoRequestScope.open().run(() -> client.isMember(GROUP_ID, EMAIL));
+    EgoRequestScope.open().run(() -> client.isMember(GROUP_ID, EMAIL));
+    verify(egoClient, times(2)).isMember(GROUP_ID, EMAIL);
+  }
+
+  @Test
+  void writesForgetEarlierLookups() {
+    val userId = UUID.randomUUID();
+    EgoRequestScope.open()
+        .run(
+            () -> {
+              client.isMember(GROUP_ID, EMAIL);
+              client.addUserToGroup(GROUP_ID, userId);
+              client.isMember(GROUP_ID, EMAIL);
+            });
+    verify(egoClient, times(2)).isMember(GROUP_ID, EMAIL);
+  }
+
+  @Test
+  void lookupsThatFindNothingAreRemembered() {
+    when(egoClient.getUser(EMAIL)).thenReturn(Optional.empty());
+    EgoRequestScope.open()
+        .run(
+            () -> {
+              client.getUser(EMAIL);
+              client.getUser(EMAIL);
+            });
+    verify(egoClient, times(1)).getUser(EMAIL);
+  }
+
+  @Test
+  void groupMembersAnswerLookupsByEmail() {
+    val member = new EgoUser(UUID.randomUUID(), EMAIL, "First", "USER", "APPROVED", "Last", null);
+    when(egoClient.getUsersByGroupId(GROUP_ID)).thenReturn(Stream.of(member));
+
+    EgoRequestScope.open()
+        .run(
+            () -> {
+              assertEquals(1, client.getUsersByGroupId(GROUP_ID).count());
+              assertEquals(1, client.getUsersByGroupId(GROUP_ID).count());
+              assertEquals(Optional.of(member), client.getUser(EMAIL));
+            });
+    verify(egoClient, times(1)).getUsersByGroupId(GROUP_ID);
+    verify(egoClient, never()).getUser(EMAIL);
+  }
+
+  @Test
+  void groupMembersReadOnlyPartlyAreNotRemembered() {
+    val first = new EgoUser(UUID.randomUUID(), EMAIL, "First", "USER", "APPROVED", "Last", null);
+    val second =
+        new EgoUser(
+            UUID.randomUUID(), "other@example.com", "Other", "USER", "APPROVED", "Last", null);
+    val closed = new AtomicBoolean();
+    when(egoClient.getUsersByGroupId(GROUP_ID))
+        .thenAnswer(i -> Stream.of(first, second).onClose(() -> closed.set(true)))
+        .thenAnswer(i -> Stream.of(first, second));
+
+    EgoRequestScope.open()
+        .run(
+            () -> {
+              try (val members = client.getUsersByGroupId(GROUP_ID)) {
+                assertEquals(first.getId(), members.findFirst().get().getId());
+              }
+              assertTrue(closed.get());
+              assertEquals(2, client.getUsersByGroupId(GROUP_ID).count());
+              assertEquals(2, client.getUsersByGroupId(GROUP_ID).count());
+            });
+    verify(egoClient, times(2)).getUsersByGroupId(GROUP_ID);
+  }
+
+  @Test
+  void callersCannotChangeRememberedUsers() {
+    val member = new EgoUser(UUID.randomUUID(), EMAIL, "First", "USER", "APPROVED", "Last", null);
+    when(egoClient.getUsersByGroupId(GROUP_ID)).thenReturn(Stream.of(member));
+
+    EgoRequestScope.open()
+        .run(
+            () -> {
+              val first =
+                  client
+                      .getUsersByGroupId(GROUP_ID)
+                      .map(user -> user.setRole(UserRole.ADMIN))
+                      .collect(toList());
+              assertEquals(UserRole.ADMIN, first.get(0).getRole());
+              assertNull(client.getUsersByGroupId(GROUP_ID).collect(toList()).get(0).getRole());
+            });
+  }
+
+  @Test
+  void filterGivesEachRequestItsOwnScope() throws Exception {
+    val filter = new EgoRequestScopeFilter();
+    FilterChain chain =
+        (request, response) -> {
+          client.isMember(GROUP_ID, EMAIL);
+          client.isMember(GROUP_ID, EMAIL);
+        };
+
+    filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), chain);
+    filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), chain);
+    verify(egoClient, times(2)).isMember(GROUP_ID, EMAIL);
+    assertTrue(EgoRequestScope.current().isEmpty());
+  }
+
+  @Test
+  void cancelledCallsDoNotGoToEgo() {
+    val call = EgoRequestScope.open().withCancellation();
+    call.cancel(null);
+
+    call.run(
+        () -> {
+          val e =
+              assertThrows(StatusRuntimeException.class, () -> client.isMember(GROUP_ID, EMAIL));
+          assertEquals(Status.Code.CANCELLED, e.getStatus().getCode());
+        });
+    verify(egoClient, never()).isMember(GROUP_ID, EMAIL);
+  }
+
+  @Test
+  void callsThatWroteToEgoAreNotStoppedHalfway() {
+    val userId = UUID.randomUUID();
+    val call = EgoRequestScope.open().withCancellation();
+
+    call.run(
+        () -> {
+          client.addUserToGroup(GROUP_ID, userId);
+          call.cancel(null);
+          client.isMember(GROUP_ID, EMAIL);
+          client.removeUserFromGroup(GROUP_ID, userId);
+        });
+    verify(egoClient).isMember(GROUP_ID, EMAIL);
+    verify(egoClient).removeUserFromGroup(GROUP_ID, userId);
+  }
+
+  @Test
+  void sharedLookupsOutliveTheCallThatStartedThem() throws Exception {
+    val started = new CountDownLatch(1);
+    val release = new CountDownLatch(1);
+    when(egoClient.isMember(GROUP_ID, EMAIL))
+        .thenAnswer(
+            invocation -> {
+              started.countDown();
+              release.await(5, TimeUnit.SECONDS);
+              return !Context.current().isCancelled();
+            });
+
+    val first = EgoRequestScope.open().withCancellation();
+    val firstResult =
+        CompletableFuture.supplyAsync(() -> in(first, () -> client.isMember(GROUP_ID, EMAIL)));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    val second = EgoRequestScope.open();
+    val secondResult =
+        CompletableFuture.supplyAsync(() -> in(second, () -> client.isMember(GROUP_ID, EMAIL)));
+    while (coalesced() < 1) {
+      Thread.sleep(10);
+    }
+    first.cancel(null);
+    release.countDown();
+
+    assertTrue(secondResult.get(5, TimeUnit.SECONDS));
+    assertTrue(firstResult.get(5, TimeUnit.SECONDS));
+    verify(egoClient, times(1)).isMember(GROUP_ID, EMAIL);
+  }
+
+  private static <T> T in(Context context, Supplier<T> supplier) {
+    val previous = context.attach();
+    try {
+      return supplier.get();
+    } finally {
+      context.detach(previous);
+    }
+  }
+
+  private double coalesced() {
+    return registry
+        .get("program_service.single_flight.calls")
+        .tag("flight", "ego_reads")
+        .tag("outcome", "coalesced")
+        .counter()
+        .count();
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.icgc.argo.program_service.services.ego;
+
+import static org.icgc.argo.program_service.proto.MembershipType.ASSOCIATE;
+import static org.icgc.argo.program_service.proto.MembershipType.FULL;
+import static org.icgc.argo.program_service.services.ego.ProgramPermissionPlan.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.val;
+import org.icgc.argo.program_service.converter.ProgramConverter;
+import org.icgc.argo.program_service.properties.AppProperties;
+import org.icgc.argo.program_service.repositories.JoinProgramInviteRepository;
+import org.icgc.argo.program_service.services.InvalidationBus;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoGroup;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoGroupPermissionRequest;
+import org.icgc.argo.program_service.services.ego.model.entity.EgoPolicy;
+import org.junit.jupiter.api.Test;
+
+class ProgramPermissionPlanTest {
+
+  private static final String SHORT_NAME = "TEST-CA";
+
+  private final EgoClient egoClient = mock(EgoClient.class);
+
+  private final EgoService egoService =
+      new EgoService(
+          mock(ProgramConverter.class),
+          egoClient,
+          mock(JoinProgramInviteRepository.class),
+          new EgoMembershipCache(new AppProperties()),
+          mock(InvalidationBus.class),
+          new AppProperties());
+
+  @Test
+  void setUpCoversProgramDataAndMembershipPermissions() {
+    val plan = setUp(SHORT_NAME, FULL);
+
+    // Two policies for each role, and the membership policy of the admin and submitter groups
+    val expected = new ArrayList<EgoGroupPermissionRequest>();
+    for (val role : EgoService.roles()) {
+      val group = group(role.name());
+      expected.add(
+          new EgoGroupPermissionRequest(
+              group, "PROGRAM-" + SHORT_NAME, EgoService.getProgramMask(role)));
+      expected.add(
+          new EgoGroupPermissionRequest(
+              group, "PROGRAMDATA-" + SHORT_NAME, EgoService.getDataMask(role)));
+    }
+    expected.add(new EgoGroupPermissionRequest(group("ADMIN"), FULL_MEMBERSHIP_POLICY, "READ"));
+    expected.add(new EgoGroupPermissionRequest(group("SUBMITTER"), FULL_MEMBERSHIP_POLICY, "READ"));
+    assertEquals(expected, plan.getGrants());
+    assertTrue(plan.getRevokes().isEmpty());
+  }
+
+  @Test
+  void membershipChangeRevokesOnlyThePreviousMembershipPolicy() {
+    val plan = changeMembership(SHORT_NAME, FULL, ASSOCIATE);
+
+    assertEquals(desiredPermissions(SHORT_NAME, ASSOCIATE), plan.getGrants());
+    assertEquals(
+        List.of(
+            new EgoGroupPermissionRequest(group("ADMIN"), FULL_MEMBERSHIP_POLICY, "READ"),
+            new EgoGroupPermissionRequest(group("SUBMITTER"), FULL_MEMBERSHIP_POLICY, "READ")),
+        plan.getRevokes());
+  }
+
+  @Test
+  void setUpIsASingleTransaction() {
+    egoService.setUpProgram(SHORT_NAME, ASSOCIATE);
+
+    verify(egoClient, times(1)).assignGroupPermissions(desiredPermissions(SHORT_NAME, ASSOCIATE));
+    verifyNoMoreInteractions(egoClient);
+  }
+
+  @Test
+  void membershipChangeGrantsOnceThenDeletesTheOldPolicy() {
+    val adminGroupId = UUID.randomUUID();
+    val submitterGroupId = UUID.randomUUID();
+    val fullPolicyId = UUID.randomUUID();
+    when(egoClient.getGroupByName(group("ADMIN")))
+        .thenReturn(Optional.of(EgoGroup.builder().id(adminGroupId).build()));
+    when(egoClient.getGroupByName(group("SUBMITTER")))
+        .thenReturn(Optional.of(EgoGroup.builder().id(submitterGroupId).build()));
+    when(egoClient.getPolicyByName(FULL_MEMBERSHIP_POLICY))
+        .thenReturn(Optional.of(EgoPolicy.builder().id(fullPolicyId).build()));
+
+    egoService.updateMembershipPermissions(SHORT_NAME, FULL, ASSOCIATE);
+    egoService.updateMembershipPermissions(SHORT_NAME, FULL, ASSOCIATE);
+
+    val order = inOrder(egoClient);
+    order.verify(egoClient).assignGroupPermissions(desiredPermissions(SHORT_NAME, ASSOCIATE));
+    order.verify(egoClient).deleteGroupPermission(fullPolicyId, adminGroupId);
+    order.verify(egoClient).deleteGroupPermission(fullPolicyId, submitterGroupId);
+    verify(egoClient, times(2)).assignGroupPermissions(any());
+
+    // The shared membership policy is only looked up once
+    verify(egoClient, times(1)).getPolicyByName(FULL_MEMBERSHIP_POLICY);
+  }
+
+  private static String group(String role) {
+    return "PROGRAM-" + SHORT_NAME + "-" + role;
+  }
+}
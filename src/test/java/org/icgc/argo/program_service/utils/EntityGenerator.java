@@ -52,6 +52,8 @@ public class EntityGenerator {
 
   @Autowired private CountryRepository countryRepository;
 
+  @Autowired private DataCenterRepository dataCenterRepository;
+
   @Autowired private ProgramConverter programConverter;
 
   public ProgramEntity setUpProgramEntity(String shortname) {
@@ -155,6 +157,31 @@ public class EntityGenerator {
             });
   }
 
+  public DataCenterEntity setUpDataCenter(String shortName) {
+    return dataCenterRepository.findAll().stream()
+        .filter(dataCenter -> dataCenter.getShortName().equals(shortName))
+        .findFirst()
+        .orElseGet(() -> createDataCenterEntity(shortName));
+  }
+
+  private DataCenterEntity createDataCenterEntity(String shortName) {
+    val entity =
+        new DataCenterEntity()
+            .setShortName(shortName)
+            .setName("NAME-" + shortName)
+            .setOrganization("Test Organization")
+            .setEmail("dc@test.org")
+            .setUiUrl("http://ui.test.org")
+            .setGatewayUrl("http://gateway.test.org")
+            .setAnalysisSongCode("song")
+            .setAnalysisSongUrl("http://song.test.org")
+            .setAnalysisScoreUrl("http://score.test.org")
+            .setSubmissionSongCode("song")
+            .setSubmissionSongUrl("http://song.test.org")
+            .setSubmissionScoreUrl("http://score.test.org");
+    return dataCenterRepository.save(entity);
+  }
+
   private CancerEntity createCancerEntity(String name) {
     val entity = new CancerEntity().setId(UUID.randomUUID()).setName(name);
     return cancerRepository.save(entity);
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2023 The Ontario Institute for Cancer Research. All rights reserved
+ *
+ * This program and the accompanying materials are made available under the terms of the GNU Affero General Public License v3.0.
+ * You should have received a copy of the GNU Affero General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.icgc.argo.program_service.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final SingleFlight<String> flight = new SingleFlight<>("test", registry);
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+  private final AtomicInteger computations = new AtomicInteger();
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  @SneakyThrows
+  void execute_concurrentSameKey_sharesOneComputation() {
+    val first = executor.submit(() -> flight.execute("key", this::blockingComputation));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    val second = executor.submit(() -> flight.execute("key", this::blockingComputation));
+    awaitCalls(2);
+
+    release.countDown();
+    assertEquals(1, first.get(5, TimeUnit.SECONDS));
+    assertEquals(1, second.get(5, TimeUnit.SECONDS));
+    assertEquals(1, computations.get());
+    assertEquals(1, count("executed"));
+    assertEquals(1, count("coalesced"));
+  }
+
+  @Test
+  @SneakyThrows
+  void execute_differentKeys_computesEach() {
+    val first = executor.submit(() -> flight.execute("a", this::blockingComputation));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    assertEquals(1, flight.execute("b", computations::incrementAndGet));
+    release.countDown();
+    assertEquals(2, first.get(5, TimeUnit.SECONDS));
+    assertEquals(2, count("executed"));
+  }
+
+  @Test
+  void execute_afterCompletion_computesAgain() {
+    assertEquals(1, flight.execute("key", computations::incrementAndGet));
+    assertEquals(2, flight.execute("key", computations::incrementAndGet));
+    assertEquals(0, count("coalesced"));
+  }
+
+  @Test
+  @SneakyThrows
+  void execute_computationFails_rethrowsToEveryCaller() {
+    val failure = new IllegalStateException("boom");
+    Future<Object> first =
+        executor.submit(
+            () ->
+                flight.execute(
+                    "key",
+                    () -> {
+                      blockingComputation();
+                      throw failure;
+                    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    Future<Object> second = executor.submit(() -> flight.execute("key", () -> "unused"));
+    awaitCalls(2);
+
+    release.countDown();
+    for (val caller : new Future<?>[] {first, second}) {
+      val e = assertThrows(Exception.class, () -> caller.get(5, TimeUnit.SECONDS));
+      assertSame(failure, e.getCause());
+    }
+    // Failures are not remembered either
+    assertEquals("retried", flight.execute("key", () -> "retried"));
+  }
+
+  @Test
+  @SneakyThrows
+  void execute_waiterPastItsDeadline_stopsWaiting() {
+    val first = executor.submit(() -> flight.execute("key", this::blockingComputation));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    val e =
+        assertThrows(
+            StatusRuntimeException.class,
+            () ->
+                Context.current()
+                    .withDeadline(Deadline.after(50, TimeUnit.MILLISECONDS), scheduler)
+                    .call(() -> flight.execute("key", this::blockingComputation)));
+    assertEquals(Status.Code.DEADLINE_EXCEEDED, e.getStatus().getCode());
+
+    // The computation goes on for the caller that started it
+    release.countDown();
+    assertEquals(1, first.get(5, TimeUnit.SECONDS));
+    assertEquals(1, computations.get());
+  }
+
+  @Test
+  @SneakyThrows
+  void execute_waiterCancelled_stopsWaiting() {
+    val first = executor.submit(() -> flight.execute("key", this::blockingComputation));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    val call = Context.current().withCancellation();
+    Future<Object> second =
+        executor.submit(() -> call.call(() -> flight.execute("key", this::blockingComputation)));
+    awaitCalls(2);
+    call.cancel(null);
+
+    val e = assertThrows(Exception.class, () -> second.get(5, TimeUnit.SECONDS));
+    assertEquals(
+        Status.Code.CANCELLED, ((StatusRuntimeException) e.getCause()).getStatus().getCode());
+    release.countDown();
+    assertEquals(1, first.get(5, TimeUnit.SECONDS));
+  }
+
+  @SneakyThrows
+  private Integer blockingComputation() {
+    started.countDown();
+    assertTrue(release.await(5, TimeUnit.SECONDS));
+    return computations.incrementAndGet();
+  }
+
+  /** The second caller only registers as coalesced once it found the running computation */
+  @SneakyThrows
+  private void awaitCalls(int calls) {
+    val deadline = System.currentTimeMillis() + 5000;
+    while (count("executed") + count("coalesced") < calls) {
+      assertTrue(System.currentTimeMillis() < deadline, "callers did not arrive in time");
+      Thread.sleep(5);
+    }
+  }
+
+  private double count(String outcome) {
+    return registry
+        .get("program_service.single_flight.calls")
+        .tag("flight", "test")
+        .tag("outcome", outcome)
+        .counter()
+        .count();
+  }
+}